@@ -0,0 +1,40 @@
+// ----------------------------------------------------------------------
+// Axis-aligned bounding box with a slab intersection test
+// ----------------------------------------------------------------------
+class AABB {
+    public final Vec3 min;
+    public final Vec3 max;
+
+    public AABB(Vec3 min, Vec3 max) {
+        this.min = min;
+        this.max = max;
+    }
+
+    public boolean hit(Ray r, double tMin, double tMax) {
+        double[] o = {r.origin.x, r.origin.y, r.origin.z};
+        double[] d = {r.direction.x, r.direction.y, r.direction.z};
+        double[] lo = {min.x, min.y, min.z};
+        double[] hi = {max.x, max.y, max.z};
+        for (int axis = 0; axis < 3; axis++) {
+            double invD = 1.0 / d[axis];
+            double t0 = (lo[axis] - o[axis]) * invD;
+            double t1 = (hi[axis] - o[axis]) * invD;
+            if (invD < 0) { double tmp = t0; t0 = t1; t1 = tmp; }
+            if (t0 > tMin) tMin = t0;
+            if (t1 < tMax) tMax = t1;
+            if (tMax <= tMin) return false;
+        }
+        return true;
+    }
+
+    public Vec3 centroid() {
+        return min.add(max).scale(0.5);
+    }
+
+    public static AABB surrounding(AABB a, AABB b) {
+        return new AABB(
+                new Vec3(Math.min(a.min.x, b.min.x), Math.min(a.min.y, b.min.y), Math.min(a.min.z, b.min.z)),
+                new Vec3(Math.max(a.max.x, b.max.x), Math.max(a.max.y, b.max.y), Math.max(a.max.z, b.max.z))
+        );
+    }
+}
@@ -0,0 +1,75 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// ----------------------------------------------------------------------
+// Bounding volume hierarchy: used both as the bottom-level structure of
+// shared geometry and as the top-level structure over Instances
+// ----------------------------------------------------------------------
+class BVHNode implements Hittable {
+    private final Hittable left;
+    private final Hittable right;
+    private final AABB box;
+
+    public BVHNode(List<Hittable> objects) {
+        this(requireNonEmpty(objects).toArray(new Hittable[0]), 0, objects.size());
+    }
+
+    private BVHNode(Hittable[] objects, int start, int end) {
+        int span = end - start;
+        if (span == 1) {
+            left = right = objects[start];
+        } else if (span == 2) {
+            left = objects[start];
+            right = objects[start + 1];
+        } else {
+            // Split at the median along the longest axis of the centroid bounds
+            AABB centroids = null;
+            for (int i = start; i < end; i++) {
+                Vec3 c = objects[i].boundingBox().centroid();
+                AABB point = new AABB(c, c);
+                centroids = (centroids == null) ? point : AABB.surrounding(centroids, point);
+            }
+            Vec3 extent = centroids.max.subtract(centroids.min);
+            int axis = (extent.x > extent.y && extent.x > extent.z) ? 0 : (extent.y > extent.z ? 1 : 2);
+            Arrays.sort(objects, start, end,
+                    Comparator.comparingDouble(h -> component(h.boundingBox().centroid(), axis)));
+
+            int mid = start + span / 2;
+            left = new BVHNode(objects, start, mid);
+            right = new BVHNode(objects, mid, end);
+        }
+        box = AABB.surrounding(left.boundingBox(), right.boundingBox());
+    }
+
+    private static List<Hittable> requireNonEmpty(List<Hittable> objects) {
+        if (objects.isEmpty()) {
+            throw new IllegalArgumentException("A BVH needs at least one object");
+        }
+        return objects;
+    }
+
+    private static double component(Vec3 v, int axis) {
+        return axis == 0 ? v.x : (axis == 1 ? v.y : v.z);
+    }
+
+    @Override
+    public boolean hit(Ray r, double tMin, double tMax, HitRecord rec) {
+        if (!box.hit(r, tMin, tMax)) return false;
+
+        boolean hitLeft = left.hit(r, tMin, tMax, rec);
+        if (right == left) return hitLeft;
+        boolean hitRight = right.hit(r, tMin, hitLeft ? rec.t : tMax, rec);
+        return hitLeft || hitRight;
+    }
+
+    @Override
+    public AABB boundingBox() {
+        return box;
+    }
+
+    @Override
+    public boolean hasMaterial() {
+        return left.hasMaterial() && right.hasMaterial();
+    }
+}
@@ -0,0 +1,61 @@
+import java.util.Random;
+
+// ----------------------------------------------------------------------
+// Simple thin-lens Camera
+// ----------------------------------------------------------------------
+class Camera {
+    private Vec3 origin;
+    private Vec3 lowerLeftCorner;
+    private Vec3 horizontal;
+    private Vec3 vertical;
+    private Vec3 u, v, w;
+    private double lensRadius;
+    private final Random rng = new Random();
+
+    public Camera(Vec3 lookFrom, Vec3 lookAt, Vec3 vup,
+                  double vfov, // vertical field-of-view in degrees
+                  double aspectRatio,
+                  double aperture,
+                  double focusDist) {
+
+        double theta = Math.toRadians(vfov);
+        double h = Math.tan(theta / 2);
+        double viewportHeight = 2.0 * h;
+        double viewportWidth  = aspectRatio * viewportHeight;
+
+        w = (lookFrom.subtract(lookAt)).normalize();
+        u = (vup.cross(w)).normalize();
+        v = w.cross(u);
+
+        origin = lookFrom;
+        horizontal = u.scale(focusDist * viewportWidth);
+        vertical   = v.scale(focusDist * viewportHeight);
+        lowerLeftCorner = origin.subtract(horizontal.scale(0.5))
+                .subtract(vertical.scale(0.5))
+                .subtract(w.scale(focusDist));
+
+        lensRadius = aperture / 2;
+    }
+
+    public Ray getRay(double s, double t, Random rng) {
+        Vec3 rd = randomInUnitDisk(rng).scale(lensRadius);
+        Vec3 offset = u.scale(rd.x).add(v.scale(rd.y));
+
+        Vec3 dir = lowerLeftCorner
+                .add(horizontal.scale(s))
+                .add(vertical.scale(t))
+                .subtract(origin)
+                .subtract(offset);
+        return new Ray(origin.add(offset), dir);
+    }
+
+    private Vec3 randomInUnitDisk(Random rng) {
+        while (true) {
+            double x = 2.0*rng.nextDouble() - 1.0;
+            double y = 2.0*rng.nextDouble() - 1.0;
+            if (x*x + y*y < 1.0) {
+                return new Vec3(x, y, 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+import java.util.Random;
+
+// ----------------------------------------------------------------------
+// Dielectric: glass-like refraction with Schlick reflectance
+// ----------------------------------------------------------------------
+class Dielectric extends Material {
+    public double ir; // Index of refraction
+
+    public Dielectric(double indexOfRefraction) {
+        ir = indexOfRefraction;
+    }
+
+    @Override
+    public boolean scatter(Ray rIn, HitRecord rec, Vec3 attenuation, Ray scattered, Random rng) {
+        attenuation.x = 1.0;
+        attenuation.y = 1.0;
+        attenuation.z = 1.0;
+        double refractionRatio = rec.frontFace ? (1.0 / ir) : ir;
+
+        Vec3 unitDir = rIn.direction.normalize();
+        double cosTheta = Math.min(unitDir.scale(-1).dot(rec.normal), 1.0);
+        double sinTheta = Math.sqrt(1.0 - cosTheta*cosTheta);
+
+        boolean cannotRefract = refractionRatio * sinTheta > 1.0;
+        Vec3 direction;
+        if (cannotRefract || reflectance(cosTheta, refractionRatio) > rng.nextDouble()) {
+            direction = reflect(unitDir, rec.normal);
+        } else {
+            direction = refract(unitDir, rec.normal, refractionRatio);
+        }
+
+        scattered.origin = rec.p;
+        scattered.direction = direction;
+        return true;
+    }
+
+    private Vec3 reflect(Vec3 v, Vec3 n) {
+        return v.subtract(n.scale(2 * v.dot(n)));
+    }
+
+    private Vec3 refract(Vec3 uv, Vec3 n, double etaiOverEtat) {
+        double cosTheta = Math.min(uv.scale(-1).dot(n), 1.0);
+        Vec3 rOutPerp = uv.add(n.scale(cosTheta)).scale(etaiOverEtat);
+        Vec3 rOutParallel = n.scale(-Math.sqrt(Math.abs(1.0 - rOutPerp.dot(rOutPerp))));
+        return rOutPerp.add(rOutParallel);
+    }
+
+    private double reflectance(double cosine, double refIdx) {
+        // Use Schlick's approximation for reflectance.
+        double r0 = (1 - refIdx) / (1 + refIdx);
+        r0 = r0*r0;
+        return r0 + (1 - r0)*Math.pow((1 - cosine), 5);
+    }
+}
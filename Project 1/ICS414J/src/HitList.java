@@ -0,0 +1,48 @@
+import java.util.ArrayList;
+import java.util.List;
+
+class HitList implements Hittable {
+    private final List<Hittable> objects = new ArrayList<>();
+
+    public void add(Hittable obj) {
+        objects.add(obj);
+    }
+
+    @Override
+    public boolean hit(Ray r, double tMin, double tMax, HitRecord rec) {
+        HitRecord tempRec = new HitRecord();
+        boolean hitAnything = false;
+        double closestSoFar = tMax;
+
+        for (Hittable obj : objects) {
+            if (obj.hit(r, tMin, closestSoFar, tempRec)) {
+                hitAnything = true;
+                closestSoFar = tempRec.t;
+                rec.p = tempRec.p;
+                rec.normal = tempRec.normal;
+                rec.mat = tempRec.mat;
+                rec.t = tempRec.t;
+                rec.frontFace = tempRec.frontFace;
+            }
+        }
+
+        return hitAnything;
+    }
+
+    @Override
+    public AABB boundingBox() {
+        AABB box = null;
+        for (Hittable obj : objects) {
+            box = (box == null) ? obj.boundingBox() : AABB.surrounding(box, obj.boundingBox());
+        }
+        return box;
+    }
+
+    @Override
+    public boolean hasMaterial() {
+        for (Hittable obj : objects) {
+            if (!obj.hasMaterial()) return false;
+        }
+        return true;
+    }
+}
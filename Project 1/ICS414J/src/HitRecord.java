@@ -0,0 +1,15 @@
+// ----------------------------------------------------------------------
+// Record of a hit event: point, normal, t, material
+// ----------------------------------------------------------------------
+class HitRecord {
+    public Vec3 p;
+    public Vec3 normal;
+    public Material mat;
+    public double t;
+    public boolean frontFace;
+
+    public void setFaceNormal(Ray r, Vec3 outwardNormal) {
+        frontFace = r.direction.dot(outwardNormal) < 0;
+        normal = frontFace ? outwardNormal : outwardNormal.scale(-1);
+    }
+}
@@ -0,0 +1,15 @@
+// ----------------------------------------------------------------------
+// Hittable interface + List that holds multiple Hittable objects
+// ----------------------------------------------------------------------
+interface Hittable {
+    boolean hit(Ray r, double tMin, double tMax, HitRecord rec);
+
+    // World-space bounds, used to build the BVH
+    AABB boundingBox();
+
+    // Whether every hit reports a material; shared geometry built without one
+    // can only be used through an Instance that supplies it
+    default boolean hasMaterial() {
+        return true;
+    }
+}
@@ -0,0 +1,51 @@
+// ----------------------------------------------------------------------
+// Instance: a reference to shared geometry plus a transform and an
+// optional material override. The geometry itself is never copied.
+// ----------------------------------------------------------------------
+class Instance implements Hittable {
+    private final Hittable object;
+    private final Transform transform;
+    private final Material material; // null keeps the geometry's own material
+    private final AABB box;
+
+    public Instance(Hittable object, Transform transform, Material material) {
+        if (material == null && !object.hasMaterial()) {
+            throw new IllegalArgumentException("Geometry without a material needs a material override");
+        }
+        AABB bounds = object.boundingBox();
+        if (bounds == null) {
+            throw new IllegalArgumentException("An instance needs geometry with at least one object");
+        }
+        this.object = object;
+        this.transform = transform;
+        this.material = material;
+        this.box = transform.bound(bounds);
+    }
+
+    @Override
+    public boolean hit(Ray r, double tMin, double tMax, HitRecord rec) {
+        // Move the ray into object space. The direction is not renormalized,
+        // so t values are the same in both spaces.
+        Ray local = new Ray(transform.inversePoint(r.origin), transform.inverseVector(r.direction));
+        if (!object.hit(local, tMin, tMax, rec)) {
+            return false;
+        }
+
+        rec.p = transform.point(rec.p);
+        rec.normal = transform.normal(rec.normal);
+        if (material != null) {
+            rec.mat = material;
+        }
+        return true;
+    }
+
+    @Override
+    public AABB boundingBox() {
+        return box;
+    }
+
+    @Override
+    public boolean hasMaterial() {
+        return material != null || object.hasMaterial();
+    }
+}
@@ -0,0 +1,38 @@
+import java.util.Random;
+
+// ----------------------------------------------------------------------
+// Lambertian: ideal diffuse material
+// ----------------------------------------------------------------------
+class Lambertian extends Material {
+    public Vec3 albedo;
+
+    public Lambertian(Vec3 a) {
+        albedo = a;
+    }
+
+    @Override
+    public boolean scatter(Ray rIn, HitRecord rec, Vec3 attenuation, Ray scattered, Random rng) {
+        Vec3 scatterDir = rec.normal.add(randomUnitVector(rng));
+        if (nearZero(scatterDir)) {
+            scatterDir = rec.normal;
+        }
+        scattered.origin = rec.p;
+        scattered.direction = scatterDir;
+        attenuation.x = albedo.x;
+        attenuation.y = albedo.y;
+        attenuation.z = albedo.z;
+        return true;
+    }
+
+    private Vec3 randomUnitVector(Random rng) {
+        double a = 2.0 * Math.PI * rng.nextDouble();
+        double z = -1 + 2 * rng.nextDouble();
+        double r = Math.sqrt(1 - z*z);
+        return new Vec3(r*Math.cos(a), r*Math.sin(a), z);
+    }
+
+    private boolean nearZero(Vec3 v) {
+        final double s = 1e-8;
+        return (Math.abs(v.x) < s) && (Math.abs(v.y) < s) && (Math.abs(v.z) < s);
+    }
+}
@@ -0,0 +1,9 @@
+import java.util.Random;
+
+// ----------------------------------------------------------------------
+// Material: how a surface scatters an incoming ray
+// ----------------------------------------------------------------------
+abstract class Material {
+    // Scatter the ray and produce attenuation color & a scattered ray if any
+    public abstract boolean scatter(Ray rIn, HitRecord rec, Vec3 attenuation, Ray scattered, Random rng);
+}
@@ -0,0 +1,36 @@
+import java.util.Random;
+
+// ----------------------------------------------------------------------
+// Metal: mirror reflection, blurred by fuzz
+// ----------------------------------------------------------------------
+class Metal extends Material {
+    public Vec3 albedo;
+    public double fuzz;
+
+    public Metal(Vec3 a, double f) {
+        albedo = a;
+        fuzz = (f < 1) ? f : 1;
+    }
+
+    @Override
+    public boolean scatter(Ray rIn, HitRecord rec, Vec3 attenuation, Ray scattered, Random rng) {
+        Vec3 reflected = reflect(rIn.direction.normalize(), rec.normal);
+        scattered.origin = rec.p;
+        scattered.direction = reflected.add(randomInUnitSphere(rng).scale(fuzz));
+        attenuation.x = albedo.x;
+        attenuation.y = albedo.y;
+        attenuation.z = albedo.z;
+        return scattered.direction.dot(rec.normal) > 0;
+    }
+
+    private Vec3 reflect(Vec3 v, Vec3 n) {
+        return v.subtract(n.scale(2 * v.dot(n)));
+    }
+
+    private Vec3 randomInUnitSphere(Random rng) {
+        while (true) {
+            Vec3 p = Vec3.random(rng, -1, 1);
+            if (p.dot(p) < 1) return p;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import javax.imageio.ImageIO;
 
@@ -14,7 +16,7 @@ public class Project_RayTracing {
         final int maxDepth = 50;
 
         // Create a random scene of spheres
-        HitList world = randomScene();
+        Hittable world = randomScene(new Random());
 
         // Camera setup
         Vec3 lookFrom = new Vec3(13, 2, 3);
@@ -30,14 +32,32 @@ public class Project_RayTracing {
 
         Camera cam = new Camera(lookFrom, lookAt, vup, fovDeg, aspectRatio, Aperture, FocusDist);
 
+        BufferedImage image = render(world, cam, imageWidth, imageHeight, samplesPerPixel, maxDepth, new Random(), true);
+
+        // Write out to disk
+        ImageIO.write(image, "png", new File("output.png"));
+        System.out.println("Done! Saved to output.png");
+    }
+
+    // Number of rayColor calls since startup (primary rays and bounces)
+    private static long raysTraced = 0;
+
+    static long raysTraced() {
+        return raysTraced;
+    }
+
+    // Render the scene into a new image; all sampling randomness comes from rng
+    static BufferedImage render(Hittable world, Camera cam, int imageWidth, int imageHeight,
+                                int samplesPerPixel, int maxDepth, Random rng, boolean progress) {
         // Prepare a BufferedImage to store the result
         BufferedImage image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
 
         // Rendering (Nested loops over all pixels)
-        Random rng = new Random();
         for (int j = 0; j < imageHeight; j++) {
             int row = imageHeight - 1 - j; // flip vertically
-            System.out.printf("Scanlines remaining: %d\n", imageHeight - 1 - j);
+            if (progress) {
+                System.out.printf("Scanlines remaining: %d\n", imageHeight - 1 - j);
+            }
             for (int i = 0; i < imageWidth; i++) {
                 Vec3 pixelColor = new Vec3(0, 0, 0);
 
@@ -64,20 +84,21 @@ public class Project_RayTracing {
                 image.setRGB(i, row, rgb);
             }
         }
-
-        // Write out to disk
-        ImageIO.write(image, "png", new File("output.png"));
-        System.out.println("Done! Saved to output.png");
+        return image;
     }
 
-    // Generate the random scene from the snippet logic
-    private static HitList randomScene() {
-        HitList world = new HitList();
-        Random rng = new Random();
+    // Generate the random scene from the snippet logic.
+    // Every small and large sphere is an Instance of one shared unit sphere, so
+    // the geometry exists once and each copy only carries a transform + material.
+    static Hittable randomScene(Random rng) {
+        List<Hittable> objects = new ArrayList<>();
+
+        // Bottom-level geometry shared by every instance below
+        Hittable unitSphere = new Sphere(new Vec3(0, 0, 0), 1.0, null);
 
         // Ground sphere
         Material groundMat = new Lambertian(new Vec3(0.5, 0.5, 0.5));
-        world.add(new Sphere(new Vec3(0, -1000, 0), 1000, groundMat));
+        objects.add(new Instance(unitSphere, Transform.translateScale(new Vec3(0, -1000, 0), 1000), groundMat));
 
         // Many random small spheres
         for (int a = -11; a < 11; a++) {
@@ -91,28 +112,27 @@ public class Project_RayTracing {
                         // diffuse
                         Vec3 albedo = Vec3.random(rng).mul(Vec3.random(rng));
                         sphereMat = new Lambertian(albedo);
-                        world.add(new Sphere(center, 0.2, sphereMat));
                     } else if (chooseMat < 0.95) {
                         // metal
                         Vec3 albedo = Vec3.random(rng, 0.5, 1.0);
                         double fuzz = rng.nextDouble() * 0.5;
                         sphereMat = new Metal(albedo, fuzz);
-                        world.add(new Sphere(center, 0.2, sphereMat));
                     } else {
                         // glass
                         sphereMat = new Dielectric(1.5);
-                        world.add(new Sphere(center, 0.2, sphereMat));
                     }
+                    objects.add(new Instance(unitSphere, Transform.translateScale(center, 0.2), sphereMat));
                 }
             }
         }
 
         // Three larger spheres
-        world.add(new Sphere(new Vec3(0, 1, 0),   1.0, new Dielectric(1.5)));
-        world.add(new Sphere(new Vec3(-4, 1, 0),  1.0, new Lambertian(new Vec3(0.4, 0.2, 0.1))));
-        world.add(new Sphere(new Vec3(4, 1, 0),   1.0, new Metal(new Vec3(0.7, 0.6, 0.5), 0.0)));
+        objects.add(new Instance(unitSphere, Transform.translateScale(new Vec3(0, 1, 0), 1.0), new Dielectric(1.5)));
+        objects.add(new Instance(unitSphere, Transform.translateScale(new Vec3(-4, 1, 0), 1.0), new Lambertian(new Vec3(0.4, 0.2, 0.1))));
+        objects.add(new Instance(unitSphere, Transform.translateScale(new Vec3(4, 1, 0), 1.0), new Metal(new Vec3(0.7, 0.6, 0.5), 0.0)));
 
-        return world;
+        // Top-level acceleration structure over the instances
+        return new BVHNode(objects);
     }
 
     // Return background color or scattered ray color
@@ -121,6 +141,7 @@ public class Project_RayTracing {
         if (depth <= 0) {
             return new Vec3(0,0,0);
         }
+        raysTraced++;
 
         HitRecord rec = new HitRecord();
         if (world.hit(r, 0.001, Double.POSITIVE_INFINITY, rec)) {
@@ -145,365 +166,3 @@ public class Project_RayTracing {
         return x;
     }
 }
-
-// ----------------------------------------------------------------------
-// Basic vector class for 3D geometry & color representation
-// ----------------------------------------------------------------------
-class Vec3 {
-    public double x, y, z;
-
-    // Three-argument constructor
-    public Vec3(double x, double y, double z) {
-        this.x = x;
-        this.y = y;
-        this.z = z;
-    }
-
-    // Optional no-arg constructor if your code needs it
-    public Vec3() {
-        this(0,0,0);
-    }
-
-    public Vec3 add(Vec3 v) {
-        return new Vec3(x + v.x, y + v.y, z + v.z);
-    }
-    public Vec3 subtract(Vec3 v) {
-        return new Vec3(x - v.x, y - v.y, z - v.z);
-    }
-    public Vec3 mul(Vec3 v) {
-        return new Vec3(x * v.x, y * v.y, z * v.z);
-    }
-    public Vec3 scale(double t) {
-        return new Vec3(x * t, y * t, z * t);
-    }
-    public double dot(Vec3 v) {
-        return x*v.x + y*v.y + z*v.z;
-    }
-    public Vec3 cross(Vec3 v) {
-        return new Vec3(
-                this.y * v.z - this.z * v.y,
-                this.z * v.x - this.x * v.z,
-                this.x * v.y - this.y * v.x
-        );
-    }
-    public double length() {
-        return Math.sqrt(x*x + y*y + z*z);
-    }
-    public Vec3 normalize() {
-        double len = length();
-        return new Vec3(x/len, y/len, z/len);
-    }
-
-
-
-    public static Vec3 random(Random rng) {
-        return new Vec3(rng.nextDouble(), rng.nextDouble(), rng.nextDouble());
-    }
-
-    public static Vec3 random(Random rng, double min, double max) {
-        return new Vec3(
-                min + (max-min)*rng.nextDouble(),
-                min + (max-min)*rng.nextDouble(),
-                min + (max-min)*rng.nextDouble()
-        );
-    }
-}
-
-// ----------------------------------------------------------------------
-// Ray class: R(t) = origin + t*direction
-// ----------------------------------------------------------------------
-class Ray {
-    public Vec3 origin;
-    public Vec3 direction;
-
-    public Ray() {
-        origin = new Vec3(0,0,0);
-        direction = new Vec3(0,0,0);
-    }
-
-    public Ray(Vec3 origin, Vec3 direction) {
-        this.origin = origin;
-        this.direction = direction;
-    }
-
-    public Vec3 at(double t) {
-        return origin.add(direction.scale(t));
-    }
-}
-
-// ----------------------------------------------------------------------
-// Record of a hit event: point, normal, t, material
-// ----------------------------------------------------------------------
-class HitRecord {
-    public Vec3 p;
-    public Vec3 normal;
-    public Material mat;
-    public double t;
-    public boolean frontFace;
-
-    public void setFaceNormal(Ray r, Vec3 outwardNormal) {
-        frontFace = r.direction.dot(outwardNormal) < 0;
-        normal = frontFace ? outwardNormal : outwardNormal.scale(-1);
-    }
-}
-
-// ----------------------------------------------------------------------
-// Hittable interface + List that holds multiple Hittable objects
-// ----------------------------------------------------------------------
-interface Hittable {
-    boolean hit(Ray r, double tMin, double tMax, HitRecord rec);
-}
-
-class HitList implements Hittable {
-    private final java.util.List<Hittable> objects = new java.util.ArrayList<>();
-
-    public void add(Hittable obj) {
-        objects.add(obj);
-    }
-
-    @Override
-    public boolean hit(Ray r, double tMin, double tMax, HitRecord rec) {
-        HitRecord tempRec = new HitRecord();
-        boolean hitAnything = false;
-        double closestSoFar = tMax;
-
-        for (Hittable obj : objects) {
-            if (obj.hit(r, tMin, closestSoFar, tempRec)) {
-                hitAnything = true;
-                closestSoFar = tempRec.t;
-                rec.p = tempRec.p;
-                rec.normal = tempRec.normal;
-                rec.mat = tempRec.mat;
-                rec.t = tempRec.t;
-                rec.frontFace = tempRec.frontFace;
-            }
-        }
-
-        return hitAnything;
-    }
-}
-
-// ----------------------------------------------------------------------
-// Sphere: Hittable geometry
-// ----------------------------------------------------------------------
-class Sphere implements Hittable {
-    public Vec3 center;
-    public double radius;
-    public Material mat;
-
-    public Sphere(Vec3 center, double radius, Material m) {
-        this.center = center;
-        this.radius = radius;
-        this.mat = m;
-    }
-
-    @Override
-    public boolean hit(Ray r, double tMin, double tMax, HitRecord rec) {
-        Vec3 oc = r.origin.subtract(center);
-        double a = r.direction.dot(r.direction);
-        double halfB = oc.dot(r.direction);
-        double c = oc.dot(oc) - radius*radius;
-        double discriminant = halfB*halfB - a*c;
-        if (discriminant < 0) return false;
-        double sqrtd = Math.sqrt(discriminant);
-
-        double root = (-halfB - sqrtd) / a;
-        if (root < tMin || root > tMax) {
-            root = (-halfB + sqrtd) / a;
-            if (root < tMin || root > tMax) {
-                return false;
-            }
-        }
-
-        rec.t = root;
-        rec.p = r.at(rec.t);
-        Vec3 outwardNormal = rec.p.subtract(center).scale(1.0 / radius);
-        rec.setFaceNormal(r, outwardNormal);
-        rec.mat = mat;
-        return true;
-    }
-}
-
-// ----------------------------------------------------------------------
-// Material interface + Lambertian, Metal, Dielectric
-// ----------------------------------------------------------------------
-abstract class Material {
-    // Scatter the ray and produce attenuation color & a scattered ray if any
-    public abstract boolean scatter(Ray rIn, HitRecord rec, Vec3 attenuation, Ray scattered, Random rng);
-}
-
-class Lambertian extends Material {
-    public Vec3 albedo;
-
-    public Lambertian(Vec3 a) {
-        albedo = a;
-    }
-
-    @Override
-    public boolean scatter(Ray rIn, HitRecord rec, Vec3 attenuation, Ray scattered, Random rng) {
-        Vec3 scatterDir = rec.normal.add(randomUnitVector(rng));
-        if (nearZero(scatterDir)) {
-            scatterDir = rec.normal;
-        }
-        scattered.origin = rec.p;
-        scattered.direction = scatterDir;
-        attenuation.x = albedo.x;
-        attenuation.y = albedo.y;
-        attenuation.z = albedo.z;
-        return true;
-    }
-
-    private Vec3 randomUnitVector(Random rng) {
-        double a = 2.0 * Math.PI * rng.nextDouble();
-        double z = -1 + 2 * rng.nextDouble();
-        double r = Math.sqrt(1 - z*z);
-        return new Vec3(r*Math.cos(a), r*Math.sin(a), z);
-    }
-
-    private boolean nearZero(Vec3 v) {
-        final double s = 1e-8;
-        return (Math.abs(v.x) < s) && (Math.abs(v.y) < s) && (Math.abs(v.z) < s);
-    }
-}
-
-class Metal extends Material {
-    public Vec3 albedo;
-    public double fuzz;
-
-    public Metal(Vec3 a, double f) {
-        albedo = a;
-        fuzz = (f < 1) ? f : 1;
-    }
-
-    @Override
-    public boolean scatter(Ray rIn, HitRecord rec, Vec3 attenuation, Ray scattered, Random rng) {
-        Vec3 reflected = reflect(rIn.direction.normalize(), rec.normal);
-        scattered.origin = rec.p;
-        scattered.direction = reflected.add(randomInUnitSphere(rng).scale(fuzz));
-        attenuation.x = albedo.x;
-        attenuation.y = albedo.y;
-        attenuation.z = albedo.z;
-        return scattered.direction.dot(rec.normal) > 0;
-    }
-
-    private Vec3 reflect(Vec3 v, Vec3 n) {
-        return v.subtract(n.scale(2 * v.dot(n)));
-    }
-
-    private Vec3 randomInUnitSphere(Random rng) {
-        while (true) {
-            Vec3 p = Vec3.random(rng, -1, 1);
-            if (p.dot(p) < 1) return p;
-        }
-    }
-}
-
-class Dielectric extends Material {
-    public double ir; // Index of refraction
-
-    public Dielectric(double indexOfRefraction) {
-        ir = indexOfRefraction;
-    }
-
-    @Override
-    public boolean scatter(Ray rIn, HitRecord rec, Vec3 attenuation, Ray scattered, Random rng) {
-        attenuation.x = 1.0;
-        attenuation.y = 1.0;
-        attenuation.z = 1.0;
-        double refractionRatio = rec.frontFace ? (1.0 / ir) : ir;
-
-        Vec3 unitDir = rIn.direction.normalize();
-        double cosTheta = Math.min(unitDir.scale(-1).dot(rec.normal), 1.0);
-        double sinTheta = Math.sqrt(1.0 - cosTheta*cosTheta);
-
-        boolean cannotRefract = refractionRatio * sinTheta > 1.0;
-        Vec3 direction;
-        if (cannotRefract || reflectance(cosTheta, refractionRatio) > rng.nextDouble()) {
-            direction = reflect(unitDir, rec.normal);
-        } else {
-            direction = refract(unitDir, rec.normal, refractionRatio);
-        }
-
-        scattered.origin = rec.p;
-        scattered.direction = direction;
-        return true;
-    }
-
-    private Vec3 reflect(Vec3 v, Vec3 n) {
-        return v.subtract(n.scale(2 * v.dot(n)));
-    }
-
-    private Vec3 refract(Vec3 uv, Vec3 n, double etaiOverEtat) {
-        double cosTheta = Math.min(uv.scale(-1).dot(n), 1.0);
-        Vec3 rOutPerp = uv.add(n.scale(cosTheta)).scale(etaiOverEtat);
-        Vec3 rOutParallel = n.scale(-Math.sqrt(Math.abs(1.0 - rOutPerp.dot(rOutPerp))));
-        return rOutPerp.add(rOutParallel);
-    }
-
-    private double reflectance(double cosine, double refIdx) {
-        // Use Schlick's approximation for reflectance.
-        double r0 = (1 - refIdx) / (1 + refIdx);
-        r0 = r0*r0;
-        return r0 + (1 - r0)*Math.pow((1 - cosine), 5);
-    }
-}
-
-// ----------------------------------------------------------------------
-// Simple thin-lens Camera
-// ----------------------------------------------------------------------
-class Camera {
-    private Vec3 origin;
-    private Vec3 lowerLeftCorner;
-    private Vec3 horizontal;
-    private Vec3 vertical;
-    private Vec3 u, v, w;
-    private double lensRadius;
-    private final Random rng = new Random();
-
-    public Camera(Vec3 lookFrom, Vec3 lookAt, Vec3 vup,
-                  double vfov, // vertical field-of-view in degrees
-                  double aspectRatio,
-                  double aperture,
-                  double focusDist) {
-
-        double theta = Math.toRadians(vfov);
-        double h = Math.tan(theta / 2);
-        double viewportHeight = 2.0 * h;
-        double viewportWidth  = aspectRatio * viewportHeight;
-
-        w = (lookFrom.subtract(lookAt)).normalize();
-        u = (vup.cross(w)).normalize();
-        v = w.cross(u);
-
-        origin = lookFrom;
-        horizontal = u.scale(focusDist * viewportWidth);
-        vertical   = v.scale(focusDist * viewportHeight);
-        lowerLeftCorner = origin.subtract(horizontal.scale(0.5))
-                .subtract(vertical.scale(0.5))
-                .subtract(w.scale(focusDist));
-
-        lensRadius = aperture / 2;
-    }
-
-    public Ray getRay(double s, double t, Random rng) {
-        Vec3 rd = randomInUnitDisk(rng).scale(lensRadius);
-        Vec3 offset = u.scale(rd.x).add(v.scale(rd.y));
-
-        Vec3 dir = lowerLeftCorner
-                .add(horizontal.scale(s))
-                .add(vertical.scale(t))
-                .subtract(origin)
-                .subtract(offset);
-        return new Ray(origin.add(offset), dir);
-    }
-
-    private Vec3 randomInUnitDisk(Random rng) {
-        while (true) {
-            double x = 2.0*rng.nextDouble() - 1.0;
-            double y = 2.0*rng.nextDouble() - 1.0;
-            if (x*x + y*y < 1.0) {
-                return new Vec3(x, y, 0);
-            }
-        }
-    }
-}
\ No newline at end of file
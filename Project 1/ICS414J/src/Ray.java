@@ -0,0 +1,21 @@
+// ----------------------------------------------------------------------
+// Ray class: R(t) = origin + t*direction
+// ----------------------------------------------------------------------
+class Ray {
+    public Vec3 origin;
+    public Vec3 direction;
+
+    public Ray() {
+        origin = new Vec3(0,0,0);
+        direction = new Vec3(0,0,0);
+    }
+
+    public Ray(Vec3 origin, Vec3 direction) {
+        this.origin = origin;
+        this.direction = direction;
+    }
+
+    public Vec3 at(double t) {
+        return origin.add(direction.scale(t));
+    }
+}
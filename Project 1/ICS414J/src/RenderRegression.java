@@ -0,0 +1,250 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import javax.imageio.ImageIO;
+
+// Golden-image and performance regression harness for the ray tracer.
+//
+// Renders a few fixed-seed scenes at low spp and compares each one with the
+// reference image in regression/ by RMSE. Exits with status 1 on any failure.
+//
+// Timings are always reported, but only fail the run with --timing. Absolute
+// wall times don't carry over between machines or even between runs, so the
+// gate compares each scene's best time relative to a fixed arithmetic kernel
+// timed alongside it, after warm-up renders, against the recorded ratio.
+//
+// Usage (from the ICS414J folder):
+//   java RenderRegression [--update] [--timing] [--rmse=0.02] [--slowdown=0.35] [--runs=5]
+//
+//   --update     re-render and overwrite the reference images and timings
+//   --timing     also fail when a scene is slower than its baseline ratio
+//   --rmse       max allowed RMSE per channel, in [0..1] units
+//   --slowdown   max allowed increase of the time ratio over the baseline (0.35 = 35%)
+//   --runs       timed renders per scene, after WARMUP untimed ones; the fastest is used
+public class RenderRegression {
+    private static final File DIR = new File("regression");
+    private static final File BASELINE = new File(DIR, "baseline.properties");
+    private static final File RESULTS = new File(DIR, "results.csv");
+
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 100;
+    private static final int SAMPLES = 8;
+    private static final int MAX_DEPTH = 10;
+    private static final int WARMUP = 2;
+    private static final int KERNEL_STEPS = 8_000_000;
+
+    // The kernel's result goes here, so the JIT can't drop its loop as dead code
+    private static volatile double kernelSink;
+
+    public static void main(String[] args) throws IOException {
+        boolean update = false;
+        boolean timing = false;
+        double maxRmse = 0.02;
+        double maxSlowdown = 0.35;
+        int runs = 5;
+        for (String arg : args) {
+            if (arg.equals("--update")) update = true;
+            else if (arg.equals("--timing")) timing = true;
+            else if (arg.startsWith("--rmse=")) maxRmse = Double.parseDouble(arg.substring(7));
+            else if (arg.startsWith("--slowdown=")) maxSlowdown = Double.parseDouble(arg.substring(11));
+            else if (arg.startsWith("--runs=")) runs = Integer.parseInt(arg.substring(7));
+            else throw new IllegalArgumentException("Unknown argument: " + arg);
+        }
+
+        DIR.mkdirs();
+        Properties baseline = new Properties();
+        if (BASELINE.exists()) {
+            try (FileInputStream in = new FileInputStream(BASELINE)) {
+                baseline.load(in);
+            }
+        }
+
+        List<String> failures = new ArrayList<>();
+        try (PrintWriter csv = new PrintWriter(RESULTS)) {
+            csv.println("scene,millis,rays,raysPerSec,relative,rmse");
+            System.out.printf("%-10s %10s %12s %10s %10s %8s%n", "scene", "ms", "rays/s", "relative", "baseline", "rmse");
+
+            // Untimed renders of every scene first, so the JIT has compiled all the
+            // hot paths before any timing starts
+            List<Scene> scenes = scenes();
+            for (int run = 0; run < WARMUP; run++) {
+                for (Scene scene : scenes) {
+                    Project_RayTracing.render(scene.world, scene.camera, WIDTH, HEIGHT,
+                            SAMPLES, MAX_DEPTH, new Random(scene.seed), false);
+                    kernelNanos();
+                }
+            }
+
+            // Fastest of several identical renders; every run uses the same seed. The
+            // kernel is timed before each render, and its fastest time over the whole
+            // session is what every scene is measured against.
+            long kernelNanos = Long.MAX_VALUE;
+            for (Scene scene : scenes) {
+                for (int run = 0; run < runs; run++) {
+                    kernelNanos = Math.min(kernelNanos, kernelNanos());
+                    long raysBefore = Project_RayTracing.raysTraced();
+                    long start = System.nanoTime();
+                    scene.image = Project_RayTracing.render(scene.world, scene.camera, WIDTH, HEIGHT,
+                            SAMPLES, MAX_DEPTH, new Random(scene.seed), false);
+                    long nanos = System.nanoTime() - start;
+                    scene.rays = Project_RayTracing.raysTraced() - raysBefore;
+                    scene.bestNanos = Math.min(scene.bestNanos, nanos);
+                }
+            }
+            kernelNanos = Math.min(kernelNanos, kernelNanos());
+
+            for (Scene scene : scenes) {
+                BufferedImage image = scene.image;
+                long rays = scene.rays;
+                double millis = scene.bestNanos / 1e6;
+                double raysPerSec = rays / (scene.bestNanos / 1e9);
+                double relative = (double) scene.bestNanos / kernelNanos;
+
+                File reference = new File(DIR, scene.name + ".png");
+                double rmse = Double.NaN;
+                if (update) {
+                    ImageIO.write(image, "png", reference);
+                    baseline.setProperty(scene.name + ".millis", String.format("%.1f", millis));
+                    baseline.setProperty(scene.name + ".raysPerSec", String.format("%.0f", raysPerSec));
+                    baseline.setProperty(scene.name + ".relative", String.format("%.3f", relative));
+                } else if (!reference.exists()) {
+                    failures.add(scene.name + ": no reference image (run with --update)");
+                } else {
+                    rmse = rmse(ImageIO.read(reference), image);
+                    if (rmse > maxRmse) {
+                        ImageIO.write(image, "png", new File(DIR, scene.name + "-actual.png"));
+                        failures.add(String.format("%s: image RMSE %.4f exceeds %.4f (wrote %s-actual.png)",
+                                scene.name, rmse, maxRmse, scene.name));
+                    }
+                }
+
+                String base = baseline.getProperty(scene.name + ".relative");
+                if (timing && !update) {
+                    if (base == null) {
+                        failures.add(scene.name + ": no baseline timing (run with --update)");
+                    } else {
+                        double baseRelative = Double.parseDouble(base);
+                        if (relative > baseRelative * (1.0 + maxSlowdown)) {
+                            failures.add(String.format("%s: %.3f x kernel time is %.0f%% slower than the %.3f baseline",
+                                    scene.name, relative, 100.0 * (relative / baseRelative - 1.0), baseRelative));
+                        }
+                    }
+                }
+
+                System.out.printf("%-10s %10.1f %12.0f %10.3f %10s %8.4f%n",
+                        scene.name, millis, raysPerSec, relative, base == null ? "-" : base, rmse);
+                csv.printf("%s,%.1f,%d,%.0f,%.4f,%.5f%n", scene.name, millis, rays, raysPerSec, relative, rmse);
+            }
+        }
+
+        if (update) {
+            try (FileOutputStream out = new FileOutputStream(BASELINE)) {
+                baseline.store(out, "Reference timings for RenderRegression");
+            }
+            System.out.println("Updated references in " + DIR.getPath());
+            return;
+        }
+        if (!failures.isEmpty()) {
+            failures.forEach(f -> System.out.println("FAIL " + f));
+            System.exit(1);
+        }
+        System.out.println("All scenes match their references.");
+    }
+
+    // Times a fixed floating-point loop that doesn't touch the ray tracer, as a
+    // yardstick for how fast this machine is running right now
+    private static long kernelNanos() {
+        long start = System.nanoTime();
+        double x = 0.5, sum = 0;
+        for (int i = 0; i < KERNEL_STEPS; i++) {
+            x = x * 3.9 * (1.0 - x);
+            sum += Math.sqrt(x + i);
+        }
+        long nanos = System.nanoTime() - start;
+        kernelSink = sum;
+        return nanos;
+    }
+
+    // Root-mean-square difference over all channels, in [0..1] units
+    private static double rmse(BufferedImage expected, BufferedImage actual) {
+        if (expected.getWidth() != actual.getWidth() || expected.getHeight() != actual.getHeight()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double sum = 0;
+        for (int y = 0; y < actual.getHeight(); y++) {
+            for (int x = 0; x < actual.getWidth(); x++) {
+                int a = expected.getRGB(x, y);
+                int b = actual.getRGB(x, y);
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    double d = (((a >> shift) & 0xFF) - ((b >> shift) & 0xFF)) / 255.0;
+                    sum += d * d;
+                }
+            }
+        }
+        return Math.sqrt(sum / (3.0 * actual.getWidth() * actual.getHeight()));
+    }
+
+    private static List<Scene> scenes() {
+        double aspect = (double) WIDTH / HEIGHT;
+        List<Scene> scenes = new ArrayList<>();
+
+        // The main scene, seeded
+        scenes.add(new Scene("random", Project_RayTracing.randomScene(new Random(42)),
+                new Camera(new Vec3(13, 2, 3), new Vec3(0, 0, 0), new Vec3(0, 1, 0), 20.0, aspect, 0.0, 10.0), 1));
+
+        // One of each material, close up, with depth of field
+        List<Hittable> materials = new ArrayList<>();
+        materials.add(new Sphere(new Vec3(0, -1000, 0), 1000, new Lambertian(new Vec3(0.5, 0.5, 0.5))));
+        materials.add(new Sphere(new Vec3(0, 1, 0), 1.0, new Dielectric(1.5)));
+        materials.add(new Sphere(new Vec3(-2.2, 1, 0), 1.0, new Lambertian(new Vec3(0.4, 0.2, 0.1))));
+        materials.add(new Sphere(new Vec3(2.2, 1, 0), 1.0, new Metal(new Vec3(0.7, 0.6, 0.5), 0.2)));
+        scenes.add(new Scene("materials", new BVHNode(materials),
+                new Camera(new Vec3(0, 2, 7), new Vec3(0, 1, 0), new Vec3(0, 1, 0), 40.0, aspect, 0.1, 7.0), 2));
+
+        // Voxel terrain with a glass block
+        Material[] palette = {
+                null,
+                new Lambertian(new Vec3(0.5, 0.5, 0.5)),
+                new Lambertian(new Vec3(0.3, 0.6, 0.2)),
+                new Dielectric(1.5)
+        };
+        VoxelGrid grid = new VoxelGrid(32, 16, 32, new Vec3(-8, -4, -8), 0.5, palette);
+        for (int z = 0; z < 32; z++) {
+            for (int x = 0; x < 32; x++) {
+                int h = 3 + (int) (2.5 * (1 + Math.sin(x * 0.4) * Math.cos(z * 0.3)));
+                grid.fillBox(x, 0, z, x + 1, h - 1, z + 1, 1);
+                grid.fillBox(x, h - 1, z, x + 1, h, z + 1, 2);
+            }
+        }
+        grid.fillBox(14, 8, 14, 18, 12, 18, 3);
+        scenes.add(new Scene("voxels", grid,
+                new Camera(new Vec3(10, 8, 12), new Vec3(0, -1, 0), new Vec3(0, 1, 0), 35.0, aspect, 0.0, 10.0), 3));
+
+        return scenes;
+    }
+
+    private static final class Scene {
+        final String name;
+        final Hittable world;
+        final Camera camera;
+        final long seed;
+
+        BufferedImage image;
+        long bestNanos = Long.MAX_VALUE;
+        long rays;
+
+        Scene(String name, Hittable world, Camera camera, long seed) {
+            this.name = name;
+            this.world = world;
+            this.camera = camera;
+            this.seed = seed;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+// ----------------------------------------------------------------------
+// Sphere: Hittable geometry
+// ----------------------------------------------------------------------
+class Sphere implements Hittable {
+    public Vec3 center;
+    public double radius;
+    public Material mat;
+
+    public Sphere(Vec3 center, double radius, Material m) {
+        this.center = center;
+        this.radius = radius;
+        this.mat = m;
+    }
+
+    @Override
+    public boolean hit(Ray r, double tMin, double tMax, HitRecord rec) {
+        Vec3 oc = r.origin.subtract(center);
+        double a = r.direction.dot(r.direction);
+        double halfB = oc.dot(r.direction);
+        double c = oc.dot(oc) - radius*radius;
+        double discriminant = halfB*halfB - a*c;
+        if (discriminant < 0) return false;
+        double sqrtd = Math.sqrt(discriminant);
+
+        double root = (-halfB - sqrtd) / a;
+        if (root < tMin || root > tMax) {
+            root = (-halfB + sqrtd) / a;
+            if (root < tMin || root > tMax) {
+                return false;
+            }
+        }
+
+        rec.t = root;
+        rec.p = r.at(rec.t);
+        Vec3 outwardNormal = rec.p.subtract(center).scale(1.0 / radius);
+        rec.setFaceNormal(r, outwardNormal);
+        rec.mat = mat;
+        return true;
+    }
+
+    @Override
+    public AABB boundingBox() {
+        Vec3 r = new Vec3(radius, radius, radius);
+        return new AABB(center.subtract(r), center.add(r));
+    }
+
+    @Override
+    public boolean hasMaterial() {
+        return mat != null;
+    }
+}
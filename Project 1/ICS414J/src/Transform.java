@@ -0,0 +1,115 @@
+// ----------------------------------------------------------------------
+// Affine transform (3x4 row-major matrix) with its precomputed inverse
+// ----------------------------------------------------------------------
+class Transform {
+    private final double[] m;   // object -> world
+    private final double[] inv; // world -> object
+
+    private Transform(double[] m) {
+        this.m = m;
+        this.inv = invert(m);
+    }
+
+    public static Transform translateScale(Vec3 t, double s) {
+        return new Transform(new double[] {
+                s, 0, 0, t.x,
+                0, s, 0, t.y,
+                0, 0, s, t.z
+        });
+    }
+
+    public static Transform rotateY(double degrees) {
+        double c = Math.cos(Math.toRadians(degrees));
+        double s = Math.sin(Math.toRadians(degrees));
+        return new Transform(new double[] {
+                 c, 0, s, 0,
+                 0, 1, 0, 0,
+                -s, 0, c, 0
+        });
+    }
+
+    // Returns a transform that applies 'first' and then this one
+    public Transform compose(Transform first) {
+        double[] a = m, b = first.m;
+        double[] r = new double[12];
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 4; col++) {
+                double sum = a[row*4] * b[col] + a[row*4 + 1] * b[4 + col] + a[row*4 + 2] * b[8 + col];
+                r[row*4 + col] = (col == 3) ? sum + a[row*4 + 3] : sum;
+            }
+        }
+        return new Transform(r);
+    }
+
+    public Vec3 point(Vec3 p) {
+        return apply(m, p, 1);
+    }
+
+    public Vec3 inversePoint(Vec3 p) {
+        return apply(inv, p, 1);
+    }
+
+    public Vec3 inverseVector(Vec3 v) {
+        return apply(inv, v, 0);
+    }
+
+    // Normals go through the inverse transpose of the linear part
+    public Vec3 normal(Vec3 n) {
+        return new Vec3(
+                inv[0]*n.x + inv[4]*n.y + inv[8]*n.z,
+                inv[1]*n.x + inv[5]*n.y + inv[9]*n.z,
+                inv[2]*n.x + inv[6]*n.y + inv[10]*n.z
+        ).normalize();
+    }
+
+    public AABB bound(AABB box) {
+        // Transform all eight corners and take their bounds
+        AABB result = null;
+        for (int i = 0; i < 8; i++) {
+            Vec3 corner = new Vec3(
+                    (i & 1) == 0 ? box.min.x : box.max.x,
+                    (i & 2) == 0 ? box.min.y : box.max.y,
+                    (i & 4) == 0 ? box.min.z : box.max.z);
+            Vec3 p = point(corner);
+            AABB pointBox = new AABB(p, p);
+            result = (result == null) ? pointBox : AABB.surrounding(result, pointBox);
+        }
+        return result;
+    }
+
+    private static Vec3 apply(double[] a, Vec3 v, double w) {
+        return new Vec3(
+                a[0]*v.x + a[1]*v.y + a[2]*v.z + a[3]*w,
+                a[4]*v.x + a[5]*v.y + a[6]*v.z + a[7]*w,
+                a[8]*v.x + a[9]*v.y + a[10]*v.z + a[11]*w
+        );
+    }
+
+    private static double[] invert(double[] a) {
+        // Inverse of the 3x3 linear part via the adjugate, then the translation
+        double c00 = a[5]*a[10] - a[6]*a[9];
+        double c01 = a[6]*a[8] - a[4]*a[10];
+        double c02 = a[4]*a[9] - a[5]*a[8];
+        double det = a[0]*c00 + a[1]*c01 + a[2]*c02;
+        if (Math.abs(det) < 1e-12) {
+            throw new IllegalArgumentException("Transform is not invertible");
+        }
+        double id = 1.0 / det;
+
+        double[] r = new double[12];
+        r[0] = c00 * id;
+        r[1] = (a[2]*a[9] - a[1]*a[10]) * id;
+        r[2] = (a[1]*a[6] - a[2]*a[5]) * id;
+        r[4] = c01 * id;
+        r[5] = (a[0]*a[10] - a[2]*a[8]) * id;
+        r[6] = (a[2]*a[4] - a[0]*a[6]) * id;
+        r[8] = c02 * id;
+        r[9] = (a[1]*a[8] - a[0]*a[9]) * id;
+        r[10] = (a[0]*a[5] - a[1]*a[4]) * id;
+
+        r[3]  = -(r[0]*a[3] + r[1]*a[7] + r[2]*a[11]);
+        r[7]  = -(r[4]*a[3] + r[5]*a[7] + r[6]*a[11]);
+        r[11] = -(r[8]*a[3] + r[9]*a[7] + r[10]*a[11]);
+        return r;
+    }
+}
@@ -0,0 +1,64 @@
+import java.util.Random;
+
+// ----------------------------------------------------------------------
+// Basic vector class for 3D geometry & color representation
+// ----------------------------------------------------------------------
+class Vec3 {
+    public double x, y, z;
+
+    // Three-argument constructor
+    public Vec3(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    // Optional no-arg constructor if your code needs it
+    public Vec3() {
+        this(0,0,0);
+    }
+
+    public Vec3 add(Vec3 v) {
+        return new Vec3(x + v.x, y + v.y, z + v.z);
+    }
+    public Vec3 subtract(Vec3 v) {
+        return new Vec3(x - v.x, y - v.y, z - v.z);
+    }
+    public Vec3 mul(Vec3 v) {
+        return new Vec3(x * v.x, y * v.y, z * v.z);
+    }
+    public Vec3 scale(double t) {
+        return new Vec3(x * t, y * t, z * t);
+    }
+    public double dot(Vec3 v) {
+        return x*v.x + y*v.y + z*v.z;
+    }
+    public Vec3 cross(Vec3 v) {
+        return new Vec3(
+                this.y * v.z - this.z * v.y,
+                this.z * v.x - this.x * v.z,
+                this.x * v.y - this.y * v.x
+        );
+    }
+    public double length() {
+        return Math.sqrt(x*x + y*y + z*z);
+    }
+    public Vec3 normalize() {
+        double len = length();
+        return new Vec3(x/len, y/len, z/len);
+    }
+
+
+
+    public static Vec3 random(Random rng) {
+        return new Vec3(rng.nextDouble(), rng.nextDouble(), rng.nextDouble());
+    }
+
+    public static Vec3 random(Random rng, double min, double max) {
+        return new Vec3(
+                min + (max-min)*rng.nextDouble(),
+                min + (max-min)*rng.nextDouble(),
+                min + (max-min)*rng.nextDouble()
+        );
+    }
+}
@@ -0,0 +1,99 @@
+import java.util.Random;
+
+// Measures primary-ray throughput of VoxelGrid on heightfield terrain.
+// Usage: java VoxelBenchmark [size...]   (default: 256 1024)
+public class VoxelBenchmark {
+    public static void main(String[] args) {
+        int[] sizes = (args.length == 0) ? new int[] {256, 1024} : new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+
+        for (int n : sizes) {
+            long buildStart = System.nanoTime();
+            VoxelGrid grid = terrain(n);
+            double buildSec = (System.nanoTime() - buildStart) / 1e9;
+            System.out.printf("%d^3 grid: built in %.2f s, %.1f MB of voxel storage%n",
+                    n, buildSec, grid.storageBytes() / (1024.0 * 1024.0));
+
+            grid.setCoarseSkip(false);
+            report("voxel DDA", grid, n);
+            grid.setCoarseSkip(true);
+            report("brick + voxel DDA", grid, n);
+        }
+    }
+
+    private static void report(String label, VoxelGrid grid, int n) {
+        // Warm up once, then time a few passes
+        trace(grid, n, 1);
+        long start = System.nanoTime();
+        long[] counts = trace(grid, n, 3);
+        double sec = (System.nanoTime() - start) / 1e9;
+        System.out.printf("  %-18s: %.2f Mrays/s (%d rays, %.1f%% hit)%n",
+                label, counts[0] / sec / 1e6, counts[0], 100.0 * counts[1] / counts[0]);
+    }
+
+    // Shoots primary rays over the terrain from a camera above one corner
+    private static long[] trace(VoxelGrid grid, int n, int passes) {
+        final int width = 320, height = 240;
+        Vec3 lookFrom = new Vec3(-0.1 * n, 0.9 * n, -0.1 * n);
+        Vec3 lookAt = new Vec3(0.6 * n, 0.2 * n, 0.6 * n);
+        Camera cam = new Camera(lookFrom, lookAt, new Vec3(0, 1, 0), 50.0, (double) width / height, 0.0, 1.0);
+
+        Random rng = new Random(1);
+        HitRecord rec = new HitRecord();
+        long rays = 0, hits = 0;
+        for (int pass = 0; pass < passes; pass++) {
+            for (int j = 0; j < height; j++) {
+                for (int i = 0; i < width; i++) {
+                    Ray r = cam.getRay((i + 0.5) / width, (j + 0.5) / height, rng);
+                    if (grid.hit(r, 0.001, Double.POSITIVE_INFINITY, rec)) hits++;
+                    rays++;
+                }
+            }
+        }
+        return new long[] {rays, hits};
+    }
+
+    // Rolling heightfield: stone below, a thin grass layer on top
+    private static VoxelGrid terrain(int n) {
+        Material[] materials = {
+                null,
+                new Lambertian(new Vec3(0.5, 0.5, 0.5)),
+                new Lambertian(new Vec3(0.3, 0.6, 0.2))
+        };
+        VoxelGrid grid = new VoxelGrid(n, n, n, new Vec3(0, 0, 0), 1.0, materials);
+        int b = VoxelGrid.BRICK;
+
+        int[] heights = new int[n * n];
+        for (int z = 0; z < n; z++) {
+            for (int x = 0; x < n; x++) {
+                double h = 0.35 + 0.1 * Math.sin(x * 12.0 / n) * Math.cos(z * 9.0 / n)
+                        + 0.03 * Math.sin(x * 80.0 / n + z * 50.0 / n);
+                heights[z * n + x] = (int) (h * n);
+            }
+        }
+
+        // Whole bricks below the lowest column of each 8x8 block, then the rest per column
+        for (int bz = 0; bz < n; bz += b) {
+            for (int bx = 0; bx < n; bx += b) {
+                int min = n;
+                for (int z = bz; z < bz + b; z++) {
+                    for (int x = bx; x < bx + b; x++) {
+                        min = Math.min(min, heights[z * n + x]);
+                    }
+                }
+                int base = (min / b) * b;
+                grid.fillBox(bx, 0, bz, bx + b, base, bz + b, 1);
+                for (int z = bz; z < bz + b; z++) {
+                    for (int x = bx; x < bx + b; x++) {
+                        int h = heights[z * n + x];
+                        grid.fillBox(x, base, z, x + 1, h - 1, z + 1, 1);
+                        grid.fillBox(x, h - 1, z, x + 1, h, z + 1, 2);
+                    }
+                }
+            }
+        }
+        return grid;
+    }
+}
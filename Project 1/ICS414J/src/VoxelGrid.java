@@ -0,0 +1,313 @@
+import java.util.Arrays;
+
+// ----------------------------------------------------------------------
+// VoxelGrid: sparse grid of unit voxels traversed with a 3D-DDA
+// (Amanatides-Woo). Voxels are grouped into 8^3 bricks; an empty brick is
+// null and a brick of a single material is stored as one byte, so the
+// bricks double as a coarse occupancy level the ray can skip over.
+// Each voxel holds an index into 'materials' (0 = empty).
+// ----------------------------------------------------------------------
+class VoxelGrid implements Hittable {
+    public static final int BRICK = 8;
+
+    private final int[] size;        // voxels per axis
+    private final int[] brickCount;  // bricks per axis
+    private final byte[][] bricks;
+    private final Material[] materials;
+    private final Vec3 origin;
+    private final double voxelSize;
+    private boolean coarseSkip = true;
+
+    public VoxelGrid(int nx, int ny, int nz, Vec3 origin, double voxelSize, Material[] materials) {
+        if (nx % BRICK != 0 || ny % BRICK != 0 || nz % BRICK != 0) {
+            throw new IllegalArgumentException("Grid size must be a multiple of " + BRICK);
+        }
+        if (materials.length > 256) {
+            throw new IllegalArgumentException("At most 255 materials are supported");
+        }
+        this.size = new int[] {nx, ny, nz};
+        this.brickCount = new int[] {nx / BRICK, ny / BRICK, nz / BRICK};
+        this.bricks = new byte[brickCount[0] * brickCount[1] * brickCount[2]][];
+        this.materials = materials;
+        this.origin = origin;
+        this.voxelSize = voxelSize;
+    }
+
+    // Turn the brick-level skipping on or off (off = plain voxel DDA)
+    public void setCoarseSkip(boolean coarseSkip) {
+        this.coarseSkip = coarseSkip;
+    }
+
+    public int get(int x, int y, int z) {
+        checkVoxel(x, y, z);
+        return voxel(x, y, z);
+    }
+
+    public void set(int x, int y, int z, int materialIndex) {
+        checkVoxel(x, y, z);
+        checkMaterial(materialIndex);
+        setVoxel(x, y, z, materialIndex);
+    }
+
+    // Fill the voxel box [x0,x1) x [y0,y1) x [z0,z1); fully covered bricks are stored compactly
+    public void fillBox(int x0, int y0, int z0, int x1, int y1, int z1, int materialIndex) {
+        if (x0 < 0 || y0 < 0 || z0 < 0 || x1 > size[0] || y1 > size[1] || z1 > size[2]) {
+            throw new IllegalArgumentException("Box [" + x0 + "," + x1 + ") x [" + y0 + "," + y1 + ") x ["
+                    + z0 + "," + z1 + ") is outside the grid");
+        }
+        checkMaterial(materialIndex);
+        for (int bz = z0 / BRICK; bz * BRICK < z1; bz++) {
+            for (int by = y0 / BRICK; by * BRICK < y1; by++) {
+                for (int bx = x0 / BRICK; bx * BRICK < x1; bx++) {
+                    boolean covered = bx * BRICK >= x0 && (bx + 1) * BRICK <= x1
+                            && by * BRICK >= y0 && (by + 1) * BRICK <= y1
+                            && bz * BRICK >= z0 && (bz + 1) * BRICK <= z1;
+                    if (covered) {
+                        bricks[brickIndex(bx, by, bz)] = (materialIndex == 0) ? null : new byte[] {(byte) materialIndex};
+                        continue;
+                    }
+                    for (int z = Math.max(z0, bz * BRICK); z < Math.min(z1, (bz + 1) * BRICK); z++) {
+                        for (int y = Math.max(y0, by * BRICK); y < Math.min(y1, (by + 1) * BRICK); y++) {
+                            for (int x = Math.max(x0, bx * BRICK); x < Math.min(x1, (bx + 1) * BRICK); x++) {
+                                setVoxel(x, y, z, materialIndex);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // Collapse bricks that became empty or uniform back to their compact form
+    public void compact() {
+        for (int b = 0; b < bricks.length; b++) {
+            byte[] brick = bricks[b];
+            if (brick == null || brick.length == 1) continue;
+            byte first = brick[0];
+            boolean uniform = true;
+            for (int i = 1; i < brick.length && uniform; i++) {
+                uniform = brick[i] == first;
+            }
+            if (uniform) {
+                bricks[b] = (first == 0) ? null : new byte[] {first};
+            }
+        }
+    }
+
+    public long storageBytes() {
+        long bytes = 0;
+        for (byte[] brick : bricks) {
+            if (brick != null) bytes += brick.length;
+        }
+        return bytes + 8L * bricks.length;
+    }
+
+    private void checkVoxel(int x, int y, int z) {
+        if (x < 0 || y < 0 || z < 0 || x >= size[0] || y >= size[1] || z >= size[2]) {
+            throw new IllegalArgumentException("Voxel (" + x + ", " + y + ", " + z + ") is outside the "
+                    + size[0] + "x" + size[1] + "x" + size[2] + " grid");
+        }
+    }
+
+    private void checkMaterial(int materialIndex) {
+        if (materialIndex < 0 || materialIndex >= materials.length) {
+            throw new IllegalArgumentException("Material index " + materialIndex + " is not in [0, " + materials.length + ")");
+        }
+    }
+
+    // get() and set() without the checks, for coordinates already known to be inside
+    private int voxel(int x, int y, int z) {
+        byte[] brick = bricks[brickIndex(x / BRICK, y / BRICK, z / BRICK)];
+        if (brick == null) return 0;
+        if (brick.length == 1) return brick[0] & 0xFF;
+        return brick[voxelIndex(x, y, z)] & 0xFF;
+    }
+
+    private void setVoxel(int x, int y, int z, int materialIndex) {
+        int b = brickIndex(x / BRICK, y / BRICK, z / BRICK);
+        byte[] brick = bricks[b];
+        int current = (brick == null) ? 0 : (brick.length == 1 ? brick[0] & 0xFF : -1);
+        if (current == materialIndex) return;
+        if (current >= 0) {
+            // Expand an empty or uniform brick into full storage
+            byte[] full = new byte[BRICK * BRICK * BRICK];
+            Arrays.fill(full, (byte) current);
+            bricks[b] = brick = full;
+        }
+        brick[voxelIndex(x, y, z)] = (byte) materialIndex;
+    }
+
+    private int brickIndex(int bx, int by, int bz) {
+        return (bz * brickCount[1] + by) * brickCount[0] + bx;
+    }
+
+    private static int voxelIndex(int x, int y, int z) {
+        return ((z % BRICK) * BRICK + (y % BRICK)) * BRICK + (x % BRICK);
+    }
+
+    @Override
+    public boolean hit(Ray r, double tMin, double tMax, HitRecord rec) {
+        // Ray in grid space: one unit per voxel. t is unchanged.
+        DDA dda = new DDA();
+        dda.o[0] = (r.origin.x - origin.x) / voxelSize;
+        dda.o[1] = (r.origin.y - origin.y) / voxelSize;
+        dda.o[2] = (r.origin.z - origin.z) / voxelSize;
+        dda.d[0] = r.direction.x / voxelSize;
+        dda.d[1] = r.direction.y / voxelSize;
+        dda.d[2] = r.direction.z / voxelSize;
+
+        // Clip against the grid bounds
+        double t0 = tMin, t1 = tMax;
+        int entryAxis = -1;
+        for (int axis = 0; axis < 3; axis++) {
+            if (dda.d[axis] == 0) {
+                if (dda.o[axis] < 0 || dda.o[axis] > size[axis]) return false;
+                continue;
+            }
+            double near = (0 - dda.o[axis]) / dda.d[axis];
+            double far = (size[axis] - dda.o[axis]) / dda.d[axis];
+            if (near > far) { double tmp = near; near = far; far = tmp; }
+            if (near > t0) { t0 = near; entryAxis = axis; }
+            if (far < t1) t1 = far;
+        }
+        if (t0 >= t1) return false;
+        boolean leavesGrid = t1 < tMax;
+
+        // The material the ray starts in; a hit is any change of material
+        int[] start = dda.cellAt(t0, 1, new int[] {0, 0, 0}, size);
+        dda.current = (entryAxis < 0) ? voxel(start[0], start[1], start[2]) : 0;
+
+        boolean found;
+        if (coarseSkip) {
+            found = walk(dda, BRICK, new int[] {0, 0, 0}, brickCount, t0, t1, entryAxis);
+        } else {
+            found = walk(dda, 1, new int[] {0, 0, 0}, size, t0, t1, entryAxis);
+        }
+        if (!found) {
+            if (dda.current == 0 || !leavesGrid) return false;
+            // Leaving the grid from inside a solid voxel
+            dda.record(t1, dda.exitAxis, dda.current, false);
+        }
+
+        rec.t = dda.hitT;
+        rec.p = r.at(rec.t);
+        Vec3 outwardNormal = new Vec3(0, 0, 0);
+        double sign = dda.entering ? -dda.step[dda.hitAxis] : dda.step[dda.hitAxis];
+        if (dda.hitAxis == 0) outwardNormal.x = sign;
+        else if (dda.hitAxis == 1) outwardNormal.y = sign;
+        else outwardNormal.z = sign;
+        rec.setFaceNormal(r, outwardNormal);
+        rec.mat = materials[dda.hitMaterial];
+        return true;
+    }
+
+    // Visits the cells of the given size inside [lo, hi) between tEnter and tExit.
+    // Brick cells recurse into their voxels; voxel cells test for a material change.
+    private boolean walk(DDA dda, int cellSize, int[] lo, int[] hi, double tEnter, double tExit, int axis) {
+        int[] cell = dda.cellAt(tEnter, cellSize, lo, hi);
+        double[] tNext = new double[3];
+        double[] tDelta = new double[3];
+        for (int a = 0; a < 3; a++) {
+            if (dda.step[a] > 0) {
+                tNext[a] = ((cell[a] + 1) * cellSize - dda.o[a]) / dda.d[a];
+                tDelta[a] = cellSize / dda.d[a];
+            } else if (dda.step[a] < 0) {
+                tNext[a] = (cell[a] * cellSize - dda.o[a]) / dda.d[a];
+                tDelta[a] = -cellSize / dda.d[a];
+            } else {
+                tNext[a] = Double.POSITIVE_INFINITY;
+                tDelta[a] = Double.POSITIVE_INFINITY;
+            }
+        }
+
+        while (true) {
+            int next = (tNext[0] < tNext[1]) ? (tNext[0] < tNext[2] ? 0 : 2) : (tNext[1] < tNext[2] ? 1 : 2);
+            double tLeave = Math.min(tNext[next], tExit);
+
+            if (cellSize == 1) {
+                int m = voxel(cell[0], cell[1], cell[2]);
+                if (m != dda.current) {
+                    if (m != 0) {
+                        dda.record(tEnter, axis, m, true);
+                    } else {
+                        dda.record(tEnter, axis, dda.current, false);
+                    }
+                    return true;
+                }
+            } else {
+                byte[] brick = bricks[brickIndex(cell[0], cell[1], cell[2])];
+                boolean skip = (brick == null && dda.current == 0)
+                        || (brick != null && brick.length == 1 && (brick[0] & 0xFF) == dda.current);
+                if (!skip) {
+                    int[] vlo = {cell[0] * BRICK, cell[1] * BRICK, cell[2] * BRICK};
+                    int[] vhi = {vlo[0] + BRICK, vlo[1] + BRICK, vlo[2] + BRICK};
+                    if (walk(dda, 1, vlo, vhi, tEnter, tLeave, axis)) return true;
+                }
+            }
+
+            if (tNext[next] >= tExit) {
+                dda.exitAxis = next;
+                return false;
+            }
+            cell[next] += dda.step[next];
+            if (cell[next] < lo[next] || cell[next] >= hi[next]) {
+                dda.exitAxis = next;
+                return false;
+            }
+            tEnter = tNext[next];
+            axis = next;
+            tNext[next] += tDelta[next];
+        }
+    }
+
+    // Per-ray traversal state
+    private static final class DDA {
+        final double[] o = new double[3];
+        final double[] d = new double[3];
+        final int[] step = new int[3];
+        int current;
+        int exitAxis;
+        double hitT;
+        int hitAxis;
+        int hitMaterial;
+        boolean entering;
+
+        // Cell of the given size containing the ray point just past t, clamped to [lo, hi)
+        int[] cellAt(double t, int cellSize, int[] lo, int[] hi) {
+            int[] cell = new int[3];
+            for (int a = 0; a < 3; a++) {
+                step[a] = d[a] > 0 ? 1 : (d[a] < 0 ? -1 : 0);
+                double p = o[a] + d[a] * t;
+                int c = (int) Math.floor(p / cellSize);
+                cell[a] = Math.max(lo[a], Math.min(hi[a] - 1, c));
+            }
+            return cell;
+        }
+
+        void record(double t, int axis, int material, boolean entering) {
+            // A ray starting inside a voxel has no entry face; use its dominant axis
+            if (axis < 0) {
+                axis = (Math.abs(d[0]) > Math.abs(d[1]))
+                        ? (Math.abs(d[0]) > Math.abs(d[2]) ? 0 : 2)
+                        : (Math.abs(d[1]) > Math.abs(d[2]) ? 1 : 2);
+            }
+            this.hitT = t;
+            this.hitAxis = axis;
+            this.hitMaterial = material;
+            this.entering = entering;
+        }
+    }
+
+    @Override
+    public AABB boundingBox() {
+        return new AABB(origin, origin.add(new Vec3(size[0], size[1], size[2]).scale(voxelSize)));
+    }
+
+    @Override
+    public boolean hasMaterial() {
+        for (int i = 1; i < materials.length; i++) {
+            if (materials[i] == null) return false;
+        }
+        return true;
+    }
+}
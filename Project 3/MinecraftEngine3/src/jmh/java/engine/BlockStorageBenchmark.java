@@ -0,0 +1,88 @@
+package engine;
+
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// get/set throughput of ChunkedBlockStorage against the old GameObject list, for 10^6 blocks
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class BlockStorageBenchmark {
+    // Blocks fill a cube of this edge length
+    @Param({"100"})
+    public int edge;
+
+    private ChunkedBlockStorage chunked;
+    private LegacyBlockList list;
+    private int[] coords;
+    private GameObject[] listObjects;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        chunked = new ChunkedBlockStorage();
+        list = new LegacyBlockList();
+        listObjects = new GameObject[edge * edge * edge];
+        int n = 0;
+        for (int y = 0; y < edge; y++) {
+            for (int z = 0; z < edge; z++) {
+                for (int x = 0; x < edge; x++) {
+                    chunked.setBlock(x, y, z, Blocks.BRICK);
+                    GameObject obj = new GameObject(null, new Vector3f(x, y, z));
+                    list.add(obj);
+                    listObjects[n++] = obj;
+                }
+            }
+        }
+
+        // Random lookups inside the filled cube
+        Random rng = new Random(1);
+        coords = new int[3 * 4096];
+        for (int i = 0; i < coords.length; i++) {
+            coords[i] = rng.nextInt(edge);
+        }
+    }
+
+    private int next() {
+        cursor = (cursor + 3) % coords.length;
+        return cursor;
+    }
+
+    @Benchmark
+    public int chunkedGet() {
+        int i = next();
+        return chunked.getBlock(coords[i], coords[i + 1], coords[i + 2]);
+    }
+
+    @Benchmark
+    public int chunkedSet() {
+        int i = next();
+        int x = coords[i], y = coords[i + 1], z = coords[i + 2];
+        int previous = chunked.setBlock(x, y, z, Blocks.AIR);
+        chunked.setBlock(x, y, z, previous);
+        return previous;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean listContainsAt() {
+        int i = next();
+        return list.containsAt(new Vector3f(coords[i], coords[i + 1], coords[i + 2]));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public GameObject listRemoveAdd() {
+        int i = next();
+        GameObject obj = listObjects[(coords[i] * edge + coords[i + 1]) * edge + coords[i + 2]];
+        list.remove(obj);
+        list.add(obj);
+        return obj;
+    }
+}
@@ -0,0 +1,68 @@
+package engine;
+
+import org.lwjgl.system.MemoryUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Time to mesh one 16^3 section of hilly terrain, with and without greedy
+// merging, and with light plus the copy into off-heap upload buffers that the
+// mesh workers make (this one needs the LWJGL natives for the build host)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkMesherBenchmark {
+    private final ChunkMesher mesher = new ChunkMesher();
+    private final ChunkMeshData data = new ChunkMeshData();
+    private final int[] padded = new int[ChunkMesher.PADDED_VOLUME];
+    private final byte[] light = new byte[ChunkMesher.PADDED_VOLUME];
+
+    @Setup
+    public void setup() {
+        ChunkedBlockStorage blocks = new ChunkedBlockStorage();
+        Random rng = new Random(1);
+        for (int x = -1; x <= 16; x++) {
+            for (int z = -1; z <= 16; z++) {
+                int height = 6 + (int) (4 * Math.sin(x * 0.4) * Math.cos(z * 0.3)) + rng.nextInt(2);
+                for (int y = -1; y < height; y++) {
+                    blocks.setBlock(x, y, z, Blocks.BRICK);
+                }
+            }
+        }
+        blocks.copyPadded(0, 0, 0, padded);
+        // Open sky fading with depth, so faces at different heights do not all merge
+        for (int i = 0; i < light.length; i++) {
+            int y = i / (ChunkMesher.PADDED * ChunkMesher.PADDED) - 1;
+            light[i] = (byte) (Math.max(0, Math.min(LightEngine.MAX_LIGHT, 8 + y)) << 4);
+        }
+    }
+
+    @Benchmark
+    public int culled() {
+        mesher.mesh(padded, null, data, false);
+        return data.getIndexCount();
+    }
+
+    @Benchmark
+    public int greedy() {
+        mesher.mesh(padded, null, data, true);
+        return data.getIndexCount();
+    }
+
+    @Benchmark
+    public int greedyLitToBuffers() {
+        mesher.mesh(padded, light, data, true);
+        ByteBuffer vertices = data.vertexBuffer();
+        ByteBuffer indices = data.indexBuffer();
+        int bytes = vertices.remaining() + indices.remaining();
+        MemoryUtil.memFree(vertices);
+        MemoryUtil.memFree(indices);
+        return bytes;
+    }
+}
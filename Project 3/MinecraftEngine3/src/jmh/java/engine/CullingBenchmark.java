@@ -0,0 +1,93 @@
+package engine;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Per-frame culling work on generated terrain at view distance 8: extracting
+// the frustum planes, testing every section's box against them, and the
+// occlusion search from a camera on the surface.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CullingBenchmark {
+    private static final int VIEW_DISTANCE = 8;
+
+    private final Frustum frustum = new Frustum();
+    private final Matrix4f projectionView = new Matrix4f();
+    private final OcclusionCuller culler = new OcclusionCuller(VIEW_DISTANCE + 1);
+    private final Map<Long, Long> visibility = new HashMap<>();
+    private OcclusionCuller.Connectivity connectivity;
+    private float[] boxes; // min x, y, z of each section
+    private int cameraSx, cameraSy, cameraSz;
+
+    @Setup
+    public void setup() {
+        TerrainGenerator generator = new TerrainGenerator(415L);
+        ChunkedBlockStorage blocks = new ChunkedBlockStorage();
+        for (int cz = -VIEW_DISTANCE; cz <= VIEW_DISTANCE; cz++) {
+            for (int cx = -VIEW_DISTANCE; cx <= VIEW_DISTANCE; cx++) {
+                ChunkSection[] column = generator.generateColumn(cx, cz);
+                for (int i = 0; i < column.length; i++) {
+                    if (column[i] != null && !column[i].isEmpty()) {
+                        blocks.putSection(cx, World.MIN_SECTION_Y + i, cz, column[i]);
+                    }
+                }
+            }
+        }
+
+        SectionVisibility graph = new SectionVisibility();
+        int[] padded = new int[ChunkMesher.PADDED_VOLUME];
+        boxes = new float[blocks.getSections().size() * 3];
+        int b = 0;
+        for (long key : blocks.getSections().keys()) {
+            int sx = ChunkedBlockStorage.keyX(key), sy = ChunkedBlockStorage.keyY(key), sz = ChunkedBlockStorage.keyZ(key);
+            blocks.copyPadded(sx, sy, sz, padded);
+            visibility.put(key, graph.compute(padded));
+            boxes[b++] = sx * ChunkSection.SIZE - 0.5f;
+            boxes[b++] = sy * ChunkSection.SIZE - 0.5f;
+            boxes[b++] = sz * ChunkSection.SIZE - 0.5f;
+        }
+        connectivity = (sx, sy, sz) -> {
+            Long faces = visibility.get(ChunkedBlockStorage.sectionKey(sx, sy, sz));
+            return faces != null ? faces : SectionVisibility.ALL;
+        };
+
+        Vector3f eye = new Vector3f(0, generator.heightAt(0, 0) + 3, 0);
+        projectionView.perspective((float) Math.toRadians(70.0f), 800 / 600f, 0.1f, 1000f)
+                .lookAt(eye, new Vector3f(eye).add(0, -0.2f, -1), new Vector3f(0, 1, 0));
+        frustum.set(projectionView);
+        cameraSx = Math.round(eye.x) >> 4;
+        cameraSy = Math.round(eye.y) >> 4;
+        cameraSz = Math.round(eye.z) >> 4;
+    }
+
+    @Benchmark
+    public Frustum extractPlanes() {
+        return frustum.set(projectionView);
+    }
+
+    @Benchmark
+    public int testAllSections() {
+        int visible = 0;
+        for (int i = 0; i < boxes.length; i += 3) {
+            if (frustum.intersectsAab(boxes[i], boxes[i + 1], boxes[i + 2],
+                    boxes[i] + ChunkSection.SIZE, boxes[i + 1] + ChunkSection.SIZE, boxes[i + 2] + ChunkSection.SIZE)) {
+                visible++;
+            }
+        }
+        return visible;
+    }
+
+    @Benchmark
+    public int occlusionSearch() {
+        return culler.search(cameraSx, cameraSy, cameraSz, frustum, connectivity);
+    }
+}
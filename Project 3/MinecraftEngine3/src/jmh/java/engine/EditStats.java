@@ -0,0 +1,107 @@
+package engine;
+
+import java.util.Random;
+
+// Bulk block edits on generated terrain, applied one at a time with
+// World.setBlock() as a frame would before (relit per edit, and remeshed
+// per edit when a frame runs between them), against queued with
+// queueBlock() and applied as one batch with applyEdits(). Reports edits
+// per second, the section remeshes each way would cause, and checks that
+// the batched light matches lighting the same blocks from scratch.
+// Run with `gradlew report -Pmain=engine.EditStats`.
+public class EditStats {
+    private static final int RADIUS = 3; // columns loaded in each direction
+    private static final TerrainGenerator GENERATOR = new TerrainGenerator(415L);
+
+    interface Edits {
+        void apply(EditSink sink);
+    }
+
+    interface EditSink {
+        void edit(int x, int y, int z, int block);
+    }
+
+    public static void main(String[] args) {
+        int ground = GENERATOR.heightAt(0, 0);
+        report("fill 32x8x32 above ground", sink -> {
+            for (int y = ground + 4; y < ground + 12; y++)
+                for (int z = -16; z < 16; z++)
+                    for (int x = -16; x < 16; x++) sink.edit(x, y, z, Blocks.STONE);
+        });
+        report("carve sphere radius 10", sink -> {
+            for (int y = -10; y <= 10; y++)
+                for (int z = -10; z <= 10; z++)
+                    for (int x = -10; x <= 10; x++)
+                        if (x * x + y * y + z * z <= 100) sink.edit(x, ground - 12 + y, z, Blocks.AIR);
+        });
+        report("2000 scattered lamps", sink -> {
+            Random random = new Random(3);
+            for (int i = 0; i < 2000; i++) {
+                sink.edit(random.nextInt(96) - 48, ground + 2 + random.nextInt(6), random.nextInt(96) - 48, Blocks.LAMP);
+            }
+        });
+        report("one block toggled 60 times", sink -> {
+            for (int i = 0; i < 60; i++) sink.edit(3, ground + 1, 3, i % 2 == 0 ? Blocks.BRICK : Blocks.AIR);
+        });
+    }
+
+    private static void report(String name, Edits edits) {
+        // One at a time, draining the dirty sections after each edit as a frame would
+        World single = loadedWorld();
+        int[] count = {0};
+        long[] remeshes = {0};
+        long from = System.nanoTime();
+        edits.apply((x, y, z, block) -> {
+            single.setBlock(x, y, z, block);
+            remeshes[0] += single.clearDirtySections();
+            count[0]++;
+        });
+        double singleSeconds = (System.nanoTime() - from) / 1e9;
+
+        World batched = loadedWorld();
+        from = System.nanoTime();
+        edits.apply(batched::queueBlock);
+        int distinct = batched.getQueuedEdits();
+        int changed = batched.applyEdits();
+        double batchSeconds = (System.nanoTime() - from) / 1e9;
+        int batchRemeshes = batched.clearDirtySections();
+
+        System.out.printf("%s: %d edits, %d distinct, %d changed%n", name, count[0], distinct, changed);
+        System.out.printf("  one at a time: %,10.0f edits/s, %6d remeshes%n", count[0] / singleSeconds, remeshes[0]);
+        System.out.printf("  batched:       %,10.0f edits/s, %6d remeshes, light %s%n",
+                count[0] / batchSeconds, batchRemeshes, lightMatchesFullRelight(batched) ? "matches a full relight" : "DIFFERS from a full relight");
+    }
+
+    private static World loadedWorld() {
+        World world = new World(null);
+        for (int cz = -RADIUS; cz <= RADIUS; cz++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                world.loadColumn(cx, cz, GENERATOR.generateColumn(cx, cz));
+            }
+        }
+        world.clearDirtySections();
+        return world;
+    }
+
+    private static boolean lightMatchesFullRelight(World world) {
+        LightEngine fresh = new LightEngine(world.getBlocks());
+        for (int cz = -RADIUS; cz <= RADIUS; cz++) {
+            for (int cx = -RADIUS; cx <= RADIUS; cx++) {
+                fresh.loadColumn(cx, cz);
+            }
+        }
+        int minY = World.MIN_SECTION_Y * ChunkSection.SIZE, maxY = (World.MAX_SECTION_Y + 1) * ChunkSection.SIZE;
+        int edge = RADIUS * ChunkSection.SIZE;
+        for (int y = minY; y < maxY; y++) {
+            for (int z = -edge; z < edge + ChunkSection.SIZE; z++) {
+                for (int x = -edge; x < edge + ChunkSection.SIZE; x++) {
+                    if (fresh.getSkyLight(x, y, z) != world.getSkyLight(x, y, z)
+                            || fresh.getBlockLight(x, y, z) != world.getBlockLight(x, y, z)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,99 @@
+package engine;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Heap bytes allocated per call by the CPU side of a frame, after warm-up,
+// with the allocating versions the frame loop used before for comparison.
+// The GL side (World.render, uploads) needs a context and is checked in the
+// running engine instead, with -Dengine.debug=true.
+// Run with `gradlew report -Pmain=engine.FrameAllocationStats`.
+public class FrameAllocationStats {
+    private static final int VIEW_DISTANCE = 4;
+    private static final int CALLS = 20_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        if (!AllocationCounter.isSupported()) {
+            System.out.println("This JVM has no per-thread allocation counter");
+            return;
+        }
+        TerrainGenerator generator = new TerrainGenerator(415L);
+        World world = new World(null);
+        ChunkStreamer streamer = new ChunkStreamer(world, generator, VIEW_DISTANCE, 1);
+        Vector3f eye = new Vector3f(0.3f, generator.heightAt(0, 0) + 3, 0.2f);
+        int wanted = streamer.loadedCount();
+        do {
+            wanted = streamer.loadedCount();
+            streamer.update(eye);
+            Thread.sleep(50);
+        } while (streamer.pendingCount() > 0 || streamer.loadedCount() != wanted);
+
+        Camera camera = new Camera(new Vector3f(eye));
+        Matrix4f view = new Matrix4f();
+        Matrix4f projection = new Matrix4f().setPerspective((float) Math.toRadians(70.0f), 800 / 600f, 0.1f, 1000f);
+        Matrix4f scratch = new Matrix4f();
+        Vector3f front = new Vector3f();
+        Vector3f rayDir = new Vector3f();
+        BlockHit hit = new BlockHit();
+
+        System.out.println("bytes per call, after warm-up:");
+        measure("camera move + view matrix", () -> {
+            camera.getFront(front);
+            camera.move(front, 0f);
+            camera.getViewMatrix(view);
+        });
+        measure("  before: new vectors and matrices", () -> {
+            camera.move(new Vector3f(camera.getFront()).mul(0f));
+            camera.getViewMatrix();
+        });
+        measure("crosshair ray direction", () ->
+                RayCaster.getRayDirection(400, 300, 800, 600, projection, view, scratch, rayDir));
+        measure("  before: inverts into new matrices", () ->
+                RayCaster.getRayDirection(400, 300, 800, 600, projection, view));
+        measure("pick block", () -> RayCaster.pickBlock(world.getBlocks(), eye, rayDir, 8f, hit));
+        measure("streamer update, nothing to load", () -> streamer.update(eye));
+
+        // Occlusion search with World's connectivity lookup, and with the boxed map it replaced
+        LongLongMap visibility = new LongLongMap(1024);
+        Map<Long, Long> boxed = new HashMap<>();
+        SectionVisibility graph = new SectionVisibility();
+        int[] padded = new int[ChunkMesher.PADDED_VOLUME];
+        for (long key : world.getBlocks().getSections().keys()) {
+            world.getBlocks().copyPadded(ChunkedBlockStorage.keyX(key), ChunkedBlockStorage.keyY(key),
+                    ChunkedBlockStorage.keyZ(key), padded);
+            long faces = graph.compute(padded);
+            visibility.put(key, faces);
+            boxed.put(key, faces);
+        }
+        Frustum frustum = new Frustum().set(new Matrix4f(projection).mul(view));
+        OcclusionCuller culler = new OcclusionCuller(VIEW_DISTANCE + 1);
+        int sx = Math.round(eye.x) >> 4, sy = Math.round(eye.y) >> 4, sz = Math.round(eye.z) >> 4;
+        // Created once, like World's field, so the lambda itself is not counted
+        OcclusionCuller.Connectivity primitive = (x, y, z) ->
+                visibility.get(ChunkedBlockStorage.sectionKey(x, y, z), SectionVisibility.ALL);
+        OcclusionCuller.Connectivity boxedLookup = (x, y, z) -> {
+            Long faces = boxed.get(ChunkedBlockStorage.sectionKey(x, y, z));
+            return faces != null ? faces : SectionVisibility.ALL;
+        };
+        measure("occlusion search", () -> culler.search(sx, sy, sz, frustum, primitive));
+        measure("  before: HashMap<Long, Long> lookups", () -> culler.search(sx, sy, sz, frustum, boxedLookup));
+
+        streamer.shutdown();
+        world.cleanup();
+    }
+
+    private static void measure(String name, Runnable step) {
+        for (int i = 0; i < CALLS; i++) {
+            step.run(); // warm-up, so the JIT has done its escape analysis
+        }
+        long start = AllocationCounter.allocatedBytes();
+        for (int i = 0; i < CALLS; i++) {
+            step.run();
+        }
+        long bytes = AllocationCounter.allocatedBytes() - start;
+        System.out.printf("  %-40s %8.1f%n", name, bytes / (double) CALLS);
+    }
+}
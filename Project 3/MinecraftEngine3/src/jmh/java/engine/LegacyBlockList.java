@@ -0,0 +1,32 @@
+package engine;
+
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The original World storage (one GameObject per block in a list), kept as a benchmark baseline
+public class LegacyBlockList {
+    private final List<GameObject> objects = new ArrayList<>();
+
+    public void add(GameObject obj) {
+        objects.add(obj);
+    }
+
+    public void remove(GameObject obj) {
+        objects.remove(obj);
+    }
+
+    public List<GameObject> getObjects() {
+        return objects;
+    }
+
+    public boolean containsAt(Vector3f position) {
+        for (GameObject obj : objects) {
+            if (obj.position.equals(position)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,32 @@
+package engine;
+
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The original picking's block search (every block within reach, as a new
+// list of positions), kept as a benchmark baseline for RayCaster
+public class LegacyBlockScan {
+    private LegacyBlockScan() {
+    }
+
+    // Centers of all non-air blocks within the given distance of a point
+    // (blocks are unit cubes centered on integer coordinates)
+    public static List<Vector3f> blockPositionsNear(BlockStorage blocks, Vector3f center, float radius) {
+        List<Vector3f> positions = new ArrayList<>();
+        int minX = (int) Math.floor(center.x - radius), maxX = (int) Math.ceil(center.x + radius);
+        int minY = (int) Math.floor(center.y - radius), maxY = (int) Math.ceil(center.y + radius);
+        int minZ = (int) Math.floor(center.z - radius), maxZ = (int) Math.ceil(center.z + radius);
+        for (int y = minY; y <= maxY; y++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                for (int x = minX; x <= maxX; x++) {
+                    if (blocks.getBlock(x, y, z) != Blocks.AIR && center.distance(x, y, z) <= radius) {
+                        positions.add(new Vector3f(x, y, z));
+                    }
+                }
+            }
+        }
+        return positions;
+    }
+}
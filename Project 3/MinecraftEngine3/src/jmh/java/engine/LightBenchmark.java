@@ -0,0 +1,79 @@
+package engine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Relighting cost per edit on generated terrain, against lighting a whole
+// column from scratch. Each edit benchmark makes a change and undoes it, so
+// it times two incremental relights.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LightBenchmark {
+    private ChunkedBlockStorage blocks;
+    private LightEngine light;
+    private int surfaceY;
+
+    @Setup
+    public void setup() {
+        TerrainGenerator generator = new TerrainGenerator(415L);
+        blocks = new ChunkedBlockStorage();
+        light = new LightEngine(blocks);
+        for (int cz = -4; cz < 4; cz++) {
+            for (int cx = -4; cx < 4; cx++) {
+                load(generator, cx, cz);
+            }
+        }
+        surfaceY = generator.heightAt(8, 8);
+    }
+
+    private void load(TerrainGenerator generator, int cx, int cz) {
+        ChunkSection[] sections = generator.generateColumn(cx, cz);
+        for (int i = 0; i < sections.length; i++) {
+            if (sections[i] != null && !sections[i].isEmpty()) {
+                blocks.putSection(cx, World.MIN_SECTION_Y + i, cz, sections[i]);
+            }
+        }
+        light.loadColumn(cx, cz);
+    }
+
+    private void toggle(int x, int y, int z, int block) {
+        int previous = blocks.setBlock(x, y, z, block);
+        light.onBlockChanged(x, y, z, previous, block);
+        blocks.setBlock(x, y, z, previous);
+        light.onBlockChanged(x, y, z, block, previous);
+    }
+
+    // Shades the column below it: sky light removal and refill
+    @Benchmark
+    public int skyBlockedAboveSurface() {
+        toggle(8, surfaceY + 3, 8, Blocks.STONE);
+        return light.getSkyLight(8, surfaceY + 1, 8);
+    }
+
+    // Spreads block light up to 14 blocks out, then takes it back
+    @Benchmark
+    public int lampOnSurface() {
+        toggle(8, surfaceY + 1, 8, Blocks.LAMP);
+        return light.getBlockLight(8, surfaceY + 2, 8);
+    }
+
+    // Digging into unlit rock: almost nothing to relight
+    @Benchmark
+    public int digUnderground() {
+        toggle(8, surfaceY - 20, 8, Blocks.AIR);
+        return light.getSkyLight(8, surfaceY - 20, 8);
+    }
+
+    @Benchmark
+    public int relightColumn() {
+        light.unloadColumn(0, 0);
+        light.loadColumn(0, 0);
+        light.clearChangedSections();
+        return light.getSkyLight(8, surfaceY + 1, 8);
+    }
+}
@@ -0,0 +1,76 @@
+package engine;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Terrain triangle counts around a camera at the origin, at several view
+// distances, meshed at full detail everywhere and with ChunkLod levels
+// (including the border walls that close seams). Frustum and occlusion
+// culling are left out; this is everything that would be resident.
+// Run with `gradlew report -Pmain=engine.LodStats`.
+public class LodStats {
+    public static void main(String[] args) {
+        TerrainGenerator generator = new TerrainGenerator(415L);
+        for (int viewDistance : new int[] {4, 8, 16, 24}) {
+            report(generator, viewDistance);
+        }
+    }
+
+    private static void report(TerrainGenerator generator, int viewDistance) {
+        ChunkedBlockStorage blocks = new ChunkedBlockStorage();
+        Map<Long, Integer> levels = new HashMap<>();
+        for (int cz = -viewDistance; cz <= viewDistance; cz++) {
+            for (int cx = -viewDistance; cx <= viewDistance; cx++) {
+                if (cx * cx + cz * cz > viewDistance * viewDistance) continue;
+                ChunkSection[] column = generator.generateColumn(cx, cz);
+                for (int i = 0; i < column.length; i++) {
+                    if (column[i] != null && !column[i].isEmpty()) {
+                        blocks.putSection(cx, World.MIN_SECTION_Y + i, cz, column[i]);
+                    }
+                }
+                levels.put(World.columnKey(cx, cz), ChunkLod.levelFor(0, distance(cx, cz)));
+            }
+        }
+
+        ChunkMesher mesher = new ChunkMesher();
+        ChunkMeshData data = new ChunkMeshData();
+        int[] padded = new int[ChunkMesher.PADDED_VOLUME];
+        int[] neighbourLevels = new int[6];
+        long full = 0, lod = 0;
+        long[] perLevel = new long[ChunkLod.LEVELS];
+        for (long key : blocks.getSections().keys()) {
+            int sx = ChunkedBlockStorage.keyX(key), sy = ChunkedBlockStorage.keyY(key), sz = ChunkedBlockStorage.keyZ(key);
+            blocks.copyPadded(sx, sy, sz, padded);
+            mesher.mesh(padded, null, data, true);
+            full += data.getTriangleCount();
+
+            // Same steps as World.update() and the mesh workers
+            int level = levels.get(World.columnKey(sx, sz));
+            int fullFaces = 0;
+            for (int face = 0; face < 6; face++) {
+                int nx = sx + SectionVisibility.FACE_DX[face], nz = sz + SectionVisibility.FACE_DZ[face];
+                neighbourLevels[face] = levels.getOrDefault(World.columnKey(nx, nz), 0);
+                ChunkSection neighbour = blocks.getSection(nx, sy + SectionVisibility.FACE_DY[face], nz);
+                if (neighbour != null && neighbour.getNonAirCount() == ChunkSection.VOLUME) fullFaces |= 1 << face;
+            }
+            ChunkLod.clearSeams(padded, level, neighbourLevels, fullFaces);
+            if (level > 0) ChunkLod.downsample(padded, ChunkLod.factor(level));
+            mesher.mesh(padded, null, data, true);
+            lod += data.getTriangleCount();
+            perLevel[level] += data.getTriangleCount();
+        }
+
+        StringBuilder split = new StringBuilder();
+        for (int level = 0; level < ChunkLod.LEVELS; level++) {
+            split.append(String.format(" %dx:%d", ChunkLod.factor(level), perLevel[level]));
+        }
+        System.out.printf("view %2d columns, %5d sections: full detail %8d triangles, LOD %7d (%.1fx fewer;%s)%n",
+                viewDistance, blocks.getSections().size(), full, lod, full / (double) lod, split);
+    }
+
+    private static float distance(int cx, int cz) {
+        float half = ChunkSection.SIZE / 2f - 0.5f;
+        float dx = cx * ChunkSection.SIZE + half, dz = cz * ChunkSection.SIZE + half;
+        return (float) Math.sqrt(dx * dx + dz * dz) / ChunkSection.SIZE;
+    }
+}
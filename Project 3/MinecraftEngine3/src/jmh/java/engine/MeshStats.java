@@ -0,0 +1,39 @@
+package engine;
+
+import java.util.Map;
+
+// Triangle counts for the flat world built in Main: one Cube per block,
+// exposed faces only, and exposed faces with greedy merging.
+// Run with `gradlew report -Pmain=engine.MeshStats`.
+public class MeshStats {
+    public static void main(String[] args) {
+        ChunkedBlockStorage blocks = new ChunkedBlockStorage();
+        blocks.setBlock(0, 0, 0, Blocks.BRICK);
+        blocks.setBlock(2, 0, 0, Blocks.BRICK);
+        blocks.setBlock(-2, 0, 0, Blocks.BRICK);
+        for (int x = -10; x <= 10; x++) {
+            for (int z = -10; z <= 10; z++) {
+                blocks.setBlock(x, -1, z, Blocks.BRICK);
+            }
+        }
+
+        long cubeTriangles = blocks.blockCount() * 12;
+        long culled = 0, greedy = 0;
+        ChunkMesher mesher = new ChunkMesher();
+        ChunkMeshData data = new ChunkMeshData();
+        int[] padded = new int[ChunkMesher.PADDED_VOLUME];
+        for (long key : blocks.getSections().keys()) {
+            blocks.copyPadded(ChunkedBlockStorage.keyX(key), ChunkedBlockStorage.keyY(key),
+                    ChunkedBlockStorage.keyZ(key), padded);
+            mesher.mesh(padded, null, data, false);
+            culled += data.getTriangleCount();
+            mesher.mesh(padded, null, data, true);
+            greedy += data.getTriangleCount();
+        }
+
+        System.out.printf("Flat world: %d blocks in %d sections%n", blocks.blockCount(), blocks.getSections().size());
+        System.out.printf("  Cube per block:         %6d triangles, %d draw calls%n", cubeTriangles, blocks.blockCount());
+        System.out.printf("  exposed faces only:     %6d triangles%n", culled);
+        System.out.printf("  exposed faces + greedy: %6d triangles, %d draw calls%n", greedy, blocks.getSections().size());
+    }
+}
@@ -0,0 +1,186 @@
+package engine;
+
+import org.joml.Vector3f;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+// A WorldServer on localhost with CLIENTS headless WorldClients, each
+// keeping the blocks it receives. They join together and wait for their
+// view distance to arrive, then walk about for STEADY_SECONDS, each
+// placing or breaking a block next to itself about once a second.
+// Reports server tick times and the bandwidth per client in each phase,
+// then checks that every client's copy of every edited block it holds
+// matches the server's.
+// Run with `gradlew report -Pmain=engine.NetworkStats`.
+public class NetworkStats {
+    private static final int CLIENTS = 64;
+    private static final int VIEW_DISTANCE = 4;
+    private static final int SPREAD = 96; // clients start within this many blocks of the origin
+    private static final float WALK_SPEED = 4.3f;
+    private static final int STEADY_SECONDS = 10;
+    private static final long DRIVER_MILLIS = 50; // driver loop runs at the server's tick rate
+    private static final TerrainGenerator GENERATOR = new TerrainGenerator(415L);
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        WorldServer server = new WorldServer(GENERATOR, null, VIEW_DISTANCE, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        server.start(0);
+        Random random = new Random(7);
+
+        long joinStart = System.nanoTime();
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            float x = random.nextInt(2 * SPREAD) - SPREAD + 0.5f, z = random.nextInt(2 * SPREAD) - SPREAD + 0.5f;
+            Vector3f eye = new Vector3f(x, GENERATOR.heightAt(Math.round(x), Math.round(z)) + 2.12f, z);
+            players.add(new Player(new WorldClient("localhost", server.getPort(), VIEW_DISTANCE, eye), eye, random.nextFloat() * 6.2832f));
+        }
+
+        // Join: until no client has received a column for a second
+        int quiet = 0;
+        while (quiet < 1000 / DRIVER_MILLIS) {
+            Thread.sleep(DRIVER_MILLIS);
+            boolean received = false;
+            for (Player player : players) received |= player.poll();
+            quiet = received ? 0 : quiet + 1;
+        }
+        double joinSeconds = (System.nanoTime() - joinStart) / 1e9 - 1;
+        long joinBytes = received(players);
+        int columns = 0;
+        for (Player player : players) columns += player.columns.size();
+        System.out.printf("%d clients, view distance %d: joined in %.1f s, %.1f columns each, %.1f KB each, %.1f KB/s per client while joining%n",
+                CLIENTS, VIEW_DISTANCE, joinSeconds, columns / (float) CLIENTS, joinBytes / 1e3 / CLIENTS, joinBytes / 1e3 / CLIENTS / joinSeconds);
+        report("joining", server);
+        server.resetTickTimes();
+
+        // Steady state: walking and editing
+        long steadyStart = System.nanoTime();
+        long editsFrom = server.getEditsApplied();
+        long sentFrom = received(players), upFrom = sent(players);
+        Set<Long> edited = new HashSet<>();
+        long ticks = STEADY_SECONDS * 1000 / DRIVER_MILLIS;
+        for (long tick = 0; tick < ticks; tick++) {
+            long from = System.nanoTime();
+            for (Player player : players) {
+                player.poll();
+                player.walk(random, DRIVER_MILLIS / 1000f);
+                if (random.nextInt(1000 / (int) DRIVER_MILLIS) == 0) player.edit(random, edited);
+                player.client.flush();
+            }
+            long sleep = DRIVER_MILLIS - (System.nanoTime() - from) / 1_000_000;
+            if (sleep > 0) Thread.sleep(sleep);
+        }
+        double steadySeconds = (System.nanoTime() - steadyStart) / 1e9;
+        long down = received(players) - sentFrom, up = sent(players) - upFrom;
+        System.out.printf("steady: %d edits applied in %.1f s; per client %.2f KB/s down, %.2f KB/s up%n",
+                server.getEditsApplied() - editsFrom, steadySeconds,
+                down / 1e3 / CLIENTS / steadySeconds, up / 1e3 / CLIENTS / steadySeconds);
+        report("steady", server);
+
+        // Let the last changes arrive, then compare with the server's blocks
+        Thread.sleep(1000);
+        for (Player player : players) player.poll();
+        server.stop();
+        int checked = 0, wrong = 0;
+        for (long key : edited) {
+            int x = (int) (key >> 40), y = (int) (key << 24 >> 52), z = (int) (key << 36 >> 36);
+            int expected = server.getBlock(x, y, z);
+            for (Player player : players) {
+                if (!player.columns.contains(World.columnKey(x >> 4, z >> 4))) continue;
+                checked++;
+                if (player.blocks.getBlock(x, y, z) != expected) wrong++;
+            }
+        }
+        System.out.printf("consistency: %d edited cells, %d client copies checked, %d differ from the server%n", edited.size(), checked, wrong);
+        for (Player player : players) player.client.close();
+    }
+
+    private static void report(String phase, WorldServer server) {
+        System.out.printf("  server tick while %s: p50 %.3f ms, p99 %.3f ms, max %.3f ms; %d columns generated%n",
+                phase, server.tickPercentileMillis(50), server.tickPercentileMillis(99), server.tickPercentileMillis(100),
+                server.getLoadedColumnCount());
+    }
+
+    private static long received(List<Player> players) {
+        long total = 0;
+        for (Player player : players) total += player.client.getBytesReceived();
+        return total;
+    }
+
+    private static long sent(List<Player> players) {
+        long total = 0;
+        for (Player player : players) total += player.client.getBytesSent();
+        return total;
+    }
+
+    // One simulated player: no physics, it walks at head height above the terrain
+    private static final class Player implements WorldClient.Listener {
+        final WorldClient client;
+        final Vector3f eye;
+        final ChunkedBlockStorage blocks = new ChunkedBlockStorage();
+        final Set<Long> columns = new HashSet<>();
+        float heading;
+        boolean receivedColumn;
+
+        Player(WorldClient client, Vector3f eye, float heading) {
+            this.client = client;
+            this.eye = eye;
+            this.heading = heading;
+        }
+
+        // Applies what has arrived; returns whether it included a column
+        boolean poll() throws IOException {
+            receivedColumn = false;
+            client.poll(this);
+            return receivedColumn;
+        }
+
+        void walk(Random random, float seconds) throws IOException {
+            heading += (random.nextFloat() - 0.5f) * 0.5f;
+            eye.x += (float) Math.cos(heading) * WALK_SPEED * seconds;
+            eye.z += (float) Math.sin(heading) * WALK_SPEED * seconds;
+            eye.y = GENERATOR.heightAt(Math.round(eye.x), Math.round(eye.z)) + 2.12f;
+            client.sendPosition(eye);
+        }
+
+        // Places a random block beside the player, or breaks the ground under it
+        void edit(Random random, Set<Long> edited) {
+            int x = Math.round(eye.x) + random.nextInt(5) - 2, z = Math.round(eye.z) + random.nextInt(5) - 2;
+            int ground = GENERATOR.heightAt(x, z);
+            boolean place = random.nextBoolean();
+            int y = place ? ground + 1 : ground;
+            client.queueEdit(x, y, z, place ? Blocks.BRICK + random.nextInt(Blocks.LAMP) : Blocks.AIR);
+            edited.add(((long) x << 40) | ((long) (y & 0xFFF) << 28) | (z & 0xFFFFFFFL));
+        }
+
+        @Override
+        public void columnLoaded(int cx, int cz, ChunkSection[] sections) {
+            receivedColumn = true;
+            columns.add(World.columnKey(cx, cz));
+            for (int i = 0; i < sections.length; i++) {
+                int sy = World.MIN_SECTION_Y + i;
+                if (sections[i] == null || sections[i].isEmpty()) {
+                    blocks.removeSection(cx, sy, cz);
+                } else {
+                    blocks.putSection(cx, sy, cz, sections[i]);
+                }
+            }
+        }
+
+        @Override
+        public void columnUnloaded(int cx, int cz) {
+            columns.remove(World.columnKey(cx, cz));
+            for (int sy = World.MIN_SECTION_Y; sy <= World.MAX_SECTION_Y; sy++) {
+                blocks.removeSection(cx, sy, cz);
+            }
+        }
+
+        @Override
+        public void blockChanged(int x, int y, int z, int block) {
+            blocks.setBlock(x, y, z, block);
+        }
+    }
+}
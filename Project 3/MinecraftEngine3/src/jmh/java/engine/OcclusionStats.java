@@ -0,0 +1,88 @@
+package engine;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Counts the sections drawn on generated terrain with frustum culling alone
+// and with the occlusion search on top, from a few camera positions, and
+// times the search. Run with `gradlew report -Pmain=engine.OcclusionStats`.
+public class OcclusionStats {
+    private static final int VIEW_DISTANCE = 8;
+    private static final int SEARCHES = 2000;
+
+    public static void main(String[] args) {
+        TerrainGenerator generator = new TerrainGenerator(415L);
+        ChunkedBlockStorage blocks = new ChunkedBlockStorage();
+        for (int cz = -VIEW_DISTANCE; cz <= VIEW_DISTANCE; cz++) {
+            for (int cx = -VIEW_DISTANCE; cx <= VIEW_DISTANCE; cx++) {
+                if (cx * cx + cz * cz > VIEW_DISTANCE * VIEW_DISTANCE) continue;
+                ChunkSection[] column = generator.generateColumn(cx, cz);
+                for (int i = 0; i < column.length; i++) {
+                    if (column[i] != null && !column[i].isEmpty()) {
+                        blocks.putSection(cx, World.MIN_SECTION_Y + i, cz, column[i]);
+                    }
+                }
+            }
+        }
+
+        // What the mesh workers would compute
+        Map<Long, Long> visibility = new HashMap<>();
+        SectionVisibility graph = new SectionVisibility();
+        int[] padded = new int[ChunkMesher.PADDED_VOLUME];
+        long nanos = 0;
+        for (int pass = 0; pass < 3; pass++) { // the last pass is timed
+            nanos = 0;
+            for (long key : blocks.getSections().keys()) {
+                blocks.copyPadded(ChunkedBlockStorage.keyX(key), ChunkedBlockStorage.keyY(key), ChunkedBlockStorage.keyZ(key), padded);
+                long start = System.nanoTime();
+                visibility.put(key, graph.compute(padded));
+                nanos += System.nanoTime() - start;
+            }
+        }
+        System.out.printf("%d sections, connectivity %.1f us per section%n",
+                blocks.getSections().size(), nanos / 1e3 / blocks.getSections().size());
+
+        OcclusionCuller.Connectivity connectivity = (sx, sy, sz) -> {
+            Long faces = visibility.get(ChunkedBlockStorage.sectionKey(sx, sy, sz));
+            return faces != null ? faces : SectionVisibility.ALL;
+        };
+        int surface = generator.heightAt(0, 0);
+        report("surface, looking north", blocks, connectivity, new Vector3f(0, surface + 3, 0), new Vector3f(0, -0.2f, -1));
+        report("surface, looking down", blocks, connectivity, new Vector3f(0, surface + 3, 0), new Vector3f(0.3f, -1, 0.1f));
+        report("high above, looking down", blocks, connectivity, new Vector3f(0, surface + 60, 0), new Vector3f(0.5f, -1, 0.2f));
+        report("underground, looking east", blocks, connectivity, new Vector3f(0, surface - 30, 0), new Vector3f(1, 0, 0));
+    }
+
+    private static void report(String name, ChunkedBlockStorage blocks, OcclusionCuller.Connectivity connectivity,
+                               Vector3f eye, Vector3f direction) {
+        Matrix4f projectionView = new Matrix4f()
+                .perspective((float) Math.toRadians(70.0f), 800 / 600f, 0.1f, 1000f)
+                .lookAt(eye, new Vector3f(eye).add(direction), new Vector3f(0, 1, 0));
+        Frustum frustum = new Frustum().set(projectionView);
+        OcclusionCuller culler = new OcclusionCuller(VIEW_DISTANCE + 1);
+        int sx = Math.round(eye.x) >> 4, sy = Math.round(eye.y) >> 4, sz = Math.round(eye.z) >> 4;
+
+        for (int i = 0; i < SEARCHES; i++) {
+            culler.search(sx, sy, sz, frustum, connectivity); // warm-up
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < SEARCHES; i++) {
+            culler.search(sx, sy, sz, frustum, connectivity);
+        }
+        double micros = (System.nanoTime() - start) / 1e3 / SEARCHES;
+
+        int inFrustum = 0, visible = 0;
+        for (long key : blocks.getSections().keys()) {
+            int x = ChunkedBlockStorage.keyX(key), y = ChunkedBlockStorage.keyY(key), z = ChunkedBlockStorage.keyZ(key);
+            float minX = x * 16 - 0.5f, minY = y * 16 - 0.5f, minZ = z * 16 - 0.5f;
+            if (!frustum.intersectsAab(minX, minY, minZ, minX + 16, minY + 16, minZ + 16)) continue;
+            inFrustum++;
+            if (culler.isVisible(x, y, z)) visible++;
+        }
+        System.out.printf("%-26s frustum only %4d sections, with occlusion %4d (search visits %4d cells in %6.1f us)%n",
+                name, inFrustum, visible, culler.getVisitedCount(), micros);
+    }
+}
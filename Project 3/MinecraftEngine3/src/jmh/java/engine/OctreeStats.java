@@ -0,0 +1,160 @@
+package engine;
+
+import org.joml.Vector3f;
+
+import java.lang.ref.Reference;
+import java.util.Random;
+
+// OctreeBlockStorage against ChunkedBlockStorage on the same generated
+// terrain: heap footprint, conversion time both ways, and the cost of
+// random point reads, random edits and picking rays. Checks that the
+// octree, and the chunks converted back from it, hold exactly the same
+// blocks, and that both storages' rays hit the same blocks.
+// Run with `gradlew report -Pmain=engine.OctreeStats`.
+public class OctreeStats {
+    private static final int READS = 10_000_000;
+    private static final int EDITS = 200_000;
+    private static final int RAYS = 200_000;
+    private static final float REACH = 64f;
+
+    public static void main(String[] args) {
+        int across = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        TerrainGenerator generator = new TerrainGenerator(415L);
+        int half = across / 2;
+        int minY = World.MIN_SECTION_Y * ChunkSection.SIZE, maxY = (World.MAX_SECTION_Y + 1) * ChunkSection.SIZE;
+        int edge = across * ChunkSection.SIZE, min = -half * ChunkSection.SIZE;
+
+        long before = usedHeap();
+        ChunkedBlockStorage chunked = new ChunkedBlockStorage();
+        for (int cz = -half; cz < across - half; cz++) {
+            for (int cx = -half; cx < across - half; cx++) {
+                ChunkSection[] sections = generator.generateColumn(cx, cz);
+                for (int i = 0; i < sections.length; i++) {
+                    if (sections[i] != null && !sections[i].isEmpty()) chunked.putSection(cx, World.MIN_SECTION_Y + i, cz, sections[i]);
+                }
+            }
+        }
+        long chunkedHeap = usedHeap() - before;
+
+        before = usedHeap();
+        long from = System.nanoTime();
+        OctreeBlockStorage octree = OctreeBlockStorage.fromChunked(chunked);
+        double toOctree = (System.nanoTime() - from) / 1e6;
+        long octreeHeap = usedHeap() - before;
+
+        from = System.nanoTime();
+        ChunkedBlockStorage back = octree.toChunked();
+        double toChunks = (System.nanoTime() - from) / 1e6;
+
+        long cells = 0, mismatches = 0;
+        for (int y = minY; y < maxY; y++) {
+            for (int z = min; z < min + edge; z++) {
+                for (int x = min; x < min + edge; x++) {
+                    int block = chunked.getBlock(x, y, z);
+                    if (octree.getBlock(x, y, z) != block || back.getBlock(x, y, z) != block) mismatches++;
+                    cells++;
+                }
+            }
+        }
+
+        long blocks = chunked.blockCount();
+        System.out.printf("%dx%d columns: %,d cells, %,d blocks, %,d sections; %d mismatches after conversion%n",
+                across, across, cells, blocks, chunked.getSections().size(), mismatches);
+        System.out.printf("  chunks: %,12d bytes heap (estimate %,d), %.3f bytes/cell%n",
+                chunkedHeap, chunked.memoryBytes(), (double) chunkedHeap / cells);
+        System.out.printf("  octree: %,12d bytes heap (estimate %,d), %.3f bytes/cell; %,d nodes, %d roots%n",
+                octreeHeap, octree.memoryBytes(), (double) octreeHeap / cells, octree.getNodeCount(), octree.getRootCount());
+        System.out.printf("  conversion: to octree %.0f ms, back to chunks %.0f ms%n", toOctree, toChunks);
+        Reference.reachabilityFence(back);
+
+        // Random reads over the whole volume, then near the surface where the octree is deepest
+        int ground = generator.heightAt(0, 0);
+        for (int pass = 0; pass < 2; pass++) {
+            reads("reads, whole volume", chunked, octree, minY, maxY - minY, min, edge, pass == 1);
+            reads("reads, ground +-8", chunked, octree, ground - 8, 16, min, edge, pass == 1);
+        }
+
+        // Edits: break and restore random blocks near the surface
+        for (int pass = 0; pass < 2; pass++) {
+            edits("chunks", chunked, ground, min, edge, pass == 1);
+            edits("octree", octree, ground, min, edge, pass == 1);
+        }
+        System.out.printf("  octree after edits: %,d nodes, %,d bytes (estimate)", octree.getNodeCount(), octree.memoryBytes());
+        octree.compact();
+        System.out.printf("; after compact(): %,d nodes, %,d bytes%n", octree.getNodeCount(), octree.memoryBytes());
+
+        // Rays from above the terrain, mostly downward
+        Random random = new Random(5);
+        Vector3f[] origins = new Vector3f[RAYS], directions = new Vector3f[RAYS];
+        for (int i = 0; i < RAYS; i++) {
+            origins[i] = new Vector3f(min + random.nextFloat() * edge, ground + 8 + random.nextFloat() * 24, min + random.nextFloat() * edge);
+            directions[i] = new Vector3f(random.nextFloat() * 2 - 1, -random.nextFloat(), random.nextFloat() * 2 - 1).normalize();
+        }
+        BlockHit a = new BlockHit(), b = new BlockHit();
+        int differ = 0;
+        long steps = 0;
+        for (int i = 0; i < RAYS; i++) {
+            boolean hitA = RayCaster.pickBlock(chunked, origins[i], directions[i], REACH, a);
+            boolean hitB = octree.pickBlock(origins[i], directions[i], REACH, b);
+            steps += octree.getLastRaySteps();
+            if (hitA != hitB || hitA && (a.x != b.x || a.y != b.y || a.z != b.z || a.normalX != b.normalX
+                    || a.normalY != b.normalY || a.normalZ != b.normalZ)) differ++;
+        }
+        for (int pass = 0; pass < 2; pass++) {
+            from = System.nanoTime();
+            int hits = 0;
+            for (int i = 0; i < RAYS; i++) if (RayCaster.pickBlock(chunked, origins[i], directions[i], REACH, a)) hits++;
+            double gridNanos = (double) (System.nanoTime() - from) / RAYS;
+            from = System.nanoTime();
+            for (int i = 0; i < RAYS; i++) if (octree.pickBlock(origins[i], directions[i], REACH, b)) hits++;
+            double octreeNanos = (double) (System.nanoTime() - from) / RAYS;
+            if (pass == 1) {
+                System.out.printf("  rays (reach %.0f, %d hits): grid walk on chunks %.0f ns, octree %.0f ns (%.1f nodes visited); %d of %d differ%n",
+                        REACH, hits / 2, gridNanos, octreeNanos, (double) steps / RAYS, differ, RAYS);
+            }
+        }
+    }
+
+    private static void reads(String name, BlockStorage chunked, BlockStorage octree, int y0, int height, int min, int edge, boolean print) {
+        Random random = new Random(9);
+        int[] coords = new int[3 * 65536];
+        for (int i = 0; i < coords.length; i += 3) {
+            coords[i] = min + random.nextInt(edge);
+            coords[i + 1] = y0 + random.nextInt(height);
+            coords[i + 2] = min + random.nextInt(edge);
+        }
+        double chunkNanos = readNanos(chunked, coords), octreeNanos = readNanos(octree, coords);
+        if (print) System.out.printf("  %s: chunks %.1f ns, octree %.1f ns per random read%n", name, chunkNanos, octreeNanos);
+    }
+
+    private static double readNanos(BlockStorage storage, int[] coords) {
+        long sum = 0;
+        long from = System.nanoTime();
+        for (int n = 0, i = 0; n < READS; n++, i = (i + 3) % coords.length) {
+            sum += storage.getBlock(coords[i], coords[i + 1], coords[i + 2]);
+        }
+        double nanos = (double) (System.nanoTime() - from) / READS;
+        if (sum == 42) System.out.print(""); // keeps the reads from being optimized away
+        return nanos;
+    }
+
+    private static void edits(String name, BlockStorage storage, int ground, int min, int edge, boolean print) {
+        Random random = new Random(11);
+        long from = System.nanoTime();
+        for (int i = 0; i < EDITS; i++) {
+            int x = min + random.nextInt(edge), y = ground - 8 + random.nextInt(16), z = min + random.nextInt(edge);
+            int previous = storage.setBlock(x, y, z, Blocks.LAMP);
+            storage.setBlock(x, y, z, previous);
+        }
+        double nanos = (double) (System.nanoTime() - from) / (2 * EDITS);
+        if (print) System.out.printf("  random edits, %s: %.0f ns per setBlock%n", name, nanos);
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,63 @@
+package engine;
+
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// One PlayerPhysics step on generated terrain, for worlds of different
+// sizes: walking in a circle (with jumps and step-ups where the terrain
+// rises), and falling at terminal speed, the longest sweep a step makes.
+// The time should not change with the number of loaded columns.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhysicsBenchmark {
+    // Columns loaded in each direction from the origin
+    @Param({"2", "12"})
+    public int radius;
+
+    private ChunkedBlockStorage blocks;
+    private PlayerPhysics walker;
+    private PlayerPhysics faller;
+    private float startY;
+    private int tick;
+
+    @Setup
+    public void setup() {
+        TerrainGenerator generator = new TerrainGenerator(415L);
+        blocks = new ChunkedBlockStorage();
+        for (int cz = -radius; cz < radius; cz++) {
+            for (int cx = -radius; cx < radius; cx++) {
+                ChunkSection[] column = generator.generateColumn(cx, cz);
+                for (int i = 0; i < column.length; i++) {
+                    if (column[i] != null && !column[i].isEmpty()) {
+                        blocks.putSection(cx, World.MIN_SECTION_Y + i, cz, column[i]);
+                    }
+                }
+            }
+        }
+        startY = generator.heightAt(0, 0) + 1;
+        walker = new PlayerPhysics(new Vector3f(0.3f, startY, 0.2f));
+        faller = new PlayerPhysics(new Vector3f(0.3f, 1000f, 0.2f));
+    }
+
+    @Benchmark
+    public float walk() {
+        float angle = (tick++ & 1023) * (float) (2 * Math.PI / 1024);
+        walker.step(blocks, Simulation.TICK_SECONDS, 5 * (float) Math.cos(angle), 5 * (float) Math.sin(angle),
+                (tick & 63) == 0 ? 1 : 0);
+        return walker.getPosition().y;
+    }
+
+    @Benchmark
+    public float fallAtTerminalSpeed() {
+        faller.getVelocity().y = -PlayerPhysics.TERMINAL_SPEED;
+        faller.step(blocks, Simulation.TICK_SECONDS, 0, 0, 0);
+        if (faller.isOnGround()) faller.getPosition().y = 1000f;
+        return faller.getPosition().y;
+    }
+}
@@ -0,0 +1,214 @@
+package engine;
+
+import org.joml.Vector3f;
+
+import java.util.Random;
+
+// Headless checks of PlayerPhysics on hand-built block layouts: landing,
+// walls, sliding, step-up, jump height, ceilings, terminal-speed falls and a
+// random walk through rubble that must never end inside a block. Also shows
+// that the cells read per step do not depend on the size of the world.
+// Exits with status 1 if a check fails.
+// Run with `gradlew report -Pmain=engine.PhysicsCheck`.
+public class PhysicsCheck {
+    private static final float DT = Simulation.TICK_SECONDS;
+    private static int failures;
+
+    public static void main(String[] args) {
+        landing();
+        wall();
+        sliding();
+        stepUp();
+        noStepOverTwoBlocks();
+        jumpHeight();
+        ceiling();
+        terminalFall();
+        randomWalk();
+        worldSize();
+        System.out.println(failures == 0 ? "all checks passed" : failures + " checks failed");
+        if (failures > 0) System.exit(1);
+    }
+
+    private static void landing() {
+        ChunkedBlockStorage blocks = floor(16);
+        PlayerPhysics body = new PlayerPhysics(new Vector3f(0, 10, 0));
+        run(body, blocks, 120, 0, 0, 0);
+        check("falls and lands on the floor", body.isOnGround() && near(body.getPosition().y, 0.5f),
+                "feet at " + body.getPosition().y);
+    }
+
+    private static void wall() {
+        ChunkedBlockStorage blocks = floor(16);
+        column(blocks, 5, 1, 2, -16, 16);
+        PlayerPhysics body = standing();
+        run(body, blocks, 120, 5, 0, 0);
+        float front = body.getPosition().x + PlayerPhysics.HALF_WIDTH;
+        check("stops at a two-block wall", front <= 4.5f && front > 4.49f, "front face at " + front);
+    }
+
+    private static void sliding() {
+        ChunkedBlockStorage blocks = floor(16);
+        column(blocks, 5, 1, 2, -16, 16);
+        PlayerPhysics body = standing();
+        run(body, blocks, 60, 3.5f, 3.5f, 0);
+        check("slides along a wall it walks into diagonally", body.getPosition().z > 3f,
+                "z " + body.getPosition().z);
+    }
+
+    private static void stepUp() {
+        ChunkedBlockStorage blocks = floor(16);
+        for (int x = 5; x <= 10; x++) column(blocks, x, 1, 1, -16, 16);
+        PlayerPhysics body = standing();
+        run(body, blocks, 90, 5, 0, 0);
+        Vector3f feet = body.getPosition();
+        check("steps up a one-block ledge", feet.x > 5 && near(feet.y, 1.5f) && body.isOnGround(),
+                "feet at " + feet.x + ", " + feet.y);
+    }
+
+    private static void noStepOverTwoBlocks() {
+        ChunkedBlockStorage blocks = floor(16);
+        column(blocks, 5, 1, 2, -16, 16);
+        PlayerPhysics body = standing();
+        run(body, blocks, 90, 5, 0, 0);
+        check("does not step up two blocks", near(body.getPosition().y, 0.5f), "feet at " + body.getPosition().y);
+    }
+
+    private static void jumpHeight() {
+        ChunkedBlockStorage blocks = floor(16);
+        PlayerPhysics body = standing();
+        float peak = 0;
+        body.step(blocks, DT, 0, 0, 1);
+        for (int i = 0; i < 120; i++) {
+            body.step(blocks, DT, 0, 0, 0);
+            peak = Math.max(peak, body.getPosition().y - 0.5f);
+        }
+        check("jumps higher than one block", peak > 1f && peak < 1.5f && body.isOnGround(), "peak " + peak);
+    }
+
+    private static void ceiling() {
+        ChunkedBlockStorage blocks = floor(16);
+        column(blocks, 0, 3, 3, -1, 1);
+        PlayerPhysics body = standing();
+        float top = 0;
+        body.step(blocks, DT, 0, 0, 1);
+        for (int i = 0; i < 60; i++) {
+            body.step(blocks, DT, 0, 0, 0);
+            top = Math.max(top, body.getPosition().y + PlayerPhysics.HEIGHT);
+        }
+        check("head stops under a ceiling", top <= 2.5f, "head reached " + top);
+    }
+
+    private static void terminalFall() {
+        ChunkedBlockStorage blocks = floor(16);
+        PlayerPhysics body = new PlayerPhysics(new Vector3f(0.2f, 400, -0.3f));
+        run(body, blocks, 60 * 10, 0, 0, 0);
+        check("lands after a terminal-speed fall", body.isOnGround() && near(body.getPosition().y, 0.5f),
+                "feet at " + body.getPosition().y);
+    }
+
+    // Random rubble and random input; after every step no solid cell may overlap the box
+    private static void randomWalk() {
+        Random random = new Random(7);
+        ChunkedBlockStorage blocks = floor(24);
+        for (int i = 0; i < 1500; i++) {
+            int x = random.nextInt(40) - 20, y = 1 + random.nextInt(4), z = random.nextInt(40) - 20;
+            if (Math.abs(x) > 1 || Math.abs(z) > 1) blocks.setBlock(x, y, z, Blocks.STONE);
+        }
+        PlayerPhysics body = standing();
+        int inside = 0, maxCells = 0;
+        float moveX = 0, moveZ = 0, up = 0;
+        for (int i = 0; i < 200_000; i++) {
+            if (i % 30 == 0) {
+                moveX = (random.nextFloat() * 2 - 1) * 10;
+                moveZ = (random.nextFloat() * 2 - 1) * 10;
+                up = random.nextInt(4) == 0 ? 1 : 0;
+                body.setFlying(random.nextInt(20) == 0);
+            }
+            // Keep it over the rubble
+            Vector3f feet = body.getPosition();
+            if (Math.abs(feet.x) > 18) moveX = -Math.signum(feet.x) * 5;
+            if (Math.abs(feet.z) > 18) moveZ = -Math.signum(feet.z) * 5;
+            body.step(blocks, DT, moveX, moveZ, body.isFlying() ? up * 10 - 5 : up);
+            maxCells = Math.max(maxCells, body.getCellsRead());
+            if (overlapsSolid(body, blocks)) inside++;
+        }
+        check("never ends a step inside a block (200000 random steps)", inside == 0, inside + " steps inside");
+        System.out.println("  most cells read in one step: " + maxCells);
+    }
+
+    private static void worldSize() {
+        int[] most = new int[2];
+        int[] sizes = {16, 256};
+        for (int s = 0; s < sizes.length; s++) {
+            ChunkedBlockStorage blocks = floor(sizes[s]);
+            PlayerPhysics body = standing();
+            for (int i = 0; i < 600; i++) {
+                body.step(blocks, DT, 5 * (float) Math.cos(i * 0.01), 5 * (float) Math.sin(i * 0.01), i % 40 == 0 ? 1 : 0);
+                most[s] = Math.max(most[s], body.getCellsRead());
+            }
+        }
+        check("cells read per step do not grow with the world", most[0] == most[1],
+                "floor 33x33: " + most[0] + ", floor 513x513: " + most[1]);
+    }
+
+    private static boolean overlapsSolid(PlayerPhysics body, BlockStorage blocks) {
+        Vector3f p = body.getPosition();
+        for (int x = (int) Math.floor(p.x - PlayerPhysics.HALF_WIDTH); x <= (int) Math.ceil(p.x + PlayerPhysics.HALF_WIDTH); x++) {
+            for (int y = (int) Math.floor(p.y); y <= (int) Math.ceil(p.y + PlayerPhysics.HEIGHT); y++) {
+                for (int z = (int) Math.floor(p.z - PlayerPhysics.HALF_WIDTH); z <= (int) Math.ceil(p.z + PlayerPhysics.HALF_WIDTH); z++) {
+                    if (!Blocks.isSolid(blocks.getBlock(x, y, z))) continue;
+                    // Overlap deeper than the half-EPSILON the sweep tolerates
+                    float depth = 1e-3f / 2;
+                    if (p.x - PlayerPhysics.HALF_WIDTH < x + 0.5f - depth && p.x + PlayerPhysics.HALF_WIDTH > x - 0.5f + depth
+                            && p.y < y + 0.5f - depth && p.y + PlayerPhysics.HEIGHT > y - 0.5f + depth
+                            && p.z - PlayerPhysics.HALF_WIDTH < z + 0.5f - depth && p.z + PlayerPhysics.HALF_WIDTH > z - 0.5f + depth) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void run(PlayerPhysics body, BlockStorage blocks, int steps, float moveX, float moveZ, float up) {
+        for (int i = 0; i < steps; i++) {
+            body.step(blocks, DT, moveX, moveZ, up);
+        }
+    }
+
+    // Feet resting on the floor at the origin
+    private static PlayerPhysics standing() {
+        PlayerPhysics body = new PlayerPhysics(new Vector3f(0, 0.51f, 0));
+        ChunkedBlockStorage blocks = floor(1);
+        while (!body.isOnGround()) body.step(blocks, DT, 0, 0, 0);
+        return body;
+    }
+
+    // Stone at y = 0 from -radius to radius on x and z; its top face is at y = 0.5
+    private static ChunkedBlockStorage floor(int radius) {
+        ChunkedBlockStorage blocks = new ChunkedBlockStorage();
+        for (int z = -radius; z <= radius; z++) {
+            for (int x = -radius; x <= radius; x++) {
+                blocks.setBlock(x, 0, z, Blocks.STONE);
+            }
+        }
+        return blocks;
+    }
+
+    private static void column(ChunkedBlockStorage blocks, int x, int minY, int maxY, int minZ, int maxZ) {
+        for (int z = minZ; z <= maxZ; z++) {
+            for (int y = minY; y <= maxY; y++) {
+                blocks.setBlock(x, y, z, Blocks.STONE);
+            }
+        }
+    }
+
+    private static boolean near(float value, float expected) {
+        return Math.abs(value - expected) < 0.01f;
+    }
+
+    private static void check(String name, boolean passed, String detail) {
+        System.out.printf("%s %s (%s)%n", passed ? "ok  " : "FAIL", name, detail);
+        if (!passed) failures++;
+    }
+}
@@ -0,0 +1,77 @@
+package engine;
+
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// One pick on generated terrain: the voxel grid walk against the old scan of
+// every block within reach tested with Main.rayHitsCube().
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PickingBenchmark {
+    private static final int RAYS = 256;
+
+    @Param({"8", "16", "32"})
+    public float reach;
+
+    private World world;
+    private final Vector3f origin = new Vector3f();
+    private final Vector3f sky = new Vector3f(0.3f, 1000f, 0.2f);
+    private final Vector3f[] directions = new Vector3f[RAYS];
+    private final BlockHit hit = new BlockHit();
+    private int next;
+
+    @Setup
+    public void setup() {
+        TerrainGenerator generator = new TerrainGenerator(415L);
+        world = new World(null);
+        for (int cz = -4; cz < 4; cz++) {
+            for (int cx = -4; cx < 4; cx++) {
+                world.loadColumn(cx, cz, generator.generateColumn(cx, cz));
+            }
+        }
+        origin.set(0.3f, generator.heightAt(0, 0) + 2.6f, 0.2f);
+
+        // Mostly downward, so most rays hit something within reach
+        Random random = new Random(42);
+        for (int i = 0; i < RAYS; i++) {
+            directions[i] = new Vector3f(random.nextFloat() * 2 - 1, -random.nextFloat(), random.nextFloat() * 2 - 1).normalize();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        world.cleanup();
+    }
+
+    @Benchmark
+    public boolean gridWalk() {
+        return RayCaster.pickBlock(world.getBlocks(), origin, directions[next++ & (RAYS - 1)], reach, hit);
+    }
+
+    // Above the terrain, so every ray walks its full reach: cost grows with distance only
+    @Benchmark
+    public boolean gridWalkMiss() {
+        return RayCaster.pickBlock(world.getBlocks(), sky, directions[next++ & (RAYS - 1)], reach, hit);
+    }
+
+    @Benchmark
+    public Vector3f scanBlocksInReach() {
+        Vector3f dir = directions[next++ & (RAYS - 1)];
+        Vector3f nearest = null;
+        float nearestDistance = Float.POSITIVE_INFINITY;
+        for (Vector3f block : LegacyBlockScan.blockPositionsNear(world.getBlocks(), origin, reach)) {
+            if (Main.rayHitsCube(origin, dir, block, 1.0f) && block.distance(origin) < nearestDistance) {
+                nearest = block;
+                nearestDistance = block.distance(origin);
+            }
+        }
+        return nearest;
+    }
+}
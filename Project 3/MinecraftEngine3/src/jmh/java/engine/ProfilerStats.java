@@ -0,0 +1,118 @@
+package engine;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// FrameProfiler without a window: the CPU stages of a frame that need no GL
+// context (input, picking, a simulation tick standing in for the world
+// update, snapshotting and meshing a section, frustum and occlusion culling)
+// run in a loop under their scopes. Prints per-scope percentiles and the
+// profiler's own cost, and writes build/profile/frames.csv and trace.json.
+// Run with `gradlew report -Pmain=engine.ProfilerStats`.
+public class ProfilerStats {
+    private static final int VIEW_DISTANCE = 6;
+    private static final int FRAMES = 600;
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        TerrainGenerator generator = new TerrainGenerator(415L);
+        World world = new World(null);
+        ChunkStreamer streamer = new ChunkStreamer(world, generator, VIEW_DISTANCE, 2);
+        Vector3f start = new Vector3f(0.3f, generator.heightAt(0, 0) + 3, 0.2f);
+        Simulation simulation = new Simulation(world, streamer, start);
+        do {
+            simulation.tick();
+            Thread.sleep(20);
+        } while (streamer.pendingCount() > 0);
+
+        Camera camera = new Camera(new Vector3f(start));
+        Matrix4f view = new Matrix4f();
+        Matrix4f projection = new Matrix4f().setPerspective((float) Math.toRadians(70.0f), 800 / 600f, 0.1f, 1000f);
+        Matrix4f scratch = new Matrix4f();
+        Matrix4f projectionView = new Matrix4f();
+        Vector3f rayDir = new Vector3f();
+        BlockHit hit = new BlockHit();
+        Frustum frustum = new Frustum();
+        OcclusionCuller culler = new OcclusionCuller(VIEW_DISTANCE + 1);
+        OcclusionCuller.Connectivity open = (x, y, z) -> SectionVisibility.ALL;
+        ChunkMesher mesher = new ChunkMesher();
+        ChunkMeshData data = new ChunkMeshData();
+        int[] padded = new int[ChunkMesher.PADDED_VOLUME];
+        long[] sections = world.getBlocks().getSections().keys();
+
+        FrameProfiler profiler = new FrameProfiler(FRAMES);
+        for (int frame = 0; frame < 2 * FRAMES; frame++) { // the first half is warm-up
+            profiler.beginFrame();
+            profiler.begin(FrameProfiler.INPUT);
+            simulation.setInput(1, 0, 0, camera.getYaw() + frame * 0.2f, -20f);
+            profiler.end(FrameProfiler.INPUT);
+
+            profiler.begin(FrameProfiler.PICKING);
+            simulation.getLatest().interpolate(Long.MAX_VALUE, camera.getPosition());
+            camera.setRotation(camera.getYaw() + 0.2f, -20f);
+            camera.getViewMatrix(view);
+            RayCaster.getRayDirection(400, 300, 800, 600, projection, view, scratch, rayDir);
+            RayCaster.pickBlock(world.getBlocks(), camera.getPosition(), rayDir, 8f, hit);
+            profiler.end(FrameProfiler.PICKING);
+
+            profiler.begin(FrameProfiler.WORLD_UPDATE);
+            simulation.tick();
+            profiler.begin(FrameProfiler.MESHING);
+            long key = sections[frame % sections.length];
+            world.getBlocks().copyPadded(ChunkedBlockStorage.keyX(key), ChunkedBlockStorage.keyY(key),
+                    ChunkedBlockStorage.keyZ(key), padded);
+            mesher.mesh(padded, null, data, true);
+            profiler.end(FrameProfiler.MESHING);
+            profiler.end(FrameProfiler.WORLD_UPDATE);
+
+            profiler.begin(FrameProfiler.CULLING);
+            frustum.set(projectionView.set(projection).mul(view));
+            Vector3f eye = camera.getPosition();
+            culler.search(Math.round(eye.x) >> 4, Math.round(eye.y) >> 4, Math.round(eye.z) >> 4, frustum, open);
+            profiler.end(FrameProfiler.CULLING);
+            profiler.count(FrameProfiler.TRIANGLES, data.getTriangleCount());
+            profiler.endFrame();
+        }
+        streamer.shutdown();
+
+        System.out.printf("%d frames: p50 %.3f ms, p99 %.3f ms%n", profiler.getFrameCount(),
+                profiler.framePercentileMillis(50), profiler.framePercentileMillis(99));
+        for (int scope = 0; scope < FrameProfiler.SCOPES; scope++) {
+            System.out.printf("  %-16s p50 %7.3f ms  p99 %7.3f ms%n", FrameProfiler.SCOPE_NAMES[scope],
+                    profiler.scopePercentileMillis(scope, 50), profiler.scopePercentileMillis(scope, 99));
+        }
+        System.out.printf("allocated: mean %.0f B/frame, max %d B%n",
+                profiler.counterMean(FrameProfiler.ALLOCATED_BYTES), profiler.counterMax(FrameProfiler.ALLOCATED_BYTES));
+
+        // The profiler's own cost: empty frames with every scope entered once
+        FrameProfiler empty = new FrameProfiler(FRAMES);
+        int rounds = 200_000;
+        long from = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            empty.beginFrame();
+            for (int scope = 0; scope < FrameProfiler.SCOPES; scope++) {
+                empty.begin(scope);
+                empty.end(scope);
+            }
+            empty.count(FrameProfiler.DRAW_CALLS, 1);
+            empty.endFrame();
+        }
+        System.out.printf("profiler overhead: %.0f ns per frame with %d scopes%n",
+                (System.nanoTime() - from) / (double) rounds, FrameProfiler.SCOPES);
+
+        Path directory = Paths.get("build", "profile");
+        Files.createDirectories(directory);
+        try (Writer out = Files.newBufferedWriter(directory.resolve("frames.csv"))) {
+            profiler.writeCsv(out);
+        }
+        try (Writer out = Files.newBufferedWriter(directory.resolve("trace.json"))) {
+            profiler.writeChromeTrace(out);
+        }
+        System.out.println("wrote " + directory.toAbsolutePath().resolve("frames.csv") + " and trace.json");
+    }
+}
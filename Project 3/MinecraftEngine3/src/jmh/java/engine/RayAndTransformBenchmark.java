@@ -0,0 +1,62 @@
+package engine;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// The per-frame math in Main and GameObject: the crosshair ray, one
+// ray/cube slab test, and an object's model matrix with and without
+// allocating the result.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RayAndTransformBenchmark {
+    private static final int WIDTH = 800, HEIGHT = 600;
+
+    private final Matrix4f projection = new Matrix4f()
+            .perspective((float) Math.toRadians(70.0f), WIDTH / (float) HEIGHT, 0.1f, 1000f);
+    private final Matrix4f view = new Matrix4f()
+            .lookAt(new Vector3f(0, 2, 5), new Vector3f(0, 0, 0), new Vector3f(0, 1, 0));
+    private final Vector3f origin = new Vector3f(0, 2, 5);
+    private final Vector3f direction = new Vector3f(0, -2, -5).normalize();
+    private final Vector3f hitCube = new Vector3f(0, 0, 0);
+    private final Vector3f missCube = new Vector3f(6, 0, 0);
+    private final GameObject object = new GameObject(null, new Vector3f(1, 2, 3));
+    private final Matrix4f dest = new Matrix4f();
+
+    @Setup
+    public void setup() {
+        object.rotation.set(15, 30, 45);
+        object.scale.set(1, 2, 1);
+    }
+
+    @Benchmark
+    public Vector3f rayDirection() {
+        return RayCaster.getRayDirection(WIDTH / 2f, HEIGHT / 2f, WIDTH, HEIGHT, projection, view);
+    }
+
+    @Benchmark
+    public boolean rayHitsCubeHit() {
+        return Main.rayHitsCube(origin, direction, hitCube, 1.0f);
+    }
+
+    @Benchmark
+    public boolean rayHitsCubeMiss() {
+        return Main.rayHitsCube(origin, direction, missCube, 1.0f);
+    }
+
+    @Benchmark
+    public Matrix4f modelMatrix() {
+        return object.getModelMatrix();
+    }
+
+    @Benchmark
+    public Matrix4f modelMatrixInto() {
+        return object.getModelMatrix(dest);
+    }
+}
@@ -0,0 +1,84 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// Saves a square of generated columns to region files in a temporary
+// directory, loads them back and reports save/load throughput and the
+// compression ratio against the in-memory section size.
+// Run with `gradlew report -Pmain=engine.RegionStats`.
+public class RegionStats {
+    public static void main(String[] args) throws IOException {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        TerrainGenerator generator = new TerrainGenerator(415L);
+        ChunkSection[][] columns = new ChunkSection[side * side][];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = generator.generateColumn(i % side, i / side);
+        }
+
+        run(columns, side); // warm-up
+        run(columns, side);
+    }
+
+    private static void run(ChunkSection[][] columns, int side) throws IOException {
+        Path directory = Files.createTempDirectory("regions");
+        try {
+            long memoryBytes = 0;
+            for (ChunkSection[] column : columns) {
+                for (ChunkSection section : column) {
+                    if (section != null) memoryBytes += section.memoryBytes();
+                }
+            }
+
+            RegionStorage storage = new RegionStorage(directory);
+            long start = System.nanoTime();
+            for (int i = 0; i < columns.length; i++) {
+                storage.saveColumnAsync(i % side, i / side, copy(columns[i]));
+            }
+            long queued = System.nanoTime();
+            storage.flush();
+            double saveSeconds = (System.nanoTime() - start) / 1e9;
+            double queueMillis = (queued - start) / 1e6;
+            storage.close();
+
+            long fileBytes;
+            try (Stream<Path> files = Files.list(directory)) {
+                fileBytes = files.mapToLong(path -> path.toFile().length()).sum();
+            }
+
+            // Reopen so loads come from disk rather than the write queue
+            storage = new RegionStorage(directory);
+            start = System.nanoTime();
+            long blocks = 0;
+            for (int i = 0; i < columns.length; i++) {
+                for (ChunkSection section : storage.loadColumn(i % side, i / side)) {
+                    if (section != null) blocks += section.getNonAirCount();
+                }
+            }
+            double loadSeconds = (System.nanoTime() - start) / 1e9;
+            storage.close();
+
+            System.out.printf("%d columns, %d blocks: in memory %.1f MB, on disk %.1f MB (%.1fx)%n",
+                    columns.length, blocks, memoryBytes / 1e6, fileBytes / 1e6, memoryBytes / (double) fileBytes);
+            System.out.printf("  save: %.2f ms to queue, %.2f s to disk = %.0f columns/s, %.1f MB/s%n",
+                    queueMillis, saveSeconds, columns.length / saveSeconds, memoryBytes / 1e6 / saveSeconds);
+            System.out.printf("  load: %.2f s = %.0f columns/s, %.1f MB/s%n",
+                    loadSeconds, columns.length / loadSeconds, memoryBytes / 1e6 / loadSeconds);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static ChunkSection[] copy(ChunkSection[] column) {
+        ChunkSection[] copy = new ChunkSection[column.length];
+        for (int i = 0; i < column.length; i++) {
+            copy[i] = column[i] == null ? null : column[i].copy();
+        }
+        return copy;
+    }
+}
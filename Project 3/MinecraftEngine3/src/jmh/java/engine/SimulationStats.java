@@ -0,0 +1,61 @@
+package engine;
+
+import org.joml.Vector3f;
+
+// Cost of a Simulation tick with terrain streaming, run back to back on
+// this thread: standing still, walking (so new columns stream in), and
+// walking while breaking and placing a block every tick. Then the same
+// simulation on its own thread, to check it holds its fixed rate.
+// Run with `gradlew report -Pmain=engine.SimulationStats`.
+public class SimulationStats {
+    private static final int VIEW_DISTANCE = 6;
+    private static final int TICKS = 2_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        TerrainGenerator generator = new TerrainGenerator(415L);
+        World world = new World(null);
+        ChunkStreamer streamer = new ChunkStreamer(world, generator, VIEW_DISTANCE, 2);
+        Vector3f start = new Vector3f(0.3f, generator.heightAt(0, 0) + 3, 0.2f);
+        Simulation simulation = new Simulation(world, streamer, start);
+
+        // Let the first view distance load before timing anything
+        do {
+            simulation.tick();
+            Thread.sleep(20);
+        } while (streamer.pendingCount() > 0);
+
+        run("idle", simulation, 0, false);
+        run("walking", simulation, 1, false);
+        run("walking + edit per tick", simulation, 1, true);
+
+        long fromTick = simulation.getTick();
+        long from = System.nanoTime();
+        simulation.start();
+        Thread.sleep(2_000);
+        simulation.stop();
+        double seconds = (System.nanoTime() - from) / 1e9;
+        System.out.printf("on its own thread: %.1f ticks/s (target %d)%n",
+                (simulation.getTick() - fromTick) / seconds, Simulation.TICKS_PER_SECOND);
+        streamer.shutdown();
+    }
+
+    private static void run(String name, Simulation simulation, float forward, boolean edit) {
+        simulation.setInput(forward, 0, 0, -90f, -30f);
+        Vector3f down = new Vector3f(0, -1, 0);
+        Vector3f eye = new Vector3f();
+        long worst = 0;
+        long from = System.nanoTime();
+        for (int i = 0; i < TICKS; i++) {
+            if (edit) {
+                simulation.getLatest().interpolate(Long.MAX_VALUE, eye);
+                simulation.submit(new Simulation.BlockCommand(eye, down, i % 2 == 0 ? Blocks.AIR : Blocks.STONE));
+            }
+            long tickStart = System.nanoTime();
+            simulation.tick();
+            worst = Math.max(worst, System.nanoTime() - tickStart);
+        }
+        double seconds = (System.nanoTime() - from) / 1e9;
+        System.out.printf("%-24s %9.0f ticks/s, mean %.3f ms, worst %.3f ms (budget %.1f ms)%n",
+                name, TICKS / seconds, seconds * 1e3 / TICKS, worst / 1e6, Simulation.TICK_SECONDS * 1e3);
+    }
+}
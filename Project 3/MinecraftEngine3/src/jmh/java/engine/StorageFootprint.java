@@ -0,0 +1,51 @@
+package engine;
+
+import org.joml.Vector3f;
+
+import java.lang.ref.Reference;
+
+// Heap bytes per block for ChunkedBlockStorage and the old GameObject list.
+// Run with `gradlew report -Pmain=engine.StorageFootprint`.
+public class StorageFootprint {
+    public static void main(String[] args) {
+        int edge = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        long blocks = (long) edge * edge * edge;
+
+        long before = usedHeap();
+        LegacyBlockList list = new LegacyBlockList();
+        for (int y = 0; y < edge; y++) {
+            for (int z = 0; z < edge; z++) {
+                for (int x = 0; x < edge; x++) {
+                    list.add(new GameObject(null, new Vector3f(x, y, z)));
+                }
+            }
+        }
+        long listBytes = usedHeap() - before;
+        Reference.reachabilityFence(list);
+        System.out.printf("GameObject list:     %,d blocks, %,d bytes, %.1f bytes/block%n",
+                blocks, listBytes, (double) listBytes / blocks);
+
+        before = usedHeap();
+        ChunkedBlockStorage chunked = new ChunkedBlockStorage();
+        for (int y = 0; y < edge; y++) {
+            for (int z = 0; z < edge; z++) {
+                for (int x = 0; x < edge; x++) {
+                    // Two block types so sections need a real palette
+                    chunked.setBlock(x, y, z, ((x ^ y ^ z) & 8) == 0 ? Blocks.BRICK : Blocks.BRICK + 1);
+                }
+            }
+        }
+        long chunkedBytes = usedHeap() - before;
+        Reference.reachabilityFence(chunked);
+        System.out.printf("ChunkedBlockStorage: %,d blocks, %,d bytes, %.2f bytes/block (estimate %.2f)%n",
+                blocks, chunkedBytes, (double) chunkedBytes / blocks, (double) chunked.memoryBytes() / blocks);
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
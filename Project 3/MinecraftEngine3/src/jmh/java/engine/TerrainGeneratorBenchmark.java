@@ -0,0 +1,23 @@
+package engine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Single-threaded time to generate one 16x16 column
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TerrainGeneratorBenchmark {
+    private final TerrainGenerator generator = new TerrainGenerator(415L);
+    private int next;
+
+    @Benchmark
+    public ChunkSection[] generateColumn() {
+        int i = next++;
+        return generator.generateColumn(i & 63, i >> 6);
+    }
+}
@@ -0,0 +1,51 @@
+package engine;
+
+import org.joml.Vector3f;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Streams terrain around a camera flying in a straight line, with no window,
+// and reports generation throughput in columns and sections per second.
+// Run with `gradlew report -Pmain=engine.TerrainStats`.
+public class TerrainStats {
+    public static void main(String[] args) {
+        int viewDistance = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            run(viewDistance, threads); // warm-up
+            run(viewDistance, threads);
+        }
+    }
+
+    private static void run(int viewDistance, int threads) {
+        World world = new World(null);
+        AtomicInteger generated = new AtomicInteger();
+        TerrainGenerator generator = new TerrainGenerator(415L) {
+            @Override
+            public ChunkSection[] generateColumn(int cx, int cz) {
+                generated.incrementAndGet();
+                return super.generateColumn(cx, cz);
+            }
+        };
+        ChunkStreamer streamer = new ChunkStreamer(world, generator, viewDistance, threads);
+        Vector3f camera = new Vector3f(0, 40, 0);
+
+        long start = System.nanoTime();
+        // Fly 32 columns along +x; every step needs a new strip of columns
+        for (int step = 0; step <= 32; step++) {
+            camera.x = step * ChunkSection.SIZE;
+            do {
+                streamer.update(camera);
+                Thread.onSpinWait();
+            } while (streamer.pendingCount() > 0);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long sections = world.getBlocks().getSections().size();
+
+        System.out.printf("%2d threads: %5d columns in %.2f s = %7.0f columns/s (%d sections resident)%n",
+                threads, generated.get(), seconds, generated.get() / seconds, sections);
+        streamer.shutdown();
+        world.cleanup();
+    }
+}
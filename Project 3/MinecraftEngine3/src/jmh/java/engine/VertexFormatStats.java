@@ -0,0 +1,59 @@
+package engine;
+
+// GPU bytes per chunk section on generated, lit terrain: the packed
+// ChunkMeshData format (4-byte vertices, 16-bit indices) against the float
+// layout the chunk meshes used before (Cube's 9 floats per vertex, 32-bit
+// indices). Both hold the same greedy meshes.
+// Run with `gradlew report -Pmain=engine.VertexFormatStats`.
+public class VertexFormatStats {
+    private static final int VIEW_DISTANCE = 8;
+    private static final int FLOAT_VERTEX_BYTES = Cube.FLOATS_PER_VERTEX * Float.BYTES;
+
+    public static void main(String[] args) {
+        TerrainGenerator generator = new TerrainGenerator(415L);
+        ChunkedBlockStorage blocks = new ChunkedBlockStorage();
+        LightEngine light = new LightEngine(blocks);
+        for (int cz = -VIEW_DISTANCE; cz <= VIEW_DISTANCE; cz++) {
+            for (int cx = -VIEW_DISTANCE; cx <= VIEW_DISTANCE; cx++) {
+                ChunkSection[] column = generator.generateColumn(cx, cz);
+                for (int i = 0; i < column.length; i++) {
+                    if (column[i] != null && !column[i].isEmpty()) {
+                        blocks.putSection(cx, World.MIN_SECTION_Y + i, cz, column[i]);
+                    }
+                }
+                light.loadColumn(cx, cz);
+            }
+        }
+
+        ChunkMesher mesher = new ChunkMesher();
+        ChunkMeshData data = new ChunkMeshData();
+        int[] padded = new int[ChunkMesher.PADDED_VOLUME];
+        byte[] paddedLight = new byte[ChunkMesher.PADDED_VOLUME];
+        long floatBytes = 0, packedBytes = 0, triangles = 0;
+        long maxFloat = 0, maxPacked = 0;
+        int meshed = 0;
+        for (long key : blocks.getSections().keys()) {
+            int sx = ChunkedBlockStorage.keyX(key), sy = ChunkedBlockStorage.keyY(key), sz = ChunkedBlockStorage.keyZ(key);
+            blocks.copyPadded(sx, sy, sz, padded);
+            light.copyPadded(sx, sy, sz, paddedLight);
+            mesher.mesh(padded, paddedLight, data, true);
+            if (data.isEmpty()) continue;
+
+            long asFloats = (long) data.getVertexCount() * FLOAT_VERTEX_BYTES + (long) data.getIndexCount() * Integer.BYTES;
+            floatBytes += asFloats;
+            packedBytes += data.byteSize();
+            maxFloat = Math.max(maxFloat, asFloats);
+            maxPacked = Math.max(maxPacked, data.byteSize());
+            triangles += data.getTriangleCount();
+            meshed++;
+        }
+
+        System.out.printf("%d meshed sections, %d triangles%n", meshed, triangles);
+        System.out.printf("  float vertices: %7.0f bytes/section (max %6d), %6.2f MB total%n",
+                floatBytes / (double) meshed, maxFloat, floatBytes / 1e6);
+        System.out.printf("  packed:         %7.0f bytes/section (max %6d), %6.2f MB total (%.1fx smaller)%n",
+                packedBytes / (double) meshed, maxPacked, packedBytes / 1e6, floatBytes / (double) packedBytes);
+        System.out.printf("  vertex data alone: %d -> %d bytes per vertex (%.0fx)%n",
+                FLOAT_VERTEX_BYTES, ChunkMeshData.BYTES_PER_VERTEX, FLOAT_VERTEX_BYTES / (double) ChunkMeshData.BYTES_PER_VERTEX);
+    }
+}
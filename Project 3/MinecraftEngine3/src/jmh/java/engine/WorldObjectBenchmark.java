@@ -0,0 +1,74 @@
+package engine;
+
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// World's free-standing object list and block lookup, headless: objects get
+// a null Cube, and their instance batches are never built since nothing is
+// rendered.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorldObjectBenchmark {
+    private static final int PROBES = 1024;
+
+    @Param({"100", "1000", "10000"})
+    public int objects;
+
+    private World world;
+    private GameObject first;
+    private final GameObject extra = new GameObject(null, new Vector3f(0.5f, 100f, 0.5f));
+    private final Vector3f[] probes = new Vector3f[PROBES];
+    private int next;
+
+    @Setup
+    public void setup() {
+        TerrainGenerator generator = new TerrainGenerator(415L);
+        world = new World(null);
+        for (int cz = -2; cz < 2; cz++) {
+            for (int cx = -2; cx < 2; cx++) {
+                world.loadColumn(cx, cz, generator.generateColumn(cx, cz));
+            }
+        }
+        for (int i = 0; i < objects; i++) {
+            GameObject obj = new GameObject(null, new Vector3f(i % 32, 80 + i / 1024, (i / 32) % 32));
+            if (i == 0) first = obj;
+            world.add(obj);
+        }
+        for (int i = 0; i < PROBES; i++) {
+            int x = (i * 7) % 64 - 32, z = (i * 13) % 64 - 32;
+            probes[i] = new Vector3f(x, generator.heightAt(x, z) + (i % 5) - 2, z);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        world.cleanup();
+    }
+
+    // The newest object: remove() scans the whole list before finding it
+    @Benchmark
+    public int addThenRemoveNewest() {
+        world.add(extra);
+        world.remove(extra);
+        return world.getObjects().size();
+    }
+
+    // The oldest object: found at once, but every later one shifts down
+    @Benchmark
+    public int removeThenAddOldest() {
+        world.remove(first);
+        world.add(first);
+        return world.getObjects().size();
+    }
+
+    @Benchmark
+    public boolean containsAt() {
+        return world.containsAt(probes[next++ & (PROBES - 1)]);
+    }
+}
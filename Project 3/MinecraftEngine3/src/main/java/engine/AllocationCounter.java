@@ -0,0 +1,35 @@
+package engine;
+
+import java.lang.management.ManagementFactory;
+
+// Heap bytes allocated by the calling thread, from the JVM's per-thread
+// allocation counter (HotSpot's com.sun.management.ThreadMXBean). Reading it
+// allocates nothing, so it can bracket a frame. Where the JVM does not
+// support it, isSupported() is false and every reading is 0.
+public final class AllocationCounter {
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private AllocationCounter() {
+    }
+
+    public static boolean isSupported() {
+        return THREADS != null;
+    }
+
+    // Running total for the current thread; subtract two readings to get the bytes in between
+    public static long allocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        try {
+            com.sun.management.ThreadMXBean bean =
+                    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if (!bean.isThreadAllocatedMemorySupported()) return null;
+            bean.setThreadAllocatedMemoryEnabled(true);
+            return bean;
+        } catch (ClassCastException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package engine;
+
+import java.util.Arrays;
+
+// Block edits waiting to be applied together, in the order they were first
+// made. A later edit to the same block replaces the earlier one, so each
+// block appears at most once however many times it was changed. Reused
+// from batch to batch; adding allocates only when the queue outgrows
+// every earlier batch.
+public class BlockEditQueue {
+    private final LongLongMap indexByPosition = new LongLongMap(256);
+    private int[] edits = new int[4 * 128]; // x, y, z, block
+    private int size;
+
+    public void add(int x, int y, int z, int block) {
+        long key = positionKey(x, y, z);
+        int index = (int) indexByPosition.get(key, -1);
+        if (index >= 0) {
+            edits[index * 4 + 3] = block;
+            return;
+        }
+        if ((size + 1) * 4 > edits.length) edits = Arrays.copyOf(edits, edits.length * 2);
+        edits[size * 4] = x;
+        edits[size * 4 + 1] = y;
+        edits[size * 4 + 2] = z;
+        edits[size * 4 + 3] = block;
+        indexByPosition.put(key, size);
+        size++;
+    }
+
+    // Distinct blocks queued
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int x(int i) {
+        return edits[i * 4];
+    }
+
+    public int y(int i) {
+        return edits[i * 4 + 1];
+    }
+
+    public int z(int i) {
+        return edits[i * 4 + 2];
+    }
+
+    public int block(int i) {
+        return edits[i * 4 + 3];
+    }
+
+    public void clear() {
+        if (size == 0) return;
+        indexByPosition.clear();
+        size = 0;
+    }
+
+    // 25 bits each for x and z, as far as ChunkedBlockStorage's section keys reach, and 12 for y;
+    // the top bits stay clear so a key is never LongLongMap's empty marker
+    private static long positionKey(int x, int y, int z) {
+        return ((long) (x & 0x1FFFFFF) << 37) | ((long) (z & 0x1FFFFFF) << 12) | (y & 0xFFF);
+    }
+}
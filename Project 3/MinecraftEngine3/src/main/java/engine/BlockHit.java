@@ -0,0 +1,10 @@
+package engine;
+
+// Result of RayCaster.pickBlock(); reused between calls to avoid garbage
+public class BlockHit {
+    public int x, y, z;
+    // Outward normal of the face the ray entered through; zero if the ray started inside the block
+    public int normalX, normalY, normalZ;
+    public int block;
+    public float distance;
+}
@@ -0,0 +1,8 @@
+package engine;
+
+public interface BlockStorage {
+    int getBlock(int x, int y, int z);
+
+    // Returns the block that was there before
+    int setBlock(int x, int y, int z, int block);
+}
@@ -0,0 +1,39 @@
+package engine;
+
+// Which texture layer each face of each block type uses. The layers are
+// packed into one TextureArray in LAYER_NAMES order, so any mix of block
+// types draws with a single texture bind. Pure data; safe to use from the
+// mesh workers.
+public final class BlockTextures {
+    // File names under the textures directory, without ".png", in layer order; at most
+    // ChunkMeshData.MAX_LAYERS, the number a packed vertex can address
+    public static final String[] LAYER_NAMES = {"brick", "stone", "dirt", "grass_top", "grass_side", "lamp"};
+
+    public static final int BRICK = 0;
+    public static final int STONE = 1;
+    public static final int DIRT = 2;
+    public static final int GRASS_TOP = 3;
+    public static final int GRASS_SIDE = 4;
+    public static final int LAMP = 5;
+
+    private BlockTextures() {
+    }
+
+    // Layer for a block's face; faces are numbered like SectionVisibility.FACE_*
+    public static int layer(int block, int face) {
+        switch (block) {
+            case Blocks.STONE:
+                return STONE;
+            case Blocks.DIRT:
+                return DIRT;
+            case Blocks.GRASS:
+                if (face == SectionVisibility.FACE_POS_Y) return GRASS_TOP;
+                if (face == SectionVisibility.FACE_NEG_Y) return DIRT;
+                return GRASS_SIDE;
+            case Blocks.LAMP:
+                return LAMP;
+            default:
+                return BRICK;
+        }
+    }
+}
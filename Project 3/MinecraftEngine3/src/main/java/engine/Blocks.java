@@ -0,0 +1,22 @@
+package engine;
+
+public final class Blocks {
+    public static final int AIR = 0;
+    public static final int BRICK = 1;
+    public static final int STONE = 2;
+    public static final int DIRT = 3;
+    public static final int GRASS = 4;
+    public static final int LAMP = 5;
+
+    private Blocks() {
+    }
+
+    public static boolean isSolid(int block) {
+        return block != AIR;
+    }
+
+    // Block light level given off, 0 for blocks that are not light sources
+    public static int lightEmission(int block) {
+        return block == LAMP ? LightEngine.MAX_LIGHT : 0;
+    }
+}
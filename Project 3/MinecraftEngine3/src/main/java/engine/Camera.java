@@ -16,13 +16,23 @@ public class Camera {
     }
 
     public Matrix4f getViewMatrix() {
-        Vector3f front = getFront();
-        Vector3f center = new Vector3f(position).add(front);
-        return new Matrix4f().lookAt(position, center, new Vector3f(0, 1, 0));
+        return getViewMatrix(new Matrix4f());
+    }
+
+    // Writes the view matrix into dest without allocating
+    public Matrix4f getViewMatrix(Matrix4f dest) {
+        float fx = frontX(), fy = frontY(), fz = frontZ();
+        return dest.setLookAt(position.x, position.y, position.z,
+                position.x + fx, position.y + fy, position.z + fz, 0, 1, 0);
     }
 
     public void move(Vector3f direction) {
-        position.add(new Vector3f(direction)); // clone to avoid modifying source
+        position.add(direction);
+    }
+
+    // Moves along direction scaled by distance; direction is left unchanged
+    public void move(Vector3f direction, float distance) {
+        position.fma(distance, direction);
     }
 
 
@@ -34,13 +44,37 @@ public class Camera {
     }
 
     public Vector3f getFront() {
-        float radPitch = (float)Math.toRadians(pitch);
-        float radYaw = (float)Math.toRadians(yaw);
-        return new Vector3f(
-                (float)Math.cos(radPitch) * (float)Math.cos(radYaw),
-                (float)Math.sin(radPitch),
-                (float)Math.cos(radPitch) * (float)Math.sin(radYaw)
-        ).normalize();
+        return getFront(new Vector3f());
+    }
+
+    public Vector3f getFront(Vector3f dest) {
+        return dest.set(frontX(), frontY(), frontZ()).normalize();
+    }
+
+    private float frontX() {
+        return (float) Math.cos(Math.toRadians(pitch)) * (float) Math.cos(Math.toRadians(yaw));
+    }
+
+    private float frontY() {
+        return (float) Math.sin(Math.toRadians(pitch));
+    }
+
+    private float frontZ() {
+        return (float) Math.cos(Math.toRadians(pitch)) * (float) Math.sin(Math.toRadians(yaw));
+    }
+
+    public float getYaw() {
+        return yaw;
+    }
+
+    public float getPitch() {
+        return pitch;
+    }
+
+    // Degrees; pitch is clamped like rotate() does
+    public void setRotation(float yaw, float pitch) {
+        this.yaw = yaw;
+        this.pitch = Math.max(-89.0f, Math.min(89.0f, pitch));
     }
 
     public float getSpeed() {
@@ -54,7 +88,12 @@ public class Camera {
 
 
     public Vector3f getRight() {
-        return getFront().cross(new Vector3f(0, 1, 0), new Vector3f()).normalize();
+        return getRight(new Vector3f());
+    }
+
+    // front x up, without allocating
+    public Vector3f getRight(Vector3f dest) {
+        return getFront(dest).cross(0, 1, 0).normalize();
     }
 
     public Vector3f getUp() {
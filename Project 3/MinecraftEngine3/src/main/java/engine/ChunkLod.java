@@ -0,0 +1,105 @@
+package engine;
+
+// Level-of-detail rules for chunk section meshes. Pure CPU; no GL calls.
+//
+// Level n meshes the section from voxel data downsampled by 2^n (1x, 2x,
+// 4x, 8x). Levels are chosen per column by horizontal distance from the
+// camera: level n starts LEVEL_START[n] columns out, and a column only
+// changes level once it is HYSTERESIS columns past a boundary, so moving
+// back and forth across a ring edge does not remesh every frame.
+//
+// Seams: a coarse section does not match its neighbours' surfaces, and
+// faces culled against a neighbour would leave cracks where the two
+// meshes disagree. So a side facing another level, or a coarse side whose
+// neighbour is not completely solid, is meshed as if the neighbour were
+// air. The extra border walls close any crack; greedy meshing keeps them
+// to a few quads per side.
+public final class ChunkLod {
+    public static final int LEVELS = 4;
+    private static final float[] LEVEL_START = {0f, 3f, 6f, 12f};
+    private static final float HYSTERESIS = 0.75f;
+
+    private static final int SIZE = ChunkSection.SIZE;
+
+    private ChunkLod() {
+    }
+
+    // Voxels per coarse cell along each axis
+    public static int factor(int level) {
+        return 1 << level;
+    }
+
+    // Level for a column distanceInColumns from the camera that currently uses 'current'
+    public static int levelFor(int current, float distanceInColumns) {
+        int level = current;
+        while (level + 1 < LEVELS && distanceInColumns > LEVEL_START[level + 1] + HYSTERESIS) {
+            level++;
+        }
+        while (level > 0 && distanceInColumns < LEVEL_START[level] - HYSTERESIS) {
+            level--;
+        }
+        return level;
+    }
+
+    // Clears the borders of a padded snapshot (see ChunkMesher.paddedIndex) that must not
+    // cull faces at this level. neighbourLevels holds the level of the neighbour across each
+    // face (indexed like SectionVisibility.FACE_*); bit f of fullFaces is set when that
+    // neighbour section is completely solid.
+    public static void clearSeams(int[] padded, int level, int[] neighbourLevels, int fullFaces) {
+        for (int face = 0; face < 6; face++) {
+            boolean sameLevel = neighbourLevels[face] == level;
+            // A full neighbour stays full when downsampled, so its border can still cull
+            if (sameLevel && (level == 0 || (fullFaces & (1 << face)) != 0)) continue;
+            clearBorder(padded, face);
+        }
+    }
+
+    // Sets the one-block border on one side of a padded snapshot to air
+    public static void clearBorder(int[] padded, int face) {
+        int axis = face / 2;
+        int layer = (face & 1) == 0 ? -1 : SIZE;
+        for (int j = -1; j <= SIZE; j++) {
+            for (int i = -1; i <= SIZE; i++) {
+                int index = axis == 0 ? ChunkMesher.paddedIndex(layer, i, j)
+                        : axis == 1 ? ChunkMesher.paddedIndex(i, layer, j)
+                        : ChunkMesher.paddedIndex(i, j, layer);
+                padded[index] = Blocks.AIR;
+            }
+        }
+    }
+
+    // Replaces each factor^3 cell of the section interior with one block: solid when
+    // at least half of it is, using its highest solid block so grass stays on top.
+    // The mesher then merges each cell's faces into single quads.
+    public static void downsample(int[] padded, int factor) {
+        int half = factor * factor * factor / 2;
+        for (int cy = 0; cy < SIZE; cy += factor) {
+            for (int cz = 0; cz < SIZE; cz += factor) {
+                for (int cx = 0; cx < SIZE; cx += factor) {
+                    int solid = 0;
+                    int top = Blocks.AIR;
+                    for (int y = cy + factor - 1; y >= cy; y--) {
+                        for (int z = cz; z < cz + factor; z++) {
+                            for (int x = cx; x < cx + factor; x++) {
+                                int block = padded[ChunkMesher.paddedIndex(x, y, z)];
+                                if (Blocks.isSolid(block)) {
+                                    solid++;
+                                    if (top == Blocks.AIR) top = block;
+                                }
+                            }
+                        }
+                    }
+
+                    int fill = solid >= half ? top : Blocks.AIR;
+                    for (int y = cy; y < cy + factor; y++) {
+                        for (int z = cz; z < cz + factor; z++) {
+                            for (int x = cx; x < cx + factor; x++) {
+                                padded[ChunkMesher.paddedIndex(x, y, z)] = fill;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
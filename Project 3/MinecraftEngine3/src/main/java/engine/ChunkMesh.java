@@ -0,0 +1,63 @@
+package engine;
+
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+
+import java.nio.ByteBuffer;
+
+// GPU copy of a ChunkMeshData: one packed int per vertex at attribute
+// location 8 and 16-bit indices. Draw with the "packedVertex" uniform set.
+public class ChunkMesh {
+    private final int vaoID;
+    private final int vboID;
+    private final int eboID;
+    private int indexCount;
+
+    // Attribute location of the packed vertex in vertex.glsl
+    static final int PACKED_LOCATION = 8;
+
+    public ChunkMesh() {
+        vaoID = glGenVertexArrays();
+        glBindVertexArray(vaoID);
+
+        vboID = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, vboID);
+        eboID = glGenBuffers();
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboID);
+
+        glVertexAttribIPointer(PACKED_LOCATION, 1, GL_UNSIGNED_INT, ChunkMeshData.BYTES_PER_VERTEX, 0);
+        glEnableVertexAttribArray(PACKED_LOCATION);
+
+        glBindVertexArray(0);
+    }
+
+    public void upload(ByteBuffer vertices, ByteBuffer indices) {
+        glBindVertexArray(vaoID);
+        glBindBuffer(GL_ARRAY_BUFFER, vboID);
+        glBufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+        glBindVertexArray(0);
+        indexCount = indices.remaining() / ChunkMeshData.BYTES_PER_INDEX;
+    }
+
+    public void render() {
+        glBindVertexArray(vaoID);
+        glDrawElements(GL_TRIANGLES, indexCount, GL_UNSIGNED_SHORT, 0);
+        glBindVertexArray(0);
+    }
+
+    public int getVaoID() {
+        return vaoID;
+    }
+
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    public void cleanup() {
+        glDeleteVertexArrays(vaoID);
+        glDeleteBuffers(vboID);
+        glDeleteBuffers(eboID);
+    }
+}
@@ -0,0 +1,103 @@
+package engine;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// CPU-side mesh of one chunk section: packed vertices and 16-bit triangle
+// indices.
+//
+// Each vertex is one 32-bit int, decoded in vertex.glsl:
+//   bits  0-14  corner x, y, z (5 bits each, 0-16) relative to the section's
+//               lowest block corner; texture coordinates are derived from these
+//   bits 15-17  face, numbered like SectionVisibility.FACE_*
+//   bits 18-21  sky light, bits 22-25 block light (0-15)
+//   bits 26-31  texture array layer
+// A section has at most 16 * 16 * 16 / 2 blocks with all six faces exposed,
+// 49152 vertices, so indices fit in 16 bits.
+public class ChunkMeshData {
+    public static final int BYTES_PER_VERTEX = Integer.BYTES;
+    public static final int BYTES_PER_INDEX = Short.BYTES;
+    public static final int MAX_LAYERS = 64;
+
+    private int[] vertices = new int[64];
+    private short[] indices = new short[96];
+    private int vertexCount;
+    private int indexCount;
+
+    public static int pack(int x, int y, int z, int face, int skyLight, int blockLight, int layer) {
+        return x | y << 5 | z << 10 | face << 15 | skyLight << 18 | blockLight << 22 | layer << 26;
+    }
+
+    public void clear() {
+        vertexCount = 0;
+        indexCount = 0;
+    }
+
+    // Adds one quad. corners holds 4 (x, y, z) corners in 0-16, in counter-clockwise
+    // order seen from the front; light is sky light << 4 | block light.
+    public void addQuad(int[] corners, int face, int light, int layer) {
+        if (vertexCount + 4 > vertices.length) {
+            vertices = Arrays.copyOf(vertices, vertices.length * 2);
+        }
+        if (indexCount + 6 > indices.length) {
+            indices = Arrays.copyOf(indices, indices.length * 2);
+        }
+
+        int base = vertexCount;
+        for (int c = 0; c < 4; c++) {
+            vertices[vertexCount++] = pack(corners[c * 3], corners[c * 3 + 1], corners[c * 3 + 2],
+                    face, light >> 4, light & 15, layer);
+        }
+
+        indices[indexCount++] = (short) base;
+        indices[indexCount++] = (short) (base + 1);
+        indices[indexCount++] = (short) (base + 2);
+        indices[indexCount++] = (short) (base + 2);
+        indices[indexCount++] = (short) (base + 3);
+        indices[indexCount++] = (short) base;
+    }
+
+    // Copies the mesh into new off-heap buffers; the caller must memFree them
+    public ByteBuffer vertexBuffer() {
+        ByteBuffer buffer = MemoryUtil.memAlloc(vertexCount * BYTES_PER_VERTEX);
+        buffer.asIntBuffer().put(vertices, 0, vertexCount);
+        return buffer;
+    }
+
+    public ByteBuffer indexBuffer() {
+        ByteBuffer buffer = MemoryUtil.memAlloc(indexCount * BYTES_PER_INDEX);
+        buffer.asShortBuffer().put(indices, 0, indexCount);
+        return buffer;
+    }
+
+    public int[] getVertices() {
+        return vertices;
+    }
+
+    public short[] getIndices() {
+        return indices;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    public int getTriangleCount() {
+        return indexCount / 3;
+    }
+
+    // GPU bytes for vertices plus indices
+    public int byteSize() {
+        return vertexCount * BYTES_PER_VERTEX + indexCount * BYTES_PER_INDEX;
+    }
+
+    public boolean isEmpty() {
+        return indexCount == 0;
+    }
+}
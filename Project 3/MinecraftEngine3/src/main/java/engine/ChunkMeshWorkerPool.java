@@ -0,0 +1,203 @@
+package engine;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Builds chunk section meshes on background threads.
+//
+// The render thread submits a snapshot of each dirty section (its blocks
+// and light plus a one-block border), nearest to the camera first. Workers mesh it
+// into off-heap buffers, work out which of its faces see each other
+// (SectionVisibility) and hand the result back through a bounded
+// lock-free queue, which the render thread drains within a per-frame
+// upload budget. Submitting a section again cancels its older job. A job
+// that throws comes back as a Result carrying the error, so the section
+// stops being pending and the render thread sees what went wrong.
+//
+// submit() and pollResult() must be called from the render thread only.
+public class ChunkMeshWorkerPool {
+    private final PriorityBlockingQueue<Job> jobs =
+            new PriorityBlockingQueue<>(64, Comparator.comparingDouble(job -> job.distanceSq));
+    private final BoundedMpmcQueue<Result> results;
+    private final Thread[] workers;
+    private volatile boolean running = true;
+
+    // Latest job per section; anything else is stale (render thread only)
+    private final LongObjectMap<Job> pending = new LongObjectMap<>(256);
+
+    public ChunkMeshWorkerPool(int threads, int resultCapacity) {
+        results = new BoundedMpmcQueue<>(resultCapacity);
+        workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(this::workLoop, "chunk-mesher-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    public static int defaultThreadCount() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    }
+
+    // Queues a section snapshot (see ChunkMesher.paddedIndex); the pool takes ownership of
+    // 'padded' and 'light'. light may be null to mesh under open sky.
+    public void submit(long key, int[] padded, byte[] light, double distanceSq) {
+        submit(key, padded, light, distanceSq, 0);
+    }
+
+    // As above, meshed at a ChunkLod level; connectivity still uses the full-detail blocks.
+    // Coarse levels ignore the light, which is only sampled at full detail.
+    public void submit(long key, int[] padded, byte[] light, double distanceSq, int lodLevel) {
+        cancel(key);
+        Job job = new Job(key, padded, light, distanceSq, lodLevel);
+        pending.put(key, job);
+        jobs.add(job);
+    }
+
+    // Drops any queued or running job for the section. A queued job is only
+    // flagged; the worker that takes it skips it, which saves a linear
+    // search of the queue here.
+    public void cancel(long key) {
+        Job old = pending.get(key);
+        if (old != null) {
+            pending.remove(key);
+            old.cancelled = true;
+        }
+    }
+
+    // Next finished mesh (or failed job, see Result.error) that is still current,
+    // or null. The caller must free() it.
+    public Result pollResult() {
+        Result result;
+        while ((result = results.poll()) != null) {
+            if (pending.get(result.key) == result.job) {
+                pending.remove(result.key);
+                return result;
+            }
+            result.free(); // superseded while it was being built
+        }
+        return null;
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    private void workLoop() {
+        ChunkMesher mesher = new ChunkMesher();
+        ChunkMeshData data = new ChunkMeshData();
+        SectionVisibility visibility = new SectionVisibility();
+        while (running) {
+            Job job;
+            try {
+                job = jobs.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (job == null || job.cancelled) continue;
+
+            Result result;
+            try {
+                long faces = visibility.compute(job.padded);
+                byte[] light = job.light;
+                if (job.lodLevel > 0) {
+                    ChunkLod.downsample(job.padded, ChunkLod.factor(job.lodLevel));
+                    light = null;
+                }
+                mesher.mesh(job.padded, light, data, true);
+                result = data.isEmpty()
+                        ? new Result(job, null, null, faces)
+                        : new Result(job, data.vertexBuffer(), data.indexBuffer(), faces);
+            } catch (RuntimeException e) {
+                // Keep the worker alive and hand the error to the render thread
+                result = new Result(job, e);
+            }
+
+            // Wait for room in the upload queue unless the job goes stale first
+            while (!results.offer(result)) {
+                if (job.cancelled || !running) {
+                    result.free();
+                    break;
+                }
+                LockSupport.parkNanos(200_000);
+            }
+        }
+    }
+
+    public void shutdown() {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+            try {
+                worker.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Result result;
+        while ((result = results.poll()) != null) {
+            result.free();
+        }
+    }
+
+    private static final class Job {
+        final long key;
+        final int[] padded;
+        final byte[] light;
+        final double distanceSq;
+        final int lodLevel;
+        volatile boolean cancelled;
+
+        Job(long key, int[] padded, byte[] light, double distanceSq, int lodLevel) {
+            this.key = key;
+            this.padded = padded;
+            this.light = light;
+            this.distanceSq = distanceSq;
+            this.lodLevel = lodLevel;
+        }
+    }
+
+    public static final class Result {
+        public final long key;
+        private final Job job;
+        // Both null when the section has no visible faces
+        public final ByteBuffer vertices;
+        public final ByteBuffer indices;
+        // Face-to-face connectivity, see SectionVisibility
+        public final long visibility;
+        // What the job threw, or null; a failed result has no mesh or visibility
+        public final RuntimeException error;
+
+        Result(Job job, ByteBuffer vertices, ByteBuffer indices, long visibility) {
+            this.key = job.key;
+            this.job = job;
+            this.vertices = vertices;
+            this.indices = indices;
+            this.visibility = visibility;
+            this.error = null;
+        }
+
+        Result(Job job, RuntimeException error) {
+            this.key = job.key;
+            this.job = job;
+            this.vertices = null;
+            this.indices = null;
+            this.visibility = 0;
+            this.error = error;
+        }
+
+        public boolean isEmpty() {
+            return indices == null;
+        }
+
+        public void free() {
+            if (vertices != null) MemoryUtil.memFree(vertices);
+            if (indices != null) MemoryUtil.memFree(indices);
+        }
+    }
+}
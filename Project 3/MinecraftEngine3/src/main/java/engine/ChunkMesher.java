@@ -0,0 +1,138 @@
+package engine;
+
+import java.util.Arrays;
+
+// Builds the mesh of one chunk section on the CPU (no GL calls).
+//
+// Input is the section's blocks plus a one-block border taken from the
+// neighbouring sections, so faces against solid neighbours are dropped.
+// Visible faces of the same block type in the same plane are merged into
+// larger quads (greedy meshing). Positions are relative to the section
+// origin; blocks are unit cubes centered on integer coordinates.
+//
+// Light is baked into the vertices: each face takes the sky and block
+// light of the cell it looks into, from a padded light array laid out like
+// the blocks (see LightEngine.copyPadded). Faces only merge when their
+// light matches too. The output uses the packed ChunkMeshData format.
+public class ChunkMesher {
+    public static final int SIZE = ChunkSection.SIZE;
+    public static final int PADDED = SIZE + 2;
+    public static final int PADDED_VOLUME = PADDED * PADDED * PADDED;
+
+    // Light byte used when no light array is given: full sky light
+    private static final int OPEN_SKY = LightEngine.MAX_LIGHT << 4;
+
+    // Per-slice face mask: block type | light byte << 16 of each visible face, or AIR
+    private final int[] mask = new int[SIZE * SIZE];
+    private final int[] corners = new int[12];
+    private final int[] pos = new int[3];
+    private final int[] corner = new int[3];
+
+    // Corner order in (u, v) units; negative faces are reversed to keep CCW winding
+    private static final int[] POSITIVE_U = {0, 1, 1, 0};
+    private static final int[] POSITIVE_V = {0, 0, 1, 1};
+    private static final int[] NEGATIVE_U = {0, 0, 1, 1};
+    private static final int[] NEGATIVE_V = {0, 1, 1, 0};
+
+    // x, y, z in [-1, SIZE]
+    public static int paddedIndex(int x, int y, int z) {
+        return ((y + 1) * PADDED + (z + 1)) * PADDED + (x + 1);
+    }
+
+    public ChunkMeshData mesh(int[] padded) {
+        ChunkMeshData out = new ChunkMeshData();
+        mesh(padded, null, out, true);
+        return out;
+    }
+
+    // light may be null to mesh everything under open sky. With greedy == false
+    // every visible face is emitted on its own.
+    public void mesh(int[] padded, byte[] light, ChunkMeshData out, boolean greedy) {
+        out.clear();
+        for (int axis = 0; axis < 3; axis++) {
+            for (int dir = -1; dir <= 1; dir += 2) {
+                meshDirection(padded, light, out, axis, dir, greedy);
+            }
+        }
+    }
+
+    private void meshDirection(int[] padded, byte[] light, ChunkMeshData out, int axis, int dir, boolean greedy) {
+        int u = (axis + 1) % 3;
+        int v = (axis + 2) % 3;
+        int[] step = new int[3];
+        step[axis] = dir;
+        int neighbourOffset = paddedIndex(step[0], step[1], step[2]) - paddedIndex(0, 0, 0);
+
+        for (int slice = 0; slice < SIZE; slice++) {
+            // Collect the faces of this slice that look into air
+            boolean any = false;
+            pos[axis] = slice;
+            for (int j = 0; j < SIZE; j++) {
+                pos[v] = j;
+                for (int i = 0; i < SIZE; i++) {
+                    pos[u] = i;
+                    int index = paddedIndex(pos[0], pos[1], pos[2]);
+                    int block = padded[index];
+                    boolean visible = block != Blocks.AIR && padded[index + neighbourOffset] == Blocks.AIR;
+                    int faceLight = light == null ? OPEN_SKY : light[index + neighbourOffset] & 0xFF;
+                    mask[j * SIZE + i] = visible ? block | faceLight << 16 : Blocks.AIR;
+                    any |= visible;
+                }
+            }
+            if (!any) continue;
+
+            // Merge runs of equal faces into rectangles
+            for (int j = 0; j < SIZE; j++) {
+                for (int i = 0; i < SIZE; ) {
+                    int face = mask[j * SIZE + i];
+                    if (face == Blocks.AIR) {
+                        i++;
+                        continue;
+                    }
+
+                    int w = 1;
+                    int h = 1;
+                    if (greedy) {
+                        while (i + w < SIZE && mask[j * SIZE + i + w] == face) {
+                            w++;
+                        }
+                        grow:
+                        while (j + h < SIZE) {
+                            for (int k = 0; k < w; k++) {
+                                if (mask[(j + h) * SIZE + i + k] != face) break grow;
+                            }
+                            h++;
+                        }
+                    }
+
+                    emitQuad(out, face & 0xFFFF, face >>> 16, axis, u, v, dir, slice, i, j, w, h);
+                    for (int dj = 0; dj < h; dj++) {
+                        Arrays.fill(mask, (j + dj) * SIZE + i, (j + dj) * SIZE + i + w, Blocks.AIR);
+                    }
+                    i += w;
+                }
+            }
+        }
+    }
+
+    private void emitQuad(ChunkMeshData out, int block, int light, int axis, int u, int v, int dir,
+                          int slice, int i, int j, int w, int h) {
+        int[] cu = dir > 0 ? POSITIVE_U : NEGATIVE_U;
+        int[] cv = dir > 0 ? POSITIVE_V : NEGATIVE_V;
+
+        // Corners on the block grid: block x spans [x - 0.5, x + 0.5], which is corner x to x + 1
+        int plane = slice + (dir > 0 ? 1 : 0);
+        int[] p = corner;
+        for (int c = 0; c < 4; c++) {
+            p[axis] = plane;
+            p[u] = i + cu[c] * w;
+            p[v] = j + cv[c] * h;
+            corners[c * 3] = p[0];
+            corners[c * 3 + 1] = p[1];
+            corners[c * 3 + 2] = p[2];
+        }
+
+        int face = axis * 2 + (dir > 0 ? 1 : 0); // SectionVisibility.FACE_* numbering
+        out.addQuad(corners, face, light, BlockTextures.layer(block, face));
+    }
+}
@@ -0,0 +1,186 @@
+package engine;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+// A 16x16x16 block of the world. Blocks are stored as indices into a small
+// per-section palette, bit-packed into longs (entries never span two longs).
+public class ChunkSection {
+    public static final int SIZE = 16;
+    public static final int VOLUME = SIZE * SIZE * SIZE;
+
+    private int[] palette = {Blocks.AIR};
+    private int paletteSize = 1;
+    private int bitsPerEntry = 0; // 0 while the whole section is palette[0]
+    private long[] data;
+    private int nonAirCount;
+
+    public static int index(int lx, int ly, int lz) {
+        return (ly * SIZE + lz) * SIZE + lx;
+    }
+
+    public int get(int lx, int ly, int lz) {
+        return palette[paletteIndex(index(lx, ly, lz))];
+    }
+
+    // Returns the previous block
+    public int set(int lx, int ly, int lz, int block) {
+        int i = index(lx, ly, lz);
+        int previous = palette[paletteIndex(i)];
+        if (previous == block) return previous;
+
+        int p = indexOf(block);
+        if (p < 0) {
+            p = addToPalette(block);
+        }
+        write(i, p);
+
+        if (previous == Blocks.AIR) nonAirCount++;
+        if (block == Blocks.AIR) nonAirCount--;
+        return previous;
+    }
+
+    public boolean isEmpty() {
+        return nonAirCount == 0;
+    }
+
+    public int getNonAirCount() {
+        return nonAirCount;
+    }
+
+    // Approximate heap footprint of the section, including object headers
+    public long memoryBytes() {
+        long bytes = 16 + 4 * 4 + 16 + 4L * palette.length;
+        if (data != null) bytes += 16 + 8L * data.length;
+        return bytes;
+    }
+
+    public ChunkSection copy() {
+        ChunkSection copy = new ChunkSection();
+        copy.palette = palette.clone();
+        copy.paletteSize = paletteSize;
+        copy.bitsPerEntry = bitsPerEntry;
+        copy.data = data == null ? null : data.clone();
+        copy.nonAirCount = nonAirCount;
+        return copy;
+    }
+
+    // Palette followed by the packed indices as stored in memory
+    public void write(DataOutputStream out) throws IOException {
+        out.writeShort(paletteSize);
+        for (int p = 0; p < paletteSize; p++) {
+            out.writeInt(palette[p]);
+        }
+        out.writeByte(bitsPerEntry);
+        out.writeShort(nonAirCount);
+        if (data != null) {
+            for (long word : data) {
+                out.writeLong(word);
+            }
+        }
+    }
+
+    public static ChunkSection read(DataInputStream in) throws IOException {
+        ChunkSection section = new ChunkSection();
+        int size = in.readUnsignedShort();
+        if (size < 1 || size > VOLUME) {
+            throw new IOException("Bad palette size " + size);
+        }
+        section.palette = new int[size];
+        for (int p = 0; p < size; p++) {
+            section.palette[p] = in.readInt();
+        }
+        section.paletteSize = size;
+
+        section.bitsPerEntry = in.readUnsignedByte();
+        if (section.bitsPerEntry > 16 || (size > 1 << section.bitsPerEntry)) {
+            throw new IOException("Bad entry width " + section.bitsPerEntry + " for palette of " + size);
+        }
+        section.nonAirCount = in.readUnsignedShort();
+
+        // Decode every entry once, so a corrupt index or count fails here
+        // instead of in a later get() or isEmpty()
+        int nonAir;
+        if (section.bitsPerEntry > 0) {
+            int bits = section.bitsPerEntry;
+            int perLong = 64 / bits;
+            long mask = (1L << bits) - 1;
+            section.data = new long[(VOLUME + perLong - 1) / perLong];
+            nonAir = 0;
+            for (int w = 0, i = 0; w < section.data.length; w++) {
+                long word = in.readLong();
+                section.data[w] = word;
+                for (int e = 0; e < perLong && i < VOLUME; e++, i++) {
+                    int p = (int) ((word >>> (e * bits)) & mask);
+                    if (p >= size) {
+                        throw new IOException("Palette index " + p + " at " + i + " for palette of " + size);
+                    }
+                    if (section.palette[p] != Blocks.AIR) nonAir++;
+                }
+            }
+        } else {
+            nonAir = section.palette[0] == Blocks.AIR ? 0 : VOLUME;
+        }
+        if (nonAir != section.nonAirCount) {
+            throw new IOException("Non-air count " + section.nonAirCount + " but " + nonAir + " decoded");
+        }
+        return section;
+    }
+
+    private int paletteIndex(int i) {
+        if (bitsPerEntry == 0) return 0;
+        int perLong = 64 / bitsPerEntry;
+        long word = data[i / perLong];
+        int shift = (i % perLong) * bitsPerEntry;
+        return (int) ((word >>> shift) & ((1L << bitsPerEntry) - 1));
+    }
+
+    private void write(int i, int p) {
+        int perLong = 64 / bitsPerEntry;
+        int shift = (i % perLong) * bitsPerEntry;
+        long mask = ((1L << bitsPerEntry) - 1) << shift;
+        data[i / perLong] = (data[i / perLong] & ~mask) | ((long) p << shift);
+    }
+
+    private int indexOf(int block) {
+        for (int p = 0; p < paletteSize; p++) {
+            if (palette[p] == block) return p;
+        }
+        return -1;
+    }
+
+    private int addToPalette(int block) {
+        if (paletteSize == palette.length) {
+            palette = Arrays.copyOf(palette, palette.length * 2);
+        }
+        int p = paletteSize++;
+        palette[p] = block;
+
+        if (p >= (1 << bitsPerEntry)) {
+            resize(bitsPerEntry + 1);
+        }
+        return p;
+    }
+
+    // Repack every entry with a new width
+    private void resize(int newBits) {
+        int oldBits = bitsPerEntry;
+        long[] oldData = data;
+
+        int perLong = 64 / newBits;
+        long[] newData = new long[(VOLUME + perLong - 1) / perLong];
+        for (int i = 0; i < VOLUME; i++) {
+            long p = 0;
+            if (oldBits != 0) {
+                int oldPerLong = 64 / oldBits;
+                p = (oldData[i / oldPerLong] >>> ((i % oldPerLong) * oldBits)) & ((1L << oldBits) - 1);
+            }
+            newData[i / perLong] |= p << ((i % perLong) * newBits);
+        }
+
+        bitsPerEntry = newBits;
+        data = newData;
+    }
+}
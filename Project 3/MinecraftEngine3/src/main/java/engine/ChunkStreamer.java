@@ -0,0 +1,187 @@
+package engine;
+
+import org.joml.Vector3f;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Keeps the columns within viewDistance of the camera loaded.
+//
+// Missing columns are generated in parallel, nearest first, and handed to the
+// World a few per frame. Columns more than one column past the view distance
+// are unloaded, so walking back and forth over a border does not thrash.
+// With a RegionStorage, saved columns are loaded instead of generated and
+// edited columns are queued for saving when they unload.
+// update() must be called from the thread that owns the World.
+public class ChunkStreamer {
+    private static final int COLUMNS_PER_FRAME = 4;
+    // A column that failed to load or generate is requested again after this long
+    private static final long RETRY_NANOS = 2_000_000_000L;
+
+    private final World world;
+    private final TerrainGenerator generator;
+    private final RegionStorage storage;
+    private final int viewDistance;
+    private final ExecutorService executor;
+
+    private final LongSet loaded = new LongSet(256);
+    private final LongObjectMap<Future<?>> inFlight = new LongObjectMap<>(256);
+    private final ConcurrentLinkedQueue<Column> finished = new ConcurrentLinkedQueue<>();
+
+    private int centerX = Integer.MIN_VALUE;
+    private int centerZ = Integer.MIN_VALUE;
+    private long retryAt = Long.MAX_VALUE; // System.nanoTime() of the next retry, if a column failed
+
+    public ChunkStreamer(World world, TerrainGenerator generator, int viewDistance, int threads) {
+        this(world, generator, null, viewDistance, threads);
+    }
+
+    // storage may be null, in which case every column is generated and edits are lost on unload
+    public ChunkStreamer(World world, TerrainGenerator generator, RegionStorage storage, int viewDistance, int threads) {
+        this.world = world;
+        this.generator = generator;
+        this.storage = storage;
+        this.viewDistance = viewDistance;
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "terrain-generator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void update(Vector3f cameraPos) {
+        int cx = Math.round(cameraPos.x) >> 4;
+        int cz = Math.round(cameraPos.z) >> 4;
+        if (cx != centerX || cz != centerZ) {
+            centerX = cx;
+            centerZ = cz;
+            unloadFarColumns();
+            retryAt = Long.MAX_VALUE;
+            requestMissingColumns();
+        } else if (retryAt != Long.MAX_VALUE && System.nanoTime() - retryAt >= 0) {
+            retryAt = Long.MAX_VALUE;
+            requestMissingColumns();
+        }
+
+        for (int i = 0; i < COLUMNS_PER_FRAME; i++) {
+            Column column = finished.poll();
+            if (column == null) break;
+            long key = World.columnKey(column.cx, column.cz);
+            if (!inFlight.remove(key)) continue; // cancelled after it was queued
+            if (column.sections == null) {
+                // Failed; out of inFlight so it is requested again
+                if (retryAt == Long.MAX_VALUE) retryAt = System.nanoTime() + RETRY_NANOS;
+                continue;
+            }
+            world.loadColumn(column.cx, column.cz, column.sections);
+            loaded.add(key);
+        }
+    }
+
+    private void unloadFarColumns() {
+        int limit = viewDistance + 1;
+        for (long key : loaded.keys()) {
+            int cx = (int) (key >> 32), cz = (int) key;
+            if (!inRange(cx, cz, limit)) {
+                saveIfModified(cx, cz);
+                world.unloadColumn(cx, cz);
+                loaded.remove(key);
+            }
+        }
+        for (long key : inFlight.keys()) {
+            if (!inRange((int) (key >> 32), (int) key, limit)) {
+                inFlight.get(key).cancel(false);
+                inFlight.remove(key);
+            }
+        }
+    }
+
+    private void requestMissingColumns() {
+        List<long[]> wanted = new ArrayList<>();
+        for (int dz = -viewDistance; dz <= viewDistance; dz++) {
+            for (int dx = -viewDistance; dx <= viewDistance; dx++) {
+                int cx = centerX + dx, cz = centerZ + dz;
+                long key = World.columnKey(cx, cz);
+                if (inRange(cx, cz, viewDistance) && !loaded.contains(key) && !inFlight.containsKey(key)) {
+                    wanted.add(new long[] {cx, cz, (long) dx * dx + (long) dz * dz});
+                }
+            }
+        }
+        // The executor runs tasks in submission order, so nearest columns go first
+        wanted.sort((a, b) -> Long.compare(a[2], b[2]));
+        for (long[] column : wanted) {
+            int cx = (int) column[0], cz = (int) column[1];
+            inFlight.put(World.columnKey(cx, cz), executor.submit(() -> {
+                ChunkSection[] sections;
+                try {
+                    sections = loadOrGenerate(cx, cz);
+                } catch (RuntimeException e) {
+                    System.err.println("Could not load or generate column " + cx + "," + cz + ", retrying later");
+                    e.printStackTrace();
+                    sections = null;
+                }
+                finished.add(new Column(cx, cz, sections));
+            }));
+        }
+    }
+
+    // Runs on a generator thread
+    private ChunkSection[] loadOrGenerate(int cx, int cz) {
+        if (storage != null) {
+            try {
+                ChunkSection[] saved = storage.loadColumn(cx, cz);
+                if (saved != null) return saved;
+            } catch (IOException e) {
+                System.err.println("Could not load column " + cx + "," + cz + ", regenerating: " + e.getMessage());
+            }
+        }
+        return generator.generateColumn(cx, cz);
+    }
+
+    // Queues every edited column for saving; the writes happen in the background
+    public void saveModifiedColumns() {
+        if (storage == null) return;
+        for (long key : world.getModifiedColumns().keys()) {
+            saveIfModified((int) (key >> 32), (int) key);
+        }
+    }
+
+    private void saveIfModified(int cx, int cz) {
+        if (storage == null || !world.getModifiedColumns().contains(World.columnKey(cx, cz))) return;
+        storage.saveColumnAsync(cx, cz, world.snapshotColumn(cx, cz));
+        world.markColumnSaved(cx, cz);
+    }
+
+    private boolean inRange(int cx, int cz, int distance) {
+        int dx = cx - centerX, dz = cz - centerZ;
+        return dx * dx + dz * dz <= distance * distance;
+    }
+
+    public int loadedCount() {
+        return loaded.size();
+    }
+
+    public int pendingCount() {
+        return inFlight.size();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static final class Column {
+        final int cx, cz;
+        final ChunkSection[] sections; // null if loading and generating failed
+
+        Column(int cx, int cz, ChunkSection[] sections) {
+            this.cx = cx;
+            this.cz = cz;
+            this.sections = sections;
+        }
+    }
+}
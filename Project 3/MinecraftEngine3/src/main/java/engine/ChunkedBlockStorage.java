@@ -0,0 +1,127 @@
+package engine;
+
+// Sparse block storage: 16^3 sections in a hash map keyed by the packed
+// section coordinate. Sections are created on first write and dropped
+// again once they contain only air.
+//
+// Not thread-safe, not even for reads: getBlock() updates the lookup cache.
+// Shared storage needs every access behind one lock, as World does with
+// getLock().
+public class ChunkedBlockStorage implements BlockStorage {
+    private final LongObjectMap<ChunkSection> sections = new LongObjectMap<>(256);
+
+    // Last section looked up; most accesses hit the same section repeatedly
+    private long cachedKey = Long.MIN_VALUE;
+    private ChunkSection cachedSection;
+
+    public static long sectionKey(int sx, int sy, int sz) {
+        return ((long) (sx & 0x1FFFFF) << 42) | ((long) (sy & 0x1FFFFF) << 21) | (sz & 0x1FFFFF);
+    }
+
+    public static int keyX(long key) {
+        return (int) (key << 1 >> 43);
+    }
+
+    public static int keyY(long key) {
+        return (int) (key << 22 >> 43);
+    }
+
+    public static int keyZ(long key) {
+        return (int) (key << 43 >> 43);
+    }
+
+    @Override
+    public int getBlock(int x, int y, int z) {
+        ChunkSection section = getSection(x >> 4, y >> 4, z >> 4);
+        return section == null ? Blocks.AIR : section.get(x & 15, y & 15, z & 15);
+    }
+
+    @Override
+    public int setBlock(int x, int y, int z, int block) {
+        int sx = x >> 4, sy = y >> 4, sz = z >> 4;
+        ChunkSection section = getSection(sx, sy, sz);
+        if (section == null) {
+            if (block == Blocks.AIR) return Blocks.AIR;
+            section = new ChunkSection();
+            long key = sectionKey(sx, sy, sz);
+            sections.put(key, section);
+            cachedKey = key;
+            cachedSection = section;
+        }
+
+        int previous = section.set(x & 15, y & 15, z & 15, block);
+        if (section.isEmpty()) {
+            removeSection(sx, sy, sz);
+        }
+        return previous;
+    }
+
+    public ChunkSection getSection(int sx, int sy, int sz) {
+        long key = sectionKey(sx, sy, sz);
+        if (key != cachedKey) {
+            cachedSection = sections.get(key);
+            cachedKey = key;
+        }
+        return cachedSection;
+    }
+
+    public void putSection(int sx, int sy, int sz, ChunkSection section) {
+        long key = sectionKey(sx, sy, sz);
+        sections.put(key, section);
+        if (key == cachedKey) {
+            cachedSection = section;
+        }
+    }
+
+    public void removeSection(int sx, int sy, int sz) {
+        long key = sectionKey(sx, sy, sz);
+        sections.remove(key);
+        if (key == cachedKey) {
+            cachedSection = null;
+        }
+    }
+
+    // Copies a section plus a one-block border from its neighbours into an
+    // array laid out for ChunkMesher (see ChunkMesher.paddedIndex)
+    public void copyPadded(int sx, int sy, int sz, int[] out) {
+        ChunkSection[] around = new ChunkSection[27];
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    around[((dy + 1) * 3 + dz + 1) * 3 + dx + 1] = getSection(sx + dx, sy + dy, sz + dz);
+                }
+            }
+        }
+
+        int last = ChunkSection.SIZE;
+        for (int y = -1; y <= last; y++) {
+            int oy = y < 0 ? 0 : (y == last ? 2 : 1);
+            for (int z = -1; z <= last; z++) {
+                int oz = z < 0 ? 0 : (z == last ? 2 : 1);
+                for (int x = -1; x <= last; x++) {
+                    int ox = x < 0 ? 0 : (x == last ? 2 : 1);
+                    ChunkSection section = around[(oy * 3 + oz) * 3 + ox];
+                    out[ChunkMesher.paddedIndex(x, y, z)] =
+                            section == null ? Blocks.AIR : section.get(x & 15, y & 15, z & 15);
+                }
+            }
+        }
+    }
+
+    public LongObjectMap<ChunkSection> getSections() {
+        return sections;
+    }
+
+    public long blockCount() {
+        long[] count = new long[1];
+        sections.forEach((key, section) -> count[0] += section.getNonAirCount());
+        return count[0];
+    }
+
+    // Approximate heap footprint of the sections and the map's two arrays
+    public long memoryBytes() {
+        long[] bytes = {2 * 16 + 12L * sections.capacity()}; // long key + value reference per slot
+        sections.forEach((key, section) -> bytes[0] += section.memoryBytes());
+        return bytes[0];
+    }
+}
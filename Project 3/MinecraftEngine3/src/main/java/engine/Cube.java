@@ -3,12 +3,6 @@ package engine;
 import static org.lwjgl.opengl.GL30.*;
 import static org.lwjgl.opengl.GL15.*;
 import static org.lwjgl.opengl.GL20.*;
-import static org.lwjgl.stb.STBImage.*;
-
-import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
-import java.io.IOException;
-import org.lwjgl.system.MemoryStack;
 
 public class Cube {
     private final int vaoID;
@@ -16,18 +10,20 @@ public class Cube {
     private final int eboID;
     private final int textureID;
 
-    // Each vertex: position (3), texCoord (2), normal (3) = 8 floats
+    // Each vertex: position (3), texCoord (2), light (3), texture layer (1) = 9 floats.
+    // Light is (sky, block, shade) as for chunk meshes; free cubes are lit as open sky.
+    static final int FLOATS_PER_VERTEX = 9;
     private static final float[] VERTICES = {
-            // positions         // texCoords  // normals
-            -0.5f, -0.5f, -0.5f,  0f, 0f,     0f,  0f, -1f,
-            0.5f, -0.5f, -0.5f,  1f, 0f,     0f,  0f, -1f,
-            0.5f,  0.5f, -0.5f,  1f, 1f,     0f,  0f, -1f,
-            -0.5f,  0.5f, -0.5f,  0f, 1f,     0f,  0f, -1f,
-
-            -0.5f, -0.5f,  0.5f,  0f, 0f,     0f,  0f, 1f,
-            0.5f, -0.5f,  0.5f,  1f, 0f,     0f,  0f, 1f,
-            0.5f,  0.5f,  0.5f,  1f, 1f,     0f,  0f, 1f,
-            -0.5f,  0.5f,  0.5f,  0f, 1f,     0f,  0f, 1f
+            // positions         // texCoords  // light        // layer, set per cube
+            -0.5f, -0.5f, -0.5f,  0f, 0f,     1f, 0f, 0.8f,  0f,
+            0.5f, -0.5f, -0.5f,  1f, 0f,     1f, 0f, 0.8f,  0f,
+            0.5f,  0.5f, -0.5f,  1f, 1f,     1f, 0f, 0.8f,  0f,
+            -0.5f,  0.5f, -0.5f,  0f, 1f,     1f, 0f, 0.8f,  0f,
+
+            -0.5f, -0.5f,  0.5f,  0f, 0f,     1f, 0f, 0.8f,  0f,
+            0.5f, -0.5f,  0.5f,  1f, 0f,     1f, 0f, 0.8f,  0f,
+            0.5f,  0.5f,  0.5f,  1f, 1f,     1f, 0f, 0.8f,  0f,
+            -0.5f,  0.5f,  0.5f,  0f, 1f,     1f, 0f, 0.8f,  0f
     };
 
     private static final int[] INDICES = {
@@ -39,72 +35,70 @@ public class Cube {
             1, 5, 6, 6, 2, 1  // right
     };
 
-    public Cube() throws IOException {
+    // A cube textured with one layer of the block texture array, which it does not own
+    public Cube(TextureArray textures, int layer) {
+        float[] vertices = VERTICES.clone();
+        for (int i = FLOATS_PER_VERTEX - 1; i < vertices.length; i += FLOATS_PER_VERTEX) {
+            vertices[i] = layer;
+        }
+
         vaoID = glGenVertexArrays();
         glBindVertexArray(vaoID);
 
         vboID = glGenBuffers();
         glBindBuffer(GL_ARRAY_BUFFER, vboID);
-        glBufferData(GL_ARRAY_BUFFER, VERTICES, GL_STATIC_DRAW);
+        glBufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
 
         eboID = glGenBuffers();
         glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboID);
         glBufferData(GL_ELEMENT_ARRAY_BUFFER, INDICES, GL_STATIC_DRAW);
 
+        setupVertexAttributes();
+
+        textureID = textures.getID();
+
+        glBindVertexArray(0);
+    }
+
+    // Points attributes 0-2 and 7 of the bound VAO at the bound VBO, in the layout above
+    static void setupVertexAttributes() {
+        int stride = FLOATS_PER_VERTEX * Float.BYTES;
         // position (location = 0)
-        glVertexAttribPointer(0, 3, GL_FLOAT, false, 8 * Float.BYTES, 0);
+        glVertexAttribPointer(0, 3, GL_FLOAT, false, stride, 0);
         glEnableVertexAttribArray(0);
 
         // texCoord (location = 1)
-        glVertexAttribPointer(1, 2, GL_FLOAT, false, 8 * Float.BYTES, 3 * Float.BYTES);
+        glVertexAttribPointer(1, 2, GL_FLOAT, false, stride, 3 * Float.BYTES);
         glEnableVertexAttribArray(1);
 
-        // normal (location = 2)
-        glVertexAttribPointer(2, 3, GL_FLOAT, false, 8 * Float.BYTES, 5 * Float.BYTES);
+        // light: sky, block, shade (location = 2)
+        glVertexAttribPointer(2, 3, GL_FLOAT, false, stride, 5 * Float.BYTES);
         glEnableVertexAttribArray(2);
 
-        textureID = loadTexture("src/main/resources/textures/brick.png");
+        // texture layer (location = 7; 3-6 hold the instance matrix)
+        glVertexAttribPointer(7, 1, GL_FLOAT, false, stride, 8 * Float.BYTES);
+        glEnableVertexAttribArray(7);
+    }
 
-        glBindVertexArray(0);
+    // Binds this cube's vertex and index buffers to the currently bound VAO
+    void bindBuffers() {
+        glBindBuffer(GL_ARRAY_BUFFER, vboID);
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboID);
     }
 
-    public void render() {
-        glBindTexture(GL_TEXTURE_2D, textureID);
-        glBindVertexArray(vaoID);
-        glDrawElements(GL_TRIANGLES, INDICES.length, GL_UNSIGNED_INT, 0);
-        glBindVertexArray(0);
+    public int getIndexCount() {
+        return INDICES.length;
     }
 
-    private int loadTexture(String path) throws IOException {
-        int textureID = glGenTextures();
-        glBindTexture(GL_TEXTURE_2D, textureID);
-
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_REPEAT);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_REPEAT);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
-
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            IntBuffer w = stack.mallocInt(1);
-            IntBuffer h = stack.mallocInt(1);
-            IntBuffer channels = stack.mallocInt(1);
-
-            stbi_set_flip_vertically_on_load(true);
-            ByteBuffer image = stbi_load(path, w, h, channels, 4);
-            if (image != null) {
-                glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, w.get(), h.get(), 0, GL_RGBA, GL_UNSIGNED_BYTE, image);
-                glGenerateMipmap(GL_TEXTURE_2D);
-                stbi_image_free(image);
-            } else {
-                throw new IOException("Failed to load texture: " + stbi_failure_reason());
-            }
-        }
+    public int getVaoID() {
+        return vaoID;
+    }
 
+    public int getTextureID() {
         return textureID;
     }
 
     public void cleanup() {
-        glDeleteTextures(textureID);
         glDeleteVertexArrays(vaoID);
         glDeleteBuffers(vboID);
         glDeleteBuffers(eboID);
@@ -0,0 +1,215 @@
+package engine;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+
+// Per-frame CPU timings of named scopes, plus counters, for the last
+// 'capacity' frames in a ring buffer. Scopes are measured with
+// System.nanoTime() on the thread that runs the frame, so they work the
+// same without a GPU; GPU work only shows up where the CPU waits for it
+// (usually in SWAP). Scopes may nest, and a scope entered more than once in
+// a frame adds up (a trace shows the total from its first entry); an end()
+// without a begin() earlier in the same frame is ignored. Recording
+// allocates nothing; the history can be written out as CSV or as a Chrome
+// trace (chrome://tracing, ui.perfetto.dev).
+//
+// Not thread-safe: begin, end and count must come from the frame's thread.
+public class FrameProfiler {
+    public static final int INPUT = 0;
+    public static final int PICKING = 1;
+    public static final int WORLD_UPDATE = 2;
+    public static final int MESHING = 3; // snapshotting dirty sections for the mesh workers
+    public static final int UPLOADS = 4;
+    public static final int CULLING = 5;
+    public static final int DRAW_SUBMISSION = 6;
+    public static final int SWAP = 7;
+    public static final String[] SCOPE_NAMES = {
+            "input", "picking", "world update", "meshing", "uploads", "culling", "draw submission", "swap"};
+    public static final int SCOPES = SCOPE_NAMES.length;
+
+    public static final int DRAW_CALLS = 0;
+    public static final int TRIANGLES = 1;
+    public static final int UPLOAD_COUNT = 2;
+    public static final int ALLOCATED_BYTES = 3; // filled in by endFrame(), where supported
+    public static final String[] COUNTER_NAMES = {"draw calls", "triangles", "uploads", "allocated bytes"};
+    public static final int COUNTERS = COUNTER_NAMES.length;
+
+    private static final long NOT_OPEN = Long.MIN_VALUE; // in open[] for a scope not begun this frame
+
+    // Records nothing; for code that is handed no profiler
+    public static final FrameProfiler NONE = new FrameProfiler(0);
+
+    private final int capacity;
+    private final long[] frameNumber;
+    private final long[] frameStart;
+    private final long[] frameNanos;
+    private final long[] scopeStart; // capacity x SCOPES, nanos after the frame's start, -1 when not entered
+    private final long[] scopeNanos;
+    private final long[] counters; // capacity x COUNTERS
+    private final long[] open = new long[SCOPES];
+    private final long[] sorted;
+    private long frames;
+    private int row;
+    private int count;
+    private long allocationStart;
+    private boolean inFrame;
+
+    public FrameProfiler(int capacity) {
+        this.capacity = capacity;
+        frameNumber = new long[capacity];
+        frameStart = new long[capacity];
+        frameNanos = new long[capacity];
+        scopeStart = new long[capacity * SCOPES];
+        scopeNanos = new long[capacity * SCOPES];
+        counters = new long[capacity * COUNTERS];
+        sorted = new long[capacity];
+    }
+
+    public void beginFrame() {
+        if (capacity == 0) return;
+        Arrays.fill(scopeStart, row * SCOPES, (row + 1) * SCOPES, -1);
+        Arrays.fill(scopeNanos, row * SCOPES, (row + 1) * SCOPES, 0);
+        Arrays.fill(counters, row * COUNTERS, (row + 1) * COUNTERS, 0);
+        Arrays.fill(open, NOT_OPEN);
+        frameNumber[row] = frames;
+        allocationStart = AllocationCounter.allocatedBytes();
+        frameStart[row] = System.nanoTime();
+        inFrame = true;
+    }
+
+    public void begin(int scope) {
+        if (inFrame) open[scope] = System.nanoTime();
+    }
+
+    public void end(int scope) {
+        if (!inFrame || open[scope] == NOT_OPEN) return;
+        long now = System.nanoTime();
+        int index = row * SCOPES + scope;
+        if (scopeStart[index] < 0) scopeStart[index] = open[scope] - frameStart[row];
+        scopeNanos[index] += now - open[scope];
+        open[scope] = NOT_OPEN;
+    }
+
+    public void count(int counter, long amount) {
+        if (inFrame) counters[row * COUNTERS + counter] += amount;
+    }
+
+    public void endFrame() {
+        if (!inFrame) return;
+        frameNanos[row] = System.nanoTime() - frameStart[row];
+        counters[row * COUNTERS + ALLOCATED_BYTES] += AllocationCounter.allocatedBytes() - allocationStart;
+        inFrame = false;
+        frames++;
+        row = (row + 1) % capacity;
+        count = Math.min(count + 1, capacity);
+    }
+
+    // Frames currently held
+    public int getFrameCount() {
+        return count;
+    }
+
+    // p in [0, 100], over the frames currently held
+    public double framePercentileMillis(float p) {
+        for (int i = 0; i < count; i++) {
+            sorted[i] = frameNanos[oldest(i)];
+        }
+        return percentile(p) / 1e6;
+    }
+
+    // Frames that never entered the scope count as 0
+    public double scopePercentileMillis(int scope, float p) {
+        for (int i = 0; i < count; i++) {
+            sorted[i] = scopeNanos[oldest(i) * SCOPES + scope];
+        }
+        return percentile(p) / 1e6;
+    }
+
+    public double counterMean(int counter) {
+        if (count == 0) return 0;
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += counters[i * COUNTERS + counter];
+        }
+        return total / (double) count;
+    }
+
+    public long counterMax(int counter) {
+        long max = 0;
+        for (int i = 0; i < count; i++) {
+            max = Math.max(max, counters[i * COUNTERS + counter]);
+        }
+        return max;
+    }
+
+    // One row per frame, oldest first; times in milliseconds
+    public void writeCsv(Writer out) throws IOException {
+        out.write("frame,start_ms,frame_ms");
+        for (String name : SCOPE_NAMES) out.write("," + columnName(name) + "_ms");
+        for (String name : COUNTER_NAMES) out.write("," + columnName(name));
+        out.write('\n');
+        long origin = count == 0 ? 0 : frameStart[oldest(0)];
+        for (int i = 0; i < count; i++) {
+            int r = oldest(i);
+            out.write(frameNumber[r] + "," + millis(frameStart[r] - origin) + "," + millis(frameNanos[r]));
+            for (int scope = 0; scope < SCOPES; scope++) out.write("," + millis(scopeNanos[r * SCOPES + scope]));
+            for (int counter = 0; counter < COUNTERS; counter++) out.write("," + counters[r * COUNTERS + counter]);
+            out.write('\n');
+        }
+    }
+
+    // Chrome trace event format: a "frame" slice per frame with its scopes nested
+    // inside, and the counters as counter tracks. Times are in microseconds.
+    public void writeChromeTrace(Writer out) throws IOException {
+        out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+        out.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":1,\"args\":{\"name\":\"render\"}}");
+        long origin = count == 0 ? 0 : frameStart[oldest(0)];
+        for (int i = 0; i < count; i++) {
+            int r = oldest(i);
+            long start = frameStart[r] - origin;
+            slice(out, "frame", start, frameNanos[r]);
+            for (int scope = 0; scope < SCOPES; scope++) {
+                long scopeOffset = scopeStart[r * SCOPES + scope];
+                if (scopeOffset >= 0) slice(out, SCOPE_NAMES[scope], start + scopeOffset, scopeNanos[r * SCOPES + scope]);
+            }
+            out.write(",\n{\"name\":\"counters\",\"ph\":\"C\",\"pid\":1,\"tid\":1,\"ts\":" + micros(start) + ",\"args\":{");
+            for (int counter = 0; counter < COUNTERS; counter++) {
+                if (counter > 0) out.write(',');
+                out.write("\"" + COUNTER_NAMES[counter] + "\":" + counters[r * COUNTERS + counter]);
+            }
+            out.write("}}");
+        }
+        out.write("\n]}\n");
+    }
+
+    private static void slice(Writer out, String name, long startNanos, long nanos) throws IOException {
+        out.write(",\n{\"name\":\"" + name + "\",\"cat\":\"cpu\",\"ph\":\"X\",\"pid\":1,\"tid\":1,\"ts\":"
+                + micros(startNanos) + ",\"dur\":" + micros(nanos) + "}");
+    }
+
+    // Row of the i-th oldest frame held
+    private int oldest(int i) {
+        return (row - count + i + capacity) % capacity;
+    }
+
+    private long percentile(float p) {
+        if (count == 0) return 0;
+        Arrays.sort(sorted, 0, count);
+        int index = Math.min(count - 1, (int) Math.ceil(p / 100f * count) - 1);
+        return sorted[Math.max(0, index)];
+    }
+
+    private static String columnName(String name) {
+        return name.replace(' ', '_');
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e3);
+    }
+}
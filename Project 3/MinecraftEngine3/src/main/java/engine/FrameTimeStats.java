@@ -0,0 +1,36 @@
+package engine;
+
+import java.util.Arrays;
+
+// Ring buffer of recent frame times with percentile queries
+public class FrameTimeStats {
+    private final float[] samples;
+    private final float[] sorted;
+    private int count;
+    private int next;
+
+    public FrameTimeStats(int capacity) {
+        samples = new float[capacity];
+        sorted = new float[capacity];
+    }
+
+    public void record(float millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    public void clear() {
+        count = 0;
+        next = 0;
+    }
+
+    // p in [0, 100], over the samples currently held
+    public float percentile(float p) {
+        if (count == 0) return 0;
+        System.arraycopy(samples, 0, sorted, 0, count);
+        Arrays.sort(sorted, 0, count);
+        int index = Math.min(count - 1, (int) Math.ceil(p / 100f * count) - 1);
+        return sorted[Math.max(0, index)];
+    }
+}
@@ -0,0 +1,51 @@
+package engine;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL30.glBindBufferBase;
+import static org.lwjgl.opengl.GL31.GL_UNIFORM_BUFFER;
+
+// Per-frame camera and light data in a uniform buffer, shared by every
+// program that declares the Frame block (std140):
+//
+//   layout(std140) uniform Frame { mat4 view; mat4 projection; vec4 cameraPos; vec4 lightDir; };
+//
+// One upload per frame replaces setting these uniforms on each program.
+public class FrameUniforms {
+    public static final String BLOCK_NAME = "Frame";
+    public static final int BINDING = 0;
+    private static final int FLOATS = 16 + 16 + 4 + 4;
+
+    private final int bufferID;
+    private final FloatBuffer data = MemoryUtil.memAllocFloat(FLOATS);
+
+    public FrameUniforms() {
+        bufferID = glGenBuffers();
+        glBindBuffer(GL_UNIFORM_BUFFER, bufferID);
+        glBufferData(GL_UNIFORM_BUFFER, (long) FLOATS * Float.BYTES, GL_DYNAMIC_DRAW);
+        glBindBuffer(GL_UNIFORM_BUFFER, 0);
+        glBindBufferBase(GL_UNIFORM_BUFFER, BINDING, bufferID);
+    }
+
+    public void update(Matrix4f view, Matrix4f projection, Vector3f cameraPos, Vector3f lightDir, RenderState state) {
+        view.get(0, data);
+        projection.get(16, data);
+        data.put(32, cameraPos.x).put(33, cameraPos.y).put(34, cameraPos.z).put(35, 1f);
+        data.put(36, lightDir.x).put(37, lightDir.y).put(38, lightDir.z).put(39, 0f);
+
+        glBindBuffer(GL_UNIFORM_BUFFER, bufferID);
+        glBufferSubData(GL_UNIFORM_BUFFER, 0, data);
+        glBindBuffer(GL_UNIFORM_BUFFER, 0);
+        state.count(3);
+    }
+
+    public void cleanup() {
+        glDeleteBuffers(bufferID);
+        MemoryUtil.memFree(data);
+    }
+}
@@ -0,0 +1,61 @@
+package engine;
+
+import org.joml.Matrix4f;
+
+// The six planes of a view frustum, extracted from projection * view
+// (Gribb & Hartmann). Pure math with no GL calls, so it works headless.
+// Each plane is stored as (a, b, c, d) with the normal pointing inwards:
+// a point p is inside when a*p.x + b*p.y + c*p.z + d >= 0 for all planes.
+public class Frustum {
+    public static final int OUTSIDE = 0;
+    public static final int INTERSECT = 1;
+    public static final int INSIDE = 2;
+
+    private final float[] planes = new float[6 * 4];
+
+    public Frustum set(Matrix4f projectionView) {
+        Matrix4f m = projectionView;
+        // Rows of the matrix; JOML names elements mColumnRow
+        setPlane(0, m.m03() + m.m00(), m.m13() + m.m10(), m.m23() + m.m20(), m.m33() + m.m30()); // left
+        setPlane(1, m.m03() - m.m00(), m.m13() - m.m10(), m.m23() - m.m20(), m.m33() - m.m30()); // right
+        setPlane(2, m.m03() + m.m01(), m.m13() + m.m11(), m.m23() + m.m21(), m.m33() + m.m31()); // bottom
+        setPlane(3, m.m03() - m.m01(), m.m13() - m.m11(), m.m23() - m.m21(), m.m33() - m.m31()); // top
+        setPlane(4, m.m03() + m.m02(), m.m13() + m.m12(), m.m23() + m.m22(), m.m33() + m.m32()); // near
+        setPlane(5, m.m03() - m.m02(), m.m13() - m.m12(), m.m23() - m.m22(), m.m33() - m.m32()); // far
+        return this;
+    }
+
+    private void setPlane(int i, float a, float b, float c, float d) {
+        float length = (float) Math.sqrt(a * a + b * b + c * c);
+        planes[i * 4] = a / length;
+        planes[i * 4 + 1] = b / length;
+        planes[i * 4 + 2] = c / length;
+        planes[i * 4 + 3] = d / length;
+    }
+
+    // OUTSIDE, INTERSECT or INSIDE for an axis-aligned box. Conservative:
+    // a box near a frustum corner may report INTERSECT while being outside.
+    public int testAab(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        int result = INSIDE;
+        for (int i = 0; i < 24; i += 4) {
+            float a = planes[i], b = planes[i + 1], c = planes[i + 2], d = planes[i + 3];
+            // Corner furthest along the plane normal, then the one furthest against it
+            float far = a * (a > 0 ? maxX : minX) + b * (b > 0 ? maxY : minY) + c * (c > 0 ? maxZ : minZ) + d;
+            if (far < 0) return OUTSIDE;
+            float near = a * (a > 0 ? minX : maxX) + b * (b > 0 ? minY : maxY) + c * (c > 0 ? minZ : maxZ) + d;
+            if (near < 0) result = INTERSECT;
+        }
+        return result;
+    }
+
+    public boolean intersectsAab(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        return testAab(minX, minY, minZ, maxX, maxY, maxZ) != OUTSIDE;
+    }
+
+    public boolean intersectsSphere(float x, float y, float z, float radius) {
+        for (int i = 0; i < 24; i += 4) {
+            if (planes[i] * x + planes[i + 1] * y + planes[i + 2] * z + planes[i + 3] < -radius) return false;
+        }
+        return true;
+    }
+}
@@ -9,6 +9,12 @@ public class GameObject {
     public Vector3f scale;
     private final Cube cube;
 
+    // Set whenever position, rotation or scale may have changed since the
+    // transform was last uploaded; call markDirty() after editing them
+    private boolean dirty = true;
+    // Index in the InstanceBatch holding this object, or -1
+    int batchSlot = -1;
+
     public GameObject(Cube cube, Vector3f position) {
         this.cube = cube;
         this.position = position;
@@ -17,7 +23,11 @@ public class GameObject {
     }
 
     public Matrix4f getModelMatrix() {
-        return new Matrix4f()
+        return getModelMatrix(new Matrix4f());
+    }
+
+    public Matrix4f getModelMatrix(Matrix4f dest) {
+        return dest.identity()
                 .translate(position)
                 .rotateX((float) Math.toRadians(rotation.x))
                 .rotateY((float) Math.toRadians(rotation.y))
@@ -25,7 +35,25 @@ public class GameObject {
                 .scale(scale);
     }
 
-    public void render() {
-        cube.render();
+    // Bounding sphere of the rotated, scaled unit cube against the frustum
+    public boolean intersects(Frustum frustum) {
+        float radius = 0.8661f * Math.max(Math.abs(scale.x), Math.max(Math.abs(scale.y), Math.abs(scale.z)));
+        return frustum.intersectsSphere(position.x, position.y, position.z, radius);
+    }
+
+    public void markDirty() {
+        dirty = true;
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    void clearDirty() {
+        dirty = false;
+    }
+
+    public Cube getCube() {
+        return cube;
     }
 }
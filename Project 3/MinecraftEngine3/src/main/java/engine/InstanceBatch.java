@@ -0,0 +1,133 @@
+package engine;
+
+import org.joml.Matrix4f;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
+
+// All GameObjects sharing one Cube, drawn with a single glDrawElementsInstanced.
+// Each instance's model matrix lives in a per-instance attribute buffer
+// (locations 3-6); only the slots of dirty objects are re-uploaded.
+public class InstanceBatch {
+    private static final int FLOATS_PER_INSTANCE = 16;
+    private static final int MODEL_LOCATION = 3;
+
+    private final Cube cube;
+    private final int vaoID;
+    private final int instanceVboID;
+
+    private final List<GameObject> objects = new ArrayList<>();
+    private FloatBuffer transforms; // CPU mirror of the instance buffer
+    private int gpuCapacity;        // instances the GPU buffer can hold
+    private int dirtyMin = Integer.MAX_VALUE;
+    private int dirtyMax = -1;
+    private final Matrix4f scratch = new Matrix4f();
+
+    public InstanceBatch(Cube cube) {
+        this.cube = cube;
+        this.transforms = MemoryUtil.memAllocFloat(64 * FLOATS_PER_INSTANCE);
+
+        vaoID = glGenVertexArrays();
+        glBindVertexArray(vaoID);
+        cube.bindBuffers();
+        Cube.setupVertexAttributes();
+
+        instanceVboID = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, instanceVboID);
+        // A mat4 attribute takes four vec4 locations
+        for (int column = 0; column < 4; column++) {
+            int location = MODEL_LOCATION + column;
+            glVertexAttribPointer(location, 4, GL_FLOAT, false,
+                    FLOATS_PER_INSTANCE * Float.BYTES, (long) column * 4 * Float.BYTES);
+            glEnableVertexAttribArray(location);
+            glVertexAttribDivisor(location, 1);
+        }
+        glBindVertexArray(0);
+    }
+
+    public void add(GameObject obj) {
+        obj.batchSlot = objects.size();
+        objects.add(obj);
+        obj.markDirty();
+        if (objects.size() * FLOATS_PER_INSTANCE > transforms.capacity()) {
+            transforms = MemoryUtil.memRealloc(transforms, transforms.capacity() * 2);
+        }
+    }
+
+    // Moves the last instance into the freed slot so the buffer stays packed
+    public void remove(GameObject obj) {
+        int slot = obj.batchSlot;
+        if (slot < 0 || slot >= objects.size() || objects.get(slot) != obj) return;
+        obj.batchSlot = -1;
+        int last = objects.size() - 1;
+        GameObject moved = objects.remove(last);
+        if (slot != last) {
+            objects.set(slot, moved);
+            moved.batchSlot = slot;
+            moved.markDirty();
+        }
+    }
+
+    public int size() {
+        return objects.size();
+    }
+
+    // Writes dirty transforms into the mirror and uploads the changed range;
+    // returns the number of GL calls made
+    public int update() {
+        for (int slot = 0; slot < objects.size(); slot++) {
+            GameObject obj = objects.get(slot);
+            if (!obj.isDirty()) continue;
+            obj.getModelMatrix(scratch).get(slot * FLOATS_PER_INSTANCE, transforms);
+            obj.clearDirty();
+            dirtyMin = Math.min(dirtyMin, slot);
+            dirtyMax = Math.max(dirtyMax, slot);
+        }
+        if (objects.size() <= gpuCapacity && dirtyMax < 0) return 0;
+
+        glBindBuffer(GL_ARRAY_BUFFER, instanceVboID);
+        if (objects.size() > gpuCapacity) {
+            // Grow the GPU buffer and upload everything
+            gpuCapacity = transforms.capacity() / FLOATS_PER_INSTANCE;
+            transforms.clear();
+            glBufferData(GL_ARRAY_BUFFER, transforms, GL_DYNAMIC_DRAW);
+        } else {
+            transforms.position(dirtyMin * FLOATS_PER_INSTANCE).limit((dirtyMax + 1) * FLOATS_PER_INSTANCE);
+            glBufferSubData(GL_ARRAY_BUFFER, (long) dirtyMin * FLOATS_PER_INSTANCE * Float.BYTES, transforms);
+            transforms.clear();
+        }
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        dirtyMin = Integer.MAX_VALUE;
+        dirtyMax = -1;
+        return 3;
+    }
+
+    public Cube getCube() {
+        return cube;
+    }
+
+    public int getVaoID() {
+        return vaoID;
+    }
+
+    // False only when every instance is outside the frustum, so the whole draw can be skipped
+    public boolean intersects(Frustum frustum) {
+        for (GameObject obj : objects) {
+            if (obj.intersects(frustum)) return true;
+        }
+        return false;
+    }
+
+    public void cleanup() {
+        glDeleteVertexArrays(vaoID);
+        glDeleteBuffers(instanceVboID);
+        MemoryUtil.memFree(transforms);
+    }
+}
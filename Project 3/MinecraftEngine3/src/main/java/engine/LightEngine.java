@@ -0,0 +1,341 @@
+package engine;
+
+import java.util.Arrays;
+
+// Sky light and block light, 0-15 each, for every block of the loaded
+// columns: one byte per block (sky light in the high nibble) in an array
+// per section. Pure CPU; no GL calls.
+//
+// A column is lit in full when it loads. After that, block edits relight
+// incrementally: light that came through or from the changed block is
+// taken back with a breadth-first removal pass, which also collects the
+// surviving light at its edge, and an add pass spreads light out again
+// from those cells and from any new source. Edits can also be queued with
+// queueBlockChanged() and relit together by one relight(), which walks
+// light shared between them once instead of once per edit. Sky light at full strength
+// travels straight down without fading; otherwise light loses one level
+// per step. Solid blocks are opaque.
+//
+// Sections whose light changed are collected in getChangedSections() so
+// their meshes can be rebuilt.
+public class LightEngine {
+    public static final int MAX_LIGHT = 15;
+    private static final int SKY = 0, BLOCK = 1;
+    private static final int MIN_Y = World.MIN_SECTION_Y * ChunkSection.SIZE;
+    private static final int MAX_Y = World.MAX_SECTION_Y * ChunkSection.SIZE + ChunkSection.SIZE - 1;
+    private static final int DOWN = SectionVisibility.FACE_NEG_Y;
+
+    private final BlockStorage blocks;
+    private final LongObjectMap<byte[]> sections = new LongObjectMap<>(1024);
+    private final LongSet changed = new LongSet(256);
+    private final Queue[] addQueues = {new Queue(), new Queue()};
+    private final Queue[] removeQueues = {new Queue(), new Queue()};
+
+    // Last section looked up, as in ChunkedBlockStorage, and last one added to changed
+    private long cachedKey = Long.MIN_VALUE;
+    private byte[] cachedLight;
+    private long lastChangedKey = Long.MIN_VALUE;
+
+    public LightEngine(BlockStorage blocks) {
+        this.blocks = blocks;
+    }
+
+    public int getSkyLight(int x, int y, int z) {
+        int light = get(SKY, x, y, z);
+        return light < 0 ? (y < MIN_Y ? 0 : MAX_LIGHT) : light;
+    }
+
+    public int getBlockLight(int x, int y, int z) {
+        return Math.max(0, get(BLOCK, x, y, z));
+    }
+
+    // Lights a column whose blocks are already in storage, pulling in light from loaded neighbours
+    public void loadColumn(int cx, int cz) {
+        for (int sy = World.MIN_SECTION_Y; sy <= World.MAX_SECTION_Y; sy++) {
+            long key = ChunkedBlockStorage.sectionKey(cx, sy, cz);
+            sections.put(key, new byte[ChunkSection.VOLUME]);
+            changed.add(key);
+        }
+        cachedKey = Long.MIN_VALUE;
+
+        int baseX = cx * ChunkSection.SIZE, baseZ = cz * ChunkSection.SIZE;
+        int[] skyFloor = new int[ChunkSection.SIZE * ChunkSection.SIZE];
+        int highestFloor = MIN_Y;
+        for (int z = 0; z < ChunkSection.SIZE; z++) {
+            for (int x = 0; x < ChunkSection.SIZE; x++) {
+                int y = MAX_Y;
+                while (y >= MIN_Y && !isOpaque(blocks.getBlock(baseX + x, y, baseZ + z))) {
+                    set(SKY, baseX + x, y, baseZ + z, MAX_LIGHT);
+                    y--;
+                }
+                skyFloor[z * ChunkSection.SIZE + x] = y + 1;
+                highestFloor = Math.max(highestFloor, y + 1);
+            }
+        }
+
+        // Open sky only needs to spread sideways where a neighbour is walled off from
+        // above: below the highest floor in the column, or across the column's edge
+        for (int z = 0; z < ChunkSection.SIZE; z++) {
+            for (int x = 0; x < ChunkSection.SIZE; x++) {
+                boolean edge = x == 0 || z == 0 || x == ChunkSection.SIZE - 1 || z == ChunkSection.SIZE - 1;
+                int top = edge ? MAX_Y : highestFloor;
+                for (int y = skyFloor[z * ChunkSection.SIZE + x]; y <= top; y++) {
+                    addQueues[SKY].push(baseX + x, y, baseZ + z);
+                }
+            }
+        }
+
+        // Light sources
+        for (int sy = World.MIN_SECTION_Y; sy <= World.MAX_SECTION_Y; sy++) {
+            for (int y = sy * ChunkSection.SIZE; y < (sy + 1) * ChunkSection.SIZE; y++) {
+                for (int z = baseZ; z < baseZ + ChunkSection.SIZE; z++) {
+                    for (int x = baseX; x < baseX + ChunkSection.SIZE; x++) {
+                        int emission = Blocks.lightEmission(blocks.getBlock(x, y, z));
+                        if (emission > 0) {
+                            set(BLOCK, x, y, z, emission);
+                            addQueues[BLOCK].push(x, y, z);
+                        }
+                    }
+                }
+            }
+        }
+
+        // Light already in the neighbouring columns' facing edges
+        for (int i = 0; i < ChunkSection.SIZE; i++) {
+            for (int y = MIN_Y; y <= MAX_Y; y++) {
+                pushLit(baseX - 1, y, baseZ + i);
+                pushLit(baseX + ChunkSection.SIZE, y, baseZ + i);
+                pushLit(baseX + i, y, baseZ - 1);
+                pushLit(baseX + i, y, baseZ + ChunkSection.SIZE);
+            }
+        }
+
+        propagate();
+    }
+
+    public void unloadColumn(int cx, int cz) {
+        for (int sy = World.MIN_SECTION_Y; sy <= World.MAX_SECTION_Y; sy++) {
+            sections.remove(ChunkedBlockStorage.sectionKey(cx, sy, cz));
+        }
+        cachedKey = Long.MIN_VALUE;
+    }
+
+    // Relights after the block at (x, y, z) changed from oldBlock to newBlock in storage
+    public void onBlockChanged(int x, int y, int z, int oldBlock, int newBlock) {
+        queueBlockChanged(x, y, z, oldBlock, newBlock);
+        relight();
+    }
+
+    // As onBlockChanged(), but the light only settles at the next relight(); until then
+    // levels around queued edits are unreliable
+    public void queueBlockChanged(int x, int y, int z, int oldBlock, int newBlock) {
+        if (get(SKY, x, y, z) < 0) return; // column not loaded
+
+        boolean opaque = isOpaque(newBlock);
+        for (int channel = SKY; channel <= BLOCK; channel++) {
+            int level = get(channel, x, y, z);
+            boolean lostSource = channel == BLOCK && Blocks.lightEmission(oldBlock) > 0;
+            if (level > 0 && (opaque || lostSource)) {
+                set(channel, x, y, z, 0);
+                removeQueues[channel].push(x, y, z, level);
+            }
+        }
+
+        int emission = Blocks.lightEmission(newBlock);
+        if (emission > 0) {
+            set(BLOCK, x, y, z, emission);
+            addQueues[BLOCK].push(x, y, z);
+        }
+
+        // An opening lets the neighbours' light flow in
+        if (!opaque) {
+            for (int face = 0; face < 6; face++) {
+                int nx = x + SectionVisibility.FACE_DX[face];
+                int ny = y + SectionVisibility.FACE_DY[face];
+                int nz = z + SectionVisibility.FACE_DZ[face];
+                pushLit(nx, ny, nz);
+            }
+            if (y == MAX_Y) {
+                set(SKY, x, y, z, MAX_LIGHT);
+                addQueues[SKY].push(x, y, z);
+            }
+        }
+    }
+
+    // Spreads and takes back light for every edit queued since the last relight
+    public void relight() {
+        propagate();
+    }
+
+    // Section keys whose light changed since the last clearChangedSections()
+    public LongSet getChangedSections() {
+        return changed;
+    }
+
+    public void clearChangedSections() {
+        changed.clear();
+        lastChangedKey = Long.MIN_VALUE;
+    }
+
+    // Light around a section for ChunkMesher, laid out like ChunkMesher.paddedIndex:
+    // sky light << 4 | block light. Blocks outside loaded columns read as open sky.
+    public void copyPadded(int sx, int sy, int sz, byte[] out) {
+        int baseX = sx * ChunkSection.SIZE, baseY = sy * ChunkSection.SIZE, baseZ = sz * ChunkSection.SIZE;
+        for (int y = -1; y <= ChunkSection.SIZE; y++) {
+            for (int z = -1; z <= ChunkSection.SIZE; z++) {
+                for (int x = -1; x <= ChunkSection.SIZE; x++) {
+                    int wx = baseX + x, wy = baseY + y, wz = baseZ + z;
+                    out[ChunkMesher.paddedIndex(x, y, z)] =
+                            (byte) (getSkyLight(wx, wy, wz) << 4 | getBlockLight(wx, wy, wz));
+                }
+            }
+        }
+    }
+
+    public long memoryBytes() {
+        return sections.capacity() * 12L + sections.size() * (16L + ChunkSection.VOLUME);
+    }
+
+    private void pushLit(int x, int y, int z) {
+        if (get(SKY, x, y, z) > 0) addQueues[SKY].push(x, y, z);
+        if (get(BLOCK, x, y, z) > 0) addQueues[BLOCK].push(x, y, z);
+    }
+
+    private void propagate() {
+        for (int channel = SKY; channel <= BLOCK; channel++) {
+            removeLight(channel);
+        }
+        for (int channel = SKY; channel <= BLOCK; channel++) {
+            addLight(channel);
+        }
+    }
+
+    // Darkens everything lit only by the removed cells; brighter light met on the way is kept
+    // and queued to refill the darkened area
+    private void removeLight(int channel) {
+        Queue remove = removeQueues[channel];
+        Queue add = addQueues[channel];
+        while (remove.pop()) {
+            int x = remove.x, y = remove.y, z = remove.z, level = remove.level;
+            for (int face = 0; face < 6; face++) {
+                int nx = x + SectionVisibility.FACE_DX[face];
+                int ny = y + SectionVisibility.FACE_DY[face];
+                int nz = z + SectionVisibility.FACE_DZ[face];
+                int neighbour = get(channel, nx, ny, nz);
+                if (neighbour <= 0) continue;
+
+                boolean fedFromAbove = channel == SKY && face == DOWN && level == MAX_LIGHT;
+                if (neighbour < level || fedFromAbove) {
+                    set(channel, nx, ny, nz, 0);
+                    remove.push(nx, ny, nz, neighbour);
+                    int emission = channel == BLOCK ? Blocks.lightEmission(blocks.getBlock(nx, ny, nz)) : 0;
+                    if (emission > 0) {
+                        set(BLOCK, nx, ny, nz, emission);
+                        add.push(nx, ny, nz);
+                    }
+                } else {
+                    add.push(nx, ny, nz);
+                }
+            }
+        }
+    }
+
+    private void addLight(int channel) {
+        Queue add = addQueues[channel];
+        while (add.pop()) {
+            int x = add.x, y = add.y, z = add.z;
+            int level = get(channel, x, y, z);
+            if (level <= 1) continue;
+            for (int face = 0; face < 6; face++) {
+                int nx = x + SectionVisibility.FACE_DX[face];
+                int ny = y + SectionVisibility.FACE_DY[face];
+                int nz = z + SectionVisibility.FACE_DZ[face];
+                int neighbour = get(channel, nx, ny, nz);
+                if (neighbour < 0) continue;
+                int spread = channel == SKY && face == DOWN && level == MAX_LIGHT ? MAX_LIGHT : level - 1;
+                if (neighbour >= spread || isOpaque(blocks.getBlock(nx, ny, nz))) continue;
+                set(channel, nx, ny, nz, spread);
+                add.push(nx, ny, nz);
+            }
+        }
+    }
+
+    private static boolean isOpaque(int block) {
+        return Blocks.isSolid(block);
+    }
+
+    // Stored level, or -1 outside the loaded columns
+    private int get(int channel, int x, int y, int z) {
+        if (y < MIN_Y || y > MAX_Y) return -1;
+        byte[] light = lightArray(x >> 4, y >> 4, z >> 4);
+        if (light == null) return -1;
+        int value = light[index(x, y, z)];
+        return channel == SKY ? (value >> 4) & 15 : value & 15;
+    }
+
+    private void set(int channel, int x, int y, int z, int level) {
+        byte[] light = lightArray(x >> 4, y >> 4, z >> 4);
+        int i = index(x, y, z);
+        light[i] = (byte) (channel == SKY ? (light[i] & 0x0F) | level << 4 : (light[i] & 0xF0) | level);
+        if (cachedKey != lastChangedKey) {
+            changed.add(cachedKey);
+            lastChangedKey = cachedKey;
+        }
+    }
+
+    private byte[] lightArray(int sx, int sy, int sz) {
+        long key = ChunkedBlockStorage.sectionKey(sx, sy, sz);
+        if (key != cachedKey) {
+            cachedLight = sections.get(key);
+            cachedKey = key;
+        }
+        return cachedLight;
+    }
+
+    // Same layout as ChunkSection.index()
+    private static int index(int x, int y, int z) {
+        return ((y & 15) * 16 + (z & 15)) * 16 + (x & 15);
+    }
+
+    // FIFO of (x, y, z, level) entries; level is only used by removal
+    private static final class Queue {
+        private int[] data = new int[4 * 1024];
+        private int head, tail;
+        int x, y, z, level;
+
+        void push(int x, int y, int z) {
+            push(x, y, z, 0);
+        }
+
+        void push(int x, int y, int z, int level) {
+            if (tail + 4 > data.length) {
+                if (head > data.length / 2) {
+                    System.arraycopy(data, head, data, 0, tail - head);
+                    tail -= head;
+                    head = 0;
+                } else {
+                    data = Arrays.copyOf(data, data.length * 2);
+                }
+            }
+            data[tail] = x;
+            data[tail + 1] = y;
+            data[tail + 2] = z;
+            data[tail + 3] = level;
+            tail += 4;
+        }
+
+        // Loads the next entry into x, y, z and level; false when empty
+        boolean pop() {
+            if (head == tail) {
+                head = tail = 0;
+                return false;
+            }
+            x = data[head];
+            y = data[head + 1];
+            z = data[head + 2];
+            level = data[head + 3];
+            head += 4;
+            return true;
+        }
+    }
+}
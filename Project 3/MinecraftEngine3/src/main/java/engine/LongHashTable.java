@@ -0,0 +1,154 @@
+package engine;
+
+import java.util.Arrays;
+
+// The long-keyed hash table behind LongSet, LongLongMap and LongObjectMap,
+// for section and column keys on paths where a HashMap<Long, ...> would
+// allocate a Long per call. Open addressing with linear probing; the table
+// doubles at 50% load, and removal shifts the rest of the run back instead
+// of leaving tombstones. Subclasses keep their values in arrays parallel
+// to the keys. Long.MIN_VALUE is reserved as the empty-slot marker and
+// cannot be a key.
+//
+// Slots can be walked without allocating:
+//   for (int i = 0; i < table.capacity(); i++) if (table.isUsed(i)) ... table.keyAt(i) ...
+// Removing during such a walk may move a later key into an earlier slot, so
+// collect the keys first when removing.
+abstract class LongHashTable {
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int size;
+
+    // capacity must be a power of two
+    LongHashTable(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    // Returns whether the key was present
+    public boolean remove(long key) {
+        int slot = find(key);
+        if (slot < 0) return false;
+        removeAt(slot);
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        clearValues();
+        size = 0;
+    }
+
+    // Slots in the table, used or not
+    public int capacity() {
+        return keys.length;
+    }
+
+    public boolean isUsed(int slot) {
+        return keys[slot] != EMPTY;
+    }
+
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    // The keys present, in no particular order
+    public long[] keys() {
+        long[] present = new long[size];
+        int n = 0;
+        for (long key : keys) {
+            if (key != EMPTY) present[n++] = key;
+        }
+        return present;
+    }
+
+    // Slot holding the key, or -1
+    final int find(long key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            if (keys[i] == key) return i;
+            if (keys[i] == EMPTY) return -1;
+        }
+    }
+
+    // Slot holding the key, claiming one (and growing the table) if it is absent
+    final int insert(long key) {
+        if ((size + 1) * 2 > keys.length) resize(keys.length * 2);
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != EMPTY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == EMPTY) {
+            keys[i] = key;
+            size++;
+        }
+        return i;
+    }
+
+    final void removeAt(int i) {
+        int mask = keys.length - 1;
+        keys[i] = EMPTY;
+        clearValue(i);
+        size--;
+
+        // Move later entries of the run back so every key stays reachable from its slot
+        for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = slot(keys[j], mask);
+            boolean movable = i <= j ? home <= i || home > j : home <= i && home > j;
+            if (movable) {
+                keys[i] = keys[j];
+                moveValue(j, i);
+                keys[j] = EMPTY;
+                clearValue(j);
+                i = j;
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        int mask = capacity - 1;
+        int[] moved = new int[oldKeys.length];
+        for (int i = 0; i < oldKeys.length; i++) {
+            moved[i] = -1;
+            if (oldKeys[i] == EMPTY) continue;
+            int j = slot(oldKeys[i], mask);
+            while (keys[j] != EMPTY) {
+                j = (j + 1) & mask;
+            }
+            keys[j] = oldKeys[i];
+            moved[i] = j;
+        }
+        resizeValues(capacity, moved);
+    }
+
+    // Values follow their keys: 'moved' gives each old slot's new slot, or -1 if it was empty
+    abstract void resizeValues(int capacity, int[] moved);
+
+    abstract void moveValue(int from, int to);
+
+    abstract void clearValue(int slot);
+
+    abstract void clearValues();
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
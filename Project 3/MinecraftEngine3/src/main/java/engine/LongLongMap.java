@@ -0,0 +1,57 @@
+package engine;
+
+// Hash map from long keys to long values without boxing, for lookups on
+// the per-frame path (see LongHashTable). Long.MIN_VALUE cannot be a key.
+public class LongLongMap extends LongHashTable {
+    private long[] values;
+
+    public LongLongMap() {
+        this(64);
+    }
+
+    // capacity must be a power of two
+    public LongLongMap(int capacity) {
+        super(capacity);
+        values = new long[capacity];
+    }
+
+    public long get(long key, long missing) {
+        int slot = find(key);
+        return slot < 0 ? missing : values[slot];
+    }
+
+    public void put(long key, long value) {
+        int slot = insert(key); // may resize 'values'
+        values[slot] = value;
+    }
+
+    public long valueAt(int slot) {
+        return values[slot];
+    }
+
+    public void setValueAt(int slot, long value) {
+        values[slot] = value;
+    }
+
+    @Override
+    void resizeValues(int capacity, int[] moved) {
+        long[] old = values;
+        values = new long[capacity];
+        for (int i = 0; i < moved.length; i++) {
+            if (moved[i] >= 0) values[moved[i]] = old[i];
+        }
+    }
+
+    @Override
+    void moveValue(int from, int to) {
+        values[to] = values[from];
+    }
+
+    @Override
+    void clearValue(int slot) {
+    }
+
+    @Override
+    void clearValues() {
+    }
+}
@@ -0,0 +1,72 @@
+package engine;
+
+import java.util.Arrays;
+
+// Hash map from long keys to objects without boxing the keys (see
+// LongHashTable). Long.MIN_VALUE cannot be a key, and null values are not
+// stored: get() returns null for a missing key.
+public class LongObjectMap<V> extends LongHashTable {
+    public interface Visitor<V> {
+        void visit(long key, V value);
+    }
+
+    private Object[] values;
+
+    public LongObjectMap() {
+        this(64);
+    }
+
+    // capacity must be a power of two
+    public LongObjectMap(int capacity) {
+        super(capacity);
+        values = new Object[capacity];
+    }
+
+    // null if absent
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int slot = find(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    public void put(long key, V value) {
+        int slot = insert(key); // may resize 'values'
+        values[slot] = value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V valueAt(int slot) {
+        return (V) values[slot];
+    }
+
+    // Every entry, in no particular order; the visitor must not change the map
+    public void forEach(Visitor<? super V> visitor) {
+        for (int i = 0; i < capacity(); i++) {
+            if (isUsed(i)) visitor.visit(keyAt(i), valueAt(i));
+        }
+    }
+
+    @Override
+    void resizeValues(int capacity, int[] moved) {
+        Object[] old = values;
+        values = new Object[capacity];
+        for (int i = 0; i < moved.length; i++) {
+            if (moved[i] >= 0) values[moved[i]] = old[i];
+        }
+    }
+
+    @Override
+    void moveValue(int from, int to) {
+        values[to] = values[from];
+    }
+
+    @Override
+    void clearValue(int slot) {
+        values[slot] = null;
+    }
+
+    @Override
+    void clearValues() {
+        Arrays.fill(values, null);
+    }
+}
@@ -0,0 +1,41 @@
+package engine;
+
+// Set of long keys without boxing (see LongHashTable). Long.MIN_VALUE cannot
+// be a member.
+public class LongSet extends LongHashTable {
+    public LongSet() {
+        this(64);
+    }
+
+    // capacity must be a power of two
+    public LongSet(int capacity) {
+        super(capacity);
+    }
+
+    public boolean contains(long key) {
+        return containsKey(key);
+    }
+
+    // Returns whether the key was not already present
+    public boolean add(long key) {
+        int before = size();
+        insert(key);
+        return size() != before;
+    }
+
+    @Override
+    void resizeValues(int capacity, int[] moved) {
+    }
+
+    @Override
+    void moveValue(int from, int to) {
+    }
+
+    @Override
+    void clearValue(int slot) {
+    }
+
+    @Override
+    void clearValues() {
+    }
+}
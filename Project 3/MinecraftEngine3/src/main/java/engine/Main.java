@@ -3,8 +3,11 @@ package engine;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 
-import java.util.List;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import static org.lwjgl.glfw.GLFW.*;
 import static org.lwjgl.opengl.GL11.*;
@@ -21,27 +24,94 @@ public class Main {
     private static float lastMouseY = HEIGHT / 2f;
     private static boolean firstMouse = true;
 
+    private static boolean toggleKeyDown = false;
+    private static boolean occlusionKeyDown = false;
+    private static boolean profileKeyDown = false;
+    private static boolean flyKeyDown = false;
+    // Block placed by right click; number keys 1-5 pick one of these
+    private static final int[] PLACEABLE = {Blocks.BRICK, Blocks.STONE, Blocks.DIRT, Blocks.GRASS, Blocks.LAMP};
+    private static int selectedBlock = Blocks.BRICK;
+
     private static float deltaTime = 0.0f;
     private static float lastFrameTime = 0.0f;
 
     private static Camera camera;
     private static Shader shader;
+    private static FrameUniforms frameUniforms;
+    private static final RenderState renderState = new RenderState();
+    private static final Vector3f LIGHT_DIR = new Vector3f(-0.5f, -1.0f, -0.3f);
     private static Cube cubeMesh;
+    private static TextureArray blockTextures;
     private static World world;
+    private static ChunkStreamer streamer;
+    private static RegionStorage storage;
+
+    private static final long WORLD_SEED = 415L;
+    private static final int VIEW_DISTANCE = 8; // in columns
+    private static final String SAVE_DIRECTORY = "saves/world";
+    // Holding a mouse button repeats its edit at this interval
+    private static final double EDIT_REPEAT_SECONDS = 0.25;
+    private static double nextEditTime;
+    private static Simulation simulation;
+
+    // Run with -Dengine.objects=N to add N free-standing cubes above the spawn point,
+    // for comparing instanced and per-object drawing with the I key
+    private static final int EXTRA_OBJECTS = Integer.getInteger("engine.objects", 0);
+
+    // Run with -Dengine.debug=true to show heap bytes allocated per frame in the title
+    private static final boolean DEBUG = Boolean.getBoolean("engine.debug");
+    // Run with -Dengine.server=host[:port] to play on a WorldServer instead of a local save
+    private static final String SERVER = System.getProperty("engine.server");
+    private static WorldClient client;
+    // Last few seconds of frames; P writes them out as CSV and a Chrome trace
+    private static final FrameProfiler profiler = new FrameProfiler(600);
+    private static final String PROFILE_DIRECTORY = "profile";
+
+    // Per-frame scratch, so the steady-state frame allocates nothing
+    private static final Matrix4f view = new Matrix4f();
+    private static final Matrix4f projection = new Matrix4f();
+    private static final Matrix4f rayScratch = new Matrix4f();
+    private static final Vector3f rayDir = new Vector3f();
+    private static final StringBuilder title = new StringBuilder(256);
 
     public static void main(String[] args) {
         try {
+            long startupStart = System.nanoTime();
             initWindow();
             glfwSetInputMode(window, GLFW_CURSOR, GLFW_CURSOR_DISABLED);
+            long windowDone = System.nanoTime();
 
             shader = new Shader("src/main/resources/shaders/vertex.glsl", "src/main/resources/shaders/fragment.glsl");
-            cubeMesh = new Cube();
-            camera = new Camera(new Vector3f(0, 1, 3));
+            shader.bindUniformBlock(FrameUniforms.BLOCK_NAME, FrameUniforms.BINDING);
+            shader.use();
+            glUniform1i(shader.uniform("blockTextures"), 0);
+            frameUniforms = new FrameUniforms();
+            long shadersDone = System.nanoTime();
+
+            blockTextures = new TextureArray("src/main/resources/textures", BlockTextures.LAYER_NAMES);
+            cubeMesh = new Cube(blockTextures, BlockTextures.BRICK);
+            TerrainGenerator generator = new TerrainGenerator(WORLD_SEED);
+            camera = new Camera(new Vector3f(0, generator.heightAt(0, 0) + 3, 0));
+
+            long worldStart = System.nanoTime();
+            world = new World(cubeMesh);
+            world.setProfiler(profiler);
+            addObjects(generator.heightAt(0, 0) + 6);
+            if (SERVER != null) {
+                client = WorldClient.connect(SERVER, VIEW_DISTANCE, camera.getPosition());
+                simulation = new Simulation(world, client, camera.getPosition());
+            } else {
+                storage = new RegionStorage(Paths.get(SAVE_DIRECTORY));
+                streamer = new ChunkStreamer(world, generator, storage, VIEW_DISTANCE, ChunkMeshWorkerPool.defaultThreadCount());
+                simulation = new Simulation(world, streamer, camera.getPosition());
+            }
+            simulation.start();
+            long worldDone = System.nanoTime();
 
-            world = new World();
-            world.add(new GameObject(cubeMesh, new Vector3f(0, 0, 0)));
-            world.add(new GameObject(cubeMesh, new Vector3f(2, 0, 0)));
-            world.add(new GameObject(cubeMesh, new Vector3f(-2, 0, 0)));
+            System.out.printf("Startup: window %.1f ms, shaders %.1f ms, block textures %.1f ms (%d layers, %dx%d), world %.1f ms, total %.1f ms%n",
+                    (windowDone - startupStart) / 1e6, (shadersDone - windowDone) / 1e6,
+                    blockTextures.getLoadNanos() / 1e6, blockTextures.getLayers(), blockTextures.getSize(), blockTextures.getSize(),
+                    (worldDone - worldStart) / 1e6, (worldDone - startupStart) / 1e6);
 
             glEnable(GL_DEPTH_TEST);
 
@@ -63,87 +133,174 @@ public class Main {
             // FPS counter
             int frames = 0;
             double lastTime = glfwGetTime();
-
-            // Flat world
-            for (int x = -10; x <= 10; x++) {
-                for (int z = -10; z <= 10; z++) {
-                    world.add(new GameObject(cubeMesh, new Vector3f(x, -1, z)));
-                }
-            }
+            long cpuNanos = 0;
+            FrameTimeStats frameTimes = new FrameTimeStats(240);
+            projection.setPerspective((float) Math.toRadians(70.0f), WIDTH / (float) HEIGHT, 0.1f, 1000f);
 
             while (!glfwWindowShouldClose(window)) {
+                // Without the simulation the world would just freeze; stop, saving what we have
+                if (simulation.getError() != null) {
+                    System.err.println("The simulation stopped: " + simulation.getError().getMessage());
+                    simulation.getError().printStackTrace();
+                    break;
+                }
+                long frameStart = System.nanoTime();
+                profiler.beginFrame();
                 float currentFrame = (float) glfwGetTime();
                 deltaTime = currentFrame - lastFrameTime;
                 lastFrameTime = currentFrame;
+                frameTimes.record(deltaTime * 1000f);
 
+                profiler.begin(FrameProfiler.INPUT);
                 glfwPollEvents();
                 processInput(window, camera);
+                profiler.end(FrameProfiler.INPUT);
                 glClearColor(0.5f, 0.8f, 0.95f, 1.0f);
                 glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
-                shader.use();
-
-                int texLoc = glGetUniformLocation(shader.getID(), "texture1");
-                int lightLoc = glGetUniformLocation(shader.getID(), "lightDir");
-                int camLoc = glGetUniformLocation(shader.getID(), "cameraPos");
-
-                glUniform1i(texLoc, 0);
-                glUniform3f(lightLoc, -0.5f, -1.0f, -0.3f);
-                glUniform3f(camLoc, camera.getPosition().x, camera.getPosition().y, camera.getPosition().z);
+                renderState.beginFrame();
 
-                Matrix4f view = camera.getViewMatrix();
-                Matrix4f projection = new Matrix4f().perspective((float) Math.toRadians(70.0f), WIDTH / (float) HEIGHT, 0.1f, 1000f);
-                Vector3f rayDir = RayCaster.getRayDirection(WIDTH / 2f, HEIGHT / 2f, WIDTH, HEIGHT, projection, camera.getViewMatrix());
-                Vector3f origin = camera.getPosition();
+                // The simulation moves the player; the camera follows a tick behind, interpolated
+                profiler.begin(FrameProfiler.PICKING);
+                simulation.getLatest().interpolate(System.nanoTime(), camera.getPosition());
+                camera.getViewMatrix(view);
+                RayCaster.getRayDirection(WIDTH / 2f, HEIGHT / 2f, WIDTH, HEIGHT, projection, view, rayScratch, rayDir);
 
+                // Edits go to the simulation as commands: one per click, repeating while held
                 boolean leftClick = glfwGetMouseButton(window, GLFW_MOUSE_BUTTON_LEFT) == GLFW_PRESS;
                 boolean rightClick = glfwGetMouseButton(window, GLFW_MOUSE_BUTTON_RIGHT) == GLFW_PRESS;
-
-                if (leftClick || rightClick) {
-                    for (GameObject obj : new ArrayList<>(world.getObjects())) {
-                        if (rayHitsCube(origin, rayDir, obj.position, 1.0f)) {
-                            if (leftClick) {
-                                world.remove(obj);
-                                System.out.println("Removed: " + obj.position);
-                            } else if (rightClick) {
-                                Vector3f hitNormal = new Vector3f(rayDir).normalize();
-                                Vector3f newBlock = new Vector3f(obj.position).add(hitNormal);
-                                newBlock.set((float) Math.floor(newBlock.x + 0.5f),
-                                        (float) Math.floor(newBlock.y + 0.5f),
-                                        (float) Math.floor(newBlock.z + 0.5f));
-                                if (!world.containsAt(newBlock) && newBlock.distance(camera.getPosition()) > 1.5f) {
-                                    world.add(new GameObject(cubeMesh, newBlock));
-                                    System.out.println("Placed: " + newBlock);
-                                }
-                            }
-                            break;
-                        }
-                    }
+                if (!leftClick && !rightClick) {
+                    nextEditTime = 0;
+                } else if (currentFrame >= nextEditTime) {
+                    simulation.submit(new Simulation.BlockCommand(
+                            camera.getPosition(), rayDir, leftClick ? Blocks.AIR : selectedBlock));
+                    nextEditTime = currentFrame + EDIT_REPEAT_SECONDS;
                 }
+                profiler.end(FrameProfiler.PICKING);
 
-                world.render(view, projection, shader.getID());
+                world.update(camera.getPosition());
+                frameUniforms.update(view, projection, camera.getPosition(), LIGHT_DIR, renderState);
+                world.render(view, projection, shader, renderState);
 
+                profiler.begin(FrameProfiler.DRAW_SUBMISSION);
                 drawCrosshair();
+                profiler.end(FrameProfiler.DRAW_SUBMISSION);
 
                 frames++;
+                cpuNanos += System.nanoTime() - frameStart;
                 if (glfwGetTime() - lastTime >= 1.0) {
-                    glfwSetWindowTitle(window, "3D Engine - FPS: " + frames);
+                    title.setLength(0);
+                    title.append("3D Engine - FPS: ").append(frames)
+                            .append(" | frame p50/p99: ");
+                    appendFixed(title, frameTimes.percentile(50), 1).append('/');
+                    appendFixed(title, frameTimes.percentile(99), 1).append(" ms | draws: ").append(world.getDrawCalls())
+                            .append(world.isInstancing() ? " (instanced)" : " (per object)")
+                            .append(" | sections: ").append(world.getSectionsDrawn()).append(" drawn, ")
+                            .append(world.getSectionsCulled()).append(" culled, ")
+                            .append(world.getSectionsOccluded()).append(" occluded (");
+                    appendFixed(title, world.getOcclusionNanos() / 1e6, 2).append(" ms) | triangles: ").append(world.getTrianglesDrawn())
+                            .append(" | GL calls: ").append(renderState.getCalls())
+                            .append(" (").append(renderState.getSkipped()).append(" skipped) | CPU: ");
+                    appendFixed(title, cpuNanos / 1e6 / frames, 2).append(" ms");
+                    if (DEBUG) {
+                        title.append(" | alloc: ").append(Math.round(profiler.counterMean(FrameProfiler.ALLOCATED_BYTES)))
+                                .append(" B/frame (max ").append(profiler.counterMax(FrameProfiler.ALLOCATED_BYTES)).append(')');
+                    }
+                    glfwSetWindowTitle(window, title);
                     frames = 0;
+                    cpuNanos = 0;
                     lastTime += 1.0;
                 }
 
+                profiler.begin(FrameProfiler.SWAP);
                 glfwSwapBuffers(window);
+                profiler.end(FrameProfiler.SWAP);
+                profiler.endFrame();
             }
 
+            simulation.stop();
+            if (client != null) {
+                client.close();
+            } else {
+                streamer.shutdown();
+                // The simulation may still be finishing a tick if stop() timed out
+                world.getLock().lock();
+                try {
+                    streamer.saveModifiedColumns();
+                } finally {
+                    world.getLock().unlock();
+                }
+                storage.close();
+            }
+            world.cleanup();
             cubeMesh.cleanup();
+            blockTextures.cleanup();
+            frameUniforms.cleanup();
             shader.delete();
             glfwDestroyWindow(window);
             glfwTerminate();
+            if (simulation.getError() != null) System.exit(1);
         } catch (Exception e) {
             e.printStackTrace();
             System.exit(1);
         }
     }
 
+    // The three marker cubes above the spawn point, and EXTRA_OBJECTS more in a
+    // square grid two blocks apart above them
+    private static void addObjects(float y) {
+        world.add(new GameObject(cubeMesh, new Vector3f(0, y, 0)));
+        world.add(new GameObject(cubeMesh, new Vector3f(2, y, 0)));
+        world.add(new GameObject(cubeMesh, new Vector3f(-2, y, 0)));
+        int side = (int) Math.ceil(Math.sqrt(EXTRA_OBJECTS));
+        for (int i = 0; i < EXTRA_OBJECTS; i++) {
+            float x = (i % side - side / 2) * 2, z = (i / side - side / 2) * 2;
+            world.add(new GameObject(cubeMesh, new Vector3f(x, y + 4, z)));
+        }
+    }
+
+    // Writes the profiler's frames to PROFILE_DIRECTORY and prints the per-scope percentiles
+    private static void exportProfile() {
+        Path directory = Paths.get(PROFILE_DIRECTORY);
+        try {
+            Files.createDirectories(directory);
+            try (Writer out = Files.newBufferedWriter(directory.resolve("frames.csv"))) {
+                profiler.writeCsv(out);
+            }
+            try (Writer out = Files.newBufferedWriter(directory.resolve("trace.json"))) {
+                profiler.writeChromeTrace(out);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write the profile: " + e.getMessage());
+            return;
+        }
+        System.out.printf("Profile of %d frames written to %s: frame p50 %.2f ms, p99 %.2f ms%n",
+                profiler.getFrameCount(), directory.toAbsolutePath(),
+                profiler.framePercentileMillis(50), profiler.framePercentileMillis(99));
+        for (int scope = 0; scope < FrameProfiler.SCOPES; scope++) {
+            System.out.printf("  %-16s p50 %6.3f ms  p99 %6.3f ms%n", FrameProfiler.SCOPE_NAMES[scope],
+                    profiler.scopePercentileMillis(scope, 50), profiler.scopePercentileMillis(scope, 99));
+        }
+    }
+
+    // Appends value with a fixed number of decimals, without the garbage String.format makes
+    private static StringBuilder appendFixed(StringBuilder out, double value, int decimals) {
+        long scale = 1;
+        for (int i = 0; i < decimals; i++) scale *= 10;
+        long fixed = Math.round(value * scale);
+        if (fixed < 0) {
+            out.append('-');
+            fixed = -fixed;
+        }
+        out.append(fixed / scale);
+        if (decimals > 0) {
+            out.append('.');
+            long fraction = fixed % scale;
+            for (long digit = scale / 10; digit > 1 && fraction < digit; digit /= 10) out.append('0');
+            out.append(fraction);
+        }
+        return out;
+    }
+
     private static void drawCrosshair() {
         glMatrixMode(GL_PROJECTION);
         glPushMatrix();
@@ -170,7 +327,9 @@ public class Main {
         glMatrixMode(GL_MODELVIEW);
     }
 
-    private static boolean rayHitsCube(Vector3f origin, Vector3f dir, Vector3f center, float size) {
+    // Slab test against one cube; picking now walks the voxel grid with RayCaster.pickBlock(),
+    // this is kept as the baseline for PickingBenchmark
+    static boolean rayHitsCube(Vector3f origin, Vector3f dir, Vector3f center, float size) {
         Vector3f min = new Vector3f(center).sub(new Vector3f(size / 2f));
         Vector3f max = new Vector3f(center).add(new Vector3f(size / 2f));
 
@@ -193,23 +352,51 @@ public class Main {
         return !(tMin > tzMax || tzMin > tMax);
     }
 
+    // Movement is sampled here and applied by the simulation at its fixed rate
     private static void processInput(long window, Camera camera) {
-        float cameraSpeed = camera.getSpeed() * deltaTime;
-
-        if (glfwGetKey(window, GLFW_KEY_W) == GLFW_PRESS)
-            camera.move(new Vector3f(camera.getFront()).mul(cameraSpeed));
-        if (glfwGetKey(window, GLFW_KEY_S) == GLFW_PRESS)
-            camera.move(new Vector3f(camera.getFront()).mul(-cameraSpeed));
-        if (glfwGetKey(window, GLFW_KEY_A) == GLFW_PRESS)
-            camera.move(new Vector3f(camera.getRight()).mul(-cameraSpeed));
-        if (glfwGetKey(window, GLFW_KEY_D) == GLFW_PRESS)
-            camera.move(new Vector3f(camera.getRight()).mul(cameraSpeed));
-
-        // Vertical movement
-        if (glfwGetKey(window, GLFW_KEY_SPACE) == GLFW_PRESS)
-            camera.move(new Vector3f(0, cameraSpeed, 0));
-        if (glfwGetKey(window, GLFW_KEY_LEFT_SHIFT) == GLFW_PRESS)
-            camera.move(new Vector3f(0, -cameraSpeed, 0));
+        float forward = axis(window, GLFW_KEY_W, GLFW_KEY_S);
+        float sideways = axis(window, GLFW_KEY_D, GLFW_KEY_A);
+        float up = axis(window, GLFW_KEY_SPACE, GLFW_KEY_LEFT_SHIFT);
+        simulation.setInput(forward, sideways, up, camera.getYaw(), camera.getPitch());
+
+        // F switches between walking (Space jumps) and flying (Space and Shift move up and down)
+        boolean flyDown = glfwGetKey(window, GLFW_KEY_F) == GLFW_PRESS;
+        if (flyDown && !flyKeyDown) {
+            simulation.setFlying(!simulation.isFlying());
+        }
+        flyKeyDown = flyDown;
+
+        // I toggles instanced drawing of free-standing objects, to compare with one draw per object
+        boolean toggleDown = glfwGetKey(window, GLFW_KEY_I) == GLFW_PRESS;
+        if (toggleDown && !toggleKeyDown) {
+            world.setInstancing(!world.isInstancing());
+        }
+        toggleKeyDown = toggleDown;
+
+        // O toggles occlusion culling of hidden chunk sections
+        boolean occlusionDown = glfwGetKey(window, GLFW_KEY_O) == GLFW_PRESS;
+        if (occlusionDown && !occlusionKeyDown) {
+            world.setOcclusionCulling(!world.isOcclusionCulling());
+        }
+        occlusionKeyDown = occlusionDown;
+
+        // P exports the recent frames' profile
+        boolean profileDown = glfwGetKey(window, GLFW_KEY_P) == GLFW_PRESS;
+        if (profileDown && !profileKeyDown) {
+            exportProfile();
+        }
+        profileKeyDown = profileDown;
+
+        for (int i = 0; i < PLACEABLE.length; i++) {
+            if (glfwGetKey(window, GLFW_KEY_1 + i) == GLFW_PRESS) selectedBlock = PLACEABLE[i];
+        }
+    }
+
+    private static float axis(long window, int positiveKey, int negativeKey) {
+        float value = 0;
+        if (glfwGetKey(window, positiveKey) == GLFW_PRESS) value += 1;
+        if (glfwGetKey(window, negativeKey) == GLFW_PRESS) value -= 1;
+        return value;
     }
 
     private static void initWindow() {
@@ -0,0 +1,83 @@
+package engine;
+
+import java.util.Random;
+
+// Seeded 2D gradient (Perlin) noise. The same seed always gives the same values,
+// and instances are immutable, so one generator can be shared between threads.
+public class Noise {
+    private final int[] perm = new int[512];
+
+    public Noise(long seed) {
+        int[] p = new int[256];
+        for (int i = 0; i < 256; i++) {
+            p[i] = i;
+        }
+        Random rng = new Random(seed);
+        for (int i = 255; i > 0; i--) {
+            int j = rng.nextInt(i + 1);
+            int tmp = p[i];
+            p[i] = p[j];
+            p[j] = tmp;
+        }
+        for (int i = 0; i < 512; i++) {
+            perm[i] = p[i & 255];
+        }
+    }
+
+    // Roughly in [-1, 1]
+    public double noise(double x, double z) {
+        int xi = (int) Math.floor(x);
+        int zi = (int) Math.floor(z);
+        double xf = x - xi;
+        double zf = z - zi;
+        xi &= 255;
+        zi &= 255;
+
+        double u = fade(xf);
+        double v = fade(zf);
+        int aa = perm[perm[xi] + zi];
+        int ab = perm[perm[xi] + zi + 1];
+        int ba = perm[perm[xi + 1] + zi];
+        int bb = perm[perm[xi + 1] + zi + 1];
+
+        double x1 = lerp(u, grad(aa, xf, zf), grad(ba, xf - 1, zf));
+        double x2 = lerp(u, grad(ab, xf, zf - 1), grad(bb, xf - 1, zf - 1));
+        return lerp(v, x1, x2);
+    }
+
+    // Fractal sum of octaves, normalized to roughly [-1, 1]
+    public double fbm(double x, double z, int octaves) {
+        double sum = 0;
+        double amplitude = 1;
+        double frequency = 1;
+        double norm = 0;
+        for (int i = 0; i < octaves; i++) {
+            sum += amplitude * noise(x * frequency, z * frequency);
+            norm += amplitude;
+            amplitude *= 0.5;
+            frequency *= 2;
+        }
+        return sum / norm;
+    }
+
+    private static double fade(double t) {
+        return t * t * t * (t * (t * 6 - 15) + 10);
+    }
+
+    private static double lerp(double t, double a, double b) {
+        return a + t * (b - a);
+    }
+
+    private static double grad(int hash, double x, double z) {
+        switch (hash & 7) {
+            case 0: return x + z;
+            case 1: return -x + z;
+            case 2: return x - z;
+            case 3: return -x - z;
+            case 4: return x;
+            case 5: return -x;
+            case 6: return z;
+            default: return -z;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package engine;
+
+// Finds the sections that may be visible from the camera by a breadth-first
+// search over the section grid (Checchi's "advanced cave culling").
+//
+// The search starts in the camera's section and steps into a neighbour only
+// when the current section connects the face it was entered through to the
+// face it leaves through (see SectionVisibility), the neighbour is inside
+// the frustum, and the step does not turn back against a direction already
+// taken. Everything else is occluded. The search covers a fixed grid of
+// radius columns around the camera and the world's section height, so it
+// allocates nothing per frame. Pure CPU; no GL calls.
+public class OcclusionCuller {
+    // Face-to-face connectivity of a section; SectionVisibility.ALL when unknown or empty
+    public interface Connectivity {
+        long visibility(int sx, int sy, int sz);
+    }
+
+    private final int radius;
+    private final int side;
+    private final int height = World.MAX_SECTION_Y - World.MIN_SECTION_Y + 1;
+
+    // Per cell: frame it was reached in, face it was entered through, directions taken to get there
+    private final int[] reached;
+    private final byte[] entryFace;
+    private final byte[] directions;
+    private final int[] queue;
+    private int frame;
+    private int originX, originZ;
+    private int visitedCount;
+
+    public OcclusionCuller(int radius) {
+        this.radius = radius;
+        this.side = 2 * radius + 1;
+        int cells = side * side * height;
+        reached = new int[cells];
+        entryFace = new byte[cells];
+        directions = new byte[cells];
+        queue = new int[cells];
+    }
+
+    // Runs the search from the camera's section; returns the number of sections reached
+    public int search(int cameraSx, int cameraSy, int cameraSz, Frustum frustum, Connectivity connectivity) {
+        frame++;
+        originX = cameraSx - radius;
+        originZ = cameraSz - radius;
+        int startY = Math.max(World.MIN_SECTION_Y, Math.min(World.MAX_SECTION_Y, cameraSy));
+
+        int head = 0, tail = 0;
+        int start = cell(cameraSx, startY, cameraSz);
+        reached[start] = frame;
+        entryFace[start] = -1;
+        directions[start] = 0;
+        queue[tail++] = start;
+
+        while (head < tail) {
+            int current = queue[head++];
+            int sx = originX + current % side;
+            int sz = originZ + (current / side) % side;
+            int sy = World.MIN_SECTION_Y + current / (side * side);
+            int entry = entryFace[current];
+            // The camera's own section can be left through any face
+            long visibility = entry < 0 ? SectionVisibility.ALL : connectivity.visibility(sx, sy, sz);
+
+            for (int face = 0; face < 6; face++) {
+                if ((directions[current] & (1 << SectionVisibility.opposite(face))) != 0) continue;
+                if (entry >= 0 && !SectionVisibility.connects(visibility, entry, face)) continue;
+
+                int nx = sx + SectionVisibility.FACE_DX[face];
+                int ny = sy + SectionVisibility.FACE_DY[face];
+                int nz = sz + SectionVisibility.FACE_DZ[face];
+                if (!inGrid(nx, ny, nz)) continue;
+                int next = cell(nx, ny, nz);
+                if (reached[next] == frame) continue;
+
+                float minX = nx * ChunkSection.SIZE - 0.5f;
+                float minY = ny * ChunkSection.SIZE - 0.5f;
+                float minZ = nz * ChunkSection.SIZE - 0.5f;
+                if (!frustum.intersectsAab(minX, minY, minZ,
+                        minX + ChunkSection.SIZE, minY + ChunkSection.SIZE, minZ + ChunkSection.SIZE)) continue;
+
+                reached[next] = frame;
+                entryFace[next] = (byte) SectionVisibility.opposite(face);
+                directions[next] = (byte) (directions[current] | (1 << face));
+                queue[tail++] = next;
+            }
+        }
+        visitedCount = tail;
+        return tail;
+    }
+
+    // Whether the last search reached the section
+    public boolean isVisible(int sx, int sy, int sz) {
+        return inGrid(sx, sy, sz) && reached[cell(sx, sy, sz)] == frame;
+    }
+
+    public int getVisitedCount() {
+        return visitedCount;
+    }
+
+    private boolean inGrid(int sx, int sy, int sz) {
+        int x = sx - originX, z = sz - originZ;
+        return x >= 0 && x < side && z >= 0 && z < side
+                && sy >= World.MIN_SECTION_Y && sy <= World.MAX_SECTION_Y;
+    }
+
+    private int cell(int sx, int sy, int sz) {
+        return ((sy - World.MIN_SECTION_Y) * side + (sz - originZ)) * side + (sx - originX);
+    }
+}
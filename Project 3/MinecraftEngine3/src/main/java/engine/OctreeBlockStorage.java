@@ -0,0 +1,359 @@
+package engine;
+
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+
+// Block storage as a sparse voxel octree with shared subtrees (a DAG), for
+// large regions that are mostly uniform and rarely edited.
+//
+// The world is split into ROOT_SIZE^3 cubes, each the root of an octree
+// found through a hash map. A node has eight children, in octant order
+// x | y << 1 | z << 2. A child is either another node or a leaf holding a
+// block, and a leaf stands for its whole octant: a 64^3 cube of air or of
+// stone is a single leaf. Nodes are interned, so a subtree that occurs
+// many times, anywhere in the world, is stored once.
+//
+// Interned nodes are immutable. An edit builds new nodes along the path
+// from the root to the block and leaves the old ones behind; compact()
+// drops the unreachable ones and runs by itself once they outnumber the
+// reachable ones.
+public class OctreeBlockStorage implements BlockStorage {
+    public static final int ROOT_BITS = 6;
+    public static final int ROOT_SIZE = 1 << ROOT_BITS;
+    private static final int SECTION_BITS = 4; // log2 of ChunkSection.SIZE
+    private static final int MIN_GARBAGE = 1 << 16; // nodes
+
+    // Child references: n >= 0 is node n, whose children are nodes[n * 8 .. n * 8 + 7];
+    // a negative reference is a leaf holding block -1 - ref
+    private static final int AIR = leaf(Blocks.AIR);
+
+    private int[] nodes = new int[8 * 1024];
+    private int nodeCount;
+    private int liveAfterCompact;
+    private int[] table = new int[2048]; // interning: node + 1, or 0 for an empty slot
+    private final LongLongMap roots = new LongLongMap(64); // keyed as ChunkedBlockStorage.sectionKey of the root cube
+
+    // Last root looked up; most accesses hit the same root repeatedly
+    private long cachedKey = Long.MIN_VALUE;
+    private int cachedRoot = AIR;
+
+    // Scratch children per level for building and editing; index is the level's log2 size
+    private final int[][] scratch = new int[ROOT_BITS + 1][8];
+    private int lastRaySteps;
+
+    // Converts a chunked storage, section by section
+    public static OctreeBlockStorage fromChunked(ChunkedBlockStorage chunked) {
+        OctreeBlockStorage octree = new OctreeBlockStorage();
+        chunked.getSections().forEach((key, section) ->
+                octree.putSection(ChunkedBlockStorage.keyX(key), ChunkedBlockStorage.keyY(key), ChunkedBlockStorage.keyZ(key), section));
+        octree.compact();
+        return octree;
+    }
+
+    public ChunkedBlockStorage toChunked() {
+        ChunkedBlockStorage chunked = new ChunkedBlockStorage();
+        forEachRoot((rx, ry, rz) -> {
+            int perRoot = ROOT_SIZE / ChunkSection.SIZE;
+            for (int sy = 0; sy < perRoot; sy++) {
+                for (int sz = 0; sz < perRoot; sz++) {
+                    for (int sx = 0; sx < perRoot; sx++) {
+                        int x = rx * perRoot + sx, y = ry * perRoot + sy, z = rz * perRoot + sz;
+                        ChunkSection section = getSection(x, y, z);
+                        if (section != null) chunked.putSection(x, y, z, section);
+                    }
+                }
+            }
+        });
+        return chunked;
+    }
+
+    @Override
+    public int getBlock(int x, int y, int z) {
+        int ref = root(x, y, z);
+        for (int bit = ROOT_BITS - 1; ref >= 0; bit--) {
+            ref = nodes[ref * 8 + octant(x, y, z, bit)];
+        }
+        return -1 - ref;
+    }
+
+    @Override
+    public int setBlock(int x, int y, int z, int block) {
+        int previous = getBlock(x, y, z);
+        if (previous != block) replace(x, y, z, 0, leaf(block));
+        return previous;
+    }
+
+    // A copy of the section's blocks, or null if it is all air
+    public ChunkSection getSection(int sx, int sy, int sz) {
+        int x = sx * ChunkSection.SIZE, y = sy * ChunkSection.SIZE, z = sz * ChunkSection.SIZE;
+        int ref = root(x, y, z);
+        for (int bit = ROOT_BITS - 1; ref >= 0 && bit >= SECTION_BITS; bit--) {
+            ref = nodes[ref * 8 + octant(x, y, z, bit)];
+        }
+        if (ref == AIR) return null;
+        ChunkSection section = new ChunkSection();
+        expand(ref, SECTION_BITS, 0, 0, 0, section);
+        return section;
+    }
+
+    // Replaces a section's blocks; null clears it to air
+    public void putSection(int sx, int sy, int sz, ChunkSection section) {
+        int subtree = section == null || section.isEmpty() ? AIR : build(section, SECTION_BITS, 0, 0, 0);
+        replace(sx * ChunkSection.SIZE, sy * ChunkSection.SIZE, sz * ChunkSection.SIZE, SECTION_BITS, subtree);
+    }
+
+    // Same contract as RayCaster.pickBlock(), but steps over a whole uniform
+    // node of air at a time instead of cell by cell
+    public boolean pickBlock(Vector3f origin, Vector3f dir, float maxDistance, BlockHit hit) {
+        int x = (int) Math.floor(origin.x + 0.5f);
+        int y = (int) Math.floor(origin.y + 0.5f);
+        int z = (int) Math.floor(origin.z + 0.5f);
+        int normalX = 0, normalY = 0, normalZ = 0;
+        float distance = 0f;
+        int steps = 0;
+        while (true) {
+            steps++;
+            int ref = root(x, y, z);
+            int bits = ROOT_BITS;
+            while (ref >= 0) {
+                bits--;
+                ref = nodes[ref * 8 + octant(x, y, z, bits)];
+            }
+            if (ref != AIR) {
+                hit.x = x;
+                hit.y = y;
+                hit.z = z;
+                hit.normalX = normalX;
+                hit.normalY = normalY;
+                hit.normalZ = normalZ;
+                hit.block = -1 - ref;
+                hit.distance = distance;
+                lastRaySteps = steps;
+                return true;
+            }
+
+            // Leave the empty cube of cells [base, base + size) through its nearest face
+            int size = 1 << bits;
+            int baseX = x >> bits << bits, baseY = y >> bits << bits, baseZ = z >> bits << bits;
+            float exitX = exit(origin.x, dir.x, baseX, size);
+            float exitY = exit(origin.y, dir.y, baseY, size);
+            float exitZ = exit(origin.z, dir.z, baseZ, size);
+            if (exitX <= exitY && exitX <= exitZ) {
+                distance = exitX;
+                x = dir.x > 0 ? baseX + size : baseX - 1;
+                y = clampedCell(origin.y, dir.y, distance, baseY, size);
+                z = clampedCell(origin.z, dir.z, distance, baseZ, size);
+                normalX = dir.x > 0 ? -1 : 1;
+                normalY = normalZ = 0;
+            } else if (exitY <= exitZ) {
+                distance = exitY;
+                y = dir.y > 0 ? baseY + size : baseY - 1;
+                x = clampedCell(origin.x, dir.x, distance, baseX, size);
+                z = clampedCell(origin.z, dir.z, distance, baseZ, size);
+                normalY = dir.y > 0 ? -1 : 1;
+                normalX = normalZ = 0;
+            } else {
+                distance = exitZ;
+                z = dir.z > 0 ? baseZ + size : baseZ - 1;
+                x = clampedCell(origin.x, dir.x, distance, baseX, size);
+                y = clampedCell(origin.y, dir.y, distance, baseY, size);
+                normalZ = dir.z > 0 ? -1 : 1;
+                normalX = normalY = 0;
+            }
+            if (distance > maxDistance) { // also ends a zero-length direction
+                lastRaySteps = steps;
+                return false;
+            }
+        }
+    }
+
+    // Nodes visited by the last pickBlock(), for comparison with a cell-by-cell walk
+    public int getLastRaySteps() {
+        return lastRaySteps;
+    }
+
+    // Drops nodes no longer reachable from any root and rebuilds the interning table
+    public void compact() {
+        int[] remap = new int[nodeCount];
+        Arrays.fill(remap, -1);
+        int[] old = nodes;
+        nodes = new int[Math.max(8 * 1024, Integer.highestOneBit(Math.max(1, nodeCount)) * 8)];
+        nodeCount = 0;
+        table = new int[2048];
+        forEachRoot((rx, ry, rz) -> {
+            long key = ChunkedBlockStorage.sectionKey(rx, ry, rz);
+            roots.put(key, copy(old, (int) roots.get(key, AIR), remap));
+        });
+        cachedKey = Long.MIN_VALUE;
+        liveAfterCompact = nodeCount;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getRootCount() {
+        return roots.size();
+    }
+
+    // Approximate heap footprint of the node pool, interning table and root map
+    public long memoryBytes() {
+        return 16 + 4L * nodes.length + 16 + 4L * table.length + 16 + 16L * Math.max(64, roots.size() * 2);
+    }
+
+    private static int leaf(int block) {
+        return -1 - block;
+    }
+
+    private static int octant(int x, int y, int z, int bit) {
+        return (x >> bit & 1) | (y >> bit & 1) << 1 | (z >> bit & 1) << 2;
+    }
+
+    // Ray distance to the far face of [base - 0.5, base + size - 0.5] on one axis
+    private static float exit(float origin, float dir, int base, int size) {
+        if (dir > 0) return (base + size - 0.5f - origin) / dir;
+        if (dir < 0) return (base - 0.5f - origin) / dir;
+        return Float.POSITIVE_INFINITY;
+    }
+
+    // The cell the ray is in at the distance, kept inside the node so rounding cannot skip a cell
+    private static int clampedCell(float origin, float dir, float distance, int base, int size) {
+        int cell = (int) Math.floor(origin + dir * distance + 0.5f);
+        return Math.max(base, Math.min(base + size - 1, cell));
+    }
+
+    private int root(int x, int y, int z) {
+        long key = ChunkedBlockStorage.sectionKey(x >> ROOT_BITS, y >> ROOT_BITS, z >> ROOT_BITS);
+        if (key != cachedKey) {
+            cachedRoot = (int) roots.get(key, AIR);
+            cachedKey = key;
+        }
+        return cachedRoot;
+    }
+
+    // Puts value in place of the 2^bits cube containing the position
+    private void replace(int x, int y, int z, int bits, int value) {
+        long key = ChunkedBlockStorage.sectionKey(x >> ROOT_BITS, y >> ROOT_BITS, z >> ROOT_BITS);
+        int root = replace((int) roots.get(key, AIR), ROOT_BITS, x, y, z, bits, value);
+        if (root == AIR) {
+            roots.remove(key);
+        } else {
+            roots.put(key, root);
+        }
+        if (key == cachedKey) cachedRoot = root;
+        if (nodeCount > 2 * liveAfterCompact + MIN_GARBAGE) compact();
+    }
+
+    private int replace(int ref, int level, int x, int y, int z, int bits, int value) {
+        if (level == bits || ref == value && ref < 0) return value;
+        int[] children = scratch[level];
+        if (ref < 0) {
+            Arrays.fill(children, ref);
+        } else {
+            System.arraycopy(nodes, ref * 8, children, 0, 8);
+        }
+        int i = octant(x, y, z, level - 1);
+        children[i] = replace(children[i], level - 1, x, y, z, bits, value);
+        return combine(children);
+    }
+
+    // Subtree for the 2^level cube of a section at the local position
+    private int build(ChunkSection section, int level, int lx, int ly, int lz) {
+        if (level == 0) return leaf(section.get(lx, ly, lz));
+        int half = 1 << (level - 1);
+        int[] children = scratch[level];
+        for (int i = 0; i < 8; i++) {
+            children[i] = build(section, level - 1, lx + (i & 1) * half, ly + (i >> 1 & 1) * half, lz + (i >> 2) * half);
+        }
+        return combine(children);
+    }
+
+    private void expand(int ref, int level, int lx, int ly, int lz, ChunkSection section) {
+        if (ref < 0) {
+            if (ref == AIR) return;
+            int size = 1 << level;
+            for (int y = ly; y < ly + size; y++)
+                for (int z = lz; z < lz + size; z++)
+                    for (int x = lx; x < lx + size; x++) section.set(x, y, z, -1 - ref);
+            return;
+        }
+        int half = 1 << (level - 1);
+        for (int i = 0; i < 8; i++) {
+            expand(nodes[ref * 8 + i], level - 1, lx + (i & 1) * half, ly + (i >> 1 & 1) * half, lz + (i >> 2) * half, section);
+        }
+    }
+
+    // A leaf if all eight children are the same leaf, otherwise the interned node
+    private int combine(int[] children) {
+        int first = children[0];
+        if (first < 0) {
+            boolean uniform = true;
+            for (int i = 1; i < 8 && uniform; i++) uniform = children[i] == first;
+            if (uniform) return first;
+        }
+        return intern(children);
+    }
+
+    private int intern(int[] children) {
+        int mask = table.length - 1;
+        for (int i = hash(children) & mask; ; i = (i + 1) & mask) {
+            int entry = table[i];
+            if (entry == 0) break;
+            if (Arrays.equals(nodes, (entry - 1) * 8, entry * 8, children, 0, 8)) return entry - 1;
+        }
+        if (nodes.length < (nodeCount + 1) * 8) nodes = Arrays.copyOf(nodes, nodes.length * 2);
+        int node = nodeCount++;
+        System.arraycopy(children, 0, nodes, node * 8, 8);
+        if (nodeCount * 2 > table.length) {
+            rehash(table.length * 2);
+        } else {
+            insert(node);
+        }
+        return node;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        for (int node = 0; node < nodeCount; node++) insert(node);
+    }
+
+    private void insert(int node) {
+        int mask = table.length - 1;
+        int i = hash(nodes, node * 8) & mask;
+        while (table[i] != 0) i = (i + 1) & mask;
+        table[i] = node + 1;
+    }
+
+    // Copies a subtree of the old pool into the current one, each node once
+    private int copy(int[] old, int ref, int[] remap) {
+        if (ref < 0) return ref;
+        if (remap[ref] >= 0) return remap[ref];
+        int[] children = new int[8];
+        for (int i = 0; i < 8; i++) children[i] = copy(old, old[ref * 8 + i], remap);
+        int node = intern(children);
+        remap[ref] = node;
+        return node;
+    }
+
+    private static int hash(int[] children) {
+        return hash(children, 0);
+    }
+
+    private static int hash(int[] values, int offset) {
+        int h = 0;
+        for (int i = offset; i < offset + 8; i++) h = (h ^ values[i]) * 0x9E3779B1;
+        return h ^ (h >>> 16);
+    }
+
+    private interface RootVisitor {
+        void visit(int rx, int ry, int rz);
+    }
+
+    private void forEachRoot(RootVisitor visitor) {
+        long[] keys = roots.keys();
+        for (long key : keys) {
+            visitor.visit(ChunkedBlockStorage.keyX(key), ChunkedBlockStorage.keyY(key), ChunkedBlockStorage.keyZ(key));
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package engine;
+
+import org.joml.Vector3f;
+
+// The player as an axis-aligned box moving through the voxel grid, with
+// gravity, jumping and stepping up one block.
+//
+// Each step sweeps the box along Y, then X, then Z. On each axis only the
+// cells the box passes through are read, nearest first, and the move is cut
+// short at the first solid one, so a step reads a bounded number of cells
+// (about 2 x 3 x 4 per axis at walking speed) however large the world is.
+// Speeds are capped at TERMINAL_SPEED, which keeps that bound for falls too
+// and means the box never tunnels through a block.
+//
+// Blocks are unit cubes centred on integer coordinates; any block that is
+// not air is solid. 'position' is the middle of the box's bottom face.
+public class PlayerPhysics {
+    public static final float HALF_WIDTH = 0.3f;
+    public static final float HEIGHT = 1.8f;
+    public static final float EYE_HEIGHT = 1.62f;
+    public static final float GRAVITY = 32f; // blocks/s/s
+    public static final float JUMP_SPEED = 9f; // clears a bit over one block
+    public static final float TERMINAL_SPEED = 60f;
+    public static final float STEP_HEIGHT = 1f; // a full block: walking into a one-block ledge climbs it
+    // Gap kept between the box and the faces it rests against, so touching is not overlapping
+    private static final float EPSILON = 1e-3f;
+
+    private final Vector3f position = new Vector3f();
+    private final Vector3f velocity = new Vector3f();
+    private boolean onGround;
+    private boolean flying;
+    private int cellsRead;
+
+    // Scratch for step-up, which tries the move twice
+    private final Vector3f plainPosition = new Vector3f();
+
+    public PlayerPhysics(Vector3f feet) {
+        position.set(feet);
+    }
+
+    public Vector3f getPosition() {
+        return position;
+    }
+
+    public Vector3f getVelocity() {
+        return velocity;
+    }
+
+    public Vector3f getEye(Vector3f dest) {
+        return dest.set(position.x, position.y + EYE_HEIGHT, position.z);
+    }
+
+    public boolean isOnGround() {
+        return onGround;
+    }
+
+    // Flying turns off gravity; the box still collides
+    public void setFlying(boolean flying) {
+        this.flying = flying;
+        if (flying) velocity.y = 0;
+    }
+
+    public boolean isFlying() {
+        return flying;
+    }
+
+    // Whether the block at x, y, z would overlap the box, e.g. before placing one there
+    public boolean intersectsBlock(int x, int y, int z) {
+        return x >= low(position.x - HALF_WIDTH) && x <= high(position.x + HALF_WIDTH)
+                && y >= low(position.y) && y <= high(position.y + HEIGHT)
+                && z >= low(position.z - HALF_WIDTH) && z <= high(position.z + HALF_WIDTH);
+    }
+
+    // Cells read by the last step()
+    public int getCellsRead() {
+        return cellsRead;
+    }
+
+    // Advances seconds of time. Horizontal velocity is set from moveX/moveZ (blocks/s);
+    // vertically, 'up' is a jump when walking and a climb speed when flying.
+    public void step(BlockStorage blocks, float seconds, float moveX, float moveZ, float up) {
+        cellsRead = 0;
+        velocity.x = clamp(moveX);
+        velocity.z = clamp(moveZ);
+        if (flying) {
+            velocity.y = clamp(up);
+        } else {
+            if (onGround && up > 0) velocity.y = JUMP_SPEED;
+            velocity.y = clamp(velocity.y - GRAVITY * seconds);
+        }
+
+        float dx = velocity.x * seconds, dy = velocity.y * seconds, dz = velocity.z * seconds;
+        float startX = position.x, startY = position.y, startZ = position.z;
+        boolean canStep = onGround && !flying && velocity.y <= 0;
+        move(blocks, dx, dy, dz);
+
+        // Blocked sideways while walking: try again from a block higher, and keep that if
+        // it went further and landed back on something no more than STEP_HEIGHT up
+        float movedSq = horizontalDistanceSq(startX, startZ);
+        if (canStep && movedSq < (dx * dx + dz * dz) * 0.999f) {
+            plainPosition.set(position);
+            position.set(startX, startY, startZ);
+            float raised = sweepY(blocks, STEP_HEIGHT);
+            position.y += raised;
+            position.x += sweepX(blocks, dx);
+            position.z += sweepZ(blocks, dz);
+            float drop = sweepY(blocks, -raised);
+            position.y += drop;
+            if (drop > -raised && horizontalDistanceSq(startX, startZ) > movedSq) {
+                onGround = true;
+                velocity.set(dx / seconds, 0, dz / seconds);
+            } else {
+                position.set(plainPosition);
+            }
+        }
+    }
+
+    private void move(BlockStorage blocks, float dx, float dy, float dz) {
+        float movedY = sweepY(blocks, dy);
+        position.y += movedY;
+        onGround = dy < 0 && movedY > dy;
+        if (movedY != dy) velocity.y = 0;
+
+        float movedX = sweepX(blocks, dx);
+        position.x += movedX;
+        if (movedX != dx) velocity.x = 0;
+
+        float movedZ = sweepZ(blocks, dz);
+        position.z += movedZ;
+        if (movedZ != dz) velocity.z = 0;
+    }
+
+    // How far the box can move along each axis, up to d, before touching a solid cell
+    private float sweepX(BlockStorage blocks, float d) {
+        if (d == 0) return 0;
+        int minY = low(position.y), maxY = high(position.y + HEIGHT);
+        int minZ = low(position.z - HALF_WIDTH), maxZ = high(position.z + HALF_WIDTH);
+        if (d > 0) {
+            float face = position.x + HALF_WIDTH;
+            for (int x = ahead(face), last = high(face + d); x <= last; x++) {
+                if (solidSlab(blocks, x, minY, maxY, minZ, maxZ, 0)) return Math.min(d, x - 0.5f - face - EPSILON);
+            }
+        } else {
+            float face = position.x - HALF_WIDTH;
+            for (int x = behind(face), last = low(face + d); x >= last; x--) {
+                if (solidSlab(blocks, x, minY, maxY, minZ, maxZ, 0)) return Math.max(d, x + 0.5f - face + EPSILON);
+            }
+        }
+        return d;
+    }
+
+    private float sweepY(BlockStorage blocks, float d) {
+        if (d == 0) return 0;
+        int minX = low(position.x - HALF_WIDTH), maxX = high(position.x + HALF_WIDTH);
+        int minZ = low(position.z - HALF_WIDTH), maxZ = high(position.z + HALF_WIDTH);
+        if (d > 0) {
+            float face = position.y + HEIGHT;
+            for (int y = ahead(face), last = high(face + d); y <= last; y++) {
+                if (solidSlab(blocks, y, minX, maxX, minZ, maxZ, 1)) return Math.min(d, y - 0.5f - face - EPSILON);
+            }
+        } else {
+            float face = position.y;
+            for (int y = behind(face), last = low(face + d); y >= last; y--) {
+                if (solidSlab(blocks, y, minX, maxX, minZ, maxZ, 1)) return Math.max(d, y + 0.5f - face + EPSILON);
+            }
+        }
+        return d;
+    }
+
+    private float sweepZ(BlockStorage blocks, float d) {
+        if (d == 0) return 0;
+        int minX = low(position.x - HALF_WIDTH), maxX = high(position.x + HALF_WIDTH);
+        int minY = low(position.y), maxY = high(position.y + HEIGHT);
+        if (d > 0) {
+            float face = position.z + HALF_WIDTH;
+            for (int z = ahead(face), last = high(face + d); z <= last; z++) {
+                if (solidSlab(blocks, z, minX, maxX, minY, maxY, 2)) return Math.min(d, z - 0.5f - face - EPSILON);
+            }
+        } else {
+            float face = position.z - HALF_WIDTH;
+            for (int z = behind(face), last = low(face + d); z >= last; z--) {
+                if (solidSlab(blocks, z, minX, maxX, minY, maxY, 2)) return Math.max(d, z + 0.5f - face + EPSILON);
+            }
+        }
+        return d;
+    }
+
+    // Any solid cell in the layer at 'along' on the given axis (0 = x, 1 = y, 2 = z),
+    // over the box's cells a0..a1 and b0..b1 on the other two axes in x, y, z order
+    private boolean solidSlab(BlockStorage blocks, int along, int a0, int a1, int b0, int b1, int axis) {
+        for (int a = a0; a <= a1; a++) {
+            for (int b = b0; b <= b1; b++) {
+                cellsRead++;
+                int block = axis == 0 ? blocks.getBlock(along, a, b)
+                        : axis == 1 ? blocks.getBlock(a, along, b)
+                        : blocks.getBlock(a, b, along);
+                if (Blocks.isSolid(block)) return true;
+            }
+        }
+        return false;
+    }
+
+    // Lowest and highest cell a span starting or ending at c overlaps; a span that only
+    // touches a cell's face (within EPSILON) does not overlap it
+    private static int low(float c) {
+        return (int) Math.floor(c + 0.5f + EPSILON / 2);
+    }
+
+    private static int high(float c) {
+        return (int) Math.ceil(c + 0.5f - EPSILON / 2) - 1;
+    }
+
+    // First cell wholly past a face moving up the axis, and moving down it
+    private static int ahead(float face) {
+        return (int) Math.ceil(face + 0.5f - EPSILON / 2);
+    }
+
+    private static int behind(float face) {
+        return (int) Math.floor(face - 0.5f + EPSILON / 2);
+    }
+
+    private float horizontalDistanceSq(float fromX, float fromZ) {
+        float x = position.x - fromX, z = position.z - fromZ;
+        return x * x + z * z;
+    }
+
+    private static float clamp(float speed) {
+        return Math.max(-TERMINAL_SPEED, Math.min(TERMINAL_SPEED, speed));
+    }
+}
@@ -6,20 +6,80 @@ import org.joml.Matrix4f;
 public class RayCaster {
 
     public static Vector3f getRayDirection(float mouseX, float mouseY, int width, int height, Matrix4f projection, Matrix4f view) {
+        return getRayDirection(mouseX, mouseY, width, height, projection, view, new Matrix4f(), new Vector3f());
+    }
+
+    // As above without allocating: scratch receives the inverted matrices, dest the direction
+    public static Vector3f getRayDirection(float mouseX, float mouseY, int width, int height,
+                                           Matrix4f projection, Matrix4f view, Matrix4f scratch, Vector3f dest) {
         // Convert mouse coordinates to NDC
         float x = (2.0f * mouseX) / width - 1.0f;
         float y = 1.0f - (2.0f * mouseY) / height;
-        Vector3f rayNDC = new Vector3f(x, y, -1.0f);
+        dest.set(x, y, -1.0f);
 
         // Convert to eye space
-        Vector3f rayClip = new Vector3f(rayNDC.x, rayNDC.y, -1.0f);
-        Matrix4f invProj = new Matrix4f(projection).invert();
-        Vector3f rayEye = invProj.transformDirection(rayClip);
+        projection.invert(scratch).transformDirection(dest);
 
         // Convert to world space
-        Matrix4f invView = new Matrix4f(view).invert();
-        Vector3f rayWorld = invView.transformDirection(rayEye).normalize();
+        return view.invert(scratch).transformDirection(dest).normalize();
+    }
+
+    // Walks the grid cells along the ray (Amanatides & Woo) and stops at the first
+    // non-air block within maxDistance. Blocks are unit cubes centred on integer
+    // coordinates. Visits at most about 3 * maxDistance cells, however big the world is.
+    // dir does not need to be normalized; distances are in units of its length.
+    public static boolean pickBlock(BlockStorage blocks, Vector3f origin, Vector3f dir, float maxDistance, BlockHit hit) {
+        int x = (int) Math.floor(origin.x + 0.5f);
+        int y = (int) Math.floor(origin.y + 0.5f);
+        int z = (int) Math.floor(origin.z + 0.5f);
+        int stepX = dir.x > 0 ? 1 : dir.x < 0 ? -1 : 0;
+        int stepY = dir.y > 0 ? 1 : dir.y < 0 ? -1 : 0;
+        int stepZ = dir.z > 0 ? 1 : dir.z < 0 ? -1 : 0;
+
+        // Ray distance to cross one cell, and to the first cell boundary, on each axis
+        float deltaX = stepX == 0 ? Float.POSITIVE_INFINITY : Math.abs(1f / dir.x);
+        float deltaY = stepY == 0 ? Float.POSITIVE_INFINITY : Math.abs(1f / dir.y);
+        float deltaZ = stepZ == 0 ? Float.POSITIVE_INFINITY : Math.abs(1f / dir.z);
+        float nextX = stepX == 0 ? Float.POSITIVE_INFINITY : (x + 0.5f * stepX - origin.x) / dir.x;
+        float nextY = stepY == 0 ? Float.POSITIVE_INFINITY : (y + 0.5f * stepY - origin.y) / dir.y;
+        float nextZ = stepZ == 0 ? Float.POSITIVE_INFINITY : (z + 0.5f * stepZ - origin.z) / dir.z;
+
+        int normalX = 0, normalY = 0, normalZ = 0;
+        float distance = 0f;
+        while (true) {
+            int block = blocks.getBlock(x, y, z);
+            if (block != Blocks.AIR) {
+                hit.x = x;
+                hit.y = y;
+                hit.z = z;
+                hit.normalX = normalX;
+                hit.normalY = normalY;
+                hit.normalZ = normalZ;
+                hit.block = block;
+                hit.distance = distance;
+                return true;
+            }
 
-        return rayWorld;
+            if (nextX <= nextY && nextX <= nextZ) {
+                distance = nextX;
+                nextX += deltaX;
+                x += stepX;
+                normalX = -stepX;
+                normalY = normalZ = 0;
+            } else if (nextY <= nextZ) {
+                distance = nextY;
+                nextY += deltaY;
+                y += stepY;
+                normalY = -stepY;
+                normalX = normalZ = 0;
+            } else {
+                distance = nextZ;
+                nextZ += deltaZ;
+                z += stepZ;
+                normalZ = -stepZ;
+                normalX = normalY = 0;
+            }
+            if (distance > maxDistance) return false; // also ends a zero-length direction
+        }
     }
 }
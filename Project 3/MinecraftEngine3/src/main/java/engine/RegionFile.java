@@ -0,0 +1,109 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// One file holding the columns of a REGION_SIZE x REGION_SIZE area.
+//
+// Layout: a header of (sector offset, byte length) int pairs, one per
+// column, followed by payloads aligned to SECTOR_BYTES. A payload is
+// rewritten in place when it still fits its sectors, otherwise appended
+// at the end of the file. All access uses positional FileChannel I/O, and
+// reads and writes hold the file's lock, so a read never sees a payload
+// half rewritten.
+public class RegionFile {
+    public static final int REGION_SIZE = 32;
+    public static final int SECTOR_BYTES = 512;
+    private static final int ENTRIES = REGION_SIZE * REGION_SIZE;
+    private static final int HEADER_SECTORS = (ENTRIES * 8 + SECTOR_BYTES - 1) / SECTOR_BYTES;
+
+    private final FileChannel channel;
+    private final int[] sectorOffsets = new int[ENTRIES];
+    private final int[] byteLengths = new int[ENTRIES];
+    private int nextFreeSector;
+
+    public RegionFile(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SECTORS * SECTOR_BYTES);
+        if (channel.size() == 0) {
+            channel.write(header, 0);
+        } else {
+            readFully(header, 0);
+            header.flip();
+        }
+
+        nextFreeSector = HEADER_SECTORS;
+        for (int i = 0; i < ENTRIES; i++) {
+            sectorOffsets[i] = header.getInt(i * 8);
+            byteLengths[i] = header.getInt(i * 8 + 4);
+            if (byteLengths[i] > 0) {
+                nextFreeSector = Math.max(nextFreeSector, sectorOffsets[i] + sectorsFor(byteLengths[i]));
+            }
+        }
+    }
+
+    // Index of a column inside its region
+    public static int localIndex(int cx, int cz) {
+        return Math.floorMod(cz, REGION_SIZE) * REGION_SIZE + Math.floorMod(cx, REGION_SIZE);
+    }
+
+    // Stored payload, or null if the column was never written
+    // Under the same lock as write(), which may rewrite these sectors in place
+    public synchronized byte[] read(int index) throws IOException {
+        int offset = sectorOffsets[index];
+        int length = byteLengths[index];
+        if (length == 0) return null;
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(buffer, (long) offset * SECTOR_BYTES);
+        return buffer.array();
+    }
+
+    public synchronized void write(int index, byte[] payload) throws IOException {
+        int needed = sectorsFor(payload.length);
+        int offset = sectorOffsets[index];
+        if (byteLengths[index] == 0 || needed > sectorsFor(byteLengths[index])) {
+            // Does not fit its old slot; the old sectors are left unused
+            offset = nextFreeSector;
+            nextFreeSector += needed;
+        }
+
+        ByteBuffer data = ByteBuffer.allocate(needed * SECTOR_BYTES);
+        data.put(payload).clear();
+        writeFully(data, (long) offset * SECTOR_BYTES);
+
+        sectorOffsets[index] = offset;
+        byteLengths[index] = payload.length;
+        ByteBuffer entry = ByteBuffer.allocate(8).putInt(offset).putInt(payload.length);
+        entry.flip();
+        writeFully(entry, (long) index * 8);
+    }
+
+    public void force() throws IOException {
+        channel.force(false);
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static int sectorsFor(int bytes) {
+        return (bytes + SECTOR_BYTES - 1) / SECTOR_BYTES;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) throw new IOException("Unexpected end of region file");
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+}
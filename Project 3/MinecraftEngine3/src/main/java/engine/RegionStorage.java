@@ -0,0 +1,233 @@
+package engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+// Saves and loads columns in region files under one directory.
+//
+// saveColumnAsync() only queues a snapshot; a background thread compresses
+// queued columns and writes them in batches, so the caller never waits on
+// disk. A column saved twice before the writer gets to it is written once.
+// loadColumn() sees queued saves before anything on disk, so a column that
+// is unloaded and quickly loaded again comes back with its latest edits.
+public class RegionStorage {
+    private static final int BATCH_SIZE = 64;
+    // After a failed write the writer waits this long before trying again
+    private static final long RETRY_MILLIS = 1000;
+
+    private final Path directory;
+    private final LongObjectMap<RegionFile> regions = new LongObjectMap<>(); // guarded by itself
+
+    // Snapshots waiting for the writer, and the ones it is writing right now;
+    // both guarded by 'pending'
+    private final LongObjectMap<ChunkSection[]> pending = new LongObjectMap<>(256);
+    private final LongObjectMap<ChunkSection[]> writing = new LongObjectMap<>(256);
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile IOException writeError;
+
+    public RegionStorage(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        writer = new Thread(this::writeLoop, "region-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Queues a save; the storage takes ownership of the section array and its sections
+    public void saveColumnAsync(int cx, int cz, ChunkSection[] sections) {
+        long key = World.columnKey(cx, cz);
+        synchronized (pending) {
+            pending.put(key, sections);
+            pending.notifyAll();
+        }
+    }
+
+    // Sections indexed by sy - World.MIN_SECTION_Y, or null if the column was never saved.
+    // Safe to call from any thread.
+    public ChunkSection[] loadColumn(int cx, int cz) throws IOException {
+        long key = World.columnKey(cx, cz);
+        ChunkSection[] queued;
+        synchronized (pending) {
+            queued = pending.get(key);
+            if (queued == null) queued = writing.get(key);
+        }
+        // Queued snapshots are never changed, so they can be copied outside the lock
+        if (queued != null) {
+            ChunkSection[] copy = new ChunkSection[queued.length];
+            for (int i = 0; i < queued.length; i++) {
+                copy[i] = queued[i] == null ? null : queued[i].copy();
+            }
+            return copy;
+        }
+
+        byte[] payload = region(cx, cz).read(RegionFile.localIndex(cx, cz));
+        return payload == null ? null : decode(payload);
+    }
+
+    // Blocks until every queued save is on disk. Throws the last write error
+    // while writes are failing; the failed columns stay queued and are retried.
+    public void flush() throws IOException {
+        while (queuedCount() > 0) {
+            if (writeError != null) throw writeError;
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while flushing", e);
+            }
+        }
+        if (writeError != null) throw writeError;
+        synchronized (regions) {
+            for (int i = 0; i < regions.capacity(); i++) {
+                if (regions.isUsed(i)) regions.valueAt(i).force();
+            }
+        }
+    }
+
+    // Closes the region files even when the final flush fails
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            running = false;
+            writer.interrupt();
+            IOException error = null;
+            synchronized (regions) {
+                for (int i = 0; i < regions.capacity(); i++) {
+                    if (!regions.isUsed(i)) continue;
+                    try {
+                        regions.valueAt(i).close();
+                    } catch (IOException e) {
+                        if (error == null) error = e;
+                        else error.addSuppressed(e);
+                    }
+                }
+                regions.clear();
+            }
+            if (error != null) throw error;
+        }
+    }
+
+    public int queuedCount() {
+        synchronized (pending) {
+            return pending.size() + writing.size();
+        }
+    }
+
+    private void writeLoop() {
+        long[] keys = new long[BATCH_SIZE];
+        ChunkSection[][] batch = new ChunkSection[BATCH_SIZE][];
+        while (running) {
+            int count = 0;
+            try {
+                synchronized (pending) {
+                    if (pending.isEmpty()) pending.wait(100);
+                    // Moved to 'writing' under the same lock, so loads never miss a snapshot
+                    for (int i = 0; i < pending.capacity() && count < BATCH_SIZE; i++) {
+                        if (!pending.isUsed(i)) continue;
+                        keys[count] = pending.keyAt(i);
+                        batch[count++] = pending.valueAt(i);
+                    }
+                    for (int i = 0; i < count; i++) {
+                        pending.remove(keys[i]);
+                        writing.put(keys[i], batch[i]);
+                    }
+                }
+
+                for (int i = 0; i < count; i++) {
+                    int cx = (int) (keys[i] >> 32), cz = (int) keys[i];
+                    region(cx, cz).write(RegionFile.localIndex(cx, cz), encode(batch[i]));
+                    synchronized (pending) {
+                        writing.remove(keys[i]);
+                    }
+                    batch[i] = null;
+                    writeError = null;
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                // The failed snapshot and the rest of the batch go back to 'pending' to be
+                // retried, unless a newer save of the same column has replaced them
+                synchronized (pending) {
+                    for (int i = 0; i < count; i++) {
+                        if (batch[i] == null) continue;
+                        if (!pending.containsKey(keys[i])) pending.put(keys[i], batch[i]);
+                        writing.remove(keys[i]);
+                    }
+                }
+                writeError = e;
+                e.printStackTrace();
+                try {
+                    Thread.sleep(RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            } finally {
+                Arrays.fill(batch, 0, count, null);
+            }
+        }
+    }
+
+    private RegionFile region(int cx, int cz) throws IOException {
+        int rx = Math.floorDiv(cx, RegionFile.REGION_SIZE);
+        int rz = Math.floorDiv(cz, RegionFile.REGION_SIZE);
+        long key = World.columnKey(rx, rz);
+        synchronized (regions) {
+            RegionFile region = regions.get(key);
+            if (region == null) {
+                region = new RegionFile(directory.resolve("r." + rx + "." + rz + ".region"));
+                regions.put(key, region);
+            }
+            return region;
+        }
+    }
+
+    // Bit mask of present sections, then each present section; deflated
+    static byte[] encode(ChunkSection[] sections) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+            int mask = 0;
+            for (int i = 0; i < sections.length; i++) {
+                if (sections[i] != null && !sections[i].isEmpty()) mask |= 1 << i;
+            }
+            out.writeByte(sections.length);
+            out.writeInt(mask);
+            for (int i = 0; i < sections.length; i++) {
+                if ((mask & (1 << i)) != 0) sections[i].write(out);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory streams do not fail
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    static ChunkSection[] decode(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(payload)))) {
+            int count = in.readUnsignedByte();
+            int expected = World.MAX_SECTION_Y - World.MIN_SECTION_Y + 1;
+            if (count != expected) {
+                throw new IOException("Column has " + count + " sections, expected " + expected);
+            }
+            int mask = in.readInt();
+            ChunkSection[] sections = new ChunkSection[count];
+            for (int i = 0; i < count; i++) {
+                if ((mask & (1 << i)) != 0) sections[i] = ChunkSection.read(in);
+            }
+            return sections;
+        }
+    }
+}
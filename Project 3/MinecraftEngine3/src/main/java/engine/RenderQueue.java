@@ -0,0 +1,109 @@
+package engine;
+
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_INT;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_SHORT;
+
+import java.util.Arrays;
+
+// Draws submitted during a frame, executed sorted by program, texture and
+// vertex array so consecutive draws share as much state as possible; the
+// RenderState then skips the binds that would repeat. Commands are pooled
+// and reused from frame to frame.
+public class RenderQueue {
+    public static final class DrawCommand {
+        Shader shader;
+        int texture;
+        int vertexArray;
+        int indexCount;
+        int instances; // 0 for a plain draw using 'model'
+        boolean packed; // ChunkMesh format: packed vertices and 16-bit indices
+        long sortKey;
+        public final float[] model = new float[16];
+    }
+
+    private DrawCommand[] commands = new DrawCommand[256];
+    private int size;
+
+    // Queues a plain draw; the caller fills in the returned command's model matrix,
+    // and sets 'packed' for a ChunkMesh
+    public DrawCommand add(Shader shader, int texture, int vertexArray, int indexCount) {
+        return add(shader, texture, vertexArray, indexCount, 0);
+    }
+
+    public DrawCommand add(Shader shader, int texture, int vertexArray, int indexCount, int instances) {
+        if (size == commands.length) {
+            commands = Arrays.copyOf(commands, size * 2);
+        }
+        DrawCommand command = commands[size];
+        if (command == null) {
+            command = commands[size] = new DrawCommand();
+        }
+        size++;
+        command.shader = shader;
+        command.texture = texture;
+        command.vertexArray = vertexArray;
+        command.indexCount = indexCount;
+        command.instances = instances;
+        command.packed = false;
+        // GL names are small integers; 21 bits each keeps the order program, texture, vertex array
+        command.sortKey = ((long) shader.getID() << 42) | ((long) texture << 21) | vertexArray;
+        return command;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Sorts and issues every queued draw, then empties the queue
+    public void flush(RenderState state) {
+        sortByState();
+        Shader current = null;
+        int instanced = -1;
+        int packed = -1;
+        for (int i = 0; i < size; i++) {
+            DrawCommand command = commands[i];
+            if (command.shader != current) {
+                current = command.shader;
+                state.useProgram(current.getID());
+                instanced = -1;
+                packed = -1;
+            }
+            int wantInstanced = command.instances > 0 ? 1 : 0;
+            if (wantInstanced != instanced) {
+                state.uniform(current.uniform("instanced"), wantInstanced);
+                instanced = wantInstanced;
+            }
+            int wantPacked = command.packed ? 1 : 0;
+            if (wantPacked != packed) {
+                state.uniform(current.uniform("packedVertex"), wantPacked);
+                packed = wantPacked;
+            }
+            int indexType = command.packed ? GL_UNSIGNED_SHORT : GL_UNSIGNED_INT;
+            state.bindTexture(command.texture);
+            state.bindVertexArray(command.vertexArray);
+            if (command.instances > 0) {
+                state.drawElementsInstanced(command.indexCount, indexType, command.instances);
+            } else {
+                state.uniformMatrix4(current.uniform("model"), command.model);
+                state.drawElements(command.indexCount, indexType);
+            }
+            command.shader = null;
+        }
+        size = 0;
+        state.bindVertexArray(0);
+    }
+
+    // Insertion sort on the sort key. The world submits in nearly the same order every
+    // frame, so this is close to linear, and unlike Arrays.sort it allocates nothing.
+    private void sortByState() {
+        for (int i = 1; i < size; i++) {
+            DrawCommand command = commands[i];
+            int j = i - 1;
+            while (j >= 0 && commands[j].sortKey > command.sortKey) {
+                commands[j + 1] = commands[j];
+                j--;
+            }
+            commands[j + 1] = command;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package engine;
+
+import static org.lwjgl.opengl.GL11.GL_TRIANGLES;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_INT;
+import static org.lwjgl.opengl.GL11.glBindTexture;
+import static org.lwjgl.opengl.GL11.glDrawElements;
+import static org.lwjgl.opengl.GL20.glUniform1i;
+import static org.lwjgl.opengl.GL20.glUniformMatrix4fv;
+import static org.lwjgl.opengl.GL20.glUseProgram;
+import static org.lwjgl.opengl.GL30.GL_TEXTURE_2D_ARRAY;
+import static org.lwjgl.opengl.GL30.glBindVertexArray;
+import static org.lwjgl.opengl.GL31.glDrawElementsInstanced;
+
+// The GL state the renderer last set, so binds that would change nothing
+// are skipped. Every GL call made through it is counted, per frame, along
+// with the calls it skipped. Code that changes state behind its back must
+// call beginFrame() (or reset()) before drawing through it again.
+public class RenderState {
+    private int program;
+    private int texture;
+    private int vertexArray;
+    private int calls;
+    private int skipped;
+
+    public RenderState() {
+        reset();
+    }
+
+    public void beginFrame() {
+        reset();
+        calls = 0;
+        skipped = 0;
+    }
+
+    // Forgets the cached state; the next bind of each kind always reaches GL
+    public void reset() {
+        program = -1;
+        texture = -1;
+        vertexArray = -1;
+    }
+
+    public void useProgram(int id) {
+        if (id == program) {
+            skipped++;
+            return;
+        }
+        glUseProgram(id);
+        program = id;
+        calls++;
+    }
+
+    // Texture unit 0; block textures are all layers of one array texture
+    public void bindTexture(int id) {
+        if (id == texture) {
+            skipped++;
+            return;
+        }
+        glBindTexture(GL_TEXTURE_2D_ARRAY, id);
+        texture = id;
+        calls++;
+    }
+
+    public void bindVertexArray(int id) {
+        if (id == vertexArray) {
+            skipped++;
+            return;
+        }
+        glBindVertexArray(id);
+        vertexArray = id;
+        calls++;
+    }
+
+    public void uniform(int location, int value) {
+        glUniform1i(location, value);
+        calls++;
+    }
+
+    public void uniformMatrix4(int location, float[] matrix) {
+        glUniformMatrix4fv(location, false, matrix);
+        calls++;
+    }
+
+    public void drawElements(int indexCount) {
+        drawElements(indexCount, GL_UNSIGNED_INT);
+    }
+
+    // indexType is GL_UNSIGNED_INT or GL_UNSIGNED_SHORT
+    public void drawElements(int indexCount, int indexType) {
+        glDrawElements(GL_TRIANGLES, indexCount, indexType, 0);
+        calls++;
+    }
+
+    public void drawElementsInstanced(int indexCount, int instances) {
+        drawElementsInstanced(indexCount, GL_UNSIGNED_INT, instances);
+    }
+
+    public void drawElementsInstanced(int indexCount, int indexType, int instances) {
+        glDrawElementsInstanced(GL_TRIANGLES, indexCount, indexType, 0, instances);
+        calls++;
+    }
+
+    // For GL calls made directly, e.g. buffer uploads, so the total stays honest
+    public void count(int glCalls) {
+        calls += glCalls;
+    }
+
+    public int getCalls() {
+        return calls;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+}
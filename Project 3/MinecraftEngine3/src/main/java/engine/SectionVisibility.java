@@ -0,0 +1,103 @@
+package engine;
+
+import java.util.Arrays;
+
+// Which faces of a section can see each other through its non-solid blocks.
+//
+// The result is a 36-bit mask with bit (a * 6 + b) set when face a connects
+// to face b; faces are numbered like the FACE_ constants. It is computed by
+// flood-filling the air inside the section (after Checchi's "advanced cave
+// culling"). One instance per thread; the scratch arrays are reused.
+public class SectionVisibility {
+    public static final int FACE_NEG_X = 0, FACE_POS_X = 1;
+    public static final int FACE_NEG_Y = 2, FACE_POS_Y = 3;
+    public static final int FACE_NEG_Z = 4, FACE_POS_Z = 5;
+    public static final long ALL = (1L << 36) - 1;
+    public static final long NONE = 0L;
+
+    // Unit step leaving through each face
+    static final int[] FACE_DX = {-1, 1, 0, 0, 0, 0};
+    static final int[] FACE_DY = {0, 0, -1, 1, 0, 0};
+    static final int[] FACE_DZ = {0, 0, 0, 0, -1, 1};
+
+    private static final int SIZE = ChunkSection.SIZE;
+    private static final int VOLUME = SIZE * SIZE * SIZE;
+
+    private final boolean[] open = new boolean[VOLUME];
+    private final boolean[] visited = new boolean[VOLUME];
+    private final int[] queue = new int[VOLUME];
+
+    public static int opposite(int face) {
+        return face ^ 1;
+    }
+
+    public static boolean connects(long visibility, int from, int to) {
+        return (visibility & (1L << (from * 6 + to))) != 0;
+    }
+
+    // Visibility of the section held in a padded snapshot (see ChunkMesher.paddedIndex)
+    public long compute(int[] padded) {
+        int openCount = 0;
+        for (int y = 0; y < SIZE; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    boolean isOpen = !Blocks.isSolid(padded[ChunkMesher.paddedIndex(x, y, z)]);
+                    open[index(x, y, z)] = isOpen;
+                    if (isOpen) openCount++;
+                }
+            }
+        }
+        if (openCount == 0) return NONE;
+        // Too little solid to wall anything off (a wall needs a full 16x16 layer)
+        if (VOLUME - openCount < SIZE * SIZE) return ALL;
+
+        Arrays.fill(visited, false);
+        long visibility = NONE;
+        for (int start = 0; start < VOLUME; start++) {
+            if (!open[start] || visited[start]) continue;
+            int faces = floodFill(start);
+            for (int a = 0; a < 6; a++) {
+                if ((faces & (1 << a)) == 0) continue;
+                for (int b = 0; b < 6; b++) {
+                    if ((faces & (1 << b)) != 0) visibility |= 1L << (a * 6 + b);
+                }
+            }
+            if (visibility == ALL) break;
+        }
+        return visibility;
+    }
+
+    // Marks one connected air region and returns the faces it touches as a 6-bit mask
+    private int floodFill(int start) {
+        int head = 0, tail = 0;
+        queue[tail++] = start;
+        visited[start] = true;
+        int faces = 0;
+        while (head < tail) {
+            int i = queue[head++];
+            int x = i & 15, z = (i >> 4) & 15, y = i >> 8;
+            if (x == 0) faces |= 1 << FACE_NEG_X;
+            if (x == SIZE - 1) faces |= 1 << FACE_POS_X;
+            if (y == 0) faces |= 1 << FACE_NEG_Y;
+            if (y == SIZE - 1) faces |= 1 << FACE_POS_Y;
+            if (z == 0) faces |= 1 << FACE_NEG_Z;
+            if (z == SIZE - 1) faces |= 1 << FACE_POS_Z;
+
+            for (int face = 0; face < 6; face++) {
+                int nx = x + FACE_DX[face], ny = y + FACE_DY[face], nz = z + FACE_DZ[face];
+                if (nx < 0 || ny < 0 || nz < 0 || nx >= SIZE || ny >= SIZE || nz >= SIZE) continue;
+                int n = index(nx, ny, nz);
+                if (open[n] && !visited[n]) {
+                    visited[n] = true;
+                    queue[tail++] = n;
+                }
+            }
+        }
+        return faces;
+    }
+
+    // Same layout as ChunkSection.index()
+    private static int index(int x, int y, int z) {
+        return (y * SIZE + z) * SIZE + x;
+    }
+}
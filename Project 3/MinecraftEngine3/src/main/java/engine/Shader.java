@@ -5,11 +5,18 @@ import org.lwjgl.opengl.GL20;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL31.GL_INVALID_INDEX;
+import static org.lwjgl.opengl.GL31.glGetUniformBlockIndex;
+import static org.lwjgl.opengl.GL31.glUniformBlockBinding;
 
 public class Shader {
     private final int programID;
+    // Uniform locations by name, looked up once per program
+    private final Map<String, Integer> uniformLocations = new HashMap<>();
 
     public Shader(String vertexPath, String fragmentPath) throws IOException {
         String vertexCode = new String(Files.readAllBytes(Paths.get(vertexPath)));
@@ -43,6 +50,24 @@ public class Shader {
         return id;
     }
 
+    // Location of a uniform, or -1 if the program does not use it
+    public int uniform(String name) {
+        Integer location = uniformLocations.get(name);
+        if (location == null) {
+            location = glGetUniformLocation(programID, name);
+            uniformLocations.put(name, location);
+        }
+        return location;
+    }
+
+    // Points a uniform block at a binding point; blocks the program does not declare are ignored
+    public void bindUniformBlock(String name, int binding) {
+        int index = glGetUniformBlockIndex(programID, name);
+        if (index != GL_INVALID_INDEX) {
+            glUniformBlockBinding(programID, index, binding);
+        }
+    }
+
     public void use() {
         glUseProgram(programID);
     }
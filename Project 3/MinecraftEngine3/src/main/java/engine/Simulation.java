@@ -0,0 +1,294 @@
+package engine;
+
+import org.joml.Vector3f;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+// Game logic at a fixed rate, on its own thread or driven by hand.
+//
+// Each tick moves the player from the latest input (walking with collision
+// and gravity, see PlayerPhysics, or flying), applies queued block commands
+// and streams terrain around the player, all while holding the World's
+// lock. Connected to a WorldServer, terrain and block changes come from the
+// server instead, and block commands go to it. The tick then publishes an
+// immutable Snapshot of the player's previous and current eye position. The
+// render thread never waits for a tick: it interpolates between the two
+// positions by how far it is into the next tick, so motion stays smooth at
+// any frame rate.
+//
+// Input and commands may come from any thread. tick() can be called
+// directly, without start(), to run the simulation headless as fast as it
+// will go.
+public class Simulation {
+    public static final int TICKS_PER_SECOND = 60;
+    public static final float TICK_SECONDS = 1f / TICKS_PER_SECOND;
+    private static final long TICK_NANOS = 1_000_000_000L / TICKS_PER_SECOND;
+    // After a stall longer than this the clock skips ahead instead of running ticks back to back
+    private static final int MAX_CATCH_UP_TICKS = 5;
+    private static final long AUTOSAVE_TICKS = 30L * TICKS_PER_SECOND;
+    private static final float REACH = 8f;
+
+    private final World world;
+    private final ChunkStreamer streamer; // may be null
+    private final WorldClient client; // null unless playing on a server
+    private final WorldClient.Listener serverUpdates;
+    private final Vector3f lastSentPosition = new Vector3f(Float.NaN);
+    private final Camera player; // eye position and where it looks
+    private final PlayerPhysics body;
+    private volatile boolean flying;
+
+    // Latest input, written by the render thread; guarded by itself
+    private final float[] input = new float[5]; // forward, right, up, yaw, pitch
+    private final ConcurrentLinkedQueue<BlockCommand> commands = new ConcurrentLinkedQueue<>();
+
+    private volatile Snapshot latest;
+    private long tick;
+    private Thread thread;
+    private volatile boolean running;
+    private volatile RuntimeException error; // what ended the background thread, if anything
+
+    public Simulation(World world, ChunkStreamer streamer, Vector3f start) {
+        this(world, streamer, null, start);
+    }
+
+    // Plays on a server: the world holds only what the client has received
+    public Simulation(World world, WorldClient client, Vector3f start) {
+        this(world, null, client, start);
+    }
+
+    private Simulation(World world, ChunkStreamer streamer, WorldClient client, Vector3f start) {
+        this.world = world;
+        this.streamer = streamer;
+        this.client = client;
+        this.serverUpdates = client == null ? null : new WorldClient.Listener() {
+            @Override
+            public void columnLoaded(int cx, int cz, ChunkSection[] sections) {
+                world.applyEdits(); // changes received earlier belong to the world before this column
+                world.loadColumn(cx, cz, sections);
+            }
+
+            @Override
+            public void columnUnloaded(int cx, int cz) {
+                world.applyEdits();
+                world.unloadColumn(cx, cz);
+            }
+
+            @Override
+            public void blockChanged(int x, int y, int z, int block) {
+                world.queueBlock(x, y, z, block);
+            }
+        };
+        this.player = new Camera(new Vector3f(start));
+        this.body = new PlayerPhysics(new Vector3f(start.x, start.y - PlayerPhysics.EYE_HEIGHT, start.z));
+        input[3] = player.getYaw();
+        input[4] = player.getPitch();
+        latest = new Snapshot(0, System.nanoTime(), start, start);
+    }
+
+    // Movement axes in -1..1, and where the player is looking, in degrees
+    public void setInput(float forward, float right, float up, float yaw, float pitch) {
+        synchronized (input) {
+            input[0] = forward;
+            input[1] = right;
+            input[2] = up;
+            input[3] = yaw;
+            input[4] = pitch;
+        }
+    }
+
+    // Flying turns gravity off; up and down then move the player vertically
+    public void setFlying(boolean flying) {
+        this.flying = flying;
+    }
+
+    public boolean isFlying() {
+        return flying;
+    }
+
+    // Queues a block edit for the next tick
+    public void submit(BlockCommand command) {
+        commands.add(command);
+    }
+
+    public Snapshot getLatest() {
+        return latest;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    // Runs one tick on the calling thread
+    public void tick() {
+        Vector3f position = player.getPosition();
+        float fromX = position.x, fromY = position.y, fromZ = position.z;
+
+        world.getLock().lock();
+        try {
+            movePlayer();
+            if (client != null) client.poll(serverUpdates);
+            BlockCommand command;
+            while ((command = commands.poll()) != null) {
+                apply(command);
+            }
+            // Every edit of the tick lands together: one relight, one remesh per section
+            world.applyEdits();
+            if (client != null) {
+                if (!position.equals(lastSentPosition)) {
+                    client.sendPosition(position);
+                    lastSentPosition.set(position);
+                }
+                client.flush();
+            }
+            if (streamer != null) {
+                streamer.update(position);
+                if (tick > 0 && tick % AUTOSAVE_TICKS == 0) streamer.saveModifiedColumns();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lost the connection to the server", e);
+        } finally {
+            world.getLock().unlock();
+        }
+
+        tick++;
+        latest = new Snapshot(tick, System.nanoTime(), fromX, fromY, fromZ, position);
+    }
+
+    private void movePlayer() {
+        float forward, sideways, up;
+        synchronized (input) {
+            forward = input[0];
+            sideways = input[1];
+            up = input[2];
+            player.setRotation(input[3], input[4]);
+        }
+        // Walking direction ignores pitch; a diagonal is no faster than a straight line
+        float yaw = (float) Math.toRadians(player.getYaw());
+        float frontX = (float) Math.cos(yaw), frontZ = (float) Math.sin(yaw);
+        float moveX = forward * frontX - sideways * frontZ;
+        float moveZ = forward * frontZ + sideways * frontX;
+        float length = (float) Math.sqrt(moveX * moveX + moveZ * moveZ);
+        float scale = length > 1 ? player.getSpeed() / length : player.getSpeed();
+
+        // Terrain that has not streamed in yet reads as air; wait for it instead of falling through
+        Vector3f feet = body.getPosition();
+        if (world.isColumnLoaded(Math.round(feet.x) >> 4, Math.round(feet.z) >> 4)) {
+            body.setFlying(flying);
+            body.step(world.getBlocks(), TICK_SECONDS, moveX * scale, moveZ * scale, flying ? up * player.getSpeed() : up);
+        }
+        body.getEye(player.getPosition());
+    }
+
+    // Queues the command's edit; commands in one tick all see the world as the tick found it
+    private void apply(BlockCommand command) {
+        BlockHit hit = command.hit;
+        if (!RayCaster.pickBlock(world.getBlocks(), command.origin, command.direction, REACH, hit)) return;
+        if (command.block == Blocks.AIR) {
+            edit(hit.x, hit.y, hit.z, Blocks.AIR);
+            return;
+        }
+        // Place against the face the ray hit, unless that is where the player stands
+        int px = hit.x + hit.normalX, py = hit.y + hit.normalY, pz = hit.z + hit.normalZ;
+        if (world.getBlock(px, py, pz) == Blocks.AIR && !body.intersectsBlock(px, py, pz)) {
+            edit(px, py, pz, command.block);
+        }
+    }
+
+    // On a server the edit shows up once the server sends it back
+    private void edit(int x, int y, int z, int block) {
+        if (client != null) {
+            client.queueEdit(x, y, z, block);
+        } else {
+            world.queueBlock(x, y, z, block);
+        }
+    }
+
+    // Ticks on a background thread until stop()
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        if (thread == null) return;
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // The exception that stopped the background thread, such as a lost connection;
+    // null while it is running or after a normal stop()
+    public RuntimeException getError() {
+        return error;
+    }
+
+    private void run() {
+        long next = System.nanoTime();
+        try {
+            while (running) {
+                tick();
+                next += TICK_NANOS;
+                long now = System.nanoTime();
+                if (now - next > MAX_CATCH_UP_TICKS * TICK_NANOS) {
+                    next = now;
+                } else if (next > now) {
+                    LockSupport.parkNanos(next - now);
+                }
+            }
+        } catch (RuntimeException e) {
+            error = e;
+            running = false;
+        }
+    }
+
+    // Player position at the end of a tick and at the end of the one before
+    public static final class Snapshot {
+        public final long tick;
+        public final long timeNanos; // when it was published
+        public final float fromX, fromY, fromZ;
+        public final float x, y, z;
+
+        Snapshot(long tick, long timeNanos, float fromX, float fromY, float fromZ, Vector3f to) {
+            this.tick = tick;
+            this.timeNanos = timeNanos;
+            this.fromX = fromX;
+            this.fromY = fromY;
+            this.fromZ = fromZ;
+            this.x = to.x;
+            this.y = to.y;
+            this.z = to.z;
+        }
+
+        Snapshot(long tick, long timeNanos, Vector3f from, Vector3f to) {
+            this(tick, timeNanos, from.x, from.y, from.z, to);
+        }
+
+        // Position a tick behind the simulation, blended by the time since publication
+        public Vector3f interpolate(long nowNanos, Vector3f dest) {
+            float alpha = Math.min(1f, Math.max(0f, (nowNanos - timeNanos) / (float) TICK_NANOS));
+            return dest.set(fromX + (x - fromX) * alpha, fromY + (y - fromY) * alpha, fromZ + (z - fromZ) * alpha);
+        }
+    }
+
+    // Break (block == AIR) or place the given block where a ray first hits the terrain
+    public static final class BlockCommand {
+        final Vector3f origin;
+        final Vector3f direction;
+        final int block;
+        final BlockHit hit = new BlockHit();
+
+        public BlockCommand(Vector3f origin, Vector3f direction, int block) {
+            this.origin = new Vector3f(origin);
+            this.direction = new Vector3f(direction);
+            this.block = block;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package engine;
+
+// Deterministic heightmap terrain: stone, three layers of dirt, grass on top.
+// Output depends only on the seed and the column coordinate, so columns can
+// be generated in any order and on any thread.
+public class TerrainGenerator {
+    private static final int SEA_LEVEL = 8;
+    private static final int DIRT_DEPTH = 3;
+
+    private final Noise continents;
+    private final Noise detail;
+
+    public TerrainGenerator(long seed) {
+        continents = new Noise(seed);
+        detail = new Noise(seed * 31 + 17);
+    }
+
+    // Y of the top (grass) block of the column at block x, z
+    public int heightAt(int x, int z) {
+        double base = continents.fbm(x / 160.0, z / 160.0, 4);
+        double hills = detail.fbm(x / 40.0, z / 40.0, 3);
+        return SEA_LEVEL + (int) Math.round(base * 28 + hills * 6);
+    }
+
+    // Sections of the 16x16 column (cx, cz), indexed by sy - World.MIN_SECTION_Y; null for all-air
+    public ChunkSection[] generateColumn(int cx, int cz) {
+        int size = ChunkSection.SIZE;
+        int minY = World.MIN_SECTION_Y * size;
+        int maxY = (World.MAX_SECTION_Y + 1) * size - 1;
+        ChunkSection[] sections = new ChunkSection[World.MAX_SECTION_Y - World.MIN_SECTION_Y + 1];
+
+        for (int lz = 0; lz < size; lz++) {
+            for (int lx = 0; lx < size; lx++) {
+                int height = Math.min(maxY, heightAt(cx * size + lx, cz * size + lz));
+                for (int y = minY; y <= height; y++) {
+                    int block = (y == height) ? Blocks.GRASS : (y >= height - DIRT_DEPTH ? Blocks.DIRT : Blocks.STONE);
+                    int index = (y >> 4) - World.MIN_SECTION_Y;
+                    if (sections[index] == null) {
+                        sections[index] = new ChunkSection();
+                    }
+                    sections[index].set(lx, y & 15, lz, block);
+                }
+            }
+        }
+        return sections;
+    }
+}
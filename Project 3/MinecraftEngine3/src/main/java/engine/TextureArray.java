@@ -0,0 +1,143 @@
+package engine;
+
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.glTexImage3D;
+import static org.lwjgl.opengl.GL12.glTexSubImage3D;
+import static org.lwjgl.opengl.GL30.GL_TEXTURE_2D_ARRAY;
+import static org.lwjgl.opengl.GL30.glGenerateMipmap;
+import static org.lwjgl.stb.STBImage.*;
+
+// Square textures of one size packed as the layers of a GL_TEXTURE_2D_ARRAY,
+// with a full mip chain. Images of another size are resampled to the first
+// image's size. A missing or unreadable image is replaced by a generated
+// placeholder tile, with a warning, so a partial texture set still runs.
+public class TextureArray {
+    private static final int PLACEHOLDER_SIZE = 16;
+
+    private final int textureID;
+    private final int layers;
+    private final int size;
+    private final long loadNanos;
+
+    public TextureArray(String directory, String[] names) {
+        long start = System.nanoTime();
+        layers = names.length;
+        ByteBuffer[] images = new ByteBuffer[layers];
+        int[] sizes = new int[layers];
+        int tileSize = 0;
+        for (int i = 0; i < layers; i++) {
+            images[i] = load(Paths.get(directory, names[i] + ".png"), sizes, i);
+            if (images[i] != null && tileSize == 0) tileSize = sizes[i];
+        }
+        size = tileSize == 0 ? PLACEHOLDER_SIZE : tileSize;
+
+        textureID = glGenTextures();
+        glBindTexture(GL_TEXTURE_2D_ARRAY, textureID);
+        glTexImage3D(GL_TEXTURE_2D_ARRAY, 0, GL_RGBA8, size, size, layers, 0, GL_RGBA, GL_UNSIGNED_BYTE, (ByteBuffer) null);
+        ByteBuffer tile = MemoryUtil.memAlloc(size * size * 4);
+        try {
+            for (int i = 0; i < layers; i++) {
+                if (images[i] == null) {
+                    System.err.println("Texture " + names[i] + ".png missing or unreadable, using a placeholder");
+                    placeholder(names[i], tile);
+                } else {
+                    resample(images[i], sizes[i], tile);
+                    stbi_image_free(images[i]);
+                }
+                glTexSubImage3D(GL_TEXTURE_2D_ARRAY, 0, 0, 0, i, size, size, 1, GL_RGBA, GL_UNSIGNED_BYTE, tile);
+            }
+        } finally {
+            MemoryUtil.memFree(tile);
+        }
+
+        // Nearest texels up close keep blocks crisp; mips stop distant faces shimmering
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_WRAP_S, GL_REPEAT);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_WRAP_T, GL_REPEAT);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_MIN_FILTER, GL_NEAREST_MIPMAP_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+        glGenerateMipmap(GL_TEXTURE_2D_ARRAY);
+        glBindTexture(GL_TEXTURE_2D_ARRAY, 0);
+        loadNanos = System.nanoTime() - start;
+    }
+
+    // RGBA pixels of a square image, or null; its side length goes into sizes[i]
+    private static ByteBuffer load(Path path, int[] sizes, int i) {
+        if (!Files.isRegularFile(path)) return null;
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer w = stack.mallocInt(1);
+            IntBuffer h = stack.mallocInt(1);
+            IntBuffer channels = stack.mallocInt(1);
+            stbi_set_flip_vertically_on_load(true);
+            ByteBuffer image = stbi_load(path.toString(), w, h, channels, 4);
+            if (image == null) return null;
+            if (w.get(0) != h.get(0)) {
+                stbi_image_free(image);
+                return null;
+            }
+            sizes[i] = w.get(0);
+            return image;
+        }
+    }
+
+    // Nearest-neighbour copy of a square image 'from' texels wide into the tile
+    private void resample(ByteBuffer image, int from, ByteBuffer tile) {
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int source = ((y * from / size) * from + x * from / size) * 4;
+                tile.putInt((y * size + x) * 4, image.getInt(source));
+            }
+        }
+    }
+
+    // Noisy tile in a colour chosen by name, so missing textures still tell blocks apart
+    private void placeholder(String name, ByteBuffer tile) {
+        int rgb;
+        if (name.startsWith("brick")) rgb = 0x9C4A36;
+        else if (name.startsWith("stone")) rgb = 0x808080;
+        else if (name.startsWith("dirt")) rgb = 0x7A5534;
+        else if (name.startsWith("grass")) rgb = 0x5E9C3A;
+        else if (name.startsWith("lamp")) rgb = 0xF2D16B;
+        else rgb = 0xC040C0;
+        int hash = name.hashCode();
+        int r = rgb >> 16, g = (rgb >> 8) & 0xFF, b = rgb & 0xFF;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int noise = ((x * 73856093) ^ (y * 19349663) ^ hash) >>> 27; // 0..31
+                int i = (y * size + x) * 4;
+                tile.put(i, (byte) Math.max(0, Math.min(255, r + noise - 16)));
+                tile.put(i + 1, (byte) Math.max(0, Math.min(255, g + noise - 16)));
+                tile.put(i + 2, (byte) Math.max(0, Math.min(255, b + noise - 16)));
+                tile.put(i + 3, (byte) 255);
+            }
+        }
+    }
+
+    public int getID() {
+        return textureID;
+    }
+
+    public int getLayers() {
+        return layers;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getLoadNanos() {
+        return loadNanos;
+    }
+
+    public void cleanup() {
+        glDeleteTextures(textureID);
+    }
+}
@@ -1,53 +1,706 @@
 package engine;
 
 import org.joml.Matrix4f;
-import org.lwjgl.opengl.GL20;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 import org.joml.Vector3f;
 
+// Blocks, light and chunk meshes of the loaded terrain, plus free-standing
+// objects.
+//
+// Blocks and light may be changed from another thread (the Simulation) as
+// long as it holds getLock(); update() takes the lock while it snapshots
+// dirty sections for meshing. Meshes, culling and render() belong to the
+// render thread.
 public class World {
+    // Vertical extent of streamed columns, in sections
+    public static final int MIN_SECTION_Y = -4;
+    public static final int MAX_SECTION_Y = 7;
+
+    // Blocks live in chunk storage; the object list is for free-standing objects
+    private final ChunkedBlockStorage blocks = new ChunkedBlockStorage();
+    // Sky and block light of loaded columns, relit incrementally on every edit
+    private final LightEngine light = new LightEngine(blocks);
     private final List<GameObject> objects = new ArrayList<>();
+    private final Cube blockMesh;
+
+    // One mesh per non-empty section. Dirty sections are remeshed by the
+    // worker pool and uploaded at most UPLOADS_PER_FRAME per frame.
+    private static final int UPLOADS_PER_FRAME = 8;
+    private static final int SUBMITS_PER_FRAME = 64;
+    // Meshes are grouped by column so a whole column can be culled with one box test.
+    // The list holds the same columns, for iterating without an Iterator each frame.
+    private final LongObjectMap<MeshColumn> meshColumns = new LongObjectMap<>(256);
+    private final List<MeshColumn> meshColumnList = new ArrayList<>();
+    private final LongSet dirtySections = new LongSet(1024);
+    private final long[] dirtyBatch = new long[SUBMITS_PER_FRAME];
+    private final ChunkMeshWorkerPool meshWorkers =
+            new ChunkMeshWorkerPool(ChunkMeshWorkerPool.defaultThreadCount(), 64);
+
+    // Free-standing objects grouped by mesh; each group is one instanced draw
+    private final Map<Cube, InstanceBatch> batches = new HashMap<>();
+    private final List<InstanceBatch> batchList = new ArrayList<>();
+    private final List<GameObject> unbatched = new ArrayList<>();
+    private boolean instancing = true;
+    private int drawCalls;
+
+    // View-frustum culling, refreshed every render()
+    private final Frustum frustum = new Frustum();
+    private final Matrix4f projectionView = new Matrix4f();
+    private final Matrix4f model = new Matrix4f();
+    private final RenderQueue renderQueue = new RenderQueue();
+    private int sectionsDrawn, sectionsCulled;
+    private int objectsDrawn, objectsCulled;
+
+    // Occlusion culling: face connectivity of each meshed section, searched from the
+    // camera's section every render(). The search reaches OCCLUSION_RADIUS columns out,
+    // which must cover the streamer's view distance.
+    private static final int OCCLUSION_RADIUS = 16;
+    private final LongLongMap sectionVisibility = new LongLongMap(1024);
+    private final OcclusionCuller occlusion = new OcclusionCuller(OCCLUSION_RADIUS);
+    private final OcclusionCuller.Connectivity connectivity = (sx, sy, sz) ->
+            sectionVisibility.get(ChunkedBlockStorage.sectionKey(sx, sy, sz), SectionVisibility.ALL);
+    private boolean occlusionCulling = true;
+    private int cameraSx, cameraSy, cameraSz;
+    private int sectionsOccluded;
+    private long occlusionNanos;
+
+    // Level of detail of each loaded column (see ChunkLod), re-evaluated whenever the
+    // camera has moved a block since the last time
+    private final LongLongMap columnLevels = new LongLongMap(256);
+    private final int[] neighbourLevels = new int[6];
+    private float lodCameraX, lodCameraZ;
+    private boolean lodDirty = true;
+    private int trianglesDrawn;
+
+    // Guards blocks, light, dirty sections and column levels between the simulation and render threads
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Columns edited since they were loaded or last saved
+    private final LongSet modifiedColumns = new LongSet();
+
+    // Edits made with queueBlock(), applied together by applyEdits()
+    private final BlockEditQueue edits = new BlockEditQueue();
+    private long editsApplied;
+    private long sectionsSubmitted;
+
+    private FrameProfiler profiler = FrameProfiler.NONE;
+
+    public World(Cube blockMesh) {
+        this.blockMesh = blockMesh;
+    }
+
+    public int getBlock(int x, int y, int z) {
+        return blocks.getBlock(x, y, z);
+    }
+
+    // Blocks outside the world's vertical range stay air; edits there are ignored
+    public static boolean isInRange(int y) {
+        return y >= MIN_SECTION_Y * ChunkSection.SIZE && y < (MAX_SECTION_Y + 1) * ChunkSection.SIZE;
+    }
+
+    public int setBlock(int x, int y, int z, int block) {
+        if (!isInRange(y)) return Blocks.AIR;
+        int previous = blocks.setBlock(x, y, z, block);
+        if (previous != block) {
+            markDirty(x, y, z);
+            modifiedColumns.add(columnKey(x >> 4, z >> 4));
+            light.onBlockChanged(x, y, z, previous, block);
+            markRelitSectionsDirty();
+        }
+        return previous;
+    }
+
+    // Records an edit for the next applyEdits(); until then getBlock() still returns the
+    // old block. Repeated edits to one block collapse into the last one.
+    public void queueBlock(int x, int y, int z, int block) {
+        if (isInRange(y)) edits.add(x, y, z, block);
+    }
+
+    // Applies the queued edits as one batch: blocks first, then a single relight, with
+    // each affected section (and any neighbour whose border changed) marked dirty once.
+    // Returns the number of blocks that actually changed.
+    public int applyEdits() {
+        if (edits.isEmpty()) return 0;
+        int changed = 0;
+        for (int i = 0; i < edits.size(); i++) {
+            int x = edits.x(i), y = edits.y(i), z = edits.z(i), block = edits.block(i);
+            int previous = blocks.setBlock(x, y, z, block);
+            if (previous == block) continue;
+            markDirty(x, y, z);
+            modifiedColumns.add(columnKey(x >> 4, z >> 4));
+            light.queueBlockChanged(x, y, z, previous, block);
+            changed++;
+        }
+        edits.clear();
+        if (changed > 0) {
+            light.relight();
+            markRelitSectionsDirty();
+        }
+        editsApplied += changed;
+        return changed;
+    }
+
+    public int getQueuedEdits() {
+        return edits.size();
+    }
+
+    // Blocks changed by applyEdits() so far
+    public long getEditsApplied() {
+        return editsApplied;
+    }
+
+    // Sections waiting to be remeshed
+    public int getDirtySectionCount() {
+        return dirtySections.size();
+    }
+
+    // Forgets the dirty sections and returns how many there were, standing in for the
+    // remesh pass of update() where there is no GL context (headless measurements)
+    int clearDirtySections() {
+        int count = dirtySections.size();
+        dirtySections.clear();
+        return count;
+    }
+
+    // Sections handed to the mesh workers so far
+    public long getSectionsSubmitted() {
+        return sectionsSubmitted;
+    }
+
+    public int getSkyLight(int x, int y, int z) {
+        return light.getSkyLight(x, y, z);
+    }
+
+    public int getBlockLight(int x, int y, int z) {
+        return light.getBlockLight(x, y, z);
+    }
+
+    // Receives the world update, meshing, upload, culling and draw scopes and counters
+    public void setProfiler(FrameProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    // Hold while changing blocks from a thread other than the render thread
+    public ReentrantLock getLock() {
+        return lock;
+    }
+
+    public static long columnKey(int cx, int cz) {
+        return ((long) cx << 32) | (cz & 0xFFFFFFFFL);
+    }
+
+    public boolean isColumnLoaded(int cx, int cz) {
+        return columnLevels.containsKey(columnKey(cx, cz));
+    }
+
+    // Installs a generated column; sections are indexed by sy - MIN_SECTION_Y
+    public void loadColumn(int cx, int cz, ChunkSection[] sections) {
+        columnLevels.put(columnKey(cx, cz), ChunkLod.levelFor(0, columnDistance(cx, cz)));
+        for (int i = 0; i < sections.length; i++) {
+            int sy = MIN_SECTION_Y + i;
+            if (sections[i] == null || sections[i].isEmpty()) {
+                blocks.removeSection(cx, sy, cz);
+            } else {
+                blocks.putSection(cx, sy, cz, sections[i]);
+            }
+            markSectionAndNeighboursDirty(cx, sy, cz);
+        }
+        light.loadColumn(cx, cz);
+        markRelitSectionsDirty();
+    }
+
+    public void unloadColumn(int cx, int cz) {
+        modifiedColumns.remove(columnKey(cx, cz));
+        columnLevels.remove(columnKey(cx, cz));
+        light.unloadColumn(cx, cz);
+        for (int sy = MIN_SECTION_Y; sy <= MAX_SECTION_Y; sy++) {
+            if (blocks.getSection(cx, sy, cz) != null) {
+                blocks.removeSection(cx, sy, cz);
+                markSectionAndNeighboursDirty(cx, sy, cz);
+            }
+        }
+    }
+
+    // Keys of edited columns; call markColumnSaved() once a column is snapshotted
+    public LongSet getModifiedColumns() {
+        return modifiedColumns;
+    }
+
+    public void markColumnSaved(int cx, int cz) {
+        modifiedColumns.remove(columnKey(cx, cz));
+    }
+
+    // Copies of the column's sections, indexed like loadColumn(), safe to hand to another thread
+    public ChunkSection[] snapshotColumn(int cx, int cz) {
+        ChunkSection[] sections = new ChunkSection[MAX_SECTION_Y - MIN_SECTION_Y + 1];
+        for (int i = 0; i < sections.length; i++) {
+            ChunkSection section = blocks.getSection(cx, MIN_SECTION_Y + i, cz);
+            sections[i] = section == null ? null : section.copy();
+        }
+        return sections;
+    }
+
+    private void markSectionAndNeighboursDirty(int sx, int sy, int sz) {
+        markSectionDirty(sx, sy, sz);
+        markSectionDirty(sx - 1, sy, sz);
+        markSectionDirty(sx + 1, sy, sz);
+        markSectionDirty(sx, sy - 1, sz);
+        markSectionDirty(sx, sy + 1, sz);
+        markSectionDirty(sx, sy, sz - 1);
+        markSectionDirty(sx, sy, sz + 1);
+    }
+
+    // Sections above or below the world are never meshed, so they are never marked
+    private void markSectionDirty(int sx, int sy, int sz) {
+        if (sy < MIN_SECTION_Y || sy > MAX_SECTION_Y) return;
+        dirtySections.add(ChunkedBlockStorage.sectionKey(sx, sy, sz));
+    }
+
+    // Faces sample the light of the cell in front of them, which may be across a section
+    // border, so a relit section's neighbours are remeshed too
+    private void markRelitSectionsDirty() {
+        LongSet changed = light.getChangedSections();
+        for (int i = 0; i < changed.capacity(); i++) {
+            if (!changed.isUsed(i)) continue;
+            long key = changed.keyAt(i);
+            markSectionAndNeighboursDirty(
+                    ChunkedBlockStorage.keyX(key), ChunkedBlockStorage.keyY(key), ChunkedBlockStorage.keyZ(key));
+        }
+        light.clearChangedSections();
+    }
+
+    // Marks the block's section dirty, plus any neighbour whose border it lies on
+    private void markDirty(int x, int y, int z) {
+        int sx = x >> 4, sy = y >> 4, sz = z >> 4;
+        int lx = x & 15, ly = y & 15, lz = z & 15;
+        markSectionDirty(sx, sy, sz);
+        if (lx == 0) markSectionDirty(sx - 1, sy, sz);
+        if (lx == 15) markSectionDirty(sx + 1, sy, sz);
+        if (ly == 0) markSectionDirty(sx, sy - 1, sz);
+        if (ly == 15) markSectionDirty(sx, sy + 1, sz);
+        if (lz == 0) markSectionDirty(sx, sy, sz - 1);
+        if (lz == 15) markSectionDirty(sx, sy, sz + 1);
+    }
+
+    // Sends dirty sections to the mesh workers and uploads finished meshes.
+    // Call once per frame on the render thread, before render().
+    public void update(Vector3f cameraPos) {
+        profiler.begin(FrameProfiler.WORLD_UPDATE);
+        cameraSx = Math.round(cameraPos.x) >> 4;
+        cameraSy = Math.round(cameraPos.y) >> 4;
+        cameraSz = Math.round(cameraPos.z) >> 4;
+        // The simulation thread changes blocks and levels under the same lock. Rather than
+        // wait for a tick to finish, the snapshots are left for the next frame.
+        if (lock.tryLock()) {
+            try {
+                if (lodDirty || Math.abs(cameraPos.x - lodCameraX) >= 1f || Math.abs(cameraPos.z - lodCameraZ) >= 1f) {
+                    lodCameraX = cameraPos.x;
+                    lodCameraZ = cameraPos.z;
+                    lodDirty = false;
+                    updateLevels();
+                }
+                profiler.begin(FrameProfiler.MESHING);
+                submitDirtySections(cameraPos);
+                profiler.end(FrameProfiler.MESHING);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        profiler.begin(FrameProfiler.UPLOADS);
+        for (int uploads = 0; uploads < UPLOADS_PER_FRAME; uploads++) {
+            ChunkMeshWorkerPool.Result result = meshWorkers.pollResult();
+            if (result == null) break;
+
+            if (result.error != null) {
+                // The section keeps its previous mesh until it is edited again
+                System.err.println("Meshing section " + ChunkedBlockStorage.keyX(result.key) + ", "
+                        + ChunkedBlockStorage.keyY(result.key) + ", " + ChunkedBlockStorage.keyZ(result.key) + " failed");
+                result.error.printStackTrace();
+                continue;
+            }
+            sectionVisibility.put(result.key, result.visibility);
+            if (result.isEmpty()) {
+                deleteMesh(result.key);
+            } else {
+                int sx = ChunkedBlockStorage.keyX(result.key);
+                int sy = ChunkedBlockStorage.keyY(result.key);
+                int sz = ChunkedBlockStorage.keyZ(result.key);
+                MeshColumn column = meshColumns.get(columnKey(sx, sz));
+                if (column == null) {
+                    column = new MeshColumn(sx, sz);
+                    meshColumns.put(columnKey(sx, sz), column);
+                    meshColumnList.add(column);
+                }
+                column.getOrCreate(sy).upload(result.vertices, result.indices);
+                profiler.count(FrameProfiler.UPLOAD_COUNT, 1);
+            }
+            result.free();
+        }
+        profiler.end(FrameProfiler.UPLOADS);
+        profiler.end(FrameProfiler.WORLD_UPDATE);
+    }
 
+    // Snapshots dirty sections (blocks and light plus a border) and hands them to the mesh workers
+    private void submitDirtySections(Vector3f cameraPos) {
+        // Snapshots are taken on this thread, so cap how many are taken per frame.
+        // Nothing is allocated on frames without dirty sections.
+        int submitted = 0;
+        while (submitted < SUBMITS_PER_FRAME && !dirtySections.isEmpty()) {
+            // Take a batch of keys, then remove them; removal can reorder the table
+            int batch = 0;
+            for (int i = 0; i < dirtySections.capacity() && batch < SUBMITS_PER_FRAME - submitted; i++) {
+                if (dirtySections.isUsed(i)) dirtyBatch[batch++] = dirtySections.keyAt(i);
+            }
+            for (int b = 0; b < batch; b++) {
+                dirtySections.remove(dirtyBatch[b]);
+                if (submitSection(dirtyBatch[b], cameraPos)) submitted++;
+            }
+        }
+    }
+
+    // Hands one section to the mesh workers, or drops its mesh if the section is gone;
+    // returns whether it was submitted
+    private boolean submitSection(long key, Vector3f cameraPos) {
+        int sx = ChunkedBlockStorage.keyX(key);
+        int sy = ChunkedBlockStorage.keyY(key);
+        int sz = ChunkedBlockStorage.keyZ(key);
+        if (blocks.getSection(sx, sy, sz) == null) {
+            meshWorkers.cancel(key);
+            deleteMesh(key);
+            sectionVisibility.remove(key);
+            return false;
+        }
+
+        int[] padded = new int[ChunkMesher.PADDED_VOLUME];
+        blocks.copyPadded(sx, sy, sz, padded);
+        int level = levelOf(sx, sz);
+        int fullFaces = 0;
+        for (int face = 0; face < 6; face++) {
+            int nx = sx + SectionVisibility.FACE_DX[face], nz = sz + SectionVisibility.FACE_DZ[face];
+            neighbourLevels[face] = levelOf(nx, nz);
+            ChunkSection neighbour = blocks.getSection(nx, sy + SectionVisibility.FACE_DY[face], nz);
+            if (neighbour != null && neighbour.getNonAirCount() == ChunkSection.VOLUME) fullFaces |= 1 << face;
+        }
+        ChunkLod.clearSeams(padded, level, neighbourLevels, fullFaces);
+        byte[] paddedLight = null;
+        if (level == 0) {
+            paddedLight = new byte[ChunkMesher.PADDED_VOLUME];
+            light.copyPadded(sx, sy, sz, paddedLight);
+        }
+        float half = ChunkSection.SIZE / 2f;
+        double distanceSq = cameraPos.distanceSquared(
+                sx * ChunkSection.SIZE + half, sy * ChunkSection.SIZE + half, sz * ChunkSection.SIZE + half);
+        meshWorkers.submit(key, padded, paddedLight, distanceSq, level);
+        sectionsSubmitted++;
+        return true;
+    }
+
+    // Moves columns between detail levels; a column that changes level is remeshed
+    // together with its neighbours, whose seams depend on it
+    private void updateLevels() {
+        for (int i = 0; i < columnLevels.capacity(); i++) {
+            if (!columnLevels.isUsed(i)) continue;
+            long key = columnLevels.keyAt(i);
+            int cx = (int) (key >> 32), cz = (int) key;
+            int previous = (int) columnLevels.valueAt(i);
+            int level = ChunkLod.levelFor(previous, columnDistance(cx, cz));
+            if (level == previous) continue;
+            columnLevels.setValueAt(i, level);
+            for (int sy = MIN_SECTION_Y; sy <= MAX_SECTION_Y; sy++) {
+                markSectionAndNeighboursDirty(cx, sy, cz);
+            }
+        }
+    }
+
+    private int levelOf(int cx, int cz) {
+        return (int) columnLevels.get(columnKey(cx, cz), 0);
+    }
+
+    // Horizontal distance from the camera to the column's centre, in columns
+    private float columnDistance(int cx, int cz) {
+        float half = ChunkSection.SIZE / 2f - 0.5f;
+        float dx = cx * ChunkSection.SIZE + half - lodCameraX;
+        float dz = cz * ChunkSection.SIZE + half - lodCameraZ;
+        return (float) Math.sqrt(dx * dx + dz * dz) / ChunkSection.SIZE;
+    }
+
+    private void deleteMesh(long key) {
+        int sx = ChunkedBlockStorage.keyX(key), sz = ChunkedBlockStorage.keyZ(key);
+        MeshColumn column = meshColumns.get(columnKey(sx, sz));
+        if (column == null) return;
+        ChunkMesh mesh = column.remove(ChunkedBlockStorage.keyY(key));
+        if (mesh != null) {
+            mesh.cleanup();
+        }
+        if (column.count == 0) {
+            meshColumns.remove(columnKey(sx, sz));
+            meshColumnList.remove(column);
+        }
+    }
+
+    public ChunkedBlockStorage getBlocks() {
+        return blocks;
+    }
+
+    // Batches are GL objects, so an object whose Cube has none yet waits in 'unbatched'
+    // until the next render(); add() and remove() work without a GL context
     public void add(GameObject obj) {
         objects.add(obj);
+        InstanceBatch batch = batches.get(obj.getCube());
+        if (batch != null) {
+            batch.add(obj);
+        } else {
+            unbatched.add(obj);
+        }
     }
     public List<GameObject> getObjects() {
         return objects;
     }
     public void remove(GameObject obj) {
-        objects.remove(obj);
+        if (objects.remove(obj) && !unbatched.remove(obj)) {
+            batches.get(obj.getCube()).remove(obj);
+        }
+    }
+
+    // Switches free-standing objects between instanced draws and one draw per object
+    public void setInstancing(boolean instancing) {
+        this.instancing = instancing;
+    }
+
+    public boolean isInstancing() {
+        return instancing;
+    }
+
+    // Draw calls issued by the last render()
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    // Culling results of the last render()
+    public int getSectionsDrawn() {
+        return sectionsDrawn;
+    }
+
+    public int getSectionsCulled() {
+        return sectionsCulled;
+    }
+
+    // Terrain triangles drawn by the last render()
+    public int getTrianglesDrawn() {
+        return trianglesDrawn;
+    }
+
+    // Sections inside the frustum that the occlusion search did not reach
+    public int getSectionsOccluded() {
+        return sectionsOccluded;
+    }
+
+    public long getOcclusionNanos() {
+        return occlusionNanos;
+    }
+
+    public void setOcclusionCulling(boolean occlusionCulling) {
+        this.occlusionCulling = occlusionCulling;
+        if (!occlusionCulling) occlusionNanos = 0;
+    }
+
+    public boolean isOcclusionCulling() {
+        return occlusionCulling;
+    }
+
+    public int getObjectsDrawn() {
+        return objectsDrawn;
+    }
+
+    public int getObjectsCulled() {
+        return objectsCulled;
     }
 
     public boolean containsAt(Vector3f position) {
-        for (GameObject obj : objects) {
-            if (obj.position.equals(position)) {
-                return true;
+        int x = Math.round(position.x), y = Math.round(position.y), z = Math.round(position.z);
+        return blocks.getBlock(x, y, z) != Blocks.AIR;
+    }
+
+
+    // Culls, queues and draws the terrain and objects. Camera and light data are
+    // expected in the FrameUniforms buffer already.
+    public void render(Matrix4f view, Matrix4f projection, Shader shader, RenderState state) {
+        profiler.begin(FrameProfiler.CULLING);
+        drawCalls = 0;
+        projectionView.set(projection).mul(view);
+        frustum.set(projectionView);
+        sectionsDrawn = sectionsCulled = sectionsOccluded = 0;
+        trianglesDrawn = 0;
+        objectsDrawn = objectsCulled = 0;
+        if (occlusionCulling) {
+            long searchStart = System.nanoTime();
+            occlusion.search(cameraSx, cameraSy, cameraSz, frustum, connectivity);
+            occlusionNanos = System.nanoTime() - searchStart;
+        }
+
+        // Columns first; sections are only tested when their column straddles the frustum
+        for (int c = 0; c < meshColumnList.size(); c++) {
+            MeshColumn column = meshColumnList.get(c);
+            float minX = column.cx * ChunkSection.SIZE - 0.5f, minZ = column.cz * ChunkSection.SIZE - 0.5f;
+            int columnState = frustum.testAab(
+                    minX, column.minSy * ChunkSection.SIZE - 0.5f, minZ,
+                    minX + ChunkSection.SIZE, (column.maxSy + 1) * ChunkSection.SIZE - 0.5f, minZ + ChunkSection.SIZE);
+            if (columnState == Frustum.OUTSIDE) {
+                sectionsCulled += column.count;
+                continue;
+            }
+
+            for (int sy = column.minSy; sy <= column.maxSy; sy++) {
+                ChunkMesh mesh = column.get(sy);
+                if (mesh == null) continue;
+                float minY = sy * ChunkSection.SIZE - 0.5f;
+                if (columnState == Frustum.INTERSECT && !frustum.intersectsAab(
+                        minX, minY, minZ, minX + ChunkSection.SIZE, minY + ChunkSection.SIZE, minZ + ChunkSection.SIZE)) {
+                    sectionsCulled++;
+                    continue;
+                }
+                if (occlusionCulling && !occlusion.isVisible(column.cx, sy, column.cz)) {
+                    sectionsOccluded++;
+                    continue;
+                }
+                RenderQueue.DrawCommand command = renderQueue.add(
+                        shader, blockMesh.getTextureID(), mesh.getVaoID(), mesh.getIndexCount());
+                command.packed = true;
+                model.translation(
+                        column.cx * ChunkSection.SIZE,
+                        sy * ChunkSection.SIZE,
+                        column.cz * ChunkSection.SIZE).get(command.model);
+                trianglesDrawn += mesh.getIndexCount() / 3;
+                sectionsDrawn++;
+            }
+        }
+
+        if (!unbatched.isEmpty()) {
+            for (GameObject obj : unbatched) {
+                batches.computeIfAbsent(obj.getCube(), cube -> {
+                    InstanceBatch batch = new InstanceBatch(cube);
+                    batchList.add(batch);
+                    return batch;
+                }).add(obj);
+            }
+            unbatched.clear();
+        }
+        if (instancing) {
+            for (int b = 0; b < batchList.size(); b++) {
+                InstanceBatch batch = batchList.get(b);
+                // Instance buffer uploads are counted, but their time stays part of culling
+                int uploadCalls = batch.update();
+                state.count(uploadCalls);
+                profiler.count(FrameProfiler.UPLOAD_COUNT, uploadCalls);
+                if (batch.size() == 0) continue;
+                // A batch is one draw, so it is drawn whole or not at all
+                if (!batch.intersects(frustum)) {
+                    objectsCulled += batch.size();
+                    continue;
+                }
+                Cube cube = batch.getCube();
+                renderQueue.add(shader, cube.getTextureID(), batch.getVaoID(), cube.getIndexCount(), batch.size());
+                objectsDrawn += batch.size();
+            }
+        } else {
+            for (int i = 0; i < objects.size(); i++) {
+                GameObject obj = objects.get(i);
+                if (!obj.intersects(frustum)) {
+                    objectsCulled++;
+                    continue;
+                }
+                Cube cube = obj.getCube();
+                RenderQueue.DrawCommand command = renderQueue.add(
+                        shader, cube.getTextureID(), cube.getVaoID(), cube.getIndexCount());
+                obj.getModelMatrix(model).get(command.model);
+                objectsDrawn++;
+            }
+            // Instance buffers must be refreshed when instancing comes back on
+            for (int i = 0; i < objects.size(); i++) {
+                objects.get(i).markDirty();
+            }
+        }
+
+        drawCalls = renderQueue.size();
+        profiler.end(FrameProfiler.CULLING);
+        profiler.count(FrameProfiler.DRAW_CALLS, drawCalls);
+        profiler.count(FrameProfiler.TRIANGLES, trianglesDrawn);
+
+        profiler.begin(FrameProfiler.DRAW_SUBMISSION);
+        renderQueue.flush(state);
+        profiler.end(FrameProfiler.DRAW_SUBMISSION);
+    }
+
+    public void cleanup() {
+        meshWorkers.shutdown();
+        for (MeshColumn column : meshColumnList) {
+            for (int sy = MIN_SECTION_Y; sy <= MAX_SECTION_Y; sy++) {
+                ChunkMesh mesh = column.get(sy);
+                if (mesh != null) mesh.cleanup();
             }
         }
-        return false;
+        meshColumns.clear();
+        meshColumnList.clear();
+        for (InstanceBatch batch : batches.values()) {
+            batch.cleanup();
+        }
+        batches.clear();
+        batchList.clear();
     }
 
+    // Section meshes of one column, with the vertical range they cover
+    private static final class MeshColumn {
+        final int cx, cz;
+        // Indexed by sy - MIN_SECTION_Y
+        private final ChunkMesh[] meshes = new ChunkMesh[MAX_SECTION_Y - MIN_SECTION_Y + 1];
+        int count;
+        int minSy, maxSy;
 
-    public void render(Matrix4f view, Matrix4f projection, int shaderID) {
-        int locView = GL20.glGetUniformLocation(shaderID, "view");
-        int locProj = GL20.glGetUniformLocation(shaderID, "projection");
-        int locModel = GL20.glGetUniformLocation(shaderID, "model");
+        MeshColumn(int cx, int cz) {
+            this.cx = cx;
+            this.cz = cz;
+        }
+
+        ChunkMesh get(int sy) {
+            return sy < MIN_SECTION_Y || sy > MAX_SECTION_Y ? null : meshes[sy - MIN_SECTION_Y];
+        }
 
-        float[] viewArr = new float[16];
-        float[] projArr = new float[16];
-        view.get(viewArr);
-        projection.get(projArr);
+        ChunkMesh getOrCreate(int sy) {
+            if (sy < MIN_SECTION_Y || sy > MAX_SECTION_Y) throw new IllegalArgumentException("Section y out of range: " + sy);
+            ChunkMesh mesh = meshes[sy - MIN_SECTION_Y];
+            if (mesh == null) {
+                mesh = meshes[sy - MIN_SECTION_Y] = new ChunkMesh();
+                count++;
+                updateBounds();
+            }
+            return mesh;
+        }
 
-        GL20.glUniformMatrix4fv(locView, false, viewArr);
-        GL20.glUniformMatrix4fv(locProj, false, projArr);
+        ChunkMesh remove(int sy) {
+            ChunkMesh mesh = get(sy);
+            if (mesh != null) {
+                meshes[sy - MIN_SECTION_Y] = null;
+                count--;
+                updateBounds();
+            }
+            return mesh;
+        }
 
-        for (GameObject obj : objects) {
-            float[] modelArr = new float[16];
-            obj.getModelMatrix().get(modelArr);
-            GL20.glUniformMatrix4fv(locModel, false, modelArr);
-            obj.render();
+        private void updateBounds() {
+            minSy = Integer.MAX_VALUE;
+            maxSy = Integer.MIN_VALUE;
+            for (int sy = MIN_SECTION_Y; sy <= MAX_SECTION_Y; sy++) {
+                if (meshes[sy - MIN_SECTION_Y] == null) continue;
+                minSy = Math.min(minSy, sy);
+                maxSy = Math.max(maxSy, sy);
+            }
         }
     }
 }
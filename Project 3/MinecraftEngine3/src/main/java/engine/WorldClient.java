@@ -0,0 +1,252 @@
+package engine;
+
+import org.joml.Vector3f;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Connection to a WorldServer, without any rendering: enough for the game
+// (see Simulation) and for simulated clients in load tests.
+//
+// A reader thread decodes what the server sends into a queue; poll() hands
+// it to a Listener on the caller's thread, in the order it arrived. Edits
+// are collected with queueEdit() and sent together by flush(). The server
+// is authoritative: an edit shows up, for this client too, once the server
+// sends it back as a change.
+public class WorldClient implements Closeable {
+    public interface Listener {
+        // sections are indexed by sy - World.MIN_SECTION_Y, as in World.loadColumn()
+        void columnLoaded(int cx, int cz, ChunkSection[] sections);
+
+        void columnUnloaded(int cx, int cz);
+
+        void blockChanged(int x, int y, int z, int block);
+    }
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final int id;
+    private final int viewDistance;
+    private final Thread reader;
+    private final ConcurrentLinkedQueue<Update> updates = new ConcurrentLinkedQueue<>();
+
+    private int[] pendingEdits = new int[64]; // x, y, z, block
+    private int pendingCount;
+    private final ByteArrayOutputStream frameBytes = new ByteArrayOutputStream();
+    private final DataOutputStream frameOut = new DataOutputStream(frameBytes);
+
+    private volatile long bytesReceived;
+    private volatile long bytesSent;
+    private volatile boolean closed;
+    private volatile IOException error;
+
+    // Connects and completes the handshake; eye is where the player starts
+    public WorldClient(String host, int port, int viewDistance, Vector3f eye) throws IOException {
+        socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        frameOut.writeInt(WorldProtocol.MAGIC);
+        frameOut.writeByte(WorldProtocol.VERSION);
+        frameOut.writeByte(viewDistance);
+        frameOut.writeFloat(eye.x);
+        frameOut.writeFloat(eye.y);
+        frameOut.writeFloat(eye.z);
+        sendFrame(WorldProtocol.HELLO);
+        out.flush();
+
+        WorldProtocol.Frame frame = new WorldProtocol.Frame();
+        if (WorldProtocol.readFrame(in, frame) != WorldProtocol.WELCOME) {
+            socket.close();
+            throw new IOException("Expected WELCOME from the server");
+        }
+        bytesReceived += WorldProtocol.FRAME_HEADER + frame.length;
+        DataInputStream welcome = new DataInputStream(new ByteArrayInputStream(frame.payload, 0, frame.length));
+        id = welcome.readInt();
+        this.viewDistance = welcome.readUnsignedByte();
+
+        reader = new Thread(this::readLoop, "client-reader-" + id);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    // "host" or "host:port"
+    public static WorldClient connect(String address, int viewDistance, Vector3f eye) throws IOException {
+        int colon = address.lastIndexOf(':');
+        if (colon < 0) return new WorldClient(address, WorldProtocol.DEFAULT_PORT, viewDistance, eye);
+        return new WorldClient(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)), viewDistance, eye);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    // As granted by the server, which may cap what was asked for
+    public int getViewDistance() {
+        return viewDistance;
+    }
+
+    public void sendPosition(Vector3f eye) throws IOException {
+        frameOut.writeFloat(eye.x);
+        frameOut.writeFloat(eye.y);
+        frameOut.writeFloat(eye.z);
+        sendFrame(WorldProtocol.POSITION);
+    }
+
+    // Held until flush()
+    public void queueEdit(int x, int y, int z, int block) {
+        if ((pendingCount + 1) * 4 > pendingEdits.length) pendingEdits = Arrays.copyOf(pendingEdits, pendingEdits.length * 2);
+        pendingEdits[pendingCount * 4] = x;
+        pendingEdits[pendingCount * 4 + 1] = y;
+        pendingEdits[pendingCount * 4 + 2] = z;
+        pendingEdits[pendingCount * 4 + 3] = block;
+        pendingCount++;
+    }
+
+    // Sends queued edits and anything else written since the last flush
+    public void flush() throws IOException {
+        if (error != null) throw error;
+        for (int start = 0; start < pendingCount; start += WorldProtocol.MAX_EDITS_PER_FRAME) {
+            int count = Math.min(WorldProtocol.MAX_EDITS_PER_FRAME, pendingCount - start);
+            frameOut.writeShort(count);
+            for (int i = start; i < start + count; i++) {
+                frameOut.writeInt(pendingEdits[i * 4]);
+                frameOut.writeShort(pendingEdits[i * 4 + 1]);
+                frameOut.writeInt(pendingEdits[i * 4 + 2]);
+                frameOut.writeByte(pendingEdits[i * 4 + 3]);
+            }
+            sendFrame(WorldProtocol.EDITS);
+        }
+        pendingCount = 0;
+        out.flush();
+    }
+
+    // Hands everything received so far to the listener; returns how many updates there were
+    public int poll(Listener listener) throws IOException {
+        int count = 0;
+        Update update;
+        while ((update = updates.poll()) != null) {
+            if (update.sections != null) {
+                listener.columnLoaded(update.cx, update.cz, update.sections);
+            } else if (update.changes != null) {
+                int[] changes = update.changes;
+                for (int i = 0; i < changes.length; i += 4) {
+                    listener.blockChanged(changes[i], changes[i + 1], changes[i + 2], changes[i + 3]);
+                }
+            } else {
+                listener.columnUnloaded(update.cx, update.cz);
+            }
+            count++;
+        }
+        if (count == 0 && error != null) throw error;
+        return count;
+    }
+
+    public boolean isConnected() {
+        return !closed && error == null;
+    }
+
+    // Frame headers included
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    // Writes the frame built up in frameOut; the caller flushes
+    private void sendFrame(int type) throws IOException {
+        WorldProtocol.writeFrame(out, type, frameBytes.toByteArray(), frameBytes.size());
+        bytesSent += WorldProtocol.FRAME_HEADER + frameBytes.size();
+        frameBytes.reset();
+    }
+
+    private void readLoop() {
+        WorldProtocol.Frame frame = new WorldProtocol.Frame();
+        try {
+            while (!closed) {
+                int type = WorldProtocol.readFrame(in, frame);
+                bytesReceived += WorldProtocol.FRAME_HEADER + frame.length;
+                DataInputStream payload = new DataInputStream(new ByteArrayInputStream(frame.payload, 0, frame.length));
+                if (type == WorldProtocol.COLUMN) {
+                    int cx = payload.readInt(), cz = payload.readInt();
+                    ChunkSection[] sections = RegionStorage.decode(Arrays.copyOfRange(frame.payload, 8, frame.length));
+                    updates.add(new Update(cx, cz, sections, null));
+                } else if (type == WorldProtocol.UNLOAD) {
+                    updates.add(new Update(payload.readInt(), payload.readInt(), null, null));
+                } else if (type == WorldProtocol.CHANGES) {
+                    updates.add(new Update(0, 0, null, readChanges(frame)));
+                } else {
+                    throw new IOException("Unexpected frame type " + type);
+                }
+            }
+        } catch (IOException e) {
+            if (!closed) error = e;
+        }
+    }
+
+    private static int[] readChanges(WorldProtocol.Frame frame) throws IOException {
+        boolean deflated = frame.payload[0] != 0;
+        byte[] raw = deflated
+                ? WorldProtocol.inflate(frame.payload, 1, frame.length - 1)
+                : Arrays.copyOfRange(frame.payload, 1, frame.length);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+        int sections = in.readUnsignedShort();
+        int[] changes = new int[64];
+        int n = 0;
+        for (int s = 0; s < sections; s++) {
+            int baseX = in.readInt() * ChunkSection.SIZE;
+            int baseY = in.readByte() * ChunkSection.SIZE;
+            int baseZ = in.readInt() * ChunkSection.SIZE;
+            int count = in.readUnsignedShort();
+            if (n + count * 4 > changes.length) changes = Arrays.copyOf(changes, Math.max(changes.length * 2, n + count * 4));
+            for (int i = 0; i < count; i++) {
+                int index = in.readUnsignedShort();
+                changes[n++] = baseX + (index & 15);
+                changes[n++] = baseY + (index >> 8);
+                changes[n++] = baseZ + ((index >> 4) & 15);
+                changes[n++] = in.readUnsignedByte();
+            }
+        }
+        return Arrays.copyOf(changes, n);
+    }
+
+    // A received column (sections set), block changes (changes set) or unload (neither)
+    private static final class Update {
+        final int cx, cz;
+        final ChunkSection[] sections;
+        final int[] changes;
+
+        Update(int cx, int cz, ChunkSection[] sections, int[] changes) {
+            this.cx = cx;
+            this.cz = cz;
+            this.sections = sections;
+            this.changes = changes;
+        }
+    }
+}
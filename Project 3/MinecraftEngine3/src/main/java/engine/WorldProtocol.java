@@ -0,0 +1,127 @@
+package engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Wire format shared by WorldServer and WorldClient, over TCP.
+//
+// Every message is a frame: a type byte, the payload length as an int and
+// the payload. All numbers are big-endian, as DataOutputStream writes them.
+//
+// Client to server:
+//   HELLO      int magic, byte version, byte view distance, float x, y, z
+//   POSITION   float x, y, z (eye position; drives interest management)
+//   EDITS      short count, then count x (int x, short y, int z, byte block)
+// Server to client:
+//   WELCOME    int client id, byte view distance granted
+//   COLUMN     int cx, int cz, then the column as RegionStorage.encode() writes it
+//   UNLOAD     int cx, int cz
+//   CHANGES    byte deflated, then (deflated if 1) the block changes of one server
+//              tick in columns the client holds, grouped by section:
+//              short sections, then per section int sx, byte sy, int sz, short count
+//              and count x (short index in the section, byte block)
+//
+// A block change costs 3 bytes inside its section's group, against 11 for
+// an absolute position and block; CHANGES payloads of DEFLATE_THRESHOLD bytes
+// or more are deflated on top.
+public final class WorldProtocol {
+    public static final int MAGIC = 0x564F5845; // "VOXE"
+    public static final int VERSION = 1;
+    public static final int DEFAULT_PORT = 25580;
+
+    public static final int HELLO = 1;
+    public static final int POSITION = 2;
+    public static final int EDITS = 3;
+    public static final int WELCOME = 64;
+    public static final int COLUMN = 65;
+    public static final int UNLOAD = 66;
+    public static final int CHANGES = 67;
+
+    // Bytes on the wire before a frame's payload
+    public static final int FRAME_HEADER = 5;
+    public static final int MAX_FRAME = 1 << 20;
+    public static final int MAX_EDITS_PER_FRAME = 4096;
+    static final int DEFLATE_THRESHOLD = 256;
+
+    private WorldProtocol() {
+    }
+
+    public static void writeFrame(DataOutputStream out, int type, byte[] payload, int length) throws IOException {
+        out.writeByte(type);
+        out.writeInt(length);
+        out.write(payload, 0, length);
+    }
+
+    // Reads one frame's payload into a buffer sized to fit; returns the type
+    public static int readFrame(DataInputStream in, Frame frame) throws IOException {
+        int type = in.read();
+        if (type < 0) throw new EOFException();
+        int length = in.readInt();
+        if (length < 0 || length > MAX_FRAME) throw new IOException("Bad frame length " + length);
+        if (frame.payload.length < length) frame.payload = new byte[Math.max(length, frame.payload.length * 2)];
+        in.readFully(frame.payload, 0, length);
+        frame.type = type;
+        frame.length = length;
+        return type;
+    }
+
+    // Whether a block id is one a client may place
+    public static boolean isValidBlock(int block) {
+        return block >= Blocks.AIR && block <= Blocks.LAMP;
+    }
+
+    public static boolean isValidY(int y) {
+        return y >= World.MIN_SECTION_Y * ChunkSection.SIZE && y < (World.MAX_SECTION_Y + 1) * ChunkSection.SIZE;
+    }
+
+    static byte[] deflate(byte[] data, int length) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2 + 16);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static byte[] inflate(byte[] data, int offset, int length) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length * 4);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated deflated payload");
+                }
+                out.write(buffer, 0, n);
+                if (out.size() > MAX_FRAME * 8) throw new IOException("Inflated payload too large");
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Bad deflated payload", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // A received frame; the payload buffer is reused from frame to frame
+    public static final class Frame {
+        public int type;
+        public int length;
+        public byte[] payload = new byte[4096];
+    }
+}
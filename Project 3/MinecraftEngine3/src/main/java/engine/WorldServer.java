@@ -0,0 +1,674 @@
+package engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Authoritative world shared by WorldClients over TCP (see WorldProtocol).
+//
+// One tick thread owns the blocks. Each connection has a reader thread,
+// which keeps the client's latest position and passes its edits to the
+// tick through a queue, and a writer thread that sends the frames queued
+// for it, so a slow client never holds up a tick; one that falls
+// MAX_QUEUED_FRAMES behind, or sends MAX_QUEUED_EDIT_FRAMES of edits
+// faster than the ticks apply them, is dropped.
+//
+// Every tick installs the columns generated since the last one, applies
+// the queued edits as one batch (a block edited twice keeps the last
+// edit; edits outside the columns the sender holds are ignored), then gives each client one CHANGES frame with the changes in the
+// columns it holds, and UNLOAD and COLUMN frames that keep it holding the
+// columns within its view distance: nearest first, COLUMNS_PER_TICK at a
+// time, unloading a column past the view distance plus one, as
+// ChunkStreamer does. Columns are generated (or loaded from storage) on a
+// thread pool; the server keeps every column it has generated. There is
+// no light or meshing here; clients do their own.
+public class WorldServer {
+    public static final int TICKS_PER_SECOND = 20;
+    private static final long TICK_NANOS = 1_000_000_000L / TICKS_PER_SECOND;
+    private static final int COLUMNS_PER_TICK = 8; // per client
+    private static final int MAX_QUEUED_FRAMES = 4096;
+    private static final int MAX_QUEUED_EDIT_FRAMES = 64; // per client
+    private static final long AUTOSAVE_TICKS = 30L * TICKS_PER_SECOND;
+    // A column that failed to load or generate is requested again after this many ticks
+    private static final long RETRY_TICKS = 2L * TICKS_PER_SECOND;
+
+    private final TerrainGenerator generator;
+    private final RegionStorage storage; // may be null
+    private final int maxViewDistance;
+    private final ExecutorService executor;
+
+    // Owned by the tick thread
+    private final ChunkedBlockStorage blocks = new ChunkedBlockStorage();
+    private final LongSet loaded = new LongSet(1024);
+    private final LongObjectMap<Future<?>> inFlight = new LongObjectMap<>();
+    private final LongLongMap retryTicks = new LongLongMap(); // failed columns: tick of the next attempt
+    private final LongObjectMap<byte[]> columnPayloads = new LongObjectMap<>(1024); // COLUMN payloads, dropped on edit
+    private final LongSet modifiedColumns = new LongSet();
+    private final BlockEditQueue edits = new BlockEditQueue();
+    private final LongObjectMap<SectionChanges> changes = new LongObjectMap<>();
+    private final List<SectionChanges> changeList = new ArrayList<>();
+    private final Map<Integer, int[]> interestOffsets = new HashMap<>();
+
+    private final ConcurrentLinkedQueue<Column> finished = new ConcurrentLinkedQueue<>();
+    private final CopyOnWriteArrayList<Connection> connections = new CopyOnWriteArrayList<>();
+    private final AtomicInteger nextClientId = new AtomicInteger(1);
+
+    // Statistics; tickTimes is guarded by itself
+    private final FrameTimeStats tickTimes = new FrameTimeStats(TICKS_PER_SECOND * 60);
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private volatile long editsApplied;
+    private volatile long tick;
+
+    private ServerSocket serverSocket;
+    private Thread acceptor;
+    private Thread ticker;
+    private volatile boolean running;
+
+    // storage may be null, in which case edits live only as long as the server
+    public WorldServer(TerrainGenerator generator, RegionStorage storage, int maxViewDistance, int threads) {
+        this.generator = generator;
+        this.storage = storage;
+        this.maxViewDistance = maxViewDistance;
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "server-generator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Listens on the port (0 picks a free one, see getPort()) and starts ticking
+    public void start(int port) throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port), 128);
+        running = true;
+        acceptor = new Thread(this::acceptLoop, "server-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        ticker = new Thread(this::run, "server-tick");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public void stop() {
+        running = false;
+        try {
+            if (serverSocket != null) serverSocket.close();
+        } catch (IOException ignored) {
+        }
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        // A tick never blocks, so the tick thread ends within one tick of 'running' going false
+        try {
+            if (ticker != null) ticker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdownNow();
+        // The tick thread owns the blocks; only save once it has ended
+        if (ticker != null && ticker.isAlive()) {
+            System.err.println("Interrupted before the tick thread ended; not saving");
+            return;
+        }
+        saveModifiedColumns();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Thread reader = new Thread(() -> serve(socket), "server-reader");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (running) System.err.println("Could not accept a connection: " + e.getMessage());
+            }
+        }
+    }
+
+    private void run() {
+        long next = System.nanoTime();
+        while (running) {
+            tick();
+            next += TICK_NANOS;
+            long now = System.nanoTime();
+            if (now - next > 5 * TICK_NANOS) {
+                next = now;
+            } else if (next > now) {
+                LockSupport.parkNanos(next - now);
+            }
+        }
+    }
+
+    // Runs one tick on the calling thread; only call it directly on a server that was not start()ed
+    public void tick() {
+        long start = System.nanoTime();
+        installGeneratedColumns();
+        applyEdits();
+        for (Connection connection : connections) {
+            if (connection.closed) {
+                connections.remove(connection);
+                continue;
+            }
+            sendChanges(connection);
+            updateInterest(connection);
+        }
+        changes.clear();
+        changeList.clear();
+        if (storage != null && tick > 0 && tick % AUTOSAVE_TICKS == 0) saveModifiedColumns();
+        tick++;
+        synchronized (tickTimes) {
+            tickTimes.record((System.nanoTime() - start) / 1e6f);
+        }
+    }
+
+    private void installGeneratedColumns() {
+        Column column;
+        while ((column = finished.poll()) != null) {
+            long key = World.columnKey(column.cx, column.cz);
+            inFlight.remove(key);
+            if (column.sections == null) {
+                retryTicks.put(key, tick + RETRY_TICKS);
+                continue;
+            }
+            retryTicks.remove(key);
+            columnPayloads.put(key, column.payload);
+            for (int i = 0; i < column.sections.length; i++) {
+                ChunkSection section = column.sections[i];
+                if (section != null && !section.isEmpty()) {
+                    blocks.putSection(column.cx, World.MIN_SECTION_Y + i, column.cz, section);
+                }
+            }
+            loaded.add(key);
+        }
+    }
+
+    private void applyEdits() {
+        for (Connection connection : connections) {
+            int[] batch;
+            while ((batch = connection.inbox.poll()) != null) {
+                for (int i = 0; i < batch.length; i += 4) {
+                    int x = batch[i], y = batch[i + 1], z = batch[i + 2], block = batch[i + 3];
+                    // Only blocks the client can see, which are always in generated columns
+                    if (connection.columns.contains(World.columnKey(x >> 4, z >> 4))) edits.add(x, y, z, block);
+                }
+            }
+        }
+        int changed = 0;
+        for (int i = 0; i < edits.size(); i++) {
+            int x = edits.x(i), y = edits.y(i), z = edits.z(i), block = edits.block(i);
+            if (blocks.setBlock(x, y, z, block) == block) continue;
+            long sectionKey = ChunkedBlockStorage.sectionKey(x >> 4, y >> 4, z >> 4);
+            SectionChanges section = changes.get(sectionKey);
+            if (section == null) {
+                section = new SectionChanges(x >> 4, y >> 4, z >> 4);
+                changes.put(sectionKey, section);
+                changeList.add(section);
+            }
+            section.add(ChunkSection.index(x & 15, y & 15, z & 15), block);
+            long columnKey = World.columnKey(x >> 4, z >> 4);
+            columnPayloads.remove(columnKey);
+            modifiedColumns.add(columnKey);
+            changed++;
+        }
+        edits.clear();
+        editsApplied += changed;
+    }
+
+    // One CHANGES frame with this tick's changes in the columns the client holds
+    private void sendChanges(Connection connection) {
+        if (changeList.isEmpty()) return;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int sections = 0;
+        for (SectionChanges section : changeList) {
+            if (!connection.columns.contains(World.columnKey(section.sx, section.sz))) continue;
+            section.writeTo(bytes);
+            sections++;
+        }
+        if (sections == 0) return;
+
+        byte[] groups = bytes.toByteArray();
+        byte[] raw = new byte[2 + groups.length];
+        raw[0] = (byte) (sections >> 8);
+        raw[1] = (byte) sections;
+        System.arraycopy(groups, 0, raw, 2, groups.length);
+        boolean deflate = raw.length >= WorldProtocol.DEFLATE_THRESHOLD;
+        byte[] body = deflate ? WorldProtocol.deflate(raw, raw.length) : raw;
+        byte[] payload = new byte[1 + body.length];
+        payload[0] = (byte) (deflate ? 1 : 0);
+        System.arraycopy(body, 0, payload, 1, body.length);
+        connection.send(WorldProtocol.CHANGES, payload, payload.length);
+    }
+
+    private void updateInterest(Connection connection) {
+        int cx = Math.round(connection.x) >> 4, cz = Math.round(connection.z) >> 4;
+        int viewDistance = connection.viewDistance;
+        if (cx != connection.centerX || cz != connection.centerZ) {
+            connection.centerX = cx;
+            connection.centerZ = cz;
+            connection.complete = false;
+            int limit = viewDistance + 1;
+            for (long key : connection.columns.keys()) {
+                int dx = (int) (key >> 32) - cx, dz = (int) key - cz;
+                if (dx * dx + dz * dz > limit * limit) {
+                    connection.columns.remove(key);
+                    byte[] payload = new byte[8];
+                    putInt(payload, 0, (int) (key >> 32));
+                    putInt(payload, 4, (int) key);
+                    connection.send(WorldProtocol.UNLOAD, payload, payload.length);
+                }
+            }
+        }
+        if (connection.complete) return;
+
+        int[] offsets = offsets(viewDistance);
+        int sent = 0;
+        boolean complete = true;
+        for (int i = 0; i < offsets.length; i += 2) {
+            int x = cx + offsets[i], z = cz + offsets[i + 1];
+            long key = World.columnKey(x, z);
+            if (connection.columns.contains(key)) continue;
+            if (!loaded.contains(key)) {
+                request(x, z);
+                complete = false;
+                continue;
+            }
+            if (sent == COLUMNS_PER_TICK) {
+                complete = false;
+                break;
+            }
+            byte[] payload = columnPayload(x, z);
+            connection.send(WorldProtocol.COLUMN, payload, payload.length);
+            connection.columns.add(key);
+            sent++;
+        }
+        connection.complete = complete;
+    }
+
+    // Column offsets within viewDistance, as dx, dz pairs, nearest first
+    private int[] offsets(int viewDistance) {
+        int[] offsets = interestOffsets.get(viewDistance);
+        if (offsets != null) return offsets;
+        List<int[]> inRange = new ArrayList<>();
+        for (int dz = -viewDistance; dz <= viewDistance; dz++) {
+            for (int dx = -viewDistance; dx <= viewDistance; dx++) {
+                if (dx * dx + dz * dz <= viewDistance * viewDistance) inRange.add(new int[] {dx, dz});
+            }
+        }
+        inRange.sort((a, b) -> Integer.compare(a[0] * a[0] + a[1] * a[1], b[0] * b[0] + b[1] * b[1]));
+        offsets = new int[inRange.size() * 2];
+        for (int i = 0; i < inRange.size(); i++) {
+            offsets[i * 2] = inRange.get(i)[0];
+            offsets[i * 2 + 1] = inRange.get(i)[1];
+        }
+        interestOffsets.put(viewDistance, offsets);
+        return offsets;
+    }
+
+    private void request(int cx, int cz) {
+        long key = World.columnKey(cx, cz);
+        if (inFlight.containsKey(key) || tick < retryTicks.get(key, 0)) return;
+        inFlight.put(key, executor.submit(() -> {
+            try {
+                // Encoded here rather than on the tick; the sections are not shared yet
+                ChunkSection[] sections = loadOrGenerate(cx, cz);
+                finished.add(new Column(cx, cz, sections, encodeColumn(cx, cz, sections)));
+            } catch (RuntimeException e) {
+                System.err.println("Could not load or generate column " + cx + "," + cz + ", retrying later");
+                e.printStackTrace();
+                finished.add(new Column(cx, cz, null, null));
+            }
+        }));
+    }
+
+    // Runs on a generator thread
+    private ChunkSection[] loadOrGenerate(int cx, int cz) {
+        if (storage != null) {
+            try {
+                ChunkSection[] saved = storage.loadColumn(cx, cz);
+                if (saved != null) return saved;
+            } catch (IOException e) {
+                System.err.println("Could not load column " + cx + "," + cz + ", regenerating: " + e.getMessage());
+            }
+        }
+        return generator.generateColumn(cx, cz);
+    }
+
+    private byte[] columnPayload(int cx, int cz) {
+        long key = World.columnKey(cx, cz);
+        byte[] payload = columnPayloads.get(key);
+        if (payload == null) {
+            payload = encodeColumn(cx, cz, columnSections(cx, cz, false));
+            columnPayloads.put(key, payload);
+        }
+        return payload;
+    }
+
+    private static byte[] encodeColumn(int cx, int cz, ChunkSection[] sections) {
+        byte[] column = RegionStorage.encode(sections);
+        byte[] payload = new byte[8 + column.length];
+        putInt(payload, 0, cx);
+        putInt(payload, 4, cz);
+        System.arraycopy(column, 0, payload, 8, column.length);
+        return payload;
+    }
+
+    private ChunkSection[] columnSections(int cx, int cz, boolean copy) {
+        ChunkSection[] sections = new ChunkSection[World.MAX_SECTION_Y - World.MIN_SECTION_Y + 1];
+        for (int i = 0; i < sections.length; i++) {
+            ChunkSection section = blocks.getSection(cx, World.MIN_SECTION_Y + i, cz);
+            sections[i] = section == null || !copy ? section : section.copy();
+        }
+        return sections;
+    }
+
+    private void saveModifiedColumns() {
+        if (storage == null) return;
+        for (long key : modifiedColumns.keys()) {
+            int cx = (int) (key >> 32), cz = (int) key;
+            storage.saveColumnAsync(cx, cz, columnSections(cx, cz, true));
+        }
+        modifiedColumns.clear();
+    }
+
+    // Reader thread of one connection: handshake, then positions and edits until it closes
+    private void serve(Socket socket) {
+        Connection connection = null;
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            WorldProtocol.Frame frame = new WorldProtocol.Frame();
+            if (WorldProtocol.readFrame(in, frame) != WorldProtocol.HELLO) throw new IOException("Expected HELLO");
+            DataInputStream hello = new DataInputStream(new ByteArrayInputStream(frame.payload, 0, frame.length));
+            if (hello.readInt() != WorldProtocol.MAGIC || hello.readUnsignedByte() != WorldProtocol.VERSION) {
+                throw new IOException("Not a client of this protocol version");
+            }
+            int viewDistance = Math.max(1, Math.min(maxViewDistance, hello.readUnsignedByte()));
+            connection = new Connection(nextClientId.getAndIncrement(), socket, viewDistance);
+            connection.setPosition(hello.readFloat(), hello.readFloat(), hello.readFloat());
+            bytesReceived.add(WorldProtocol.FRAME_HEADER + frame.length);
+
+            byte[] welcome = new byte[5];
+            putInt(welcome, 0, connection.id);
+            welcome[4] = (byte) viewDistance;
+            connection.send(WorldProtocol.WELCOME, welcome, welcome.length);
+            connection.writer.start();
+            connections.add(connection);
+
+            while (running && !connection.closed) {
+                int type = WorldProtocol.readFrame(in, frame);
+                bytesReceived.add(WorldProtocol.FRAME_HEADER + frame.length);
+                DataInputStream payload = new DataInputStream(new ByteArrayInputStream(frame.payload, 0, frame.length));
+                if (type == WorldProtocol.POSITION) {
+                    connection.setPosition(payload.readFloat(), payload.readFloat(), payload.readFloat());
+                } else if (type == WorldProtocol.EDITS) {
+                    int count = payload.readUnsignedShort();
+                    if (count > WorldProtocol.MAX_EDITS_PER_FRAME) throw new IOException("Too many edits: " + count);
+                    int[] batch = new int[count * 4];
+                    int valid = 0;
+                    for (int i = 0; i < count; i++) {
+                        int x = payload.readInt(), y = payload.readShort(), z = payload.readInt();
+                        int block = payload.readUnsignedByte();
+                        if (!WorldProtocol.isValidY(y) || !WorldProtocol.isValidBlock(block)) continue;
+                        batch[valid++] = x;
+                        batch[valid++] = y;
+                        batch[valid++] = z;
+                        batch[valid++] = block;
+                    }
+                    if (valid > 0 && !connection.inbox.offer(valid == batch.length ? batch : Arrays.copyOf(batch, valid))) {
+                        throw new IOException("Sending edits faster than the server applies them");
+                    }
+                } else {
+                    throw new IOException("Unexpected frame type " + type);
+                }
+            }
+        } catch (IOException e) {
+            if (running && connection != null && !connection.closed) {
+                System.err.println("Client " + connection.id + " disconnected: " + e.getMessage());
+            }
+        } finally {
+            if (connection != null) {
+                connection.close();
+            } else {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    public int getClientCount() {
+        return connections.size();
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public long getEditsApplied() {
+        return editsApplied;
+    }
+
+    public int getLoadedColumnCount() {
+        return loaded.size();
+    }
+
+    // Total bytes written to and read from clients, frame headers included
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    // Over the last minute of ticks, or those since resetTickTimes()
+    public float tickPercentileMillis(float p) {
+        synchronized (tickTimes) {
+            return tickTimes.percentile(p);
+        }
+    }
+
+    public void resetTickTimes() {
+        synchronized (tickTimes) {
+            tickTimes.clear();
+        }
+    }
+
+    // The server's copy of a block; only safe while the server is not ticking on its own thread
+    public int getBlock(int x, int y, int z) {
+        return blocks.getBlock(x, y, z);
+    }
+
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >> 24);
+        bytes[offset + 1] = (byte) (value >> 16);
+        bytes[offset + 2] = (byte) (value >> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    // Runs a server until the process is killed: [port] [seed] [save directory]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : WorldProtocol.DEFAULT_PORT;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 415L;
+        RegionStorage storage = new RegionStorage(Paths.get(args.length > 2 ? args[2] : "saves/server"));
+        WorldServer server = new WorldServer(new TerrainGenerator(seed), storage, 16,
+                Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        server.start(port);
+        System.out.println("World server listening on port " + server.getPort());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            try {
+                storage.close();
+            } catch (IOException e) {
+                System.err.println("Could not save the world: " + e.getMessage());
+            }
+        }));
+        while (true) {
+            Thread.sleep(10_000);
+            System.out.printf("%d clients, %d columns, tick p50 %.2f ms, p99 %.2f ms, sent %.1f MB%n",
+                    server.getClientCount(), server.getLoadedColumnCount(), server.tickPercentileMillis(50),
+                    server.tickPercentileMillis(99), server.getBytesSent() / 1e6);
+        }
+    }
+
+    // One client as seen by the server
+    private final class Connection {
+        final int id;
+        final Socket socket;
+        final int viewDistance;
+        final DataOutputStream out;
+        final LinkedBlockingQueue<byte[]> outgoing = new LinkedBlockingQueue<>();
+        final ArrayBlockingQueue<int[]> inbox = new ArrayBlockingQueue<>(MAX_QUEUED_EDIT_FRAMES); // x, y, z, block, ...
+        final Thread writer;
+        volatile float x, y, z;
+        volatile boolean closed;
+
+        // Tick thread only
+        final LongSet columns = new LongSet(256);
+        int centerX = Integer.MIN_VALUE, centerZ = Integer.MIN_VALUE;
+        boolean complete;
+
+        Connection(int id, Socket socket, int viewDistance) throws IOException {
+            this.id = id;
+            this.socket = socket;
+            this.viewDistance = viewDistance;
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            this.writer = new Thread(this::writeLoop, "server-writer-" + id);
+            writer.setDaemon(true);
+        }
+
+        void setPosition(float x, float y, float z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        // Queues a frame; drops the client if it has fallen too far behind
+        void send(int type, byte[] payload, int length) {
+            if (closed) return;
+            if (outgoing.size() >= MAX_QUEUED_FRAMES) {
+                System.err.println("Client " + id + " is not keeping up; disconnecting");
+                close();
+                return;
+            }
+            ByteArrayOutputStream frame = new ByteArrayOutputStream(WorldProtocol.FRAME_HEADER + length);
+            try {
+                WorldProtocol.writeFrame(new DataOutputStream(frame), type, payload, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // in-memory streams do not fail
+            }
+            outgoing.add(frame.toByteArray());
+        }
+
+        private void writeLoop() {
+            try {
+                while (!closed) {
+                    byte[] frame = outgoing.take();
+                    out.write(frame);
+                    long written = frame.length;
+                    // Everything already queued goes out in the same flush
+                    while ((frame = outgoing.poll()) != null) {
+                        out.write(frame);
+                        written += frame.length;
+                    }
+                    out.flush();
+                    bytesSent.add(written);
+                }
+            } catch (InterruptedException e) {
+                // closed
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void close() {
+            if (closed) return;
+            closed = true;
+            writer.interrupt();
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    // Changes to one section in the current tick
+    private static final class SectionChanges {
+        final int sx, sy, sz;
+        private int[] entries = new int[16]; // index << 8 | block
+        private int count;
+
+        SectionChanges(int sx, int sy, int sz) {
+            this.sx = sx;
+            this.sy = sy;
+            this.sz = sz;
+        }
+
+        void add(int index, int block) {
+            if (count == entries.length) entries = Arrays.copyOf(entries, count * 2);
+            entries[count++] = index << 8 | block;
+        }
+
+        // int sx, byte sy, int sz, short count, then count x (short index, byte block)
+        void writeTo(ByteArrayOutputStream bytes) {
+            DataOutputStream out = new DataOutputStream(bytes);
+            try {
+                out.writeInt(sx);
+                out.writeByte(sy);
+                out.writeInt(sz);
+                out.writeShort(count);
+                for (int i = 0; i < count; i++) {
+                    out.writeShort(entries[i] >>> 8);
+                    out.writeByte(entries[i] & 0xFF);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // in-memory streams do not fail
+            }
+        }
+    }
+
+    private static final class Column {
+        final int cx, cz;
+        final ChunkSection[] sections; // null if loading and generating failed
+        final byte[] payload; // COLUMN payload
+
+        Column(int cx, int cz, ChunkSection[] sections, byte[] payload) {
+            this.cx = cx;
+            this.cz = cz;
+            this.sections = sections;
+            this.payload = payload;
+        }
+    }
+}
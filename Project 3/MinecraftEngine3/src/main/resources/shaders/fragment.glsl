@@ -1,30 +1,17 @@
 #version 330 core
 
 in vec2 TexCoord;
-in vec3 FragPos;
-in vec3 Normal;
+in float Brightness;
+in float Layer;
 
 out vec4 FragColor;
 
-uniform sampler2D texture1;
-uniform vec3 lightDir;
-uniform vec3 cameraPos;
+uniform sampler2DArray blockTextures;
 
-void main() {
-    // Normalize vectors
-    vec3 norm = normalize(Normal);
-    vec3 lightDirection = normalize(-lightDir);
-
-    // Ambient
-    float ambientStrength = 0.2;
-    vec3 ambient = ambientStrength * vec3(1.0);
-
-    // Diffuse
-    float diff = max(dot(norm, lightDirection), 0.0);
-    vec3 diffuse = diff * vec3(1.0);
+// Darkest a fully unlit face gets, so caves are not pitch black
+const float MIN_BRIGHTNESS = 0.05;
 
-    vec3 lighting = (ambient + diffuse);
-    vec4 texColor = texture(texture1, TexCoord);
-
-    FragColor = vec4(texColor.rgb * lighting, texColor.a);
+void main() {
+    vec4 texColor = texture(blockTextures, vec3(TexCoord, Layer));
+    FragColor = vec4(texColor.rgb * max(Brightness, MIN_BRIGHTNESS), texColor.a);
 }
@@ -2,20 +2,53 @@
 
 layout (location = 0) in vec3 aPos;
 layout (location = 1) in vec2 aTexCoord;
-layout (location = 2) in vec3 aNormal;
+layout (location = 2) in vec3 aLight;         // sky light, block light (0-1), face shade
+layout (location = 3) in mat4 aInstanceModel; // locations 3-6, per instance
+layout (location = 7) in float aLayer;         // block texture array layer
+layout (location = 8) in uint aPacked;         // chunk meshes only, see ChunkMeshData
 
 out vec2 TexCoord;
-out vec3 FragPos;
-out vec3 Normal;
+out float Brightness;
+out float Layer;
+
+// Per-frame data shared by all programs, see FrameUniforms
+layout(std140) uniform Frame {
+    mat4 view;
+    mat4 projection;
+    vec4 cameraPos;
+    vec4 lightDir;
+};
 
 uniform mat4 model;
-uniform mat4 view;
-uniform mat4 projection;
+uniform bool instanced;
+uniform bool packedVertex; // read aPacked instead of attributes 0-2 and 7
+
+// Shade per face direction, in SectionVisibility.FACE_* order: top brightest, bottom darkest
+const float FACE_SHADE[6] = float[](0.6, 0.6, 0.5, 1.0, 0.8, 0.8);
 
 void main() {
-    FragPos = vec3(model * vec4(aPos, 1.0));
-    Normal = mat3(transpose(inverse(model))) * aNormal;
-    TexCoord = aTexCoord;
+    mat4 objectModel = instanced ? aInstanceModel : model;
+    vec3 position;
+    vec3 light;
+    if (packedVertex) {
+        vec3 corner = vec3(aPacked & 31u, (aPacked >> 5) & 31u, (aPacked >> 10) & 31u);
+        uint face = (aPacked >> 15) & 7u;
+        uint axis = face >> 1;
+        position = corner - 0.5;
+        // Texture repeats once per block; sides keep V pointing up
+        TexCoord = axis == 1u ? corner.xz : vec2(axis == 0u ? corner.z : corner.x, corner.y);
+        light = vec3(float((aPacked >> 18) & 15u) / 15.0, float((aPacked >> 22) & 15u) / 15.0, FACE_SHADE[face]);
+        Layer = float(aPacked >> 26);
+    } else {
+        position = aPos;
+        TexCoord = aTexCoord;
+        light = aLight;
+        Layer = aLayer;
+    }
+
+    // Light is baked per vertex; each level down is 80% as bright as the one above
+    float level = max(light.x, light.y) * 15.0;
+    Brightness = pow(0.8, 15.0 - level) * light.z;
 
-    gl_Position = projection * view * vec4(FragPos, 1.0);
+    gl_Position = projection * view * objectModel * vec4(position, 1.0);
 }